@@ -98,7 +98,8 @@ public class Application {
             "com.shiwu.cart.controller.CartController",
             "com.shiwu.review.controller.ReviewController",
             "com.shiwu.payment.controller.PaymentController",
-            "com.shiwu.notification.controller.NotificationController"
+            "com.shiwu.notification.controller.NotificationController",
+            "com.shiwu.common.controller.BatchController"
         };
 
         for (String className : controllerClasses) {
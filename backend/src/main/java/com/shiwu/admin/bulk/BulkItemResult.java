@@ -0,0 +1,45 @@
+package com.shiwu.admin.bulk;
+
+/**
+ * 批量管理操作中单个对象的处理结果
+ */
+public class BulkItemResult {
+    private final Long id;
+    private final boolean success;
+    private final String message;
+
+    private BulkItemResult(Long id, boolean success, String message) {
+        this.id = id;
+        this.success = success;
+        this.message = message;
+    }
+
+    public static BulkItemResult ok(Long id) {
+        return new BulkItemResult(id, true, null);
+    }
+
+    public static BulkItemResult fail(Long id, String message) {
+        return new BulkItemResult(id, false, message);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkItemResult{" +
+                "id=" + id +
+                ", success=" + success +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,96 @@
+package com.shiwu.admin.bulk;
+
+import com.shiwu.common.util.JsonUtil;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量管理操作结果写入器
+ *
+ * 批量操作按块执行，每块提交后把块内每个对象的处理结果以 NDJSON 逐行写出并立即刷新，
+ * 客户端不必等全部处理完就能看到进度；最后一行是 {"summary": {...}} 汇总。
+ */
+public class BulkResultWriter {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson;charset=UTF-8";
+
+    /**
+     * 每块处理的对象数量：一条加锁查询、一条 UPDATE 和一条审计 INSERT
+     */
+    public static final int CHUNK_SIZE = 500;
+
+    private final Writer out;
+
+    public BulkResultWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * 请求是否要求逐块返回结果：?stream=true 或 Accept 包含 application/x-ndjson
+     */
+    public static boolean isRequested(HttpServletRequest req) {
+        String accept = req.getHeader("Accept");
+        return "true".equalsIgnoreCase(req.getParameter("stream"))
+                || (accept != null && accept.toLowerCase().contains("application/x-ndjson"));
+    }
+
+    /**
+     * 设置响应头并创建写到响应流的写入器
+     */
+    public static BulkResultWriter forResponse(HttpServletResponse resp) throws IOException {
+        resp.setContentType(CONTENT_TYPE);
+        resp.setHeader("Cache-Control", "no-store");
+        return new BulkResultWriter(new BufferedWriter(new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 写出一块的处理结果
+     */
+    public void write(List<BulkItemResult> results) throws IOException {
+        for (BulkItemResult result : results) {
+            out.write(JsonUtil.toJson(result));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * 写出汇总行
+     */
+    public void writeSummary(Map<String, Object> summary) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("summary", summary);
+        out.write(JsonUtil.toJson(line));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * 去掉空值和重复ID后按块大小切分，保持原有顺序
+     */
+    public static List<List<Long>> partition(Collection<Long> ids) {
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.removeIf(id -> id == null);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += CHUNK_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + CHUNK_SIZE, distinct.size())));
+        }
+        return chunks;
+    }
+}
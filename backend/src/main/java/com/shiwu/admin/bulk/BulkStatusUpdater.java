@@ -0,0 +1,175 @@
+package com.shiwu.admin.bulk;
+
+import com.shiwu.admin.enums.AuditActionEnum;
+import com.shiwu.admin.enums.AuditTargetTypeEnum;
+import com.shiwu.admin.model.AuditLog;
+import com.shiwu.admin.service.AuditLogService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 批量修改状态的分块执行器
+ *
+ * 用户和商品的批量管理操作共用这一流程：按块调用 DAO 加锁修改，逐个对象生成处理结果和审计日志，
+ * 每块的审计日志批量写入后再把结果交给 {@link BulkResultWriter}；最后写一条批量操作审计日志并返回汇总。
+ */
+public class BulkStatusUpdater {
+    private static final Logger logger = LoggerFactory.getLogger(BulkStatusUpdater.class);
+
+    private final AuditLogService auditLogService;
+    private final AuditTargetTypeEnum targetType;
+    private final String notFoundMessage;
+    private final String nameKey;
+
+    /**
+     * @param auditLogService 审计日志服务
+     * @param targetType 审计日志的目标类型
+     * @param notFoundMessage DAO 没有返回对应行时的失败原因
+     * @param nameKey DAO 返回行中用于审计描述的名称字段
+     */
+    public BulkStatusUpdater(AuditLogService auditLogService, AuditTargetTypeEnum targetType,
+                             String notFoundMessage, String nameKey) {
+        this.auditLogService = auditLogService;
+        this.targetType = targetType;
+        this.notFoundMessage = notFoundMessage;
+        this.nameKey = nameKey;
+    }
+
+    /**
+     * 分块执行批量状态修改
+     * @param action 单个对象的审计操作
+     * @param rule 状态修改规则
+     * @param ids 对象ID，空值和重复ID会被去掉
+     * @param adminId 管理员ID
+     * @param reason 操作原因，可以为null
+     * @param ipAddress IP地址
+     * @param userAgent 用户代理
+     * @param writer 逐块写出结果的写入器；为null时失败明细放在返回结果的 failures 中
+     * @param chunkUpdate 修改一块对象，返回找到的行，每行包含 id、名称字段和是否已修改 updated
+     * @return 包含 totalCount、successCount、failCount 的汇总
+     */
+    public Map<String, Object> run(AuditActionEnum action, StatusRule rule, List<Long> ids, Long adminId,
+                                   String reason, String ipAddress, String userAgent, BulkResultWriter writer,
+                                   Function<List<Long>, List<Map<String, Object>>> chunkUpdate) throws IOException {
+        String reasonText = reason != null ? ", 原因: " + reason : "";
+        int totalCount = 0;
+        int successCount = 0;
+        List<BulkItemResult> failures = new ArrayList<>();
+
+        for (List<Long> chunk : BulkResultWriter.partition(ids)) {
+            List<BulkItemResult> results = new ArrayList<>(chunk.size());
+            List<AuditLog> auditLogs = new ArrayList<>(chunk.size());
+            try {
+                Map<Long, Map<String, Object>> rows = new HashMap<>();
+                for (Map<String, Object> row : chunkUpdate.apply(chunk)) {
+                    rows.put((Long) row.get("id"), row);
+                }
+                for (Long id : chunk) {
+                    Map<String, Object> row = rows.get(id);
+                    String message = null;
+                    if (row == null) {
+                        message = notFoundMessage;
+                    } else if (!Boolean.TRUE.equals(row.get("updated"))) {
+                        message = rule.rejection.apply(row);
+                    }
+                    if (message == null) {
+                        results.add(BulkItemResult.ok(id));
+                        auditLogs.add(AuditLog.of(adminId, action, targetType, id,
+                                rule.verb + ": " + row.get(nameKey) + " (ID: " + id + ")" + reasonText,
+                                ipAddress, userAgent, true));
+                    } else {
+                        results.add(BulkItemResult.fail(id, message));
+                        auditLogs.add(AuditLog.of(adminId, action, targetType, id,
+                                rule.verb + "失败: " + message + reasonText, ipAddress, userAgent, false));
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("批量{}失败: {}", rule.verb, e.getMessage(), e);
+                results.clear();
+                auditLogs.clear();
+                for (Long id : chunk) {
+                    results.add(BulkItemResult.fail(id, "系统错误，请稍后再试"));
+                    auditLogs.add(AuditLog.of(adminId, action, targetType, id,
+                            rule.verb + "异常: " + e.getMessage() + reasonText, ipAddress, userAgent, false));
+                }
+            }
+
+            auditLogService.logActions(auditLogs);
+            totalCount += chunk.size();
+            for (BulkItemResult itemResult : results) {
+                if (itemResult.isSuccess()) {
+                    successCount++;
+                } else if (writer == null) {
+                    failures.add(itemResult);
+                }
+            }
+            if (writer != null) {
+                writer.write(results);
+            }
+        }
+
+        int failCount = totalCount - successCount;
+        // 记录批量操作的审计日志
+        String details = String.format("批量%s: 总数=%d, 成功=%d, 失败=%d%s",
+                                      rule.verb, totalCount, successCount, failCount, reasonText);
+        auditLogService.logAction(adminId, rule.batchAction, targetType,
+                                 null, details, ipAddress, userAgent, failCount == 0);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalCount", totalCount);
+        result.put("successCount", successCount);
+        result.put("failCount", failCount);
+        if (writer == null) {
+            result.put("failures", failures);
+        }
+
+        logger.info("管理员 {} 批量{}完成: 总数={}, 成功={}, 失败={}", adminId, rule.verb, totalCount, successCount, failCount);
+        return result;
+    }
+
+    /**
+     * 批量修改状态的规则：允许修改的当前状态、目标状态和对应的批量审计操作
+     */
+    public static final class StatusRule {
+        private final AuditActionEnum batchAction;
+        private final String verb;
+        private final Integer toStatus;
+        private final Set<Integer> fromStatuses;
+        private final Function<Map<String, Object>, String> rejection;
+
+        /**
+         * @param batchAction 批量操作的审计操作
+         * @param verb 操作描述，用于审计日志和结果提示
+         * @param rejection 根据 DAO 返回的未修改行给出失败原因，与单个操作的提示一致
+         * @param toStatus 目标状态
+         * @param fromStatuses 允许修改的当前状态
+         */
+        public StatusRule(AuditActionEnum batchAction, String verb, Function<Map<String, Object>, String> rejection,
+                          Integer toStatus, Integer... fromStatuses) {
+            this.batchAction = batchAction;
+            this.verb = verb;
+            this.rejection = rejection;
+            this.toStatus = toStatus;
+            this.fromStatuses = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(fromStatuses)));
+        }
+
+        public Integer getToStatus() {
+            return toStatus;
+        }
+
+        public Set<Integer> getFromStatuses() {
+            return fromStatuses;
+        }
+    }
+}
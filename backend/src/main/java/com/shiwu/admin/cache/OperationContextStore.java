@@ -0,0 +1,205 @@
+package com.shiwu.admin.cache;
+
+import com.shiwu.admin.model.OperationContext;
+import com.shiwu.common.util.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 待二次确认的操作上下文存储
+ *
+ * 操作上下文创建后只在有效期内可以确认，从未确认的上下文也必须按时移除，否则长时间运行后会无限增长。
+ * 1. 所有上下文的有效期相同，按创建顺序保存在 LinkedHashMap 中，过期顺序就是插入顺序，
+ *    每次访问时从头部弹出已过期的上下文，均摊每个上下文 O(1)，不需要全量扫描
+ * 2. 每个管理员最多保留 MAX_PER_ADMIN 个待确认的上下文，超出时移除该管理员最早的一个
+ * 3. 总数超过 MAX_ENTRIES 时移除最早的上下文
+ *
+ * 存储为进程内单例，同一进程中的各个服务实例共享同一份上下文
+ */
+public class OperationContextStore {
+    private static final Logger logger = LoggerFactory.getLogger(OperationContextStore.class);
+
+    /**
+     * 上下文有效期（毫秒），与 OperationContext 的过期时间一致
+     */
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 每个管理员最多的待确认上下文数量
+     */
+    private static final int MAX_PER_ADMIN = 20;
+
+    /**
+     * 最多保存的上下文数量
+     */
+    private static final int MAX_ENTRIES = 10000;
+
+    private static volatile OperationContextStore instance;
+
+    private final long ttlMillis;
+    private final int maxPerAdmin;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<Long, ArrayDeque<String>> byAdmin = new HashMap<>();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong evictedPerAdmin = new AtomicLong();
+    private final AtomicLong evictedCapacity = new AtomicLong();
+
+    OperationContextStore(long ttlMillis, int maxPerAdmin, int maxEntries, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxPerAdmin = maxPerAdmin;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static OperationContextStore getInstance() {
+        if (instance == null) {
+            synchronized (OperationContextStore.class) {
+                if (instance == null) {
+                    OperationContextStore store = new OperationContextStore(DEFAULT_TTL_MILLIS, MAX_PER_ADMIN,
+                            MAX_ENTRIES, System::currentTimeMillis);
+                    MetricsRegistry.register("operationContextStore", store::getStats);
+                    instance = store;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 保存操作上下文
+     * @param context 操作上下文（operationId 和 adminId 不能为空）
+     */
+    public synchronized void put(OperationContext context) {
+        long now = clock.getAsLong();
+        expire(now);
+
+        String operationId = context.getOperationId();
+        Long adminId = context.getAdminId();
+        if (entries.containsKey(operationId)) {
+            remove(operationId);
+        }
+        ArrayDeque<String> adminQueue = byAdmin.computeIfAbsent(adminId, k -> new ArrayDeque<>());
+        while (adminQueue.size() >= maxPerAdmin) {
+            String eldest = adminQueue.pollFirst();
+            entries.remove(eldest);
+            evictedPerAdmin.incrementAndGet();
+            logger.debug("管理员待确认操作过多，移除最早的上下文: adminId={}, operationId={}", adminId, eldest);
+        }
+        while (entries.size() >= maxEntries) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            Entry eldest = it.next().getValue();
+            it.remove();
+            unlinkAdmin(eldest.context);
+            evictedCapacity.incrementAndGet();
+        }
+
+        entries.put(operationId, new Entry(context, now + ttlMillis));
+        // 容量淘汰可能移除了该管理员的最后一个上下文并删掉其队列，重新获取
+        byAdmin.computeIfAbsent(adminId, k -> new ArrayDeque<>()).addLast(operationId);
+        created.incrementAndGet();
+    }
+
+    /**
+     * 获取未过期的操作上下文
+     * @param operationId 操作ID
+     * @return 操作上下文，不存在或已过期时返回null
+     */
+    public synchronized OperationContext get(String operationId) {
+        expire(clock.getAsLong());
+        Entry entry = entries.get(operationId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.context.isExpired()) {
+            remove(operationId);
+            expired.incrementAndGet();
+            return null;
+        }
+        return entry.context;
+    }
+
+    /**
+     * 移除操作上下文（例如操作已确认）
+     */
+    public synchronized OperationContext remove(String operationId) {
+        Entry entry = entries.remove(operationId);
+        if (entry == null) {
+            return null;
+        }
+        unlinkAdmin(entry.context);
+        return entry.context;
+    }
+
+    /**
+     * 当前保存的上下文数量（含尚未清理的过期上下文）
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 获取指标
+     */
+    public synchronized Map<String, Object> getStats() {
+        expire(clock.getAsLong());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("admins", byAdmin.size());
+        stats.put("created", created.get());
+        stats.put("expired", expired.get());
+        stats.put("evictedPerAdmin", evictedPerAdmin.get());
+        stats.put("evictedCapacity", evictedCapacity.get());
+        return stats;
+    }
+
+    private void expire(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.expiresAt > now) {
+                break;
+            }
+            it.remove();
+            unlinkAdmin(entry.context);
+            expired.incrementAndGet();
+        }
+    }
+
+    private void unlinkAdmin(OperationContext context) {
+        ArrayDeque<String> adminQueue = byAdmin.get(context.getAdminId());
+        if (adminQueue == null) {
+            return;
+        }
+        adminQueue.remove(context.getOperationId());
+        if (adminQueue.isEmpty()) {
+            byAdmin.remove(context.getAdminId());
+        }
+    }
+
+    private static final class Entry {
+        final OperationContext context;
+        final long expiresAt;
+
+        Entry(OperationContext context, long expiresAt) {
+            this.context = context;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.shiwu.admin.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shiwu.admin.bulk.BulkResultWriter;
+import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.model.AdminProductManageDTO;
 import com.shiwu.admin.model.AdminProductQueryDTO;
+import com.shiwu.admin.model.AdminReviewDecisionDTO;
 import com.shiwu.admin.service.AdminService;
 import com.shiwu.admin.service.impl.AdminServiceImpl;
 import com.shiwu.common.result.Result;
@@ -19,6 +23,9 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -73,6 +80,39 @@ public class AdminProductController extends HttpServlet {
         }
     }
 
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String pathInfo = req.getPathInfo();
+
+        // 验证管理员权限
+        Long adminId = validateAdminPermission(req, resp, "ADMIN");
+        if (adminId == null) {
+            return;
+        }
+
+        if ("/review-queue/claim".equals(pathInfo)) {
+            // 领取一批待审核商品
+            handleClaimReviewBatch(req, resp, adminId);
+        } else if ("/review-queue/decisions".equals(pathInfo)) {
+            // 批量提交审核结果
+            handleSubmitReviewDecisions(req, resp, adminId);
+        } else if ("/review-queue/release".equals(pathInfo)) {
+            // 释放领取的待审核商品
+            handleReleaseReviewClaims(req, resp, adminId);
+        } else if ("/batch-approve".equals(pathInfo)) {
+            // 批量审核通过商品
+            handleBatchUpdateStatus(req, resp, adminId, AuditActionEnum.PRODUCT_APPROVE, "批量审核通过操作完成");
+        } else if ("/batch-reject".equals(pathInfo)) {
+            // 批量审核拒绝商品
+            handleBatchUpdateStatus(req, resp, adminId, AuditActionEnum.PRODUCT_REJECT, "批量审核拒绝操作完成");
+        } else if ("/batch-remove".equals(pathInfo)) {
+            // 批量下架商品
+            handleBatchUpdateStatus(req, resp, adminId, AuditActionEnum.PRODUCT_TAKEDOWN, "批量下架操作完成");
+        } else {
+            sendErrorResponse(resp, "404", "请求路径不存在");
+        }
+    }
+
     @Override
     protected void doPut(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathInfo = req.getPathInfo();
@@ -316,6 +356,147 @@ public class AdminProductController extends HttpServlet {
         }
     }
 
+    /**
+     * 处理领取待审核商品请求
+     * API: POST /api/admin/products/review-queue/claim?size=10
+     */
+    private void handleClaimReviewBatch(HttpServletRequest req, HttpServletResponse resp, Long adminId)
+            throws IOException {
+        try {
+            int size = 10;
+            String sizeStr = req.getParameter("size");
+            if (sizeStr != null && !sizeStr.trim().isEmpty()) {
+                try {
+                    size = Integer.parseInt(sizeStr.trim());
+                } catch (NumberFormatException e) {
+                    sendErrorResponse(resp, "400", "size参数格式错误");
+                    return;
+                }
+            }
+
+            Map<String, Object> result = adminProductService.claimReviewBatch(adminId, size);
+            if (result != null) {
+                sendSuccessResponse(resp, result);
+            } else {
+                sendErrorResponse(resp, "500", "系统错误，请稍后再试");
+            }
+        } catch (Exception e) {
+            logger.error("领取待审核商品失败: {}", e.getMessage(), e);
+            sendErrorResponse(resp, "500", "系统错误，请稍后再试");
+        }
+    }
+
+    /**
+     * 处理批量提交审核结果请求
+     * API: POST /api/admin/products/review-queue/decisions
+     * 请求体: [{"productId": 1, "action": "APPROVE"}, {"productId": 2, "action": "REJECT", "reason": "..."}]
+     */
+    private void handleSubmitReviewDecisions(HttpServletRequest req, HttpServletResponse resp, Long adminId)
+            throws IOException {
+        try {
+            List<AdminReviewDecisionDTO> decisions = objectMapper.readValue(req.getInputStream(),
+                    new TypeReference<List<AdminReviewDecisionDTO>>() {});
+            if (decisions == null || decisions.isEmpty()) {
+                sendErrorResponse(resp, "400", "审核结果不能为空");
+                return;
+            }
+
+            String ipAddress = getClientIpAddress(req);
+            String userAgent = req.getHeader("User-Agent");
+
+            Map<String, Object> result = adminProductService.submitReviewDecisions(adminId, decisions, ipAddress, userAgent);
+            if (result != null) {
+                sendSuccessResponse(resp, result, "审核结果已提交");
+            } else {
+                sendErrorResponse(resp, "500", "系统错误，请稍后再试");
+            }
+        } catch (Exception e) {
+            logger.error("提交审核结果失败: {}", e.getMessage(), e);
+            sendErrorResponse(resp, "500", "系统错误，请稍后再试");
+        }
+    }
+
+    /**
+     * 处理释放待审核商品请求
+     * API: POST /api/admin/products/review-queue/release?productIds=1,2,3（不传时释放全部）
+     */
+    private void handleReleaseReviewClaims(HttpServletRequest req, HttpServletResponse resp, Long adminId)
+            throws IOException {
+        try {
+            List<Long> productIds = new ArrayList<>();
+            String idsStr = req.getParameter("productIds");
+            if (idsStr != null && !idsStr.trim().isEmpty()) {
+                try {
+                    for (String id : idsStr.split(",")) {
+                        if (!id.trim().isEmpty()) {
+                            productIds.add(Long.parseLong(id.trim()));
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    sendErrorResponse(resp, "400", "无效的商品ID格式");
+                    return;
+                }
+            }
+
+            int released = adminProductService.releaseReviewClaims(adminId, productIds);
+            Map<String, Object> result = new HashMap<>();
+            result.put("released", released);
+            sendSuccessResponse(resp, result);
+        } catch (Exception e) {
+            logger.error("释放待审核商品失败: {}", e.getMessage(), e);
+            sendErrorResponse(resp, "500", "系统错误，请稍后再试");
+        }
+    }
+
+    /**
+     * 处理批量修改商品状态请求
+     * API: POST /api/admin/products/batch-approve | batch-reject | batch-remove
+     * 请求体: {"productIds": [1, 2, 3], "reason": "..."}；带 ?stream=true 时以NDJSON逐块返回每件商品的结果
+     */
+    private void handleBatchUpdateStatus(HttpServletRequest req, HttpServletResponse resp, Long adminId,
+                                         AuditActionEnum action, String successMessage) throws IOException {
+        try {
+            AdminProductManageDTO manageDTO = parseRequestBody(req, AdminProductManageDTO.class);
+            if (manageDTO == null || manageDTO.getProductIds() == null || manageDTO.getProductIds().isEmpty()) {
+                sendErrorResponse(resp, "400", "商品ID列表不能为空");
+                return;
+            }
+            if (action == AuditActionEnum.PRODUCT_REJECT
+                    && (manageDTO.getReason() == null || manageDTO.getReason().trim().isEmpty())) {
+                sendErrorResponse(resp, "400", "拒绝原因不能为空");
+                return;
+            }
+
+            String ipAddress = getClientIpAddress(req);
+            String userAgent = req.getHeader("User-Agent");
+
+            if (BulkResultWriter.isRequested(req)) {
+                BulkResultWriter writer = BulkResultWriter.forResponse(resp);
+                Map<String, Object> summary = adminProductService.batchUpdateProductStatus(action, manageDTO.getProductIds(),
+                        adminId, manageDTO.getReason(), ipAddress, userAgent, writer);
+                writer.writeSummary(summary);
+                logger.info("管理员 {} 批量修改商品状态: action={}, result={}", adminId, action.getCode(), summary);
+                return;
+            }
+
+            Map<String, Object> result = adminProductService.batchUpdateProductStatus(action, manageDTO.getProductIds(),
+                    adminId, manageDTO.getReason(), ipAddress, userAgent, null);
+            if (result != null) {
+                sendSuccessResponse(resp, result, successMessage);
+                logger.info("管理员 {} 批量修改商品状态: action={}, result={}", adminId, action.getCode(), result);
+            } else {
+                sendErrorResponse(resp, "400", "参数无效");
+            }
+        } catch (Exception e) {
+            logger.error("批量修改商品状态失败: action={}, error={}", action.getCode(), e.getMessage(), e);
+            if (resp.isCommitted()) {
+                // 已经开始逐块写出结果，无法再改为错误响应
+                return;
+            }
+            sendErrorResponse(resp, "500", "系统错误，请稍后再试");
+        }
+    }
+
     /**
      * 解析查询参数
      */
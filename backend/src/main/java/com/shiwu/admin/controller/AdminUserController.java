@@ -2,6 +2,8 @@ package com.shiwu.admin.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shiwu.admin.bulk.BulkResultWriter;
+import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.model.AdminUserManageDTO;
 import com.shiwu.admin.model.AdminUserQueryDTO;
 import com.shiwu.admin.service.AdminService;
@@ -140,6 +142,10 @@ public class AdminUserController extends HttpServlet {
                     // 批量禁言用户
                     handleBatchMuteUsers(req, resp, adminId);
                     break;
+                case "/batch-unban":
+                    // 批量解封用户
+                    handleBatchUnbanUsers(req, resp, adminId);
+                    break;
                 default:
                     sendErrorResponse(resp, "404", "请求路径不存在");
             }
@@ -335,12 +341,21 @@ public class AdminUserController extends HttpServlet {
             String ipAddress = getClientIpAddress(req);
             String userAgent = req.getHeader("User-Agent");
 
+            if (BulkResultWriter.isRequested(req)) {
+                streamBatchUpdate(resp, AuditActionEnum.USER_BAN, manageDTO, adminId, ipAddress, userAgent);
+                return;
+            }
+
             Map<String, Object> result = adminUserService.batchBanUsers(manageDTO.getUserIds(), adminId, manageDTO.getReason(), ipAddress, userAgent);
             
             sendSuccessResponse(resp, result, "批量封禁操作完成");
             logger.info("管理员 {} 批量封禁用户: {}", adminId, manageDTO.getUserIds());
         } catch (Exception e) {
             logger.error("批量封禁用户失败: {}", e.getMessage(), e);
+            if (resp.isCommitted()) {
+                // 已经开始逐块写出结果，无法再改为错误响应
+                return;
+            }
             sendErrorResponse(resp, "500", "系统错误，请稍后再试");
         }
     }
@@ -363,16 +378,74 @@ public class AdminUserController extends HttpServlet {
             String ipAddress = getClientIpAddress(req);
             String userAgent = req.getHeader("User-Agent");
 
+            if (BulkResultWriter.isRequested(req)) {
+                streamBatchUpdate(resp, AuditActionEnum.USER_MUTE, manageDTO, adminId, ipAddress, userAgent);
+                return;
+            }
+
             Map<String, Object> result = adminUserService.batchMuteUsers(manageDTO.getUserIds(), adminId, manageDTO.getReason(), ipAddress, userAgent);
             
             sendSuccessResponse(resp, result, "批量禁言操作完成");
             logger.info("管理员 {} 批量禁言用户: {}", adminId, manageDTO.getUserIds());
         } catch (Exception e) {
             logger.error("批量禁言用户失败: {}", e.getMessage(), e);
+            if (resp.isCommitted()) {
+                // 已经开始逐块写出结果，无法再改为错误响应
+                return;
+            }
+            sendErrorResponse(resp, "500", "系统错误，请稍后再试");
+        }
+    }
+
+    /**
+     * 处理批量解封用户请求
+     */
+    private void handleBatchUnbanUsers(HttpServletRequest req, HttpServletResponse resp, Long adminId) 
+            throws IOException {
+        try {
+            // 解析请求体
+            AdminUserManageDTO manageDTO = parseRequestBody(req, AdminUserManageDTO.class);
+            
+            if (manageDTO.getUserIds() == null || manageDTO.getUserIds().isEmpty()) {
+                sendErrorResponse(resp, "400", "用户ID列表不能为空");
+                return;
+            }
+
+            // 获取IP地址和用户代理
+            String ipAddress = getClientIpAddress(req);
+            String userAgent = req.getHeader("User-Agent");
+
+            if (BulkResultWriter.isRequested(req)) {
+                streamBatchUpdate(resp, AuditActionEnum.USER_UNBAN, manageDTO, adminId, ipAddress, userAgent);
+                return;
+            }
+
+            Map<String, Object> result = adminUserService.batchUnbanUsers(manageDTO.getUserIds(), adminId, ipAddress, userAgent);
+            
+            sendSuccessResponse(resp, result, "批量解封操作完成");
+            logger.info("管理员 {} 批量解封用户: {}", adminId, manageDTO.getUserIds());
+        } catch (Exception e) {
+            logger.error("批量解封用户失败: {}", e.getMessage(), e);
+            if (resp.isCommitted()) {
+                // 已经开始逐块写出结果，无法再改为错误响应
+                return;
+            }
             sendErrorResponse(resp, "500", "系统错误，请稍后再试");
         }
     }
 
+    /**
+     * 以NDJSON逐块写出批量修改用户状态的结果，每块提交后写出块内每个用户的结果，最后一行为汇总
+     */
+    private void streamBatchUpdate(HttpServletResponse resp, AuditActionEnum action, AdminUserManageDTO manageDTO,
+                                   Long adminId, String ipAddress, String userAgent) throws IOException {
+        BulkResultWriter writer = BulkResultWriter.forResponse(resp);
+        Map<String, Object> summary = adminUserService.batchUpdateUserStatus(action, manageDTO.getUserIds(), adminId,
+                manageDTO.getReason(), ipAddress, userAgent, writer);
+        writer.writeSummary(summary);
+        logger.info("管理员 {} 批量修改用户状态: action={}, result={}", adminId, action.getCode(), summary);
+    }
+
     /**
      * 解析查询参数
      */
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.shiwu.admin.dto.AuditLogQueryDTO;
 import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.enums.AuditTargetTypeEnum;
+import com.shiwu.admin.export.AuditLogExportFormat;
+import com.shiwu.admin.export.AuditLogExportWriter;
 import com.shiwu.admin.service.AdminService;
 import com.shiwu.admin.service.AuditLogService;
 import com.shiwu.admin.service.impl.AdminServiceImpl;
@@ -19,12 +21,18 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 审计日志控制器
@@ -35,6 +43,8 @@ public class AuditLogController extends HttpServlet {
     
     private static final Logger logger = LoggerFactory.getLogger(AuditLogController.class);
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter EXPORT_FILE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final int EXPORT_BUFFER_SIZE = 8192;
 
     private final AuditLogService auditLogService;
     private final AdminService adminService;
@@ -249,14 +259,54 @@ public class AuditLogController extends HttpServlet {
                                      AuditTargetTypeEnum.AUDIT_LOG, null, "导出审计日志",
                                      ipAddress, userAgent, true);
             
+            AuditLogExportFormat format = AuditLogExportFormat.fromParam(req.getParameter("format"));
+            if (format != null) {
+                streamExport(req, resp, queryDTO, format, adminId);
+                return;
+            }
+            
             sendSuccessResponse(resp, auditLogService.exportAuditLogs(queryDTO));
             logger.info("管理员 {} 导出审计日志成功", adminId);
         } catch (Exception e) {
             logger.error("导出审计日志失败: {}", e.getMessage(), e);
+            if (resp.isCommitted()) {
+                // 响应头和部分数据已经发出，无法再改为错误响应，客户端会收到不完整的文件
+                return;
+            }
+            resp.reset();
             sendErrorResponse(resp, "500", "导出审计日志失败");
         }
     }
     
+    /**
+     * 以CSV或NDJSON格式流式导出审计日志
+     * 响应以分块传输编码逐块写出，客户端支持时使用gzip压缩；导出条数不受限制
+     */
+    private void streamExport(HttpServletRequest req, HttpServletResponse resp, AuditLogQueryDTO queryDTO,
+                              AuditLogExportFormat format, Long adminId) throws IOException {
+        String fileName = "audit-logs-" + LocalDateTime.now().format(EXPORT_FILE_TIME_FORMATTER)
+                + "." + format.getExtension();
+        resp.setContentType(format.getContentType());
+        resp.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        resp.setHeader("Cache-Control", "no-store");
+        
+        OutputStream out = resp.getOutputStream();
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        if (gzip) {
+            resp.setHeader("Content-Encoding", "gzip");
+            resp.setHeader("Vary", "Accept-Encoding");
+            // syncFlush：每块刷出时压缩流也刷出，客户端能持续收到数据
+            out = new GZIPOutputStream(out, EXPORT_BUFFER_SIZE, true);
+        }
+        
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+        long count = auditLogService.streamAuditLogs(queryDTO, new AuditLogExportWriter(writer, format));
+        // 关闭写入器以写出gzip尾部
+        writer.close();
+        logger.info("管理员 {} 流式导出审计日志成功: format={}, 共{}条记录", adminId, format.getCode(), count);
+    }
+    
     /**
      * 构建查询DTO
      */
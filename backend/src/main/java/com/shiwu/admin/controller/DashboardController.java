@@ -6,6 +6,8 @@ import com.shiwu.admin.service.DashboardService;
 import com.shiwu.admin.service.impl.DashboardServiceImpl;
 import com.shiwu.common.result.Result;
 import com.shiwu.common.util.JwtUtil;
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.user.cache.LeaderboardCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,6 +78,12 @@ public class DashboardController extends HttpServlet {
                 case "/stats/realtime":
                     handleGetRealTimeStats(request, response);
                     break;
+                case "/metrics":
+                    handleGetMetrics(request, response);
+                    break;
+                case "/leaderboard":
+                    handleGetLeaderboard(request, response);
+                    break;
                 default:
                     Result.error("接口不存在").writeToResponse(response);
                     break;
@@ -206,4 +214,53 @@ public class DashboardController extends HttpServlet {
             Result.error("获取实时统计数据失败").writeToResponse(response);
         }
     }
+    
+    /**
+     * 处理获取运行指标请求（缓存命中率、后台任务进度等）
+     * GET /admin/dashboard/metrics
+     */
+    private void handleGetMetrics(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        
+        try {
+            Result.success(MetricsRegistry.snapshot()).writeToResponse(response);
+            
+        } catch (Exception e) {
+            logger.error("获取运行指标失败: {}", e.getMessage(), e);
+            Result.error("获取运行指标失败").writeToResponse(response);
+        }
+    }
+    
+    /**
+     * 处理获取排行榜请求
+     * GET /admin/dashboard/leaderboard?type=followers|rating|sales&limit=10
+     */
+    private void handleGetLeaderboard(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        
+        try {
+            LeaderboardCache.Type type = LeaderboardCache.Type.fromCode(request.getParameter("type"));
+            if (type == null) {
+                Result.error("排行榜类型无效").writeToResponse(response);
+                return;
+            }
+            
+            int limit = 10;
+            String limitParam = request.getParameter("limit");
+            if (limitParam != null && !limitParam.trim().isEmpty()) {
+                try {
+                    limit = Integer.parseInt(limitParam.trim());
+                } catch (NumberFormatException e) {
+                    Result.error("limit参数格式错误").writeToResponse(response);
+                    return;
+                }
+            }
+            
+            Result.success(LeaderboardCache.getInstance().getTop(type, limit)).writeToResponse(response);
+            
+        } catch (Exception e) {
+            logger.error("获取排行榜失败: {}", e.getMessage(), e);
+            Result.error("获取排行榜失败").writeToResponse(response);
+        }
+    }
 }
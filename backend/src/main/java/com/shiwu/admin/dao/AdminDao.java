@@ -7,6 +7,8 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 管理员数据访问对象
@@ -158,6 +160,39 @@ public class AdminDao {
         }
     }
 
+    /**
+     * 查询所有管理员（含已删除）的用户名，用于批量填充审计日志中的管理员名称
+     * @return 管理员ID -> 用户名
+     */
+    public Map<Long, String> findAllUsernames() {
+        String sql = "SELECT id, username FROM administrator";
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        Map<Long, String> usernames = new HashMap<>();
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("获取数据库连接失败");
+                return usernames;
+            }
+
+            pstmt = conn.prepareStatement(sql);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                usernames.put(rs.getLong("id"), rs.getString("username"));
+            }
+            return usernames;
+        } catch (SQLException e) {
+            logger.error("查询管理员用户名时发生数据库异常: {}", e.getMessage(), e);
+            return usernames;
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
     /**
      * 更新管理员最后登录时间和登录次数
      * @param adminId 管理员ID
@@ -2,22 +2,26 @@ package com.shiwu.admin.dao;
 
 import com.shiwu.admin.dto.AuditLogQueryDTO;
 import com.shiwu.admin.model.AuditLog;
+import com.shiwu.admin.model.AuditLogPartition;
 import com.shiwu.common.util.DBUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * 审计日志数据访问对象
  */
 public class AuditLogDao {
     private static final Logger logger = LoggerFactory.getLogger(AuditLogDao.class);
+    private static final Pattern PARTITION_NAME_PATTERN = Pattern.compile("p\\d{6}|p_future");
 
     /**
      * 创建审计日志
@@ -88,6 +92,62 @@ public class AuditLogDao {
         }
     }
 
+    /**
+     * 批量创建审计日志，所有日志在一条多行 INSERT 中写入
+     * @param auditLogs 审计日志列表（管理员ID不能为空）
+     * @return 写入的条数，失败返回0
+     */
+    public int createAuditLogs(List<AuditLog> auditLogs) {
+        if (auditLogs == null || auditLogs.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder("INSERT INTO audit_log (admin_id, action, target_type, target_id, details, " +
+                    "ip_address, user_agent, result, create_time) VALUES ");
+        for (int i = 0; i < auditLogs.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("获取数据库连接失败");
+                return 0;
+            }
+
+            pstmt = conn.prepareStatement(sql.toString());
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int index = 1;
+            for (AuditLog auditLog : auditLogs) {
+                pstmt.setLong(index++, auditLog.getAdminId());
+                pstmt.setString(index++, auditLog.getAction());
+                pstmt.setString(index++, auditLog.getTargetType());
+                if (auditLog.getTargetId() != null) {
+                    pstmt.setLong(index++, auditLog.getTargetId());
+                } else {
+                    pstmt.setNull(index++, Types.BIGINT);
+                }
+                pstmt.setString(index++, auditLog.getDetails());
+                pstmt.setString(index++, auditLog.getIpAddress());
+                pstmt.setString(index++, auditLog.getUserAgent());
+                pstmt.setInt(index++, auditLog.getResult());
+                pstmt.setTimestamp(index++, now);
+            }
+
+            int rowsAffected = pstmt.executeUpdate();
+            logger.info("批量创建审计日志成功: {}条", rowsAffected);
+            return rowsAffected;
+        } catch (SQLException e) {
+            logger.error("批量创建审计日志时发生数据库异常: {}", e.getMessage(), e);
+            return 0;
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
     /**
      * 记录管理员登录日志
      * @param adminId 管理员ID
@@ -369,6 +429,165 @@ public class AuditLogDao {
         }
     }
 
+    /**
+     * 按ID键集分块查询审计日志，用于流式导出
+     * 每次只取一块，下一块从上一块最后一条的ID继续，不使用 OFFSET，深翻页不会变慢
+     * @param queryDTO 查询条件（忽略分页和排序字段）
+     * @param afterId 上一块最后一条日志的ID，第一块传null
+     * @param ascending 是否按ID升序
+     * @param limit 本块最多条数
+     * @return 本块日志，少于limit条表示已经取完
+     * @throws RuntimeException 数据库错误，导出需要中止而不是返回不完整的结果
+     */
+    public List<AuditLog> findAuditLogsAfter(AuditLogQueryDTO queryDTO, Long afterId, boolean ascending, int limit) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT id, admin_id, action, target_type, target_id, details, ");
+        sql.append("ip_address, user_agent, result, create_time ");
+        sql.append("FROM audit_log WHERE 1=1 ");
+
+        List<Object> params = new ArrayList<>();
+        buildQueryConditions(sql, params, queryDTO);
+        if (afterId != null) {
+            sql.append(ascending ? "AND id > ? " : "AND id < ? ");
+            params.add(afterId);
+        }
+        sql.append(ascending ? "ORDER BY id ASC " : "ORDER BY id DESC ");
+        sql.append("LIMIT ?");
+        params.add(limit);
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        List<AuditLog> auditLogs = new ArrayList<>(limit);
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+
+            pstmt = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(limit);
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                auditLogs.add(mapResultSetToAuditLog(rs));
+            }
+            return auditLogs;
+        } catch (SQLException e) {
+            throw new RuntimeException("分块查询审计日志时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * 查询审计日志表的分区，按分区顺序返回
+     * @return 分区列表，表未分区时返回空列表
+     * @throws RuntimeException 数据库错误
+     */
+    public List<AuditLogPartition> findPartitions() {
+        String sql = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'audit_log' AND PARTITION_NAME IS NOT NULL " +
+                    "ORDER BY PARTITION_ORDINAL_POSITION";
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        List<AuditLogPartition> partitions = new ArrayList<>();
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+
+            pstmt = conn.prepareStatement(sql);
+            rs = pstmt.executeQuery();
+            LocalDate lowerBound = null;
+            while (rs.next()) {
+                LocalDate upperBound = parsePartitionBound(rs.getString("PARTITION_DESCRIPTION"));
+                partitions.add(new AuditLogPartition(rs.getString("PARTITION_NAME"), lowerBound, upperBound));
+                lowerBound = upperBound;
+            }
+            return partitions;
+        } catch (SQLException e) {
+            throw new RuntimeException("查询审计日志分区时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * 把 MAXVALUE 分区拆分出新的月分区，MAXVALUE 分区中已有的日志会按范围移动到新分区
+     * @param maxValuePartition MAXVALUE 分区名
+     * @param newPartitions 新分区（按上界升序，上界必须大于现有分区的上界）
+     * @throws RuntimeException 数据库错误
+     */
+    public void splitMaxValuePartition(String maxValuePartition, List<AuditLogPartition> newPartitions) {
+        StringBuilder sql = new StringBuilder("ALTER TABLE audit_log REORGANIZE PARTITION ");
+        sql.append(checkPartitionName(maxValuePartition)).append(" INTO (");
+        for (AuditLogPartition partition : newPartitions) {
+            sql.append("PARTITION ").append(checkPartitionName(partition.getName()));
+            sql.append(" VALUES LESS THAN ('").append(partition.getUpperBound()).append("'), ");
+        }
+        sql.append("PARTITION ").append(maxValuePartition).append(" VALUES LESS THAN (MAXVALUE))");
+        executePartitionDdl(sql.toString(), "拆分审计日志分区");
+    }
+
+    /**
+     * 删除分区及其中的全部日志，调用前必须已经归档
+     * @param partitionName 分区名
+     * @throws RuntimeException 数据库错误
+     */
+    public void dropPartition(String partitionName) {
+        executePartitionDdl("ALTER TABLE audit_log DROP PARTITION " + checkPartitionName(partitionName),
+                "删除审计日志分区");
+    }
+
+    /**
+     * 按ID分块读取某个分区中的日志，用于归档
+     * @param partitionName 分区名
+     * @param afterId 上一块最后一条日志的ID，第一块传null
+     * @param limit 本块最多条数
+     * @return 本块日志（按ID升序）
+     * @throws RuntimeException 数据库错误
+     */
+    public List<AuditLog> findPartitionLogsAfter(String partitionName, Long afterId, int limit) {
+        String sql = "SELECT id, admin_id, action, target_type, target_id, details, " +
+                    "ip_address, user_agent, result, create_time " +
+                    "FROM audit_log PARTITION (" + checkPartitionName(partitionName) + ") " +
+                    "WHERE id > ? ORDER BY id ASC LIMIT ?";
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        List<AuditLog> auditLogs = new ArrayList<>(limit);
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setLong(1, afterId != null ? afterId : 0L);
+            pstmt.setInt(2, limit);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                auditLogs.add(mapResultSetToAuditLog(rs));
+            }
+            return auditLogs;
+        } catch (SQLException e) {
+            throw new RuntimeException("读取审计日志分区时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
     /**
      * 统计审计日志总数
      * @param queryDTO 查询条件
@@ -475,6 +694,47 @@ public class AuditLogDao {
         }
     }
 
+    private void executePartitionDdl(String sql, String operation) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+
+            pstmt = conn.prepareStatement(sql);
+            pstmt.executeUpdate();
+            logger.info("{}成功: {}", operation, sql);
+        } catch (SQLException e) {
+            throw new RuntimeException(operation + "时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
+    /**
+     * 分区名只能拼接到SQL中，不能作为参数绑定，这里只接受程序生成的分区名
+     */
+    private static String checkPartitionName(String partitionName) {
+        if (partitionName == null || !PARTITION_NAME_PATTERN.matcher(partitionName).matches()) {
+            throw new IllegalArgumentException("非法的审计日志分区名: " + partitionName);
+        }
+        return partitionName;
+    }
+
+    /**
+     * 解析 information_schema 中的分区上界，如 '2026-11-01 00:00:00' 或 MAXVALUE
+     */
+    static LocalDate parsePartitionBound(String description) {
+        if (description == null || "MAXVALUE".equalsIgnoreCase(description.trim())) {
+            return null;
+        }
+        String value = description.replace("'", "").trim();
+        return LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value);
+    }
+
     /**
      * 将ResultSet映射为AuditLog对象
      * @param rs ResultSet
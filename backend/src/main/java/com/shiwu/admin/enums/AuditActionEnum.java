@@ -23,6 +23,7 @@ public enum AuditActionEnum {
     USER_DELETE("USER_DELETE", "删除用户"),
     USER_BATCH_BAN("USER_BATCH_BAN", "批量封禁用户"),
     USER_BATCH_MUTE("USER_BATCH_MUTE", "批量禁言用户"),
+    USER_BATCH_UNBAN("USER_BATCH_UNBAN", "批量解封用户"),
     USER_PROFILE_UPDATE("USER_PROFILE_UPDATE", "修改用户资料"),
     
     // 商品管理操作
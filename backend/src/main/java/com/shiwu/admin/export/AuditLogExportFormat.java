@@ -0,0 +1,50 @@
+package com.shiwu.admin.export;
+
+/**
+ * 审计日志流式导出格式
+ */
+public enum AuditLogExportFormat {
+
+    CSV("csv", "text/csv;charset=UTF-8", "csv"),
+    NDJSON("ndjson", "application/x-ndjson;charset=UTF-8", "ndjson");
+
+    private final String code;
+    private final String contentType;
+    private final String extension;
+
+    AuditLogExportFormat(String code, String contentType, String extension) {
+        this.code = code;
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * 根据请求参数获取导出格式
+     * @param param format 参数
+     * @return 导出格式，参数为空或不是流式格式时返回null
+     */
+    public static AuditLogExportFormat fromParam(String param) {
+        if (param == null) {
+            return null;
+        }
+        String value = param.trim();
+        for (AuditLogExportFormat format : values()) {
+            if (format.code.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
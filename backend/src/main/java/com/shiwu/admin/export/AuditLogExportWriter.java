@@ -0,0 +1,101 @@
+package com.shiwu.admin.export;
+
+import com.shiwu.admin.vo.AuditLogVO;
+import com.shiwu.common.util.JsonUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 审计日志导出写入器
+ *
+ * 逐条把审计日志写到响应流中，不在内存中保留已写出的记录。
+ * CSV 以 UTF-8 BOM 开头以便 Excel 正确识别中文；以 = + - @ 开头的单元格加单引号前缀，
+ * 防止导出文件在表格软件中被当作公式执行（详情、User-Agent 等字段来自请求，不可信）。
+ * NDJSON 每行一个 JSON 对象，字段与 JSON 导出接口的 AuditLogVO 一致。
+ */
+public class AuditLogExportWriter {
+
+    private static final String[] CSV_HEADER = {
+            "ID", "管理员ID", "管理员", "操作", "操作描述", "目标类型", "目标类型描述",
+            "目标ID", "详情", "IP地址", "User-Agent", "结果", "时间"
+    };
+
+    private final Writer out;
+    private final AuditLogExportFormat format;
+    private long count;
+
+    public AuditLogExportWriter(Writer out, AuditLogExportFormat format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * 写出文件头，CSV 为 BOM 和表头行，NDJSON 没有文件头
+     */
+    public void writeHeader() throws IOException {
+        if (format != AuditLogExportFormat.CSV) {
+            return;
+        }
+        out.write('\uFEFF');
+        writeCsvRow(CSV_HEADER);
+    }
+
+    /**
+     * 写出一条审计日志
+     */
+    public void write(AuditLogVO vo) throws IOException {
+        if (format == AuditLogExportFormat.CSV) {
+            writeCsvRow(new String[]{
+                    str(vo.getId()), str(vo.getAdminId()), vo.getAdminUsername(), vo.getAction(),
+                    vo.getActionDescription(), vo.getTargetType(), vo.getTargetTypeDescription(),
+                    str(vo.getTargetId()), vo.getDetails(), vo.getIpAddress(), vo.getUserAgent(),
+                    vo.getResultText(), vo.getCreateTimeText()
+            });
+        } else {
+            out.write(JsonUtil.toJson(vo));
+            out.write('\n');
+        }
+        count++;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * 已写出的记录数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private void writeCsvRow(String[] cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(csvCell(cells[i]));
+        }
+        out.write("\r\n");
+    }
+
+    static String csvCell(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private static String str(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
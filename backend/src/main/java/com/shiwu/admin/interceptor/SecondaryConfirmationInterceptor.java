@@ -6,6 +6,7 @@ import com.shiwu.admin.model.HighRiskOperation;
 import com.shiwu.admin.service.AdminService;
 import com.shiwu.admin.service.impl.AdminServiceImpl;
 import com.shiwu.common.result.Result;
+import com.shiwu.common.util.RouteMatcher;
 //import com.shiwu.common.util.JwtUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,8 +16,6 @@ import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * 二次确认拦截器
@@ -30,28 +29,30 @@ public class SecondaryConfirmationInterceptor implements Filter {
     private ObjectMapper objectMapper;
     
     // 不需要二次确认的路径
-    private static final List<String> WHITELIST = Arrays.asList(
-            "/api/admin/login",
-            "/api/admin/confirm",
-            "/api/admin/profile"
-    );
+    private static final RouteMatcher<Boolean> WHITELIST = new RouteMatcher<Boolean>()
+            .prefix("/api/admin/login", Boolean.TRUE)
+            .prefix("/api/admin/confirm", Boolean.TRUE)
+            .prefix("/api/admin/profile", Boolean.TRUE);
     
-    // 高风险操作路径映射
-    private static final List<HighRiskOperationMapping> OPERATION_MAPPINGS = Arrays.asList(
-            new HighRiskOperationMapping("/api/admin/users/delete", "DELETE_USER_PERMANENTLY"),
-            new HighRiskOperationMapping("/api/admin/users/batch-ban", "BATCH_BAN_USERS"),
-            new HighRiskOperationMapping("/api/admin/users/batch-mute", "BATCH_MUTE_USERS"),
-            new HighRiskOperationMapping("/api/admin/users/reset-password", "RESET_USER_PASSWORD"),
-            new HighRiskOperationMapping("/api/admin/products/delete", "DELETE_PRODUCT_PERMANENTLY"),
-            new HighRiskOperationMapping("/api/admin/products/batch-remove", "BATCH_REMOVE_PRODUCTS"),
-            new HighRiskOperationMapping("/api/admin/system/config", "MODIFY_SYSTEM_CONFIG"),
-            new HighRiskOperationMapping("/api/admin/logs/clear", "CLEAR_AUDIT_LOGS"),
-            new HighRiskOperationMapping("/api/admin/admins/create", "CREATE_ADMIN_ACCOUNT"),
-            new HighRiskOperationMapping("/api/admin/admins/delete", "DELETE_ADMIN_ACCOUNT"),
-            new HighRiskOperationMapping("/api/admin/admins/permissions", "MODIFY_ADMIN_PERMISSIONS"),
-            new HighRiskOperationMapping("/api/admin/data/export", "EXPORT_USER_DATA"),
-            new HighRiskOperationMapping("/api/admin/data/batch", "BATCH_DATA_OPERATION")
-    );
+    // 高风险操作路由（启动时预编译，每次请求按路径段查找）
+    private static final RouteMatcher<String> OPERATION_ROUTES = new RouteMatcher<String>()
+            .exact("DELETE", "/api/admin/products/{id}", "DELETE_PRODUCT_PERMANENTLY")
+            .prefix("/api/admin/users/delete", "DELETE_USER_PERMANENTLY")
+            .prefix("/api/admin/users/batch-ban", "BATCH_BAN_USERS")
+            .prefix("/api/admin/users/batch-mute", "BATCH_MUTE_USERS")
+            .prefix("/api/admin/users/batch-unban", "BATCH_UNBAN_USERS")
+            .prefix("/api/admin/users/reset-password", "RESET_USER_PASSWORD")
+            .prefix("/api/admin/products/delete", "DELETE_PRODUCT_PERMANENTLY")
+            .prefix("/api/admin/products/batch-remove", "BATCH_REMOVE_PRODUCTS")
+            .prefix("/api/admin/products/batch-approve", "BATCH_APPROVE_PRODUCTS")
+            .prefix("/api/admin/products/batch-reject", "BATCH_REJECT_PRODUCTS")
+            .prefix("/api/admin/system/config", "MODIFY_SYSTEM_CONFIG")
+            .prefix("/api/admin/logs/clear", "CLEAR_AUDIT_LOGS")
+            .prefix("/api/admin/admins/create", "CREATE_ADMIN_ACCOUNT")
+            .prefix("/api/admin/admins/delete", "DELETE_ADMIN_ACCOUNT")
+            .prefix("/api/admin/admins/permissions", "MODIFY_ADMIN_PERMISSIONS")
+            .prefix("/api/admin/data/export", "EXPORT_USER_DATA")
+            .prefix("/api/admin/data/batch", "BATCH_DATA_OPERATION");
 
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
@@ -70,7 +71,7 @@ public class SecondaryConfirmationInterceptor implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
         
-        String requestURI = httpRequest.getRequestURI();
+        String requestURI = requestPath(httpRequest);
         String method = httpRequest.getMethod();
         
         // 只处理POST、PUT、DELETE请求
@@ -140,27 +141,31 @@ public class SecondaryConfirmationInterceptor implements Filter {
         logger.info("二次确认拦截器销毁");
     }
     
+    /**
+     * 容器分派使用的请求路径：已解码、去掉了 ;参数，与 Servlet 实际处理的路径一致。
+     * 不能使用 getRequestURI()，否则 "/batch-ban;x=y" 这类路径会绕过高风险操作匹配
+     */
+    static String requestPath(HttpServletRequest request) {
+        String servletPath = request.getServletPath();
+        if (servletPath == null) {
+            return request.getRequestURI();
+        }
+        String pathInfo = request.getPathInfo();
+        return pathInfo != null ? servletPath + pathInfo : servletPath;
+    }
+    
     /**
      * 检查路径是否在白名单中
      */
     private boolean isInWhitelist(String requestURI) {
-        return WHITELIST.stream().anyMatch(requestURI::startsWith);
+        return WHITELIST.match(null, requestURI) != null;
     }
     
     /**
      * 根据请求路径和HTTP方法获取操作代码
      */
-    private String getOperationCode(String requestURI, String httpMethod) {
-        // 特殊处理商品删除路径（包含商品ID）
-        if (requestURI.matches("/api/admin/products/\\d+") && "DELETE".equals(httpMethod)) {
-            return "DELETE_PRODUCT_PERMANENTLY";
-        }
-
-        return OPERATION_MAPPINGS.stream()
-                .filter(mapping -> requestURI.startsWith(mapping.getPath()))
-                .map(HighRiskOperationMapping::getOperationCode)
-                .findFirst()
-                .orElse(null);
+    String getOperationCode(String requestURI, String httpMethod) {
+        return OPERATION_ROUTES.match(httpMethod, requestURI);
     }
     
     /**
@@ -192,25 +197,4 @@ public class SecondaryConfirmationInterceptor implements Filter {
         Result<Object> result = Result.fail("SYSTEM_ERROR", message);
         response.getWriter().write(objectMapper.writeValueAsString(result));
     }
-    
-    /**
-     * 高风险操作路径映射类
-     */
-    private static class HighRiskOperationMapping {
-        private final String path;
-        private final String operationCode;
-        
-        public HighRiskOperationMapping(String path, String operationCode) {
-            this.path = path;
-            this.operationCode = operationCode;
-        }
-        
-        public String getPath() {
-            return path;
-        }
-        
-        public String getOperationCode() {
-            return operationCode;
-        }
-    }
 }
@@ -0,0 +1,42 @@
+package com.shiwu.admin.listener;
+
+import com.shiwu.admin.retention.AuditLogRetentionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * 审计日志保留期监听器
+ * 在应用启动时启动分区维护和归档任务，在应用关闭时停止
+ */
+@WebListener
+public class AuditLogRetentionListener implements ServletContextListener {
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogRetentionListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        logger.info("应用启动，开始启动审计日志保留期任务");
+
+        try {
+            AuditLogRetentionManager.getInstance().start();
+            logger.info("审计日志保留期任务启动成功");
+        } catch (Exception e) {
+            logger.error("启动审计日志保留期任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        logger.info("应用关闭，开始停止审计日志保留期任务");
+
+        try {
+            AuditLogRetentionManager.getInstance().stop();
+            logger.info("审计日志保留期任务停止成功");
+        } catch (Exception e) {
+            logger.error("停止审计日志保留期任务失败: {}", e.getMessage(), e);
+        }
+    }
+}
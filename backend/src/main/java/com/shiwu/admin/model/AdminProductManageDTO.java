@@ -1,10 +1,13 @@
 package com.shiwu.admin.model;
 
+import java.util.List;
+
 /**
  * 管理员商品管理数据传输对象
  */
 public class AdminProductManageDTO {
     private String reason;    // 操作原因（审核拒绝、下架等需要）
+    private List<Long> productIds;  // 商品ID列表（批量操作使用）
 
     public String getReason() {
         return reason;
@@ -14,10 +17,19 @@ public class AdminProductManageDTO {
         this.reason = reason;
     }
 
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+
+    public void setProductIds(List<Long> productIds) {
+        this.productIds = productIds;
+    }
+
     @Override
     public String toString() {
         return "AdminProductManageDTO{" +
                 "reason='" + reason + '\'' +
+                ", productIds=" + productIds +
                 '}';
     }
 }
@@ -0,0 +1,46 @@
+package com.shiwu.admin.model;
+
+/**
+ * 管理员审核队列中单个商品的审核结果
+ */
+public class AdminReviewDecisionDTO {
+    public static final String ACTION_APPROVE = "APPROVE";
+    public static final String ACTION_REJECT = "REJECT";
+
+    private Long productId;   // 商品ID
+    private String action;    // 审核动作：APPROVE-通过，REJECT-拒绝
+    private String reason;    // 审核备注（拒绝时必填）
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    @Override
+    public String toString() {
+        return "AdminReviewDecisionDTO{" +
+                "productId=" + productId +
+                ", action='" + action + '\'' +
+                ", reason='" + reason + '\'' +
+                '}';
+    }
+}
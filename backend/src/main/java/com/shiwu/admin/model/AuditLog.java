@@ -1,5 +1,8 @@
 package com.shiwu.admin.model;
 
+import com.shiwu.admin.enums.AuditActionEnum;
+import com.shiwu.admin.enums.AuditTargetTypeEnum;
+
 import java.time.LocalDateTime;
 
 /**
@@ -17,6 +20,23 @@ public class AuditLog {
     private Integer result; // 0-失败, 1-成功
     private LocalDateTime createTime;
 
+    /**
+     * 创建一条待写入的审计日志
+     */
+    public static AuditLog of(Long adminId, AuditActionEnum action, AuditTargetTypeEnum targetType, Long targetId,
+                              String details, String ipAddress, String userAgent, boolean success) {
+        AuditLog auditLog = new AuditLog();
+        auditLog.setAdminId(adminId);
+        auditLog.setAction(action != null ? action.getCode() : null);
+        auditLog.setTargetType(targetType != null ? targetType.getCode() : null);
+        auditLog.setTargetId(targetId);
+        auditLog.setDetails(details);
+        auditLog.setIpAddress(ipAddress);
+        auditLog.setUserAgent(userAgent);
+        auditLog.setResult(success ? 1 : 0);
+        return auditLog;
+    }
+
     public Long getId() {
         return id;
     }
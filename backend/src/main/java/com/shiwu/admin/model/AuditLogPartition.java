@@ -0,0 +1,55 @@
+package com.shiwu.admin.model;
+
+import java.time.LocalDate;
+
+/**
+ * 审计日志表分区
+ * 审计日志表按 create_time 以月为单位做 RANGE 分区，每个分区保存 [lowerBound, upperBound) 内的日志
+ */
+public class AuditLogPartition {
+    private String name;
+    private LocalDate lowerBound; // 下界（含），第一个分区为null
+    private LocalDate upperBound; // 上界（不含），MAXVALUE 分区为null
+
+    public AuditLogPartition() {
+    }
+
+    public AuditLogPartition(String name, LocalDate lowerBound, LocalDate upperBound) {
+        this.name = name;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public LocalDate getLowerBound() {
+        return lowerBound;
+    }
+
+    public void setLowerBound(LocalDate lowerBound) {
+        this.lowerBound = lowerBound;
+    }
+
+    public LocalDate getUpperBound() {
+        return upperBound;
+    }
+
+    public void setUpperBound(LocalDate upperBound) {
+        this.upperBound = upperBound;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditLogPartition{" +
+                "name='" + name + '\'' +
+                ", lowerBound=" + lowerBound +
+                ", upperBound=" + upperBound +
+                '}';
+    }
+}
@@ -22,6 +22,11 @@ public enum HighRiskOperation {
      */
     BATCH_MUTE_USERS("BATCH_MUTE_USERS", "批量禁言用户", "ADMIN"),
 
+    /**
+     * 批量解封用户
+     */
+    BATCH_UNBAN_USERS("BATCH_UNBAN_USERS", "批量解封用户", "ADMIN"),
+
     /**
      * 重置用户密码
      */
@@ -38,6 +43,16 @@ public enum HighRiskOperation {
      */
     BATCH_REMOVE_PRODUCTS("BATCH_REMOVE_PRODUCTS", "批量下架商品", "ADMIN"),
     
+    /**
+     * 批量审核通过商品
+     */
+    BATCH_APPROVE_PRODUCTS("BATCH_APPROVE_PRODUCTS", "批量审核通过商品", "ADMIN"),
+    
+    /**
+     * 批量审核拒绝商品
+     */
+    BATCH_REJECT_PRODUCTS("BATCH_REJECT_PRODUCTS", "批量审核拒绝商品", "ADMIN"),
+    
     // 系统管理相关高风险操作
     /**
      * 修改系统配置
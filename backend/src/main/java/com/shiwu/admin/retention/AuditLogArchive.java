@@ -0,0 +1,356 @@
+package com.shiwu.admin.retention;
+
+import com.shiwu.admin.dto.AuditLogQueryDTO;
+import com.shiwu.admin.model.AuditLog;
+import com.shiwu.common.util.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 审计日志归档
+ *
+ * 超过保留期的分区在删除前写成本地 gzip 压缩的 NDJSON 文件，每个分区拆成若干个分段文件，
+ * 文件名中带有分区的时间范围：audit-log-20260101-20260201-0001.ndjson.gz（下界为00000000表示无下界）。
+ * 归档仍然可以通过流式导出接口检索：只打开时间范围与查询条件重叠的归档，逐行按查询条件过滤。
+ *
+ * 分段写完后才原子地改名为正式文件，重新归档同一范围时先删除旧分段，重复执行不会产生重复数据。
+ */
+public class AuditLogArchive {
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogArchive.class);
+
+    /**
+     * 每个分段文件最多的日志条数，降序检索时一个分段需要整体读入内存反转
+     */
+    static final int SEGMENT_SIZE = 5000;
+
+    private static final String PREFIX = "audit-log-";
+    private static final String SUFFIX = ".ndjson.gz";
+    private static final String NO_LOWER_BOUND = "00000000";
+    private static final DateTimeFormatter BOUND_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final Pattern SEGMENT_PATTERN =
+            Pattern.compile("audit-log-(\\d{8})-(\\d{8})-(\\d{4})\\.ndjson\\.gz");
+
+    private static volatile AuditLogArchive instance;
+
+    private final Path directory;
+
+    public AuditLogArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 获取单例实例，归档目录可以通过系统属性 shiwu.auditLog.archiveDir 配置
+     */
+    public static AuditLogArchive getInstance() {
+        if (instance == null) {
+            synchronized (AuditLogArchive.class) {
+                if (instance == null) {
+                    String dir = System.getProperty("shiwu.auditLog.archiveDir",
+                            Paths.get(System.getProperty("user.home"), "shiwu", "audit-log-archive").toString());
+                    instance = new AuditLogArchive(Paths.get(dir));
+                }
+            }
+        }
+        return instance;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 检索回调
+     */
+    public interface Sink {
+        void accept(AuditLog auditLog) throws IOException;
+    }
+
+    /**
+     * 开始归档一个时间范围
+     * @param lowerBound 下界（含），null表示无下界
+     * @param upperBound 上界（不含）
+     * @return 范围写入器，写完后必须调用 commit 或 abort
+     */
+    public RangeWriter openRange(LocalDate lowerBound, LocalDate upperBound) throws IOException {
+        Files.createDirectories(directory);
+        return new RangeWriter(lowerBound, upperBound);
+    }
+
+    /**
+     * 列出已归档的时间范围，按时间升序
+     */
+    public List<ArchivedRange> listRanges() throws IOException {
+        TreeMap<String, ArchivedRange> ranges = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                Matcher m = SEGMENT_PATTERN.matcher(file.getFileName().toString());
+                if (!m.matches()) {
+                    continue;
+                }
+                String key = m.group(1) + "-" + m.group(2);
+                ranges.computeIfAbsent(key, k -> new ArchivedRange(
+                        NO_LOWER_BOUND.equals(m.group(1)) ? null : LocalDate.parse(m.group(1), BOUND_FORMATTER),
+                        LocalDate.parse(m.group(2), BOUND_FORMATTER))).segments.add(file);
+            }
+        }
+        List<ArchivedRange> result = new ArrayList<>(ranges.values());
+        for (ArchivedRange range : result) {
+            range.segments.sort(Comparator.comparing(p -> p.getFileName().toString()));
+        }
+        return result;
+    }
+
+    /**
+     * 检索归档中满足查询条件的日志
+     * @param queryDTO 查询条件（忽略分页和排序字段）
+     * @param ascending 是否按ID升序，降序时从最新的归档开始
+     * @param sink 每条匹配的日志回调一次
+     * @return 匹配的条数
+     */
+    public long search(AuditLogQueryDTO queryDTO, boolean ascending, Sink sink) throws IOException {
+        List<ArchivedRange> ranges = listRanges();
+        if (!ascending) {
+            Collections.reverse(ranges);
+        }
+        long matched = 0;
+        for (ArchivedRange range : ranges) {
+            if (!range.overlaps(queryDTO.getStartTime(), queryDTO.getEndTime())) {
+                continue;
+            }
+            List<Path> segments = new ArrayList<>(range.segments);
+            if (!ascending) {
+                Collections.reverse(segments);
+            }
+            for (Path segment : segments) {
+                if (ascending) {
+                    matched += scanSegment(segment, queryDTO, sink);
+                } else {
+                    List<AuditLog> logs = new ArrayList<>();
+                    scanSegment(segment, queryDTO, logs::add);
+                    for (int i = logs.size() - 1; i >= 0; i--) {
+                        sink.accept(logs.get(i));
+                    }
+                    matched += logs.size();
+                }
+            }
+        }
+        return matched;
+    }
+
+    private long scanSegment(Path segment, AuditLogQueryDTO queryDTO, Sink sink) throws IOException {
+        long matched = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                AuditLog auditLog = JsonUtil.fromJson(line, AuditLog.class);
+                if (auditLog != null && matches(queryDTO, auditLog)) {
+                    sink.accept(auditLog);
+                    matched++;
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 与 AuditLogDao 中的查询条件保持一致
+     */
+    static boolean matches(AuditLogQueryDTO q, AuditLog log) {
+        if (q.getAdminId() != null && !q.getAdminId().equals(log.getAdminId())) {
+            return false;
+        }
+        if (notBlank(q.getAction()) && !q.getAction().trim().equals(log.getAction())) {
+            return false;
+        }
+        if (notBlank(q.getTargetType()) && !q.getTargetType().trim().equals(log.getTargetType())) {
+            return false;
+        }
+        if (q.getTargetId() != null && !q.getTargetId().equals(log.getTargetId())) {
+            return false;
+        }
+        if (notBlank(q.getIpAddress()) && !q.getIpAddress().trim().equals(log.getIpAddress())) {
+            return false;
+        }
+        if (q.getResult() != null && !q.getResult().equals(log.getResult())) {
+            return false;
+        }
+        if (q.getStartTime() != null && (log.getCreateTime() == null || log.getCreateTime().isBefore(q.getStartTime()))) {
+            return false;
+        }
+        if (q.getEndTime() != null && (log.getCreateTime() == null || log.getCreateTime().isAfter(q.getEndTime()))) {
+            return false;
+        }
+        if (notBlank(q.getKeyword())) {
+            return log.getDetails() != null && log.getDetails().contains(q.getKeyword().trim());
+        }
+        return true;
+    }
+
+    private static boolean notBlank(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    /**
+     * 已归档的时间范围
+     */
+    public static class ArchivedRange {
+        private final LocalDate lowerBound;
+        private final LocalDate upperBound;
+        private final List<Path> segments = new ArrayList<>();
+
+        ArchivedRange(LocalDate lowerBound, LocalDate upperBound) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+        }
+
+        public LocalDate getLowerBound() {
+            return lowerBound;
+        }
+
+        public LocalDate getUpperBound() {
+            return upperBound;
+        }
+
+        public List<Path> getSegments() {
+            return segments;
+        }
+
+        boolean overlaps(LocalDateTime startTime, LocalDateTime endTime) {
+            if (startTime != null && !startTime.isBefore(upperBound.atStartOfDay())) {
+                return false;
+            }
+            return endTime == null || lowerBound == null || !endTime.isBefore(lowerBound.atStartOfDay());
+        }
+    }
+
+    /**
+     * 一个时间范围的归档写入器，超过分段大小时自动切换到下一个分段
+     */
+    public class RangeWriter implements AutoCloseable {
+        private final String rangeKey;
+        private final List<Path> tempFiles = new ArrayList<>();
+        private Writer current;
+        private int currentCount;
+        private long count;
+        private boolean finished;
+
+        private RangeWriter(LocalDate lowerBound, LocalDate upperBound) {
+            this.rangeKey = (lowerBound != null ? lowerBound.format(BOUND_FORMATTER) : NO_LOWER_BOUND)
+                    + "-" + upperBound.format(BOUND_FORMATTER);
+        }
+
+        public void write(AuditLog auditLog) throws IOException {
+            if (current == null || currentCount >= SEGMENT_SIZE) {
+                nextSegment();
+            }
+            current.write(JsonUtil.toJson(auditLog));
+            current.write('\n');
+            currentCount++;
+            count++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 写完全部分段后替换该范围原有的归档文件
+         */
+        public void commit() throws IOException {
+            closeCurrent();
+            for (ArchivedRange range : listRanges()) {
+                if (rangeKey.equals(keyOf(range))) {
+                    for (Path old : range.segments) {
+                        Files.deleteIfExists(old);
+                    }
+                }
+            }
+            for (Path temp : tempFiles) {
+                String name = temp.getFileName().toString();
+                Files.move(temp, temp.resolveSibling(name.substring(0, name.length() - ".tmp".length())),
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            finished = true;
+            logger.info("审计日志归档完成: range={}, 共{}条, {}个分段", rangeKey, count, tempFiles.size());
+        }
+
+        /**
+         * 放弃本次归档，删除已写出的临时文件
+         */
+        public void abort() {
+            finished = true;
+            try {
+                closeCurrent();
+            } catch (IOException e) {
+                logger.warn("关闭归档临时文件失败: {}", e.getMessage());
+            }
+            for (Path temp : tempFiles) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.warn("删除归档临时文件失败: {}", temp, e);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!finished) {
+                abort();
+            }
+        }
+
+        private void nextSegment() throws IOException {
+            closeCurrent();
+            Path temp = directory.resolve(String.format("%s%s-%04d%s.tmp", PREFIX, rangeKey, tempFiles.size() + 1, SUFFIX));
+            tempFiles.add(temp);
+            current = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8));
+            currentCount = 0;
+        }
+
+        private void closeCurrent() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    private static String keyOf(ArchivedRange range) {
+        return (range.lowerBound != null ? range.lowerBound.format(BOUND_FORMATTER) : NO_LOWER_BOUND)
+                + "-" + range.upperBound.format(BOUND_FORMATTER);
+    }
+}
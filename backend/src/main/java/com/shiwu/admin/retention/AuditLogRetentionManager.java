@@ -0,0 +1,252 @@
+package com.shiwu.admin.retention;
+
+import com.shiwu.admin.dao.AuditLogDao;
+import com.shiwu.admin.model.AuditLog;
+import com.shiwu.admin.model.AuditLogPartition;
+import com.shiwu.common.util.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 审计日志保留期管理
+ *
+ * 审计日志表按 create_time 以月分区（见 complete_database_schema.sql），带时间范围的查询、
+ * 统计和趋势查询只会扫描与时间范围重叠的分区。本任务定期执行两件事：
+ * 1. 从 MAXVALUE 分区（p_future）中提前拆分出未来几个月的月分区，保证每个月的日志落在自己的分区中
+ * 2. 上界早于保留期的分区先归档到本地压缩文件（见 AuditLogArchive），再整个分区删除，
+ *    删除分区是元数据操作，不会像 DELETE 一样逐行删除、长时间锁表
+ *
+ * 保留月数可以通过系统属性 shiwu.auditLog.retentionMonths 配置（默认12个月，小于等于0时不归档）。
+ * 审计日志表未分区（旧库尚未迁移）时只记录警告，不做任何修改。
+ */
+public class AuditLogRetentionManager {
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogRetentionManager.class);
+
+    /**
+     * 默认保留月数
+     */
+    private static final int DEFAULT_RETENTION_MONTHS = 12;
+
+    /**
+     * 提前创建的未来月分区数量
+     */
+    private static final int MONTHS_AHEAD = 2;
+
+    /**
+     * 执行间隔（小时）
+     */
+    private static final long RUN_INTERVAL_HOURS = 6;
+
+    /**
+     * 启动后首次执行的延迟（分钟），避开应用启动高峰
+     */
+    private static final long INITIAL_DELAY_MINUTES = 1;
+
+    /**
+     * 归档时每次从分区读取的条数
+     */
+    private static final int ARCHIVE_CHUNK_SIZE = 1000;
+
+    static final String MAXVALUE_PARTITION = "p_future";
+
+    private static final DateTimeFormatter PARTITION_NAME_FORMATTER = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static volatile AuditLogRetentionManager instance;
+
+    private final AuditLogDao auditLogDao;
+    private final AuditLogArchive archive;
+    private final int retentionMonths;
+    private ScheduledExecutorService scheduler;
+
+    private volatile LocalDateTime lastRunTime;
+    private volatile int partitionCount;
+    private final AtomicLong createdPartitions = new AtomicLong();
+    private final AtomicLong archivedPartitions = new AtomicLong();
+    private final AtomicLong archivedRows = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    AuditLogRetentionManager(AuditLogDao auditLogDao, AuditLogArchive archive, int retentionMonths) {
+        this.auditLogDao = auditLogDao;
+        this.archive = archive;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static AuditLogRetentionManager getInstance() {
+        if (instance == null) {
+            synchronized (AuditLogRetentionManager.class) {
+                if (instance == null) {
+                    AuditLogRetentionManager manager = new AuditLogRetentionManager(new AuditLogDao(),
+                            AuditLogArchive.getInstance(),
+                            Integer.getInteger("shiwu.auditLog.retentionMonths", DEFAULT_RETENTION_MONTHS));
+                    MetricsRegistry.register("auditLogRetention", manager::getStats);
+                    instance = manager;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 启动定期维护任务
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        logger.info("启动审计日志保留期任务: 保留{}个月, 归档目录={}", retentionMonths, archive.getDirectory());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "audit-log-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, INITIAL_DELAY_MINUTES,
+                TimeUnit.HOURS.toMinutes(RUN_INTERVAL_HOURS), TimeUnit.MINUTES);
+    }
+
+    /**
+     * 停止定期维护任务
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        logger.info("停止审计日志保留期任务");
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * 执行一次分区维护和归档
+     * @param today 当前日期
+     */
+    public void runOnce(LocalDate today) throws IOException {
+        List<AuditLogPartition> partitions = auditLogDao.findPartitions();
+        if (partitions.isEmpty()) {
+            logger.warn("审计日志表未分区，跳过分区维护和归档");
+            return;
+        }
+
+        List<AuditLogPartition> missing = missingPartitions(partitions, YearMonth.from(today));
+        if (!missing.isEmpty()) {
+            auditLogDao.splitMaxValuePartition(MAXVALUE_PARTITION, missing);
+            createdPartitions.addAndGet(missing.size());
+            partitions = auditLogDao.findPartitions();
+        }
+
+        for (AuditLogPartition partition : expiredPartitions(partitions, today)) {
+            archiveAndDrop(partition);
+        }
+        partitionCount = auditLogDao.findPartitions().size();
+        lastRunTime = LocalDateTime.now();
+    }
+
+    /**
+     * 计算需要从 MAXVALUE 分区拆分出来的月分区，覆盖到当前月之后 MONTHS_AHEAD 个月
+     */
+    List<AuditLogPartition> missingPartitions(List<AuditLogPartition> partitions, YearMonth currentMonth) {
+        AuditLogPartition last = partitions.get(partitions.size() - 1);
+        if (last.getUpperBound() != null || !MAXVALUE_PARTITION.equals(last.getName())) {
+            logger.warn("审计日志表最后一个分区不是 {}，无法自动创建月分区: {}", MAXVALUE_PARTITION, last);
+            return new ArrayList<>();
+        }
+        LocalDate covered = last.getLowerBound();
+        YearMonth target = currentMonth.plusMonths(MONTHS_AHEAD);
+        YearMonth month = covered != null ? YearMonth.from(covered) : currentMonth;
+        List<AuditLogPartition> missing = new ArrayList<>();
+        LocalDate lowerBound = covered;
+        for (; !month.isAfter(target); month = month.plusMonths(1)) {
+            LocalDate upperBound = month.plusMonths(1).atDay(1);
+            if (covered != null && !upperBound.isAfter(covered)) {
+                continue;
+            }
+            missing.add(new AuditLogPartition(month.format(PARTITION_NAME_FORMATTER), lowerBound, upperBound));
+            lowerBound = upperBound;
+        }
+        return missing;
+    }
+
+    /**
+     * 上界不晚于保留期起点的分区（MAXVALUE 分区永不过期）
+     */
+    List<AuditLogPartition> expiredPartitions(List<AuditLogPartition> partitions, LocalDate today) {
+        List<AuditLogPartition> expired = new ArrayList<>();
+        if (retentionMonths <= 0) {
+            return expired;
+        }
+        LocalDate cutoff = YearMonth.from(today).minusMonths(retentionMonths).atDay(1);
+        for (AuditLogPartition partition : partitions) {
+            if (partition.getUpperBound() != null && !partition.getUpperBound().isAfter(cutoff)) {
+                expired.add(partition);
+            }
+        }
+        return expired;
+    }
+
+    private void archiveAndDrop(AuditLogPartition partition) throws IOException {
+        long start = System.currentTimeMillis();
+        long count;
+        try (AuditLogArchive.RangeWriter writer =
+                     archive.openRange(partition.getLowerBound(), partition.getUpperBound())) {
+            Long afterId = null;
+            while (true) {
+                List<AuditLog> chunk = auditLogDao.findPartitionLogsAfter(partition.getName(), afterId, ARCHIVE_CHUNK_SIZE);
+                for (AuditLog auditLog : chunk) {
+                    writer.write(auditLog);
+                }
+                if (chunk.size() < ARCHIVE_CHUNK_SIZE) {
+                    break;
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+            writer.commit();
+            count = writer.getCount();
+        }
+        // 归档文件落盘后才删除分区；删除前中断时下次执行会重新归档并覆盖同一范围的文件
+        auditLogDao.dropPartition(partition.getName());
+        archivedPartitions.incrementAndGet();
+        archivedRows.addAndGet(count);
+        logger.info("审计日志分区归档并删除: partition={}, 共{}条, 耗时{}ms",
+                partition.getName(), count, System.currentTimeMillis() - start);
+    }
+
+    private void runQuietly() {
+        try {
+            runOnce(LocalDate.now());
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.error("审计日志保留期任务执行失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取任务指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("retentionMonths", retentionMonths);
+        stats.put("partitions", partitionCount);
+        stats.put("createdPartitions", createdPartitions.get());
+        stats.put("archivedPartitions", archivedPartitions.get());
+        stats.put("archivedRows", archivedRows.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRunTime", lastRunTime != null ? lastRunTime.toString() : null);
+        return stats;
+    }
+}
@@ -1,11 +1,13 @@
 package com.shiwu.admin.service;
 
 import com.shiwu.admin.dto.AuditLogQueryDTO;
+import com.shiwu.admin.export.AuditLogExportWriter;
 import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.enums.AuditTargetTypeEnum;
-//import com.shiwu.admin.model.AuditLog;
+import com.shiwu.admin.model.AuditLog;
 import com.shiwu.admin.vo.AuditLogVO;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +32,13 @@ public interface AuditLogService {
     Long logAction(Long adminId, AuditActionEnum action, AuditTargetTypeEnum targetType, 
                    Long targetId, String details, String ipAddress, String userAgent, boolean success);
     
+    /**
+     * 批量记录审计日志，用一条 INSERT 写入，供批量管理操作使用
+     * @param auditLogs 审计日志，缺少管理员ID或操作类型的会被忽略
+     * @return 写入的条数，失败返回0
+     */
+    int logActions(List<AuditLog> auditLogs);
+    
     /**
      * 记录审计日志（简化版本）
      * @param adminId 管理员ID
@@ -86,6 +95,16 @@ public interface AuditLogService {
      */
     List<AuditLogVO> exportAuditLogs(AuditLogQueryDTO queryDTO);
     
+    /**
+     * 流式导出审计日志，不限制条数
+     * 按ID分块读取并逐块写出，内存占用与导出总量无关；超过保留期已归档的日志也会被检索
+     * @param queryDTO 查询条件（忽略分页；sortOrder 为 ASC 时按ID升序，否则按ID降序）
+     * @param writer 导出写入器
+     * @return 导出的记录数
+     * @throws IOException 写出失败（例如客户端断开）
+     */
+    long streamAuditLogs(AuditLogQueryDTO queryDTO, AuditLogExportWriter writer) throws IOException;
+    
     /**
      * 检查操作是否需要记录审计日志
      * @param action 操作类型
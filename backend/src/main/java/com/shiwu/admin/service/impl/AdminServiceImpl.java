@@ -1,5 +1,6 @@
 package com.shiwu.admin.service.impl;
 
+import com.shiwu.admin.cache.OperationContextStore;
 import com.shiwu.admin.dao.AdminDao;
 import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.enums.AuditTargetTypeEnum;
@@ -12,9 +13,7 @@ import org.mindrot.jbcrypt.BCrypt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 管理员服务实现类
@@ -27,8 +26,8 @@ public class AdminServiceImpl implements AdminService {
     private final AdminDao adminDao;
     private final AuditLogService auditLogService;
 
-    // 存储待确认的操作上下文（生产环境应使用Redis等缓存）
-    private final Map<String, OperationContext> operationContexts = new ConcurrentHashMap<>();
+    // 待确认的操作上下文（有界、按有效期自动移除，进程内共享）
+    private final OperationContextStore operationContexts = OperationContextStore.getInstance();
 
     public AdminServiceImpl() {
         this.adminDao = new AdminDao();
@@ -314,10 +313,7 @@ public class AdminServiceImpl implements AdminService {
                 operationData, ipAddress, userAgent
             );
 
-            operationContexts.put(operationId, context);
-
-            // 清理过期的操作上下文
-            cleanExpiredContexts();
+            operationContexts.put(context);
 
             logger.info("创建操作上下文成功: operationId={}, adminId={}, operationCode={}",
                       operationId, adminId, operationCode);
@@ -335,14 +331,7 @@ public class AdminServiceImpl implements AdminService {
             return null;
         }
 
-        OperationContext context = operationContexts.get(operationId);
-        if (context != null && context.isExpired()) {
-            operationContexts.remove(operationId);
-            logger.info("移除过期的操作上下文: {}", operationId);
-            return null;
-        }
-
-        return context;
+        return operationContexts.get(operationId);
     }
 
     @Override
@@ -355,19 +344,6 @@ public class AdminServiceImpl implements AdminService {
         return operation != null && HighRiskOperation.hasPermissionForOperation(operation, adminRole);
     }
 
-    /**
-     * 清理过期的操作上下文
-     */
-    private void cleanExpiredContexts() {
-        operationContexts.entrySet().removeIf(entry -> {
-            if (entry.getValue().isExpired()) {
-                logger.debug("清理过期操作上下文: {}", entry.getKey());
-                return true;
-            }
-            return false;
-        });
-    }
-
     /**
      * 生成管理员JWT令牌
      */
@@ -3,15 +3,18 @@ package com.shiwu.admin.service.impl;
 import com.shiwu.admin.dao.AdminDao;
 import com.shiwu.admin.dao.AuditLogDao;
 import com.shiwu.admin.dto.AuditLogQueryDTO;
+import com.shiwu.admin.export.AuditLogExportWriter;
 import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.enums.AuditTargetTypeEnum;
 import com.shiwu.admin.model.Administrator;
 import com.shiwu.admin.model.AuditLog;
+import com.shiwu.admin.retention.AuditLogArchive;
 import com.shiwu.admin.service.AuditLogService;
 import com.shiwu.admin.vo.AuditLogVO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -22,18 +25,32 @@ public class AuditLogServiceImpl implements AuditLogService {
     
     private static final Logger logger = LoggerFactory.getLogger(AuditLogServiceImpl.class);
     
+    /**
+     * 流式导出每次从数据库读取的条数
+     */
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    
     private final AuditLogDao auditLogDao;
     private final AdminDao adminDao;
     
+    private final AuditLogArchive archive;
+    
     public AuditLogServiceImpl() {
         this.auditLogDao = new AuditLogDao();
         this.adminDao = new AdminDao();
+        this.archive = AuditLogArchive.getInstance();
     }
     
     // 用于测试的构造函数
     public AuditLogServiceImpl(AuditLogDao auditLogDao, AdminDao adminDao) {
+        this(auditLogDao, adminDao, AuditLogArchive.getInstance());
+    }
+    
+    // 用于测试的构造函数
+    public AuditLogServiceImpl(AuditLogDao auditLogDao, AdminDao adminDao, AuditLogArchive archive) {
         this.auditLogDao = auditLogDao;
         this.adminDao = adminDao;
+        this.archive = archive;
     }
     
     @Override
@@ -45,15 +62,8 @@ public class AuditLogServiceImpl implements AuditLogService {
         }
         
         try {
-            AuditLog auditLog = new AuditLog();
-            auditLog.setAdminId(adminId);
-            auditLog.setAction(action.getCode());
-            auditLog.setTargetType(targetType != null ? targetType.getCode() : null);
-            auditLog.setTargetId(targetId);
-            auditLog.setDetails(details);
-            auditLog.setIpAddress(ipAddress);
-            auditLog.setUserAgent(userAgent);
-            auditLog.setResult(success ? 1 : 0);
+            AuditLog auditLog = AuditLog.of(adminId, action, targetType, targetId, details,
+                                            ipAddress, userAgent, success);
             
             Long logId = auditLogDao.createAuditLog(auditLog);
             if (logId != null) {
@@ -67,6 +77,30 @@ public class AuditLogServiceImpl implements AuditLogService {
         }
     }
     
+    @Override
+    public int logActions(List<AuditLog> auditLogs) {
+        if (auditLogs == null || auditLogs.isEmpty()) {
+            return 0;
+        }
+        
+        List<AuditLog> valid = new ArrayList<>(auditLogs.size());
+        for (AuditLog auditLog : auditLogs) {
+            if (auditLog != null && auditLog.getAdminId() != null && auditLog.getAction() != null) {
+                valid.add(auditLog);
+            }
+        }
+        if (valid.size() < auditLogs.size()) {
+            logger.warn("批量记录审计日志: 忽略{}条缺少必要参数的日志", auditLogs.size() - valid.size());
+        }
+        
+        try {
+            return auditLogDao.createAuditLogs(valid);
+        } catch (Exception e) {
+            logger.error("批量记录审计日志失败: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+    
     @Override
     public Long logAction(Long adminId, AuditActionEnum action, String details, boolean success) {
         return logAction(adminId, action, null, null, details, null, null, success);
@@ -213,32 +247,10 @@ public class AuditLogServiceImpl implements AuditLogService {
             queryDTO.setPage(1);
             
             List<AuditLog> auditLogs = auditLogDao.findAuditLogs(queryDTO);
-            List<AuditLogVO> auditLogVOs = new ArrayList<>();
-            
+            Map<Long, String> adminNames = adminDao.findAllUsernames();
+            List<AuditLogVO> auditLogVOs = new ArrayList<>(auditLogs.size());
             for (AuditLog auditLog : auditLogs) {
-                AuditLogVO vo = AuditLogVO.fromEntity(auditLog);
-                
-                // 填充管理员用户名
-                if (auditLog.getAdminId() != null) {
-                    Administrator admin = adminDao.findById(auditLog.getAdminId());
-                    if (admin != null) {
-                        vo.setAdminUsername(admin.getUsername());
-                    }
-                }
-                
-                // 填充操作描述
-                AuditActionEnum actionEnum = AuditActionEnum.fromCode(auditLog.getAction());
-                if (actionEnum != null) {
-                    vo.setActionDescription(actionEnum.getDescription());
-                }
-                
-                // 填充目标类型描述
-                AuditTargetTypeEnum targetTypeEnum = AuditTargetTypeEnum.fromCode(auditLog.getTargetType());
-                if (targetTypeEnum != null) {
-                    vo.setTargetTypeDescription(targetTypeEnum.getDescription());
-                }
-                
-                auditLogVOs.add(vo);
+                auditLogVOs.add(toExportVO(auditLog, adminNames));
             }
             
             logger.info("导出审计日志成功: 共{}条记录", auditLogVOs.size());
@@ -249,6 +261,39 @@ public class AuditLogServiceImpl implements AuditLogService {
         }
     }
     
+    @Override
+    public long streamAuditLogs(AuditLogQueryDTO queryDTO, AuditLogExportWriter writer) throws IOException {
+        AuditLogQueryDTO query = queryDTO != null ? queryDTO : new AuditLogQueryDTO();
+        boolean ascending = "ASC".equals(query.getSortOrder());
+        // 管理员数量很少，一次性加载用户名，避免每条日志查询一次管理员
+        Map<Long, String> adminNames = adminDao.findAllUsernames();
+        
+        writer.writeHeader();
+        // 已归档的分区都早于表中现存的日志：升序时先输出归档，降序时最后输出
+        if (ascending) {
+            streamArchivedLogs(query, true, writer, adminNames);
+        }
+        Long afterId = null;
+        while (true) {
+            List<AuditLog> chunk = auditLogDao.findAuditLogsAfter(query, afterId, ascending, EXPORT_CHUNK_SIZE);
+            for (AuditLog auditLog : chunk) {
+                writer.write(toExportVO(auditLog, adminNames));
+            }
+            // 每块写完就刷出，客户端可以边下载边接收，服务端不积压
+            writer.flush();
+            if (chunk.size() < EXPORT_CHUNK_SIZE) {
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+        if (!ascending) {
+            streamArchivedLogs(query, false, writer, adminNames);
+        }
+        
+        logger.info("流式导出审计日志成功: 共{}条记录", writer.getCount());
+        return writer.getCount();
+    }
+    
     @Override
     public boolean shouldLogAction(AuditActionEnum action) {
         // 根据NFR-SEC-03，所有敏感操作都需要记录审计日志
@@ -279,6 +324,50 @@ public class AuditLogServiceImpl implements AuditLogService {
         return targetTypes;
     }
     
+    /**
+     * 检索超过保留期、已从表中归档的日志
+     */
+    private void streamArchivedLogs(AuditLogQueryDTO query, boolean ascending, AuditLogExportWriter writer,
+                                    Map<Long, String> adminNames) throws IOException {
+        long[] pending = {0};
+        long matched = archive.search(query, ascending, auditLog -> {
+            writer.write(toExportVO(auditLog, adminNames));
+            if (++pending[0] >= EXPORT_CHUNK_SIZE) {
+                writer.flush();
+                pending[0] = 0;
+            }
+        });
+        writer.flush();
+        if (matched > 0) {
+            logger.info("流式导出审计日志: 归档中匹配{}条记录", matched);
+        }
+    }
+    
+    /**
+     * 转换为导出用的VO，管理员用户名从预先加载的映射中获取
+     */
+    private AuditLogVO toExportVO(AuditLog auditLog, Map<Long, String> adminNames) {
+        AuditLogVO vo = AuditLogVO.fromEntity(auditLog);
+        
+        // 填充管理员用户名
+        if (auditLog.getAdminId() != null) {
+            vo.setAdminUsername(adminNames.get(auditLog.getAdminId()));
+        }
+        
+        // 填充操作描述
+        AuditActionEnum actionEnum = AuditActionEnum.fromCode(auditLog.getAction());
+        if (actionEnum != null) {
+            vo.setActionDescription(actionEnum.getDescription());
+        }
+        
+        // 填充目标类型描述
+        AuditTargetTypeEnum targetTypeEnum = AuditTargetTypeEnum.fromCode(auditLog.getTargetType());
+        if (targetTypeEnum != null) {
+            vo.setTargetTypeDescription(targetTypeEnum.getDescription());
+        }
+        return vo;
+    }
+    
     /**
      * 创建空的查询结果
      * @return 空结果
@@ -0,0 +1,581 @@
+package com.shiwu.common.batch;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletMapping;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.MappingMatch;
+import javax.servlet.http.Part;
+import javax.servlet.http.PushBuilder;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 批量请求中的子请求
+ *
+ * 在工作线程中交给目标控制器处理，请求行、查询参数和请求属性都是子请求自己的。
+ * 外层请求的请求头（条件请求头除外）、Cookie、连接信息、会话和已通过认证的 userId/userRole 属性
+ * 在创建时（外层请求线程中）复制过来，之后不再读取外层请求：子请求超时后仍可能在工作线程中执行，
+ * 此时外层请求可能已被容器回收并分配给其他请求。
+ * 子请求只支持没有请求体的 GET。
+ */
+public class BatchSubRequest extends HttpServletRequestWrapper {
+
+    private final String servletPath;
+    private final String pathInfo;
+    private final String queryString;
+    private final Map<String, String[]> parameters;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Cookie[] cookies;
+    private final String contextPath;
+    private final String scheme;
+    private final String serverName;
+    private final int serverPort;
+    private final String protocol;
+    private final boolean secure;
+    private final String remoteAddr;
+    private final String remoteHost;
+    private final int remotePort;
+    private final String localAddr;
+    private final String localName;
+    private final int localPort;
+    private final List<Locale> locales;
+    private final HttpSession session;
+    private final ServletContext servletContext;
+    private volatile String characterEncoding;
+
+    /**
+     * @param parent 外层批量请求
+     * @param servletPath 目标控制器的映射前缀，如 /api/products
+     * @param pathInfo 前缀之后的路径，没有时为null
+     * @param queryString 查询字符串，没有时为null
+     */
+    public BatchSubRequest(HttpServletRequest parent, String servletPath, String pathInfo, String queryString) {
+        super(parent);
+        this.servletPath = servletPath;
+        this.pathInfo = pathInfo;
+        this.queryString = queryString;
+        this.parameters = parseQuery(queryString);
+        copyAttribute(parent, "userId");
+        copyAttribute(parent, "userRole");
+        copyHeaders(parent);
+        Cookie[] parentCookies = parent.getCookies();
+        this.cookies = parentCookies != null ? parentCookies.clone() : null;
+        this.contextPath = parent.getContextPath();
+        this.scheme = parent.getScheme();
+        this.serverName = parent.getServerName();
+        this.serverPort = parent.getServerPort();
+        this.protocol = parent.getProtocol();
+        this.secure = parent.isSecure();
+        this.remoteAddr = parent.getRemoteAddr();
+        this.remoteHost = parent.getRemoteHost();
+        this.remotePort = parent.getRemotePort();
+        this.localAddr = parent.getLocalAddr();
+        this.localName = parent.getLocalName();
+        this.localPort = parent.getLocalPort();
+        this.locales = parent.getLocales() != null ? Collections.list(parent.getLocales()) : new ArrayList<>();
+        // 子请求不创建会话，只沿用外层请求已有的会话
+        this.session = parent.getSession(false);
+        this.servletContext = parent.getServletContext();
+        this.characterEncoding = parent.getCharacterEncoding();
+    }
+
+    @Override
+    public String getMethod() {
+        return "GET";
+    }
+
+    @Override
+    public String getServletPath() {
+        return servletPath;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return pathInfo;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + servletPath + (pathInfo != null ? pathInfo : "");
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer();
+        url.append(getScheme()).append("://").append(getServerName()).append(':').append(getServerPort());
+        return url.append(getRequestURI());
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = name != null ? headers.get(name) : null;
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = name != null ? headers.get(name) : null;
+        return values != null ? Collections.enumeration(values) : Collections.emptyEnumeration();
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(new ArrayList<>(headers.keySet()));
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value != null ? Integer.parseInt(value) : -1;
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        // 子请求只用于不带条件请求头的 GET，不解析日期请求头
+        return -1L;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        return cookies != null ? cookies.clone() : null;
+    }
+
+    @Override
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    @Override
+    public String getScheme() {
+        return scheme;
+    }
+
+    @Override
+    public String getServerName() {
+        return serverName;
+    }
+
+    @Override
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return remoteAddr;
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return remoteHost;
+    }
+
+    @Override
+    public int getRemotePort() {
+        return remotePort;
+    }
+
+    @Override
+    public String getLocalAddr() {
+        return localAddr;
+    }
+
+    @Override
+    public String getLocalName() {
+        return localName;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return localPort;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locales.isEmpty() ? Locale.getDefault() : locales.get(0);
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(locales.isEmpty() ? Collections.singletonList(Locale.getDefault()) : locales);
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) {
+        this.characterEncoding = env;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public HttpServletMapping getHttpServletMapping() {
+        return new HttpServletMapping() {
+            @Override
+            public String getMatchValue() {
+                return pathInfo != null ? pathInfo.substring(1) : "";
+            }
+
+            @Override
+            public String getPattern() {
+                return servletPath + "/*";
+            }
+
+            @Override
+            public String getServletName() {
+                return "";
+            }
+
+            @Override
+            public MappingMatch getMappingMatch() {
+                return MappingMatch.PATH;
+            }
+        };
+    }
+
+    @Override
+    public String getAuthType() {
+        return null;
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return null;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return session != null ? session.getId() : null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return session != null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+
+    @Override
+    public String changeSessionId() {
+        throw new IllegalStateException("子请求不支持修改会话");
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) throws ServletException {
+        throw new ServletException("子请求不支持容器认证");
+    }
+
+    @Override
+    public void login(String username, String password) throws ServletException {
+        throw new ServletException("子请求不支持容器认证");
+    }
+
+    @Override
+    public void logout() throws ServletException {
+        throw new ServletException("子请求不支持容器认证");
+    }
+
+    @Override
+    public Collection<Part> getParts() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Part getPart(String name) {
+        return null;
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws ServletException {
+        throw new ServletException("子请求不支持协议升级");
+    }
+
+    @Override
+    public PushBuilder newPushBuilder() {
+        return null;
+    }
+
+    @Override
+    public Map<String, String> getTrailerFields() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public boolean isTrailerFieldsReady() {
+        return true;
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getRealPath(String path) {
+        return servletContext != null ? servletContext.getRealPath(path) : null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        String[] values = parameters.get(name);
+        return values != null ? values.clone() : null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(false);
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        return session;
+    }
+
+    @Override
+    public int getContentLength() {
+        return 0;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return 0;
+    }
+
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return true;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new IllegalStateException("子请求不支持异步读取");
+            }
+
+            @Override
+            public int read() {
+                return -1;
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new StringReader(""));
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("子请求不支持异步处理");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new IllegalStateException("子请求不支持异步处理");
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        throw new IllegalStateException("子请求不支持异步处理");
+    }
+
+    /**
+     * 外层请求的条件请求头针对的是批量响应本身，不能传给子请求，否则子请求可能返回没有响应体的304
+     */
+    private static boolean isConditionalHeader(String name) {
+        return "If-None-Match".equalsIgnoreCase(name) || "If-Modified-Since".equalsIgnoreCase(name);
+    }
+
+    private void copyHeaders(HttpServletRequest parent) {
+        Enumeration<String> names = parent.getHeaderNames();
+        if (names == null) {
+            return;
+        }
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            if (isConditionalHeader(name)) {
+                continue;
+            }
+            Enumeration<String> values = parent.getHeaders(name);
+            List<String> copied = values != null ? Collections.list(values) : new ArrayList<>();
+            if (!copied.isEmpty()) {
+                headers.computeIfAbsent(name, k -> new ArrayList<>()).addAll(copied);
+            }
+        }
+    }
+
+    private void copyAttribute(HttpServletRequest parent, String name) {
+        Object value = parent.getAttribute(name);
+        if (value != null) {
+            attributes.put(name, value);
+        }
+    }
+
+    private static Map<String, String[]> parseQuery(String queryString) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        if (queryString != null && !queryString.isEmpty()) {
+            for (String pair : queryString.split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int eq = pair.indexOf('=');
+                String name = decode(eq >= 0 ? pair.substring(0, eq) : pair);
+                String value = eq >= 0 ? decode(pair.substring(eq + 1)) : "";
+                values.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+            }
+        }
+        Map<String, String[]> result = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toArray(new String[0]));
+        }
+        return result;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.shiwu.common.batch;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * 批量请求中的子响应
+ *
+ * 把目标控制器写出的状态码、内容类型和响应体缓存在内存中，不读写外层响应
+ * （子请求超时后外层响应可能已经提交并被回收）；子响应设置的其他响应头和 Cookie 被忽略。
+ */
+public class BatchSubResponse extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private int status = SC_OK;
+    private String contentType;
+    private String characterEncoding = StandardCharsets.UTF_8.name();
+    private PrintWriter writer;
+    private ServletOutputStream outputStream;
+
+    public BatchSubResponse(HttpServletResponse parent) {
+        super(parent);
+    }
+
+    /**
+     * 获取缓存的响应体
+     */
+    public byte[] getBody() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 获取缓存的响应体文本
+     */
+    public String getBodyAsString() {
+        Charset charset;
+        try {
+            charset = Charset.forName(characterEncoding);
+        } catch (Exception e) {
+            charset = StandardCharsets.UTF_8;
+        }
+        return new String(getBody(), charset);
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        this.status = sc;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setStatus(int sc, String sm) {
+        this.status = sc;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        this.status = sc;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        this.status = sc;
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        this.status = SC_FOUND;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public void setContentType(String type) {
+        this.contentType = type;
+        if (type != null) {
+            int index = type.toLowerCase().indexOf("charset=");
+            if (index >= 0) {
+                characterEncoding = type.substring(index + "charset=".length()).trim();
+            }
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (charset != null && writer == null) {
+            this.characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (outputStream != null) {
+            throw new IllegalStateException("已经调用过 getOutputStream");
+        }
+        if (writer == null) {
+            Charset charset;
+            try {
+                charset = Charset.forName(characterEncoding);
+            } catch (Exception e) {
+                charset = StandardCharsets.UTF_8;
+            }
+            writer = new PrintWriter(new OutputStreamWriter(buffer, charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("已经调用过 getWriter");
+        }
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new IllegalStateException("子响应不支持异步写出");
+                }
+
+                @Override
+                public void write(int b) {
+                    buffer.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    buffer.write(b, off, len);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            setContentType(value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        setHeader(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+    }
+
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        status = SC_OK;
+        contentType = null;
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        buffer.reset();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return buffer.size();
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return "Content-Type".equalsIgnoreCase(name) && contentType != null;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return "Content-Type".equalsIgnoreCase(name) ? contentType : null;
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        String value = getHeader(name);
+        return value != null ? Collections.singletonList(value) : Collections.emptyList();
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return contentType != null ? Collections.singletonList("Content-Type") : Collections.emptyList();
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+    }
+
+    @Override
+    public Locale getLocale() {
+        return Locale.getDefault();
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+}
@@ -0,0 +1,227 @@
+package com.shiwu.common.concurrent;
+
+import com.shiwu.common.util.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 组合查询并发执行器
+ *
+ * 聚合接口（用户主页、商品详情等）把互不依赖的子查询提交到这个有界线程池并发执行，
+ * 接口耗时从各子查询之和变为其中最慢的一个。每个请求通过 begin 取得一个带截止时间的 Fanout，
+ * 超过截止时间或执行失败的子查询返回调用方给定的降级值。
+ * 线程池队列满时子查询在调用线程中执行，不会丢弃也不会无限排队。
+ * 子查询在其他线程执行，不属于调用线程的工作单元，只能用于只读查询。
+ */
+public class FanoutExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(FanoutExecutor.class);
+
+    /**
+     * 工作线程数
+     */
+    private static final int WORKER_COUNT = 16;
+
+    /**
+     * 等待队列容量
+     */
+    private static final int QUEUE_CAPACITY = 256;
+
+    private static volatile FanoutExecutor instance;
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong totalTaskMillis = new AtomicLong();
+    private final AtomicLong maxTaskMillis = new AtomicLong();
+
+    FanoutExecutor(int workers, int queueCapacity) {
+        AtomicInteger index = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "fanout-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (r, executor) -> {
+                    callerRuns.incrementAndGet();
+                    r.run();
+                });
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static FanoutExecutor getInstance() {
+        if (instance == null) {
+            synchronized (FanoutExecutor.class) {
+                if (instance == null) {
+                    FanoutExecutor executor = new FanoutExecutor(WORKER_COUNT, QUEUE_CAPACITY);
+                    MetricsRegistry.register("fanoutExecutor", executor::getStats);
+                    instance = executor;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 开始一组并发子查询
+     * @param timeoutMillis 整组子查询的截止时间（毫秒）
+     * @return 子查询组
+     */
+    public Fanout begin(long timeoutMillis) {
+        return new Fanout(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    /**
+     * 获取执行器指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long done = succeeded.get() + failed.get();
+        stats.put("poolSize", pool.getPoolSize());
+        stats.put("activeThreads", pool.getActiveCount());
+        stats.put("queueSize", pool.getQueue().size());
+        stats.put("submitted", submitted.get());
+        stats.put("succeeded", succeeded.get());
+        stats.put("failed", failed.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("callerRuns", callerRuns.get());
+        stats.put("avgTaskMillis", done > 0 ? totalTaskMillis.get() / done : 0);
+        stats.put("maxTaskMillis", maxTaskMillis.get());
+        return stats;
+    }
+
+    private void record(long startNanos, boolean success) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        totalTaskMillis.addAndGet(millis);
+        maxTaskMillis.accumulateAndGet(millis, Math::max);
+        if (success) {
+            succeeded.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * 一个请求内的一组并发子查询，共享同一个截止时间
+     */
+    public final class Fanout {
+        private final long deadlineNanos;
+
+        private Fanout(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * 提交一个子查询
+         * @param name 子查询名称，用于日志
+         * @param task 子查询
+         * @return 子查询句柄
+         */
+        public <T> Branch<T> fork(String name, Callable<T> task) {
+            submitted.incrementAndGet();
+            CompletableFuture<T> future = new CompletableFuture<>();
+            pool.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                long start = System.nanoTime();
+                T value;
+                try {
+                    value = task.call();
+                } catch (Throwable e) {
+                    record(start, false);
+                    future.completeExceptionally(e);
+                    return;
+                }
+                record(start, true);
+                future.complete(value);
+            });
+            return new Branch<>(name, future, deadlineNanos);
+        }
+    }
+
+    /**
+     * 子查询句柄
+     */
+    public final class Branch<T> {
+        private final String name;
+        private final CompletableFuture<T> future;
+        private final long deadlineNanos;
+
+        private Branch(String name, CompletableFuture<T> future, long deadlineNanos) {
+            this.name = name;
+            this.future = future;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * 等待子查询结果，超过截止时间或执行失败时返回降级值
+         * @param fallback 降级值
+         * @return 子查询结果或降级值
+         */
+        public T join(T fallback) {
+            try {
+                return await();
+            } catch (TimeoutException e) {
+                logger.warn("子查询超时，使用降级值: name={}", name);
+                return fallback;
+            } catch (Exception e) {
+                logger.warn("子查询失败，使用降级值: name={}, error={}", name, e.getMessage());
+                return fallback;
+            }
+        }
+
+        /**
+         * 等待子查询结果，超过截止时间或执行失败时抛出异常
+         * @return 子查询结果
+         * @throws IllegalStateException 子查询超时或失败
+         */
+        public T get() {
+            try {
+                return await();
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("子查询超时: " + name, e);
+            } catch (Exception e) {
+                throw new IllegalStateException("子查询失败: " + name + ", " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * 放弃子查询，尚未开始执行的不再执行
+         */
+        public void cancel() {
+            future.cancel(false);
+        }
+
+        private T await() throws Exception {
+            long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+            try {
+                return future.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                timedOut.incrementAndGet();
+                future.cancel(false);
+                throw e;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.shiwu.common.controller;
+
+import com.shiwu.cart.controller.CartController;
+import com.shiwu.common.batch.BatchSubRequest;
+import com.shiwu.common.batch.BatchSubResponse;
+import com.shiwu.common.concurrent.FanoutExecutor;
+import com.shiwu.common.result.Result;
+import com.shiwu.common.util.JsonUtil;
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.message.controller.MessageController;
+import com.shiwu.notification.controller.NotificationController;
+import com.shiwu.order.controller.OrderController;
+import com.shiwu.product.controller.CategoryController;
+import com.shiwu.product.controller.ProductController;
+import com.shiwu.user.controller.UserController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量请求网关
+ *
+ * 首页等页面需要同时调用商品列表、分类、未读消息数、未读通知数、购物车数量等多个只读接口，
+ * 逐个请求时每个都要付出一次HTTP往返和JWT校验。批量网关接收一组GET子请求，
+ * 整批只经过一次 JwtInterceptor 认证，然后在进程内把子请求并发分派给对应的控制器，
+ * 按提交顺序逐个流式写回每个子请求的状态码和响应体。
+ *
+ * 请求格式：{"requests":[{"id":"products","method":"GET","path":"/api/products/?page=1"}]}
+ * 响应格式：{"success":true,"data":{"responses":[{"id":"products","status":200,"durationMillis":12,"body":{...}}]}}
+ *
+ * 子请求不再经过过滤器链，因此管理端接口（需要二次确认）和批量接口本身不允许出现在子请求中。
+ */
+@WebServlet("/api/batch")
+public class BatchController extends HttpServlet {
+    private static final Logger logger = LoggerFactory.getLogger(BatchController.class);
+
+    /**
+     * 单批最多子请求数
+     */
+    static final int MAX_SUB_REQUESTS = 10;
+
+    /**
+     * 整批截止时间（毫秒）
+     */
+    static final long BATCH_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 可以通过批量网关访问的控制器
+     */
+    private static final Class<?>[] ROUTED_CONTROLLERS = {
+        ProductController.class,
+        CategoryController.class,
+        UserController.class,
+        CartController.class,
+        MessageController.class,
+        NotificationController.class,
+        OrderController.class
+    };
+
+    /**
+     * 映射前缀 -> 控制器，如 /api/products -> ProductController
+     */
+    private final Map<String, HttpServlet> routes = new LinkedHashMap<>();
+    private final FanoutExecutor executor;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rejectedBatches = new AtomicLong();
+    private final AtomicLong subRequests = new AtomicLong();
+    private final AtomicLong failedSubRequests = new AtomicLong();
+    private final AtomicLong timedOutSubRequests = new AtomicLong();
+    private final AtomicLong totalBatchMillis = new AtomicLong();
+    private final AtomicLong maxBatchMillis = new AtomicLong();
+
+    public BatchController() {
+        this.executor = FanoutExecutor.getInstance();
+    }
+
+    /**
+     * 用于测试的构造函数，直接指定路由表
+     */
+    BatchController(Map<String, HttpServlet> routes, FanoutExecutor executor) {
+        this.routes.putAll(routes);
+        this.executor = executor;
+    }
+
+    @Override
+    public void init() throws ServletException {
+        if (!routes.isEmpty()) {
+            return;
+        }
+        for (Class<?> controllerClass : ROUTED_CONTROLLERS) {
+            WebServlet webServlet = controllerClass.getAnnotation(WebServlet.class);
+            if (webServlet == null || webServlet.value().length == 0) {
+                continue;
+            }
+            try {
+                HttpServlet servlet = (HttpServlet) controllerClass.getDeclaredConstructor().newInstance();
+                servlet.init(getServletConfig());
+                routes.put(toPrefix(webServlet.value()[0]), servlet);
+            } catch (Exception e) {
+                logger.warn("批量网关注册子控制器失败: {}, error={}", controllerClass.getSimpleName(), e.getMessage());
+            }
+        }
+        MetricsRegistry.register("batchGateway", this::getStats);
+        logger.info("批量网关已初始化，可路由前缀: {}", routes.keySet());
+    }
+
+    @Override
+    public void destroy() {
+        MetricsRegistry.unregister("batchGateway");
+        for (HttpServlet servlet : routes.values()) {
+            try {
+                servlet.destroy();
+            } catch (Exception e) {
+                logger.warn("销毁子控制器失败: {}", e.getMessage());
+            }
+        }
+        routes.clear();
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        List<SubRequest> requests;
+        try {
+            requests = parseRequests(readBody(req));
+        } catch (IllegalArgumentException e) {
+            rejectedBatches.incrementAndGet();
+            sendErrorResponse(resp, "400", e.getMessage());
+            return;
+        }
+
+        long start = System.nanoTime();
+        batches.incrementAndGet();
+        subRequests.addAndGet(requests.size());
+
+        // 先全部提交，再按提交顺序等待，整批共享一个截止时间
+        FanoutExecutor.Fanout fanout = executor.begin(BATCH_TIMEOUT_MILLIS);
+        List<FanoutExecutor.Branch<SubResult>> branches = new ArrayList<>(requests.size());
+        for (SubRequest sub : requests) {
+            if (sub.error != null) {
+                branches.add(null);
+                continue;
+            }
+            BatchSubRequest subReq = new BatchSubRequest(req, sub.prefix, sub.pathInfo, sub.queryString);
+            BatchSubResponse subResp = new BatchSubResponse(resp);
+            HttpServlet servlet = routes.get(sub.prefix);
+            branches.add(fanout.fork("batch:" + sub.path, () -> dispatch(servlet, subReq, subResp)));
+        }
+
+        try {
+            resp.setContentType("application/json");
+            resp.setCharacterEncoding("UTF-8");
+            PrintWriter out = resp.getWriter();
+            out.print("{\"success\":true,\"data\":{\"responses\":[");
+            for (int i = 0; i < requests.size(); i++) {
+                SubRequest sub = requests.get(i);
+                SubResult result;
+                if (sub.error != null) {
+                    result = SubResult.error(sub.errorStatus, sub.error);
+                } else {
+                    result = branches.get(i).join(null);
+                    if (result == null) {
+                        timedOutSubRequests.incrementAndGet();
+                        result = SubResult.error(HttpServletResponse.SC_GATEWAY_TIMEOUT, "子请求超时");
+                    }
+                }
+                if (result.status >= 500) {
+                    failedSubRequests.incrementAndGet();
+                }
+                if (i > 0) {
+                    out.print(',');
+                }
+                out.print(toJson(sub.id, result));
+                // 每个子请求完成后立即写出，前端可以边接收边渲染
+                out.flush();
+            }
+            out.print("]}}");
+            out.flush();
+        } finally {
+            // 超时或客户端断开时放弃尚未完成的子请求；已在执行的子请求只读写自己的请求/响应副本
+            for (FanoutExecutor.Branch<SubResult> branch : branches) {
+                if (branch != null) {
+                    branch.cancel();
+                }
+            }
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        totalBatchMillis.addAndGet(millis);
+        maxBatchMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    /**
+     * 获取批量网关指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = batches.get();
+        stats.put("batches", count);
+        stats.put("rejectedBatches", rejectedBatches.get());
+        stats.put("subRequests", subRequests.get());
+        stats.put("failedSubRequests", failedSubRequests.get());
+        stats.put("timedOutSubRequests", timedOutSubRequests.get());
+        stats.put("avgBatchMillis", count > 0 ? totalBatchMillis.get() / count : 0);
+        stats.put("maxBatchMillis", maxBatchMillis.get());
+        return stats;
+    }
+
+    /**
+     * 在工作线程中把子请求交给控制器处理
+     */
+    private SubResult dispatch(HttpServlet servlet, BatchSubRequest subReq, BatchSubResponse subResp) {
+        long start = System.nanoTime();
+        try {
+            servlet.service(subReq, subResp);
+            return new SubResult(subResp.getStatus(), subResp.getContentType(), subResp.getBodyAsString(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            logger.error("批量子请求处理失败: uri={}, error={}", subReq.getRequestURI(), e.getMessage(), e);
+            SubResult result = SubResult.error(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "系统错误，请稍后再试");
+            result.durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return result;
+        }
+    }
+
+    /**
+     * 解析并校验批量请求体
+     * @throws IllegalArgumentException 请求体不合法
+     */
+    @SuppressWarnings("unchecked")
+    List<SubRequest> parseRequests(String body) {
+        if (body == null || body.trim().isEmpty()) {
+            throw new IllegalArgumentException("请求体不能为空");
+        }
+        Map<String, Object> payload;
+        try {
+            payload = JsonUtil.fromJson(body, Map.class);
+        } catch (Exception e) {
+            payload = null;
+        }
+        if (payload == null || !(payload.get("requests") instanceof List)) {
+            throw new IllegalArgumentException("请求格式错误，缺少requests列表");
+        }
+        List<Object> items = (List<Object>) payload.get("requests");
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("requests不能为空");
+        }
+        if (items.size() > MAX_SUB_REQUESTS) {
+            throw new IllegalArgumentException("单批最多" + MAX_SUB_REQUESTS + "个子请求");
+        }
+
+        List<SubRequest> requests = new ArrayList<>(items.size());
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (!(items.get(i) instanceof Map)) {
+                throw new IllegalArgumentException("第" + (i + 1) + "个子请求格式错误");
+            }
+            Map<String, Object> item = (Map<String, Object>) items.get(i);
+            String id = item.get("id") != null ? String.valueOf(item.get("id")) : String.valueOf(i);
+            if (!ids.add(id)) {
+                throw new IllegalArgumentException("子请求id重复: " + id);
+            }
+            Object path = item.get("path");
+            if (!(path instanceof String) || ((String) path).isEmpty()) {
+                throw new IllegalArgumentException("子请求缺少path: " + id);
+            }
+            Object method = item.get("method");
+            SubRequest sub = route(id, (String) path);
+            if (method != null && !"GET".equalsIgnoreCase(String.valueOf(method))) {
+                sub.errorStatus = HttpServletResponse.SC_METHOD_NOT_ALLOWED;
+                sub.error = "批量请求只支持GET子请求";
+            }
+            requests.add(sub);
+        }
+        return requests;
+    }
+
+    /**
+     * 按最长前缀把子请求路径解析到控制器
+     */
+    SubRequest route(String id, String path) {
+        SubRequest sub = new SubRequest(id, path);
+        int queryIndex = path.indexOf('?');
+        String uri = queryIndex >= 0 ? path.substring(0, queryIndex) : path;
+        sub.queryString = queryIndex >= 0 ? path.substring(queryIndex + 1) : null;
+
+        String matched = null;
+        for (String prefix : routes.keySet()) {
+            if ((uri.equals(prefix) || uri.startsWith(prefix + "/"))
+                    && (matched == null || prefix.length() > matched.length())) {
+                matched = prefix;
+            }
+        }
+        if (matched == null || uri.contains("..")) {
+            sub.errorStatus = HttpServletResponse.SC_NOT_FOUND;
+            sub.error = "不支持的子请求路径: " + uri;
+            return sub;
+        }
+        sub.prefix = matched;
+        sub.pathInfo = uri.length() > matched.length() ? uri.substring(matched.length()) : null;
+        return sub;
+    }
+
+    private static String toPrefix(String urlPattern) {
+        return urlPattern.endsWith("/*") ? urlPattern.substring(0, urlPattern.length() - 2) : urlPattern;
+    }
+
+    private static String readBody(HttpServletRequest req) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader reader = req.getReader()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 把子请求结果写成JSON，JSON响应体原样嵌入，其他响应体作为字符串
+     */
+    private static String toJson(String id, SubResult result) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"id\":").append(JsonUtil.toJson(id));
+        sb.append(",\"status\":").append(result.status);
+        sb.append(",\"durationMillis\":").append(result.durationMillis);
+        if (result.error != null) {
+            sb.append(",\"error\":").append(JsonUtil.toJson(result.error));
+        }
+        sb.append(",\"body\":");
+        String body = result.body != null ? result.body.trim() : "";
+        if (body.isEmpty()) {
+            sb.append("null");
+        } else if (result.contentType != null && result.contentType.contains("json")) {
+            sb.append(body);
+        } else {
+            sb.append(JsonUtil.toJson(body));
+        }
+        return sb.append('}').toString();
+    }
+
+    private void sendErrorResponse(HttpServletResponse resp, String errorCode, String errorMessage) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+
+        Result<Object> result = Result.fail(errorCode, errorMessage);
+        PrintWriter out = resp.getWriter();
+        out.print(JsonUtil.toJson(result));
+        out.flush();
+    }
+
+    /**
+     * 解析后的子请求
+     */
+    static final class SubRequest {
+        final String id;
+        final String path;
+        String prefix;
+        String pathInfo;
+        String queryString;
+        int errorStatus;
+        String error;
+
+        SubRequest(String id, String path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+
+    /**
+     * 子请求结果
+     */
+    static final class SubResult {
+        final int status;
+        final String contentType;
+        final String body;
+        final String error;
+        long durationMillis;
+
+        SubResult(int status, String contentType, String body, long durationMillis) {
+            this(status, contentType, body, null, durationMillis);
+        }
+
+        private SubResult(int status, String contentType, String body, String error, long durationMillis) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.error = error;
+            this.durationMillis = durationMillis;
+        }
+
+        static SubResult error(int status, String error) {
+            return new SubResult(status, null, null, error, 0);
+        }
+    }
+}
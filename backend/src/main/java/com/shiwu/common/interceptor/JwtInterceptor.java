@@ -29,6 +29,7 @@ public class JwtInterceptor implements Filter {
     private static final List<String> WHITE_LIST = Arrays.asList(
             "/api/user/login",
             "/api/user/register",
+            "/api/user/check-availability",
             "/api/admin/login"
     );
     
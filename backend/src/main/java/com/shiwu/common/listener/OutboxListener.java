@@ -0,0 +1,71 @@
+package com.shiwu.common.listener;
+
+import com.shiwu.cart.dao.CartDao;
+import com.shiwu.common.outbox.OutboxJob;
+import com.shiwu.common.outbox.OutboxJobRunner;
+import com.shiwu.notification.task.ProductApprovedFanoutDispatcher;
+import com.shiwu.product.dao.ProductDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * 本地任务执行器监听器
+ * 在应用启动时注册各类任务的处理器并启动执行器，在应用关闭时停止
+ */
+@WebListener
+public class OutboxListener implements ServletContextListener {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        logger.info("应用启动，开始初始化本地任务执行器");
+
+        try {
+            OutboxJobRunner runner = OutboxJobRunner.getInstance();
+            CartDao cartDao = new CartDao();
+            ProductDao productDao = new ProductDao();
+
+            // 商品审核通过后为卖家的粉丝写入通知，已收到通知的粉丝会被跳过
+            runner.register(OutboxJob.TYPE_PRODUCT_APPROVED_NOTIFICATION, job -> {
+                boolean completed = ProductApprovedFanoutDispatcher.getInstance().execute(
+                        job.getPayloadLong("productId"), job.getPayloadLong("sellerId"), job.getPayloadString("productTitle"));
+                if (!completed) {
+                    throw new IllegalStateException("粉丝通知扩散未完成");
+                }
+            });
+
+            // 下单后从购物车移除商品
+            runner.register(OutboxJob.TYPE_CART_ITEM_REMOVE, job -> {
+                Long userId = job.getPayloadLong("userId");
+                Long productId = job.getPayloadLong("productId");
+                if (!cartDao.removeFromCart(userId, productId) && cartDao.existsInCart(userId, productId)) {
+                    throw new IllegalStateException("移除购物车商品失败");
+                }
+            });
+
+            // 订单取消后解锁商品，商品仍有进行中的订单时保持锁定
+            runner.register(OutboxJob.TYPE_PRODUCT_UNLOCK, job -> productDao.unlockProductIfIdle(job.getPayloadLong("productId")));
+
+            runner.start();
+            logger.info("本地任务执行器启动成功");
+        } catch (Exception e) {
+            logger.error("启动本地任务执行器失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        logger.info("应用关闭，开始停止本地任务执行器");
+
+        try {
+            OutboxJobRunner.getInstance().stop();
+            logger.info("本地任务执行器停止成功");
+        } catch (Exception e) {
+            logger.error("停止本地任务执行器失败: {}", e.getMessage(), e);
+        }
+    }
+}
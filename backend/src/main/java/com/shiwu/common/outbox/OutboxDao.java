@@ -0,0 +1,332 @@
+package com.shiwu.common.outbox;
+
+import com.shiwu.common.util.DBUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地任务数据访问对象
+ *
+ * 业务DAO在自己的事务中调用 enqueue(Connection, OutboxJob)，任务与业务数据一起提交；
+ * 任务执行器通过 claimBatch 批量领取任务，多个实例之间使用 SKIP LOCKED 互不阻塞
+ */
+public class OutboxDao {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDao.class);
+
+    /**
+     * 错误信息最大长度（与 outbox_job.last_error 一致）
+     */
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    /**
+     * 在调用方的事务中写入任务，幂等键已存在时忽略
+     * @param conn 调用方的数据库连接
+     * @param job 任务
+     * @return 是否新写入了任务
+     * @throws SQLException 写入失败，调用方应回滚事务
+     */
+    public boolean enqueue(Connection conn, OutboxJob job) throws SQLException {
+        String sql = "INSERT IGNORE INTO outbox_job (job_type, idempotency_key, payload, status, attempts, max_attempts, next_run_time, create_time, update_time) " +
+                "VALUES (?, ?, ?, 0, 0, ?, NOW(), NOW(), NOW())";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, job.getJobType());
+            pstmt.setString(2, job.getIdempotencyKey());
+            pstmt.setString(3, job.getPayload());
+            pstmt.setInt(4, job.getMaxAttempts() != null ? job.getMaxAttempts() : OutboxJob.DEFAULT_MAX_ATTEMPTS);
+            boolean inserted = pstmt.executeUpdate() > 0;
+            if (!inserted) {
+                logger.info("任务已存在，忽略重复入队: type={}, key={}", job.getJobType(), job.getIdempotencyKey());
+            }
+            return inserted;
+        }
+    }
+
+    /**
+     * 使用独立连接写入任务，幂等键已存在时忽略
+     * @param job 任务
+     * @return 是否写入成功（含幂等忽略）
+     */
+    public boolean enqueue(OutboxJob job) {
+        if (job == null || job.getJobType() == null || job.getIdempotencyKey() == null || job.getPayload() == null) {
+            logger.warn("写入任务失败: 任务参数不完整 {}", job);
+            return false;
+        }
+        Connection conn = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("写入任务失败: 无法获取数据库连接");
+                return false;
+            }
+            enqueue(conn, job);
+            return true;
+        } catch (SQLException e) {
+            logger.error("写入任务失败: type={}, key={}, error={}", job.getJobType(), job.getIdempotencyKey(), e.getMessage(), e);
+            return false;
+        } finally {
+            DBUtil.closeConnection(conn);
+        }
+    }
+
+    /**
+     * 领取一批到期的待执行任务，标记为执行中并增加尝试次数
+     * @param limit 最多领取数量
+     * @param lockSeconds 执行锁时长（秒），超时未完成的任务会被重新放回队列
+     * @return 领取到的任务，attempts 为本次执行的尝试序号
+     */
+    public List<OutboxJob> claimBatch(int limit, int lockSeconds) {
+        String selectSql = "SELECT id, job_type, idempotency_key, payload, status, attempts, max_attempts, next_run_time, create_time " +
+                "FROM outbox_job WHERE status = 0 AND next_run_time <= NOW() " +
+                "ORDER BY next_run_time, id LIMIT ? FOR UPDATE SKIP LOCKED";
+        List<OutboxJob> jobs = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            conn.setAutoCommit(false);
+
+            pstmt = conn.prepareStatement(selectSql);
+            pstmt.setInt(1, limit);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                jobs.add(mapJob(rs));
+            }
+            rs.close();
+            rs = null;
+            pstmt.close();
+            pstmt = null;
+
+            if (!jobs.isEmpty()) {
+                StringBuilder updateSql = new StringBuilder(
+                        "UPDATE outbox_job SET status = 1, attempts = attempts + 1, locked_until = DATE_ADD(NOW(), INTERVAL ? SECOND), update_time = NOW() WHERE id IN (");
+                appendPlaceholders(updateSql, jobs.size());
+                pstmt = conn.prepareStatement(updateSql.append(')').toString());
+                pstmt.setInt(1, lockSeconds);
+                for (int i = 0; i < jobs.size(); i++) {
+                    pstmt.setLong(i + 2, jobs.get(i).getId());
+                }
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+
+            for (OutboxJob job : jobs) {
+                job.setStatus(OutboxJob.STATUS_PROCESSING);
+                job.setAttempts(job.getAttempts() + 1);
+            }
+            return jobs;
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            throw new RuntimeException("领取任务时发生数据库错误", e);
+        } finally {
+            restoreAutoCommit(conn);
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * 将执行锁已过期的任务放回队列（执行线程崩溃或进程重启），尝试次数用尽的直接进入死信
+     * @return 放回或转入死信的任务数
+     */
+    public int requeueExpired() {
+        String sql = "UPDATE outbox_job SET status = IF(attempts >= max_attempts, 3, 0), next_run_time = NOW(), " +
+                "locked_until = NULL, last_error = '执行超时', update_time = NOW() " +
+                "WHERE status = 1 AND locked_until < NOW()";
+        return executeUpdate(sql, "回收超时任务");
+    }
+
+    /**
+     * 批量标记任务已完成
+     * @param ids 任务ID列表
+     * @return 更新的任务数
+     */
+    public int markDone(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(
+                "UPDATE outbox_job SET status = 2, locked_until = NULL, last_error = NULL, update_time = NOW() WHERE status = 1 AND id IN (");
+        appendPlaceholders(sql, ids.size());
+        sql.append(')');
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            pstmt = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setLong(i + 1, ids.get(i));
+            }
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("标记任务完成时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
+    /**
+     * 标记任务失败，在指定延迟后重试
+     * @param id 任务ID
+     * @param delaySeconds 重试延迟（秒）
+     * @param error 失败原因
+     * @return 是否更新成功
+     */
+    public boolean markRetry(Long id, long delaySeconds, String error) {
+        String sql = "UPDATE outbox_job SET status = 0, next_run_time = DATE_ADD(NOW(), INTERVAL ? SECOND), " +
+                "locked_until = NULL, last_error = ?, update_time = NOW() WHERE id = ? AND status = 1";
+        return updateFailedJob(sql, id, delaySeconds, error);
+    }
+
+    /**
+     * 标记任务为死信，不再自动重试
+     * @param id 任务ID
+     * @param error 失败原因
+     * @return 是否更新成功
+     */
+    public boolean markDead(Long id, String error) {
+        String sql = "UPDATE outbox_job SET status = 3, locked_until = NULL, last_error = ?, update_time = NOW() WHERE id = ? AND status = 1";
+        return updateFailedJob(sql, id, null, error);
+    }
+
+    /**
+     * 删除早于保留期的已完成任务
+     * @param retentionDays 保留天数
+     * @param limit 单次最多删除数量
+     * @return 删除的任务数
+     */
+    public int deleteDoneBefore(int retentionDays, int limit) {
+        String sql = "DELETE FROM outbox_job WHERE status = 2 AND update_time < DATE_SUB(NOW(), INTERVAL " +
+                retentionDays + " DAY) LIMIT " + limit;
+        return executeUpdate(sql, "清理已完成任务");
+    }
+
+    private boolean updateFailedJob(String sql, Long id, Long delaySeconds, String error) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            pstmt = conn.prepareStatement(sql);
+            int index = 1;
+            if (delaySeconds != null) {
+                pstmt.setLong(index++, delaySeconds);
+            }
+            pstmt.setString(index++, truncate(error));
+            pstmt.setLong(index, id);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("更新任务失败状态时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
+    private int executeUpdate(String sql, String action) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            pstmt = conn.prepareStatement(sql);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(action + "时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
+    private OutboxJob mapJob(ResultSet rs) throws SQLException {
+        OutboxJob job = new OutboxJob();
+        job.setId(rs.getLong("id"));
+        job.setJobType(rs.getString("job_type"));
+        job.setIdempotencyKey(rs.getString("idempotency_key"));
+        job.setPayload(rs.getString("payload"));
+        job.setStatus(rs.getInt("status"));
+        job.setAttempts(rs.getInt("attempts"));
+        job.setMaxAttempts(rs.getInt("max_attempts"));
+        Timestamp nextRunTime = rs.getTimestamp("next_run_time");
+        job.setNextRunTime(nextRunTime != null ? nextRunTime.toLocalDateTime() : null);
+        Timestamp createTime = rs.getTimestamp("create_time");
+        job.setCreateTime(createTime != null ? createTime.toLocalDateTime() : null);
+        return job;
+    }
+
+    private String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private void appendPlaceholders(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                logger.error("回滚事务失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("恢复自动提交失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 关闭数据库资源
+     */
+    private void closeResources(Connection conn, PreparedStatement pstmt, ResultSet rs) {
+        if (rs != null) {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                logger.error("关闭ResultSet失败: {}", e.getMessage());
+            }
+        }
+        if (pstmt != null) {
+            try {
+                pstmt.close();
+            } catch (SQLException e) {
+                logger.error("关闭PreparedStatement失败: {}", e.getMessage());
+            }
+        }
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                logger.error("关闭Connection失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.shiwu.common.outbox;
+
+import com.shiwu.common.util.JsonUtil;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 本地任务实体类
+ * 对应数据库中的outbox_job表
+ */
+public class OutboxJob {
+
+    /**
+     * 任务状态：待执行
+     */
+    public static final int STATUS_PENDING = 0;
+
+    /**
+     * 任务状态：执行中
+     */
+    public static final int STATUS_PROCESSING = 1;
+
+    /**
+     * 任务状态：已完成
+     */
+    public static final int STATUS_DONE = 2;
+
+    /**
+     * 任务状态：死信（重试次数用尽）
+     */
+    public static final int STATUS_DEAD = 3;
+
+    /**
+     * 任务类型：商品审核通过粉丝通知
+     */
+    public static final String TYPE_PRODUCT_APPROVED_NOTIFICATION = "PRODUCT_APPROVED_NOTIFICATION";
+
+    /**
+     * 任务类型：下单后移除购物车商品
+     */
+    public static final String TYPE_CART_ITEM_REMOVE = "CART_ITEM_REMOVE";
+
+    /**
+     * 任务类型：订单取消后解锁商品
+     */
+    public static final String TYPE_PRODUCT_UNLOCK = "PRODUCT_UNLOCK";
+
+    /**
+     * 默认最大尝试次数
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 8;
+
+    private Long id;
+
+    /**
+     * 任务类型
+     */
+    private String jobType;
+
+    /**
+     * 幂等键，同一键只入队一次
+     */
+    private String idempotencyKey;
+
+    /**
+     * 任务参数（JSON格式存储）
+     */
+    private String payload;
+
+    /**
+     * 任务状态
+     * 0-待执行，1-执行中，2-已完成，3-死信
+     */
+    private Integer status;
+
+    /**
+     * 已尝试次数（领取任务时加一）
+     */
+    private Integer attempts;
+
+    /**
+     * 最大尝试次数
+     */
+    private Integer maxAttempts;
+
+    private LocalDateTime nextRunTime;
+    private LocalDateTime lockedUntil;
+    private String lastError;
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
+
+    /**
+     * 解析后的任务参数
+     */
+    private transient Map<String, Object> payloadMap;
+
+    public OutboxJob() {
+    }
+
+    /**
+     * 创建待入队的任务
+     * @param jobType 任务类型
+     * @param idempotencyKey 幂等键，可以为null，由调用方在取得业务ID后补全
+     * @param payload 任务参数，序列化为JSON
+     * @return 任务
+     */
+    public static OutboxJob of(String jobType, String idempotencyKey, Map<String, Object> payload) {
+        OutboxJob job = new OutboxJob();
+        job.setJobType(jobType);
+        job.setIdempotencyKey(idempotencyKey);
+        job.setPayload(JsonUtil.toJson(payload));
+        job.setStatus(STATUS_PENDING);
+        job.setAttempts(0);
+        job.setMaxAttempts(DEFAULT_MAX_ATTEMPTS);
+        return job;
+    }
+
+    /**
+     * 读取任务参数中的长整型字段
+     * @param key 字段名
+     * @return 字段值，不存在返回null
+     */
+    public Long getPayloadLong(String key) {
+        Object value = payloadMap().get(key);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value != null ? Long.valueOf(value.toString()) : null;
+    }
+
+    /**
+     * 读取任务参数中的字符串字段
+     * @param key 字段名
+     * @return 字段值，不存在返回null
+     */
+    public String getPayloadString(String key) {
+        Object value = payloadMap().get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> payloadMap() {
+        if (payloadMap == null) {
+            payloadMap = JsonUtil.fromJson(payload, Map.class);
+        }
+        return payloadMap;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getJobType() {
+        return jobType;
+    }
+
+    public void setJobType(String jobType) {
+        this.jobType = jobType;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+        this.payloadMap = null;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Integer getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(Integer maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public LocalDateTime getNextRunTime() {
+        return nextRunTime;
+    }
+
+    public void setNextRunTime(LocalDateTime nextRunTime) {
+        this.nextRunTime = nextRunTime;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxJob{" +
+                "id=" + id +
+                ", jobType='" + jobType + '\'' +
+                ", idempotencyKey='" + idempotencyKey + '\'' +
+                ", status=" + status +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
@@ -0,0 +1,18 @@
+package com.shiwu.common.outbox;
+
+/**
+ * 本地任务处理器
+ *
+ * 同一任务可能因超时或进程重启被执行多次，实现必须是幂等的；
+ * 抛出异常表示本次执行失败，任务会按退避策略重试，重试次数用尽后进入死信
+ */
+@FunctionalInterface
+public interface OutboxJobHandler {
+
+    /**
+     * 执行任务
+     * @param job 任务
+     * @throws Exception 执行失败
+     */
+    void handle(OutboxJob job) throws Exception;
+}
@@ -0,0 +1,341 @@
+package com.shiwu.common.outbox;
+
+import com.shiwu.common.util.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地任务执行器
+ *
+ * 轮询线程定期从 outbox_job 批量领取到期任务交给有界工作线程池执行，
+ * 领取数量不超过线程池队列的剩余容量，避免任务在内存中积压。
+ * 执行成功的任务ID先在内存中累积，下一次轮询时批量标记完成；
+ * 执行失败按指数退避重试，尝试次数用尽后进入死信，需人工处理。
+ */
+public class OutboxJobRunner {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxJobRunner.class);
+
+    /**
+     * 单次最多领取的任务数（同时也是工作队列容量）
+     */
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * 工作线程数
+     */
+    private static final int WORKER_COUNT = 4;
+
+    /**
+     * 轮询间隔（毫秒）
+     */
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 执行锁时长（秒），超时未完成的任务会被重新放回队列
+     */
+    private static final int LOCK_SECONDS = 300;
+
+    /**
+     * 回收超时任务的间隔（秒）
+     */
+    private static final long RECOVER_INTERVAL_SECONDS = 60;
+
+    /**
+     * 首次重试延迟（秒），之后每次翻倍
+     */
+    private static final long BASE_BACKOFF_SECONDS = 5;
+
+    /**
+     * 最大重试延迟（秒）
+     */
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    /**
+     * 已完成任务保留天数
+     */
+    private static final int DONE_RETENTION_DAYS = 7;
+
+    /**
+     * 单次最多清理的已完成任务数
+     */
+    private static final int CLEANUP_BATCH_SIZE = 1000;
+
+    /**
+     * 清理间隔（分钟）
+     */
+    private static final long CLEANUP_INTERVAL_MINUTES = 60;
+
+    private static volatile OutboxJobRunner instance;
+
+    private final OutboxDao outboxDao;
+    private final Map<String, OutboxJobHandler> handlers = new ConcurrentHashMap<>();
+    private final Queue<Long> doneIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong claimedJobs = new AtomicLong();
+    private final AtomicLong succeededJobs = new AtomicLong();
+    private final AtomicLong retriedJobs = new AtomicLong();
+    private final AtomicLong deadJobs = new AtomicLong();
+    private final AtomicLong pollErrors = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private volatile ThreadPoolExecutor workers;
+    private volatile LocalDateTime lastPollTime;
+
+    OutboxJobRunner(OutboxDao outboxDao) {
+        this.outboxDao = outboxDao;
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static OutboxJobRunner getInstance() {
+        if (instance == null) {
+            synchronized (OutboxJobRunner.class) {
+                if (instance == null) {
+                    OutboxJobRunner runner = new OutboxJobRunner(new OutboxDao());
+                    MetricsRegistry.register("outboxJobRunner", runner::getStats);
+                    instance = runner;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 注册任务处理器，同一类型重复注册会覆盖
+     * @param jobType 任务类型
+     * @param handler 处理器
+     */
+    public void register(String jobType, OutboxJobHandler handler) {
+        if (jobType != null && handler != null) {
+            handlers.put(jobType, handler);
+        }
+    }
+
+    /**
+     * 启动轮询和工作线程
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        logger.info("启动本地任务执行器: workers={}, batchSize={}, handlers={}", WORKER_COUNT, BATCH_SIZE, handlers.keySet());
+        AtomicInteger workerIndex = new AtomicInteger();
+        workers = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(BATCH_SIZE), r -> {
+                    Thread thread = new Thread(r, "outbox-worker-" + workerIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::recoverQuietly, 0, RECOVER_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::cleanupQuietly, CLEANUP_INTERVAL_MINUTES, CLEANUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 停止轮询，等待执行中的任务结束后提交完成状态
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        logger.info("停止本地任务执行器");
+        scheduler.shutdownNow();
+        scheduler = null;
+        ThreadPoolExecutor pool = workers;
+        workers = null;
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // 未执行完的任务保持执行中状态，执行锁过期后会被重新放回队列
+        flushDone();
+    }
+
+    /**
+     * 领取并分发一批到期任务
+     * 工作线程未启动时（如单元测试、命令行工具）在当前线程执行并立即提交完成状态
+     *
+     * @return 本次领取的任务数
+     */
+    int pollOnce() {
+        lastPollTime = LocalDateTime.now();
+        flushDone();
+
+        ThreadPoolExecutor pool = workers;
+        int capacity = pool != null ? pool.getQueue().remainingCapacity() : BATCH_SIZE;
+        if (capacity <= 0) {
+            return 0;
+        }
+        List<OutboxJob> jobs = outboxDao.claimBatch(Math.min(capacity, BATCH_SIZE), LOCK_SECONDS);
+        claimedJobs.addAndGet(jobs.size());
+        for (OutboxJob job : jobs) {
+            if (pool == null) {
+                process(job);
+                continue;
+            }
+            try {
+                pool.execute(() -> process(job));
+            } catch (RejectedExecutionException e) {
+                // 执行器正在停止，任务在执行锁过期后会被重新放回队列
+                logger.warn("任务分发被拒绝，等待执行锁过期后重试: id={}, type={}", job.getId(), job.getJobType());
+            }
+        }
+        if (pool == null) {
+            flushDone();
+        }
+        return jobs.size();
+    }
+
+    /**
+     * 执行单个任务并记录结果
+     */
+    void process(OutboxJob job) {
+        OutboxJobHandler handler = handlers.get(job.getJobType());
+        try {
+            if (handler == null) {
+                outboxDao.markDead(job.getId(), "未注册的任务处理器: " + job.getJobType());
+                deadJobs.incrementAndGet();
+                logger.error("任务类型没有注册处理器，转入死信: {}", job);
+                return;
+            }
+            try {
+                handler.handle(job);
+            } catch (Exception e) {
+                fail(job, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                return;
+            }
+            doneIds.add(job.getId());
+            succeededJobs.incrementAndGet();
+        } catch (Exception e) {
+            // 更新任务状态失败，任务在执行锁过期后会被重新放回队列
+            logger.error("更新任务状态失败: id={}, error={}", job.getId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 计算第 attempts 次失败后的重试延迟（秒）
+     */
+    static long backoffSeconds(int attempts) {
+        int exponent = Math.max(0, Math.min(attempts - 1, 20));
+        return Math.min(MAX_BACKOFF_SECONDS, BASE_BACKOFF_SECONDS << exponent);
+    }
+
+    /**
+     * 获取执行器指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        ThreadPoolExecutor pool = workers;
+        stats.put("running", pool != null);
+        stats.put("handlers", new TreeSet<>(handlers.keySet()));
+        stats.put("queueSize", pool != null ? pool.getQueue().size() : 0);
+        stats.put("activeWorkers", pool != null ? pool.getActiveCount() : 0);
+        stats.put("claimedJobs", claimedJobs.get());
+        stats.put("succeededJobs", succeededJobs.get());
+        stats.put("retriedJobs", retriedJobs.get());
+        stats.put("deadJobs", deadJobs.get());
+        stats.put("pollErrors", pollErrors.get());
+        stats.put("lastPollTime", lastPollTime);
+        return stats;
+    }
+
+    private void fail(OutboxJob job, String error) {
+        int attempts = job.getAttempts() != null ? job.getAttempts() : 1;
+        int maxAttempts = job.getMaxAttempts() != null ? job.getMaxAttempts() : OutboxJob.DEFAULT_MAX_ATTEMPTS;
+        if (attempts >= maxAttempts) {
+            outboxDao.markDead(job.getId(), error);
+            deadJobs.incrementAndGet();
+            logger.error("任务重试次数用尽，转入死信: id={}, type={}, key={}, attempts={}, error={}",
+                    job.getId(), job.getJobType(), job.getIdempotencyKey(), attempts, error);
+            return;
+        }
+        long delay = backoffSeconds(attempts);
+        outboxDao.markRetry(job.getId(), delay, error);
+        retriedJobs.incrementAndGet();
+        logger.warn("任务执行失败，{}秒后重试: id={}, type={}, attempts={}, error={}",
+                delay, job.getId(), job.getJobType(), attempts, error);
+    }
+
+    /**
+     * 批量提交已完成任务的状态
+     */
+    private void flushDone() {
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = doneIds.poll()) != null) {
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            outboxDao.markDone(ids);
+        } catch (Exception e) {
+            // 标记失败的任务在执行锁过期后会再次执行，处理器是幂等的
+            logger.error("批量标记任务完成失败: count={}, error={}", ids.size(), e.getMessage(), e);
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            pollOnce();
+        } catch (Exception e) {
+            pollErrors.incrementAndGet();
+            logger.error("轮询本地任务发生异常: {}", e.getMessage(), e);
+        }
+    }
+
+    private void recoverQuietly() {
+        try {
+            int recovered = outboxDao.requeueExpired();
+            if (recovered > 0) {
+                logger.warn("回收执行超时的任务: count={}", recovered);
+            }
+        } catch (Exception e) {
+            logger.error("回收超时任务发生异常: {}", e.getMessage(), e);
+        }
+    }
+
+    private void cleanupQuietly() {
+        try {
+            int total = 0;
+            int deleted;
+            do {
+                deleted = outboxDao.deleteDoneBefore(DONE_RETENTION_DAYS, CLEANUP_BATCH_SIZE);
+                total += deleted;
+            } while (deleted >= CLEANUP_BATCH_SIZE);
+            if (total > 0) {
+                logger.info("清理已完成任务: count={}", total);
+            }
+        } catch (Exception e) {
+            logger.error("清理已完成任务发生异常: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.shiwu.common.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 条件请求（ETag）工具类
+ *
+ * 读接口在查询之前用 EntityVersions 的版本号拼出弱验证器，客户端带着上次的 ETag
+ * 发起 If-None-Match 请求时，验证器未变化就直接返回 304，不查询数据库也不序列化响应；
+ * 只有成功响应才带上 ETag，错误响应不会被客户端当作可复用的内容。
+ */
+public class ConditionalGet {
+
+    /**
+     * 与当前用户相关的响应：只允许浏览器缓存，每次使用前都要验证
+     */
+    public static final String CACHE_PRIVATE = "private, no-cache";
+
+    /**
+     * 与当前用户无关的响应：允许共享缓存，每次使用前都要验证
+     */
+    public static final String CACHE_PUBLIC = "public, no-cache";
+
+    /**
+     * 进程启动标识，重启后内存版本号从头计数，旧验证器全部失效
+     */
+    private static final String BOOT_ID = Long.toString(System.currentTimeMillis(), 36);
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * 生成弱验证器
+     * @param parts 组成验证器的版本号、当前用户ID等，null记为0
+     * @return 形如 W/"boot-1-2-3" 的ETag
+     */
+    public static String etag(Object... parts) {
+        StringBuilder sb = new StringBuilder("W/\"").append(BOOT_ID);
+        for (Object part : parts) {
+            sb.append('-').append(part != null ? part : 0);
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * 检查请求的 If-None-Match，验证器匹配时写出 304 响应
+     * @param req 请求
+     * @param resp 响应
+     * @param etag 当前验证器
+     * @param cacheControl Cache-Control 响应头
+     * @return 是否已返回304，返回true时调用方不应再写响应体
+     */
+    public static boolean checkNotModified(HttpServletRequest req, HttpServletResponse resp,
+                                           String etag, String cacheControl) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch == null || !matches(ifNoneMatch, etag)) {
+            return false;
+        }
+        resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        applyValidators(resp, etag, cacheControl);
+        return true;
+    }
+
+    /**
+     * 为成功响应设置 ETag 和 Cache-Control
+     */
+    public static void applyValidators(HttpServletResponse resp, String etag, String cacheControl) {
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", cacheControl);
+    }
+
+    /**
+     * 按弱比较规则判断 If-None-Match 是否包含当前验证器
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        String current = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if ("*".equals(value) || opaque(value).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -45,9 +45,29 @@ public class DBUtil {
 
     /**
      * 获取数据库连接
+     * 当前线程处于工作单元中时返回工作单元共享的连接，DAO 对它的提交、回滚和关闭由工作单元统一处理
      * @return 数据库连接对象
      */
     public static Connection getConnection() {
+        Connection active = getActiveConnection();
+        if (active != null) {
+            return active;
+        }
+        return openConnection();
+    }
+
+    /**
+     * 获取当前线程工作单元的共享连接
+     * @return 共享连接，当前线程不在工作单元中时返回null
+     */
+    public static Connection getActiveConnection() {
+        return UnitOfWork.currentConnection();
+    }
+
+    /**
+     * 打开新的物理连接
+     */
+    static Connection openConnection() {
         Connection conn = null;
         try {
             conn = DriverManager.getConnection(url, username, password);
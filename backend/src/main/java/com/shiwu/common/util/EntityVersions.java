@@ -0,0 +1,87 @@
+package com.shiwu.common.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 实体版本计数器
+ *
+ * 为条件请求（ETag）提供不需要查询数据库的版本号。DAO 在实体写入成功后调用 bump，
+ * 读接口用当前版本号拼出验证器。版本号按“类型+ID”散列到固定数量的槽位中，
+ * 内存占用固定；不同实体落在同一槽位时只会让对方的验证器多失效一次，不会返回过期数据。
+ * 每种类型另有一个类型级版本号，任意该类型实体变化时递增，用于依赖整类数据的接口。
+ *
+ * 注意：版本号只感知本进程内的写入，进程重启后由 ConditionalGet 的启动标识使旧验证器全部失效
+ */
+public class EntityVersions {
+
+    public static final String PRODUCT = "product";
+    public static final String USER = "user";
+    public static final String REVIEW = "review";
+    public static final String CATEGORY = "category";
+    public static final String FOLLOW = "follow";
+
+    /**
+     * 槽位数量（必须为2的幂）
+     */
+    private static final int SLOTS = 4096;
+
+    private static final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+    private static final ConcurrentHashMap<String, AtomicLong> typeVersions = new ConcurrentHashMap<>();
+
+    private EntityVersions() {
+    }
+
+    /**
+     * 实体发生变化，递增实体版本和类型版本；在工作单元中时提交后再递增一次，
+     * 避免提交前读到旧数据的响应带上新版本号
+     * @param type 实体类型
+     * @param id 实体ID
+     */
+    public static void bump(String type, Object id) {
+        Runnable action = () -> {
+            slots.incrementAndGet(slot(type, id));
+            typeCounter(type).incrementAndGet();
+        };
+        action.run();
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCommit(action);
+        }
+    }
+
+    /**
+     * 某类实体发生变化但无法确定具体实体时，只递增类型版本
+     * @param type 实体类型
+     */
+    public static void touch(String type) {
+        typeCounter(type).incrementAndGet();
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCommit(() -> typeCounter(type).incrementAndGet());
+        }
+    }
+
+    /**
+     * 获取实体版本号
+     */
+    public static long version(String type, Object id) {
+        return slots.get(slot(type, id));
+    }
+
+    /**
+     * 获取类型版本号
+     */
+    public static long typeVersion(String type) {
+        return typeCounter(type).get();
+    }
+
+    private static AtomicLong typeCounter(String type) {
+        return typeVersions.computeIfAbsent(type, k -> new AtomicLong());
+    }
+
+    private static int slot(String type, Object id) {
+        int h = type.hashCode() * 31 + (id != null ? id.hashCode() : 0);
+        h ^= (h >>> 16);
+        return h & (SLOTS - 1);
+    }
+}
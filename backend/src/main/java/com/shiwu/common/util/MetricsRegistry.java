@@ -0,0 +1,63 @@
+package com.shiwu.common.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 运行指标注册表
+ *
+ * 各内存组件（缓存、计数器、后台任务等）在初始化时注册自己的指标快照来源，
+ * 管理端通过 /admin/dashboard/metrics 统一查看
+ */
+public class MetricsRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private static final Map<String, Supplier<Map<String, Object>>> sources = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * 注册指标来源，同名来源会被覆盖
+     * @param name 组件名称
+     * @param source 指标快照提供者
+     */
+    public static void register(String name, Supplier<Map<String, Object>> source) {
+        if (name == null || source == null) {
+            return;
+        }
+        sources.put(name, source);
+    }
+
+    /**
+     * 注销指标来源
+     * @param name 组件名称
+     */
+    public static void unregister(String name) {
+        if (name != null) {
+            sources.remove(name);
+        }
+    }
+
+    /**
+     * 获取所有组件的指标快照
+     * @return 组件名称 -> 指标
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<Map<String, Object>>> entry : new TreeMap<>(sources).entrySet()) {
+            try {
+                result.put(entry.getKey(), entry.getValue().get());
+            } catch (Exception e) {
+                logger.warn("采集指标失败: name={}, error={}", entry.getKey(), e.getMessage());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,132 @@
+package com.shiwu.common.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 预编译的路径匹配器
+ *
+ * 启动时把路由按路径段构建成前缀树，匹配时按段逐层查找，耗时只与请求路径的段数有关，
+ * 不随路由数量增长，也不需要每次请求编译正则或遍历路由列表。
+ * 1. 前缀路由：请求路径等于该路径或位于其下（按路径段比较）时匹配
+ * 2. 精确路由：请求方法和完整路径都相同时匹配，路径段 {id} 匹配一个纯数字的段；精确路由优先于前缀路由
+ * 多个前缀路由都匹配时，取最长的一个
+ * 路径段中 ';' 之后的路径参数（如 "batch-ban;x=y"）在匹配前去掉，与容器分派到 Servlet 时的处理一致
+ *
+ * 构建完成后只读，可以被多个线程同时使用
+ *
+ * @param <T> 匹配结果类型
+ */
+public class RouteMatcher<T> {
+
+    private static final String NUMERIC_SEGMENT = "{id}";
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * 添加前缀路由
+     */
+    public RouteMatcher<T> prefix(String path, T value) {
+        nodeFor(path).prefixValue = value;
+        return this;
+    }
+
+    /**
+     * 添加精确路由
+     * @param method HTTP方法
+     * @param path 路径，可以包含 {id} 段
+     */
+    public RouteMatcher<T> exact(String method, String path, T value) {
+        Node<T> node = nodeFor(path);
+        if (node.exactValues == null) {
+            node.exactValues = new HashMap<>();
+        }
+        node.exactValues.put(method, value);
+        return this;
+    }
+
+    /**
+     * 匹配请求
+     * @param method HTTP方法
+     * @param path 请求路径
+     * @return 匹配的路由值，没有匹配时返回null
+     */
+    public T match(String method, String path) {
+        if (path == null) {
+            return null;
+        }
+        Node<T> node = root;
+        T prefixMatch = root.prefixValue;
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            int segmentEnd = path.indexOf(';', start);
+            if (segmentEnd < 0 || segmentEnd > end) {
+                segmentEnd = end;
+            }
+            if (segmentEnd > start) {
+                Node<T> next = node.children != null ? node.children.get(path.substring(start, segmentEnd)) : null;
+                if (next == null && node.numericChild != null && isDigits(path, start, segmentEnd)) {
+                    next = node.numericChild;
+                }
+                if (next == null) {
+                    return prefixMatch;
+                }
+                node = next;
+                if (node.prefixValue != null) {
+                    prefixMatch = node.prefixValue;
+                }
+            }
+            start = end + 1;
+        }
+        if (node.exactValues != null && method != null) {
+            T exact = node.exactValues.get(method);
+            if (exact != null) {
+                return exact;
+            }
+        }
+        return prefixMatch;
+    }
+
+    private Node<T> nodeFor(String path) {
+        Node<T> node = root;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (NUMERIC_SEGMENT.equals(segment)) {
+                if (node.numericChild == null) {
+                    node.numericChild = new Node<>();
+                }
+                node = node.numericChild;
+            } else {
+                if (node.children == null) {
+                    node.children = new HashMap<>();
+                }
+                node = node.children.computeIfAbsent(segment, k -> new Node<>());
+            }
+        }
+        return node;
+    }
+
+    private static boolean isDigits(String path, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Node<T> {
+        Map<String, Node<T>> children;
+        Node<T> numericChild;
+        T prefixValue;
+        Map<String, T> exactValues;
+    }
+}
@@ -0,0 +1,187 @@
+package com.shiwu.common.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 工作单元
+ *
+ * 将一个连接和事务绑定到当前线程，工作单元内所有 DAO 通过 DBUtil.getConnection() 取得同一个连接，
+ * 多个 DAO 的写入在工作单元结束时一次提交。DAO 自己的 setAutoCommit/commit/close 在工作单元内不生效，
+ * DAO 调用 rollback 会把整个工作单元标记为回滚。嵌套调用加入外层工作单元。
+ */
+public final class UnitOfWork {
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 工作单元中执行的业务操作
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T execute() throws Exception;
+    }
+
+    private static final class Context {
+        final Connection physical;
+        final Connection shared;
+        final List<Runnable> afterCommit = new ArrayList<>();
+        boolean rollbackOnly;
+
+        Context(Connection physical) {
+            this.physical = physical;
+            this.shared = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                            case "setAutoCommit":
+                            case "commit":
+                                return null;
+                            case "rollback":
+                                if (args == null) {
+                                    rollbackOnly = true;
+                                    return null;
+                                }
+                                break;
+                            case "getAutoCommit":
+                                return false;
+                            default:
+                                break;
+                        }
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+
+    private UnitOfWork() {
+    }
+
+    /**
+     * 在工作单元中执行业务操作
+     * 操作抛出异常、结果不满足提交条件或工作单元被标记为回滚时整体回滚；
+     * 当前线程已在工作单元中时加入外层工作单元，由外层统一提交
+     *
+     * @param work 业务操作
+     * @param commitIf 根据操作结果判断是否提交
+     * @return 操作结果
+     * @throws IllegalStateException 操作结果要求提交但工作单元已被标记为回滚，或提交失败
+     */
+    public static <T> T execute(Work<T> work, Predicate<T> commitIf) {
+        Context outer = CURRENT.get();
+        if (outer != null) {
+            T result = call(work);
+            if (!commitIf.test(result)) {
+                outer.rollbackOnly = true;
+            }
+            return result;
+        }
+
+        Connection conn = DBUtil.openConnection();
+        if (conn == null) {
+            // 无法获取连接时不开启工作单元，各 DAO 自行获取连接并处理失败
+            return call(work);
+        }
+
+        Context context = new Context(conn);
+        boolean committed = false;
+        try {
+            conn.setAutoCommit(false);
+            CURRENT.set(context);
+            T result = call(work);
+            boolean commit = commitIf.test(result);
+            if (commit && context.rollbackOnly) {
+                throw new IllegalStateException("工作单元已被标记为回滚");
+            }
+            if (commit) {
+                conn.commit();
+                committed = true;
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new IllegalStateException("工作单元提交失败: " + e.getMessage(), e);
+        } finally {
+            CURRENT.remove();
+            if (!committed) {
+                rollbackQuietly(conn);
+            }
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("恢复自动提交失败: {}", e.getMessage());
+            }
+            DBUtil.closeConnection(conn);
+            if (committed) {
+                runAfterCommit(context.afterCommit);
+            }
+        }
+    }
+
+    /**
+     * 注册提交后执行的操作（如更新内存缓存），当前线程不在工作单元中时立即执行
+     * @param action 操作
+     */
+    public static void afterCommit(Runnable action) {
+        Context context = CURRENT.get();
+        if (context != null) {
+            context.afterCommit.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 当前线程是否处于工作单元中
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * 当前线程工作单元的共享连接，不在工作单元中返回null
+     */
+    static Connection currentConnection() {
+        Context context = CURRENT.get();
+        return context != null ? context.shared : null;
+    }
+
+    private static <T> T call(Work<T> work) {
+        try {
+            return work.execute();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            logger.error("回滚工作单元失败: {}", e.getMessage());
+        }
+    }
+
+    private static void runAfterCommit(List<Runnable> actions) {
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (Exception e) {
+                logger.error("执行提交后操作失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
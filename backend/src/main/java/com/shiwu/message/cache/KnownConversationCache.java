@@ -0,0 +1,105 @@
+package com.shiwu.message.cache;
+
+import com.shiwu.common.util.MetricsRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已知会话ID缓存
+ *
+ * 记录最近确认存在于数据库中的会话ID，发送消息时命中则直接UPDATE会话，
+ * 未命中才执行 INSERT ... ON DUPLICATE KEY UPDATE（避免无谓地消耗自增ID）。
+ * 缓存内容可能过期（例如会话被删除），调用方在UPDATE未影响任何行时应回退到UPSERT。
+ */
+public class KnownConversationCache {
+
+    /**
+     * 最多记录的会话数量
+     */
+    private static final int DEFAULT_MAX_ENTRIES = 50000;
+
+    private static volatile KnownConversationCache instance;
+
+    private final Map<String, Boolean> known;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    KnownConversationCache(final int maxEntries) {
+        this.known = new LinkedHashMap<String, Boolean>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static KnownConversationCache getInstance() {
+        if (instance == null) {
+            synchronized (KnownConversationCache.class) {
+                if (instance == null) {
+                    KnownConversationCache cache = new KnownConversationCache(DEFAULT_MAX_ENTRIES);
+                    MetricsRegistry.register("knownConversationCache", cache::getStats);
+                    instance = cache;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 会话是否已知存在
+     */
+    public boolean contains(String conversationId) {
+        boolean hit;
+        synchronized (known) {
+            hit = conversationId != null && known.get(conversationId) != null;
+        }
+        (hit ? hits : misses).incrementAndGet();
+        return hit;
+    }
+
+    /**
+     * 记录会话已存在
+     */
+    public void add(String conversationId) {
+        if (conversationId == null) {
+            return;
+        }
+        synchronized (known) {
+            known.put(conversationId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 移除会话（会话被删除时调用）
+     */
+    public void remove(String conversationId) {
+        if (conversationId == null) {
+            return;
+        }
+        synchronized (known) {
+            known.remove(conversationId);
+        }
+    }
+
+    /**
+     * 获取缓存指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (known) {
+            stats.put("size", known.size());
+        }
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+}
@@ -0,0 +1,496 @@
+package com.shiwu.message.cache;
+
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.message.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话热消息尾部缓存
+ *
+ * 为最近活跃的会话缓存最后N条消息（按消息ID升序的环形缓冲区，字段以并行数组紧凑存储），
+ * 打开会话时优先从缓存读取，只有请求范围超出缓存尾部时才回落到数据库。
+ *
+ * 1. 发送消息时追加，标记已读和删除消息时同步更新
+ * 2. 按估算内存占用和会话数量做跨会话LRU淘汰
+ * 3. 通过分段版本戳避免“加载期间有新消息写入”导致缓存内容过期
+ * 4. 统计命中率等指标并注册到 MetricsRegistry
+ *
+ * 注意：缓存只感知本进程内的写入，多实例部署时需要改为集中式缓存或关闭此缓存
+ */
+public class MessageTailCache {
+    private static final Logger logger = LoggerFactory.getLogger(MessageTailCache.class);
+
+    /**
+     * 每个会话缓存的消息条数
+     */
+    public static final int DEFAULT_TAIL_CAPACITY = 50;
+
+    /**
+     * 缓存最多保留的会话数量
+     */
+    private static final int DEFAULT_MAX_CONVERSATIONS = 5000;
+
+    /**
+     * 缓存估算内存上限（字节）
+     */
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * 版本戳分段数量（必须为2的幂）
+     */
+    private static final int STAMP_STRIPES = 1024;
+
+    private static volatile MessageTailCache instance;
+
+    private final int tailCapacity;
+    private final int maxConversations;
+    private final long maxBytes;
+
+    /**
+     * 访问顺序的LinkedHashMap实现LRU，所有访问都在this上同步
+     */
+    private final LinkedHashMap<String, Tail> tails = new LinkedHashMap<>(256, 0.75f, true);
+    private final long[] stamps = new long[STAMP_STRIPES];
+    private long stampSequence = 0;
+    private long totalBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fallthroughs = new AtomicLong();
+    private final AtomicLong seeds = new AtomicLong();
+    private final AtomicLong staleSeeds = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    MessageTailCache(int tailCapacity, int maxConversations, long maxBytes) {
+        this.tailCapacity = tailCapacity;
+        this.maxConversations = maxConversations;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static MessageTailCache getInstance() {
+        if (instance == null) {
+            synchronized (MessageTailCache.class) {
+                if (instance == null) {
+                    MessageTailCache cache = new MessageTailCache(DEFAULT_TAIL_CAPACITY,
+                            DEFAULT_MAX_CONVERSATIONS, DEFAULT_MAX_BYTES);
+                    MetricsRegistry.register("messageTailCache", cache::getStats);
+                    instance = cache;
+                }
+            }
+        }
+        return instance;
+    }
+
+    public int getTailCapacity() {
+        return tailCapacity;
+    }
+
+    /**
+     * 会话是否已在缓存中
+     */
+    public synchronized boolean isCached(String conversationId) {
+        return conversationId != null && tails.containsKey(conversationId);
+    }
+
+    /**
+     * 按偏移量读取消息（与 MessageDao.findMessagesByConversationId 语义一致，按时间升序）
+     *
+     * @return 消息列表；会话未缓存或范围超出缓存尾部时返回null，由调用方查询数据库
+     */
+    public synchronized List<Message> getPage(String conversationId, int offset, int limit) {
+        Tail tail = conversationId != null ? tails.get(conversationId) : null;
+        if (tail == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        int firstCached = tail.total - tail.size;
+        if (offset < firstCached) {
+            fallthroughs.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        int from = offset - firstCached;
+        int to = Math.min(tail.size, from + Math.max(limit, 0));
+        return tail.toMessages(from, to);
+    }
+
+    /**
+     * 游标分页：读取ID小于beforeMessageId的最近limit条消息（按时间升序）
+     *
+     * @param beforeMessageId 游标，为null时返回最新的消息
+     * @return 消息列表；会话未缓存或缓存尾部不足以覆盖请求时返回null
+     */
+    public synchronized List<Message> getBefore(String conversationId, Long beforeMessageId, int limit) {
+        Tail tail = conversationId != null ? tails.get(conversationId) : null;
+        if (tail == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        int end = beforeMessageId == null ? tail.size : tail.indexOfFirstAtLeast(beforeMessageId);
+        if (end < limit && !tail.isComplete()) {
+            fallthroughs.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return tail.toMessages(Math.max(0, end - limit), end);
+    }
+
+    /**
+     * 获取会话的当前版本戳，在从数据库加载尾部之前调用
+     */
+    public synchronized long stamp(String conversationId) {
+        return stamps[stripe(conversationId)];
+    }
+
+    /**
+     * 用数据库加载的结果填充会话尾部
+     *
+     * @param stamp 加载前通过 stamp() 获取的版本戳，加载期间若会话有写入则放弃本次填充
+     * @param latestMessages 最新的若干条消息（升序）
+     * @param totalCount 会话中未删除消息的总数
+     */
+    public synchronized void seed(String conversationId, long stamp, List<Message> latestMessages, int totalCount) {
+        if (conversationId == null || latestMessages == null) {
+            return;
+        }
+        if (stamps[stripe(conversationId)] != stamp) {
+            staleSeeds.incrementAndGet();
+            return;
+        }
+        Tail tail = new Tail(tailCapacity);
+        for (Message message : latestMessages) {
+            tail.insert(message);
+        }
+        tail.total = Math.max(totalCount, tail.size);
+        put(conversationId, tail);
+        seeds.incrementAndGet();
+    }
+
+    /**
+     * 新建会话时放入一个空的完整尾部，之后的消息直接追加
+     */
+    public synchronized void initEmpty(String conversationId) {
+        if (conversationId == null) {
+            return;
+        }
+        bumpStamp(conversationId);
+        if (!tails.containsKey(conversationId)) {
+            put(conversationId, new Tail(tailCapacity));
+        }
+    }
+
+    /**
+     * 追加新发送的消息，未缓存的会话只更新版本戳
+     */
+    public synchronized void append(Message message) {
+        if (message == null || message.getId() == null || message.getConversationId() == null) {
+            return;
+        }
+        String conversationId = message.getConversationId();
+        bumpStamp(conversationId);
+        Tail tail = tails.get(conversationId);
+        if (tail == null) {
+            return;
+        }
+        totalBytes -= tail.bytes;
+        tail.insert(message);
+        tail.total++;
+        totalBytes += tail.bytes;
+        evictIfNeeded();
+    }
+
+    /**
+     * 将会话中发给receiverId的消息标记为已读
+     */
+    public synchronized void markRead(String conversationId, Long receiverId) {
+        if (conversationId == null || receiverId == null) {
+            return;
+        }
+        bumpStamp(conversationId);
+        Tail tail = tails.get(conversationId);
+        if (tail != null) {
+            tail.markRead(receiverId);
+        }
+    }
+
+    /**
+     * 移除被删除的消息
+     */
+    public synchronized void remove(String conversationId, Long messageId) {
+        if (conversationId == null || messageId == null) {
+            return;
+        }
+        bumpStamp(conversationId);
+        Tail tail = tails.get(conversationId);
+        if (tail == null) {
+            return;
+        }
+        totalBytes -= tail.bytes;
+        tail.remove(messageId);
+        tail.total = Math.max(tail.total - 1, tail.size);
+        totalBytes += tail.bytes;
+    }
+
+    /**
+     * 使会话缓存失效
+     */
+    public synchronized void invalidate(String conversationId) {
+        if (conversationId == null) {
+            return;
+        }
+        bumpStamp(conversationId);
+        Tail tail = tails.remove(conversationId);
+        if (tail != null) {
+            totalBytes -= tail.bytes;
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        tails.clear();
+        totalBytes = 0;
+        for (int i = 0; i < stamps.length; i++) {
+            stamps[i] = ++stampSequence;
+        }
+    }
+
+    /**
+     * 获取缓存指标
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get() + fallthroughs.get();
+        stats.put("conversations", tails.size());
+        stats.put("estimatedBytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("fallthroughs", fallthroughs.get());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("seeds", seeds.get());
+        stats.put("staleSeeds", staleSeeds.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private void put(String conversationId, Tail tail) {
+        Tail previous = tails.put(conversationId, tail);
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+        }
+        totalBytes += tail.bytes;
+        evictIfNeeded();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Tail>> iterator = tails.entrySet().iterator();
+        // 至少保留最近访问的一个会话
+        while ((totalBytes > maxBytes || tails.size() > maxConversations) && tails.size() > 1 && iterator.hasNext()) {
+            Map.Entry<String, Tail> eldest = iterator.next();
+            totalBytes -= eldest.getValue().bytes;
+            iterator.remove();
+            evictions.incrementAndGet();
+            logger.debug("淘汰会话消息缓存: conversationId={}", eldest.getKey());
+        }
+    }
+
+    private void bumpStamp(String conversationId) {
+        stamps[stripe(conversationId)] = ++stampSequence;
+    }
+
+    private static int stripe(String conversationId) {
+        int h = conversationId == null ? 0 : conversationId.hashCode();
+        h ^= (h >>> 16);
+        return h & (STAMP_STRIPES - 1);
+    }
+
+    /**
+     * 单个会话的消息尾部：按ID升序的环形缓冲区
+     */
+    private static final class Tail {
+        /**
+         * 每个槽位的并行数组开销估算（字节）
+         */
+        private static final int SLOT_BYTES = 56;
+
+        /**
+         * 每条消息内容字符串的对象头开销估算（字节）
+         */
+        private static final int STRING_OVERHEAD = 40;
+
+        private final long[] ids;
+        private final long[] senderIds;
+        private final long[] receiverIds;
+        private final long[] productIds;
+        private final long[] createTimes;
+        private final boolean[] read;
+        private final String[] contents;
+        private final String[] types;
+        private String conversationId;
+        private int head = 0;
+        private int size = 0;
+        /**
+         * 会话中未删除消息的总数（包含未缓存的更早消息）
+         */
+        private int total = 0;
+        private long bytes;
+
+        Tail(int capacity) {
+            ids = new long[capacity];
+            senderIds = new long[capacity];
+            receiverIds = new long[capacity];
+            productIds = new long[capacity];
+            createTimes = new long[capacity];
+            read = new boolean[capacity];
+            contents = new String[capacity];
+            types = new String[capacity];
+            bytes = (long) capacity * SLOT_BYTES;
+        }
+
+        boolean isComplete() {
+            return size >= total;
+        }
+
+        private int slot(int index) {
+            return (head + index) % ids.length;
+        }
+
+        /**
+         * 按ID有序插入，缓冲区满时丢弃最旧的一条
+         */
+        void insert(Message message) {
+            long id = message.getId();
+            int pos = size;
+            while (pos > 0 && ids[slot(pos - 1)] > id) {
+                pos--;
+            }
+            if (pos > 0 && ids[slot(pos - 1)] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                if (pos == 0) {
+                    // 比缓存中所有消息都旧，且缓冲区已满，不需要缓存
+                    return;
+                }
+                bytes -= entryBytes(0);
+                clearSlot(slot(0));
+                head = slot(1);
+                size--;
+                pos--;
+            }
+            for (int i = size; i > pos; i--) {
+                copySlot(slot(i - 1), slot(i));
+            }
+            int s = slot(pos);
+            conversationId = message.getConversationId();
+            ids[s] = id;
+            senderIds[s] = message.getSenderId() != null ? message.getSenderId() : 0L;
+            receiverIds[s] = message.getReceiverId() != null ? message.getReceiverId() : 0L;
+            productIds[s] = message.getProductId() != null ? message.getProductId() : 0L;
+            createTimes[s] = message.getCreateTime() != null ? Timestamp.valueOf(message.getCreateTime()).getTime() : 0L;
+            read[s] = Boolean.TRUE.equals(message.getRead());
+            contents[s] = message.getContent();
+            types[s] = message.getMessageType() != null ? message.getMessageType() : "TEXT";
+            size++;
+            bytes += entryBytes(pos);
+        }
+
+        void markRead(long receiverId) {
+            for (int i = 0; i < size; i++) {
+                int s = slot(i);
+                if (receiverIds[s] == receiverId) {
+                    read[s] = true;
+                }
+            }
+        }
+
+        void remove(long messageId) {
+            int index = indexOfFirstAtLeast(messageId);
+            if (index >= size || ids[slot(index)] != messageId) {
+                return;
+            }
+            bytes -= entryBytes(index);
+            for (int i = index; i < size - 1; i++) {
+                copySlot(slot(i + 1), slot(i));
+            }
+            clearSlot(slot(size - 1));
+            size--;
+        }
+
+        int indexOfFirstAtLeast(long messageId) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ids[slot(mid)] < messageId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        List<Message> toMessages(int from, int to) {
+            if (from >= to) {
+                return Collections.emptyList();
+            }
+            List<Message> messages = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                int s = slot(i);
+                Message message = new Message();
+                message.setId(ids[s]);
+                message.setConversationId(conversationId);
+                message.setSenderId(senderIds[s]);
+                message.setReceiverId(receiverIds[s]);
+                message.setProductId(productIds[s] != 0L ? productIds[s] : null);
+                message.setContent(contents[s]);
+                message.setMessageType(types[s]);
+                message.setRead(read[s]);
+                message.setDeleted(false);
+                LocalDateTime createTime = createTimes[s] != 0L ? new Timestamp(createTimes[s]).toLocalDateTime() : null;
+                message.setCreateTime(createTime);
+                messages.add(message);
+            }
+            return messages;
+        }
+
+        private long entryBytes(int index) {
+            String content = contents[slot(index)];
+            return content != null ? STRING_OVERHEAD + 2L * content.length() : 0L;
+        }
+
+        private void copySlot(int from, int to) {
+            ids[to] = ids[from];
+            senderIds[to] = senderIds[from];
+            receiverIds[to] = receiverIds[from];
+            productIds[to] = productIds[from];
+            createTimes[to] = createTimes[from];
+            read[to] = read[from];
+            contents[to] = contents[from];
+            types[to] = types[from];
+        }
+
+        private void clearSlot(int s) {
+            contents[s] = null;
+            types[s] = null;
+        }
+    }
+}
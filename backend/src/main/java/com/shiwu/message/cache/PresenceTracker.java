@@ -0,0 +1,367 @@
+package com.shiwu.message.cache;
+
+import com.shiwu.common.util.MetricsRegistry;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 用户在线状态跟踪
+ *
+ * 轮询接口每次请求都会刷新用户的最后活跃时间，超过活跃超时没有请求的用户视为离线。
+ * 1. 用户ID -> 最后活跃时间保存在开放寻址的 long 数组中，不产生装箱对象
+ * 2. 过期用时间轮实现：活跃时间按固定刻度落入时间轮的槽位，只处理已经整体过期的槽位，
+ *    清理代价与过期（及被后续活跃覆盖）的记录数成正比，不需要扫描全部在线用户
+ * 3. 在线人数随上线、过期在同一把锁内增减，不会因为并发的刷新和清理而漂移
+ *
+ * 数据按用户ID分段，每段有独立的锁、哈希表和时间轮，轮询请求之间不会争用同一把锁。
+ * 在线判断按最后活跃时间精确计算；在线人数的过期精度为一个刻度。
+ */
+public class PresenceTracker {
+
+    /**
+     * 默认活跃超时（毫秒）- 5分钟
+     */
+    private static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 默认时间轮刻度（毫秒），同一用户一个刻度内多次刷新只记录一次
+     */
+    private static final long DEFAULT_TICK_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * 分段数量（必须为2的幂）
+     */
+    private static final int SEGMENTS = 16;
+
+    private static volatile PresenceTracker instance;
+
+    private final long timeoutMillis;
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final Segment[] segments;
+
+    private final AtomicLong touches = new AtomicLong();
+    private final AtomicLong arrivals = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    PresenceTracker(long timeoutMillis, long tickMillis, LongSupplier clock) {
+        this.timeoutMillis = timeoutMillis;
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+        // 槽位覆盖超时时间再多两个刻度：当前刻度和正在过期的刻度
+        int wheelSize = (int) ((timeoutMillis + tickMillis - 1) / tickMillis) + 2;
+        long startTick = clock.getAsLong() / tickMillis;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(wheelSize, startTick);
+        }
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static PresenceTracker getInstance() {
+        if (instance == null) {
+            synchronized (PresenceTracker.class) {
+                if (instance == null) {
+                    PresenceTracker tracker = new PresenceTracker(DEFAULT_TIMEOUT_MILLIS, DEFAULT_TICK_MILLIS,
+                            System::currentTimeMillis);
+                    MetricsRegistry.register("presenceTracker", tracker::getStats);
+                    instance = tracker;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 刷新用户的最后活跃时间
+     * @param userId 用户ID（必须为正数）
+     */
+    public void touch(long userId) {
+        if (userId <= 0) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            segment.expire(now);
+            if (segment.touch(userId, now, now / tickMillis)) {
+                arrivals.incrementAndGet();
+            }
+        }
+        touches.incrementAndGet();
+    }
+
+    /**
+     * 用户是否在线
+     */
+    public boolean isOnline(long userId) {
+        if (userId <= 0) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            long lastActive = segment.lastActive(userId);
+            return lastActive > 0 && now - lastActive <= timeoutMillis;
+        }
+    }
+
+    /**
+     * 批量查询在线状态，例如会话列表中哪些对方用户在线；每个分段只加锁一次
+     * @param userIds 用户ID
+     * @return 其中在线的用户ID
+     */
+    public Set<Long> onlineAmong(Collection<Long> userIds) {
+        Set<Long> online = new HashSet<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return online;
+        }
+        long[][] bySegment = new long[SEGMENTS][];
+        int[] sizes = new int[SEGMENTS];
+        for (Long userId : userIds) {
+            if (userId == null || userId <= 0) {
+                continue;
+            }
+            int index = segmentIndex(userId);
+            if (bySegment[index] == null) {
+                bySegment[index] = new long[4];
+            } else if (sizes[index] == bySegment[index].length) {
+                bySegment[index] = Arrays.copyOf(bySegment[index], sizes[index] * 2);
+            }
+            bySegment[index][sizes[index]++] = userId;
+        }
+        long now = clock.getAsLong();
+        for (int i = 0; i < SEGMENTS; i++) {
+            if (sizes[i] == 0) {
+                continue;
+            }
+            Segment segment = segments[i];
+            synchronized (segment) {
+                for (int j = 0; j < sizes[i]; j++) {
+                    long lastActive = segment.lastActive(bySegment[i][j]);
+                    if (lastActive > 0 && now - lastActive <= timeoutMillis) {
+                        online.add(bySegment[i][j]);
+                    }
+                }
+            }
+        }
+        return online;
+    }
+
+    /**
+     * 当前在线人数
+     */
+    public int onlineCount() {
+        long now = clock.getAsLong();
+        int count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.expire(now);
+                count += segment.size;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 获取指标
+     */
+    public Map<String, Object> getStats() {
+        long now = clock.getAsLong();
+        int online = 0;
+        long wheelEntries = 0;
+        long capacity = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.expire(now);
+                online += segment.size;
+                wheelEntries += segment.wheelEntries;
+                capacity += segment.keys.length;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("timeoutMillis", timeoutMillis);
+        stats.put("tickMillis", tickMillis);
+        stats.put("online", online);
+        stats.put("touches", touches.get());
+        stats.put("arrivals", arrivals.get());
+        stats.put("expirations", expirations.get());
+        stats.put("wheelEntries", wheelEntries);
+        stats.put("tableCapacity", capacity);
+        return stats;
+    }
+
+    private Segment segmentFor(long userId) {
+        return segments[segmentIndex(userId)];
+    }
+
+    private static int segmentIndex(long userId) {
+        return (int) (mix(userId) >>> 60) & (SEGMENTS - 1);
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * 一个分段：开放寻址哈希表（线性探测，键0表示空位）+ 时间轮，所有方法在分段锁内调用
+     */
+    private final class Segment {
+        long[] keys = new long[64];
+        long[] lastActive = new long[64];
+        long[] lastTick = new long[64];
+        int size;
+
+        final long[][] wheel;
+        final int[] wheelSizes;
+        long wheelEntries;
+        long expiredThroughTick;
+
+        Segment(int wheelSize, long startTick) {
+            this.wheel = new long[wheelSize][];
+            this.wheelSizes = new int[wheelSize];
+            this.expiredThroughTick = startTick - 1;
+        }
+
+        /**
+         * @return 是否为新上线的用户
+         */
+        boolean touch(long userId, long now, long tick) {
+            int slot = find(userId);
+            boolean arrived = slot < 0;
+            if (arrived) {
+                if ((size + 1) * 4 > keys.length * 3) {
+                    resize();
+                }
+                slot = insertSlot(userId);
+                keys[slot] = userId;
+                size++;
+            }
+            lastActive[slot] = now;
+            if (arrived || lastTick[slot] != tick) {
+                lastTick[slot] = tick;
+                schedule(userId, tick);
+            }
+            return arrived;
+        }
+
+        long lastActive(long userId) {
+            int slot = find(userId);
+            return slot >= 0 ? lastActive[slot] : 0;
+        }
+
+        /**
+         * 处理所有已经整体过期的刻度：刻度 t 内的活跃在 (t + 1) * tick + timeout 之后全部过期
+         */
+        void expire(long now) {
+            long expireThrough = (now - timeoutMillis) / tickMillis - 1;
+            if (expireThrough <= expiredThroughTick) {
+                return;
+            }
+            // 离上次处理超过一整圈时，每个槽位只需要处理一次
+            long from = Math.max(expiredThroughTick + 1, expireThrough - wheel.length + 1);
+            for (long tick = from; tick <= expireThrough; tick++) {
+                int index = (int) Math.floorMod(tick, (long) wheel.length);
+                long[] bucket = wheel[index];
+                int count = wheelSizes[index];
+                for (int i = 0; i < count; i++) {
+                    int slot = find(bucket[i]);
+                    // 用户在之后的刻度又活跃过时，这条记录已经被新的记录取代
+                    if (slot >= 0 && lastTick[slot] <= expireThrough) {
+                        removeAt(slot);
+                        size--;
+                        expirations.incrementAndGet();
+                    }
+                }
+                wheelEntries -= count;
+                wheelSizes[index] = 0;
+                if (bucket != null && bucket.length > 64) {
+                    wheel[index] = null;
+                }
+            }
+            expiredThroughTick = expireThrough;
+        }
+
+        private void schedule(long userId, long tick) {
+            int index = (int) Math.floorMod(tick, (long) wheel.length);
+            long[] bucket = wheel[index];
+            if (bucket == null) {
+                bucket = wheel[index] = new long[16];
+            } else if (wheelSizes[index] == bucket.length) {
+                bucket = wheel[index] = Arrays.copyOf(bucket, bucket.length * 2);
+            }
+            bucket[wheelSizes[index]++] = userId;
+            wheelEntries++;
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                if (keys[i] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        private int insertSlot(long key) {
+            int mask = keys.length - 1;
+            int i = (int) mix(key) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * 线性探测的删除：把后续同一探测链上的记录前移，不使用墓碑
+         */
+        private void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int i = (slot + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                int home = (int) mix(keys[i]) & mask;
+                // home 不在 (hole, i] 之间时，记录可以移动到空位
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    lastActive[hole] = lastActive[i];
+                    lastTick[hole] = lastTick[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = 0;
+            lastActive[hole] = 0;
+            lastTick[hole] = 0;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldLastActive = lastActive;
+            long[] oldLastTick = lastTick;
+            keys = new long[oldKeys.length * 2];
+            lastActive = new long[oldKeys.length * 2];
+            lastTick = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = insertSlot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    lastActive[slot] = oldLastActive[i];
+                    lastTick[slot] = oldLastTick[i];
+                }
+            }
+        }
+    }
+}
@@ -114,6 +114,25 @@ public class MessageController extends HttpServlet {
         }
     }
     
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response) 
+            throws ServletException, IOException {
+        
+        String pathInfo = request.getPathInfo();
+        logger.debug("处理DELETE请求: {}", pathInfo);
+        
+        try {
+            if (pathInfo != null && pathInfo.startsWith("/message/")) {
+                handleDeleteMessage(request, response);
+            } else {
+                sendErrorResponse(response, 404, "接口不存在");
+            }
+        } catch (Exception e) {
+            logger.error("处理DELETE请求时发生异常: {}", pathInfo, e);
+            sendErrorResponse(response, 500, "服务器内部错误");
+        }
+    }
+    
     /**
      * 发送消息
      */
@@ -193,10 +212,17 @@ public class MessageController extends HttpServlet {
         }
         
         // 获取分页参数
-        int page = getIntParameter(request, "page", 1);
         int size = getIntParameter(request, "size", 50);
         
-        Result<List<MessageVO>> result = messageService.getMessageHistory(userId, conversationId, page, size);
+        // 携带beforeId参数时使用游标分页（beforeId<=0表示从最新消息开始）
+        Result<List<MessageVO>> result;
+        if (request.getParameter("beforeId") != null) {
+            Long beforeId = getLongParameter(request, "beforeId", null);
+            result = messageService.getMessagesBefore(userId, conversationId, beforeId, size);
+        } else {
+            int page = getIntParameter(request, "page", 1);
+            result = messageService.getMessageHistory(userId, conversationId, page, size);
+        }
         sendJsonResponse(response, result);
     }
     
@@ -313,6 +339,33 @@ public class MessageController extends HttpServlet {
         sendJsonResponse(response, result);
     }
     
+    /**
+     * 删除消息
+     */
+    private void handleDeleteMessage(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        
+        // 验证用户身份
+        Long userId = getUserIdFromToken(request);
+        if (userId == null) {
+            sendErrorResponse(response, 401, "未授权访问");
+            return;
+        }
+        
+        // 提取消息ID
+        String messageIdStr = request.getPathInfo().substring("/message/".length());
+        Long messageId;
+        try {
+            messageId = Long.parseLong(messageIdStr);
+        } catch (NumberFormatException e) {
+            sendErrorResponse(response, 400, "消息ID格式错误");
+            return;
+        }
+        
+        Result<Void> result = messageService.deleteMessage(userId, messageId);
+        sendJsonResponse(response, result);
+    }
+    
     /**
      * 更新会话状态
      */
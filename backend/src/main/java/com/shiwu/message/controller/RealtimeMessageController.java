@@ -107,6 +107,8 @@ public class RealtimeMessageController extends HttpServlet {
         // 构建轮询参数
         MessagePollDTO pollDTO = new MessagePollDTO();
         pollDTO.setLastMessageTime(getLongParameter(request, "lastMessageTime", null));
+        pollDTO.setLastMessageId(getLongParameter(request, "lastMessageId", null));
+        pollDTO.setDeliveredMessageId(getLongParameter(request, "deliveredMessageId", null));
         pollDTO.setUnreadOnly(getBooleanParameter(request, "unreadOnly", false));
         pollDTO.setLimit(getIntParameter(request, "limit", 50));
         
@@ -153,6 +155,8 @@ public class RealtimeMessageController extends HttpServlet {
         // 构建轮询参数
         MessagePollDTO pollDTO = new MessagePollDTO();
         pollDTO.setLastMessageTime(getLongParameter(request, "lastMessageTime", null));
+        pollDTO.setLastMessageId(getLongParameter(request, "lastMessageId", null));
+        pollDTO.setDeliveredMessageId(getLongParameter(request, "deliveredMessageId", null));
         pollDTO.setUnreadOnly(getBooleanParameter(request, "unreadOnly", false));
         pollDTO.setLimit(getIntParameter(request, "limit", 50));
         
@@ -217,9 +221,15 @@ public class RealtimeMessageController extends HttpServlet {
             return;
         }
         
-        Long lastCheckTime = getLongParameter(request, "lastCheckTime", null);
-        
-        Result<Boolean> result = realtimeMessageService.hasNewMessages(userId, lastCheckTime);
+        // 优先使用消息ID游标
+        Long lastMessageId = getLongParameter(request, "lastMessageId", null);
+        Result<Boolean> result;
+        if (lastMessageId != null) {
+            result = realtimeMessageService.hasNewMessagesAfter(userId, lastMessageId);
+        } else {
+            Long lastCheckTime = getLongParameter(request, "lastCheckTime", null);
+            result = realtimeMessageService.hasNewMessages(userId, lastCheckTime);
+        }
         sendJsonResponse(response, result);
     }
     
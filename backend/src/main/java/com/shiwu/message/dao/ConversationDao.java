@@ -257,6 +257,71 @@ public class ConversationDao {
         }
     }
     
+    /**
+     * 在调用方事务中更新已存在会话的最后消息，并原子递增接收者的未读数
+     *
+     * @return 影响的行数，0表示会话不存在或已删除
+     */
+    int touchOnNewMessage(Connection conn, String conversationId, Long receiverId,
+                          String lastMessage, LocalDateTime lastMessageTime) throws SQLException {
+        String sql = "UPDATE conversation SET last_message = ?, last_message_time = ?, update_time = ?, " +
+                    "unread_count1 = CASE WHEN participant1_id = ? THEN unread_count1 + 1 ELSE unread_count1 END, " +
+                    "unread_count2 = CASE WHEN participant2_id = ? THEN unread_count2 + 1 ELSE unread_count2 END " +
+                    "WHERE conversation_id = ? AND is_deleted = 0";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, lastMessage);
+            stmt.setTimestamp(2, Timestamp.valueOf(lastMessageTime));
+            stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setLong(4, receiverId);
+            stmt.setLong(5, receiverId);
+            stmt.setString(6, conversationId);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * 在调用方事务中创建会话或更新已有会话（INSERT ... ON DUPLICATE KEY UPDATE），
+     * 同时写入最后消息并原子递增接收者的未读数。已逻辑删除的会话会被恢复。
+     *
+     * @return 会话是否为本次新建
+     */
+    boolean upsertOnNewMessage(Connection conn, String conversationId, Long senderId, Long receiverId,
+                               Long productId, String lastMessage, LocalDateTime lastMessageTime) throws SQLException {
+        String sql = "INSERT INTO conversation (conversation_id, participant1_id, participant2_id, " +
+                    "product_id, last_message, last_message_time, unread_count1, unread_count2, " +
+                    "status, create_time, update_time, is_deleted) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, 0, 1, 'ACTIVE', ?, ?, 0) " +
+                    "ON DUPLICATE KEY UPDATE last_message = VALUES(last_message), " +
+                    "last_message_time = VALUES(last_message_time), update_time = VALUES(update_time), " +
+                    "unread_count1 = CASE WHEN participant1_id = ? THEN unread_count1 + 1 ELSE unread_count1 END, " +
+                    "unread_count2 = CASE WHEN participant2_id = ? THEN unread_count2 + 1 ELSE unread_count2 END, " +
+                    "is_deleted = 0";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            LocalDateTime now = LocalDateTime.now();
+
+            // 新建会话时发送者为参与者1，接收者为参与者2
+            stmt.setString(1, conversationId);
+            stmt.setLong(2, senderId);
+            stmt.setLong(3, receiverId);
+            if (productId != null) {
+                stmt.setLong(4, productId);
+            } else {
+                stmt.setNull(4, Types.BIGINT);
+            }
+            stmt.setString(5, lastMessage);
+            stmt.setTimestamp(6, Timestamp.valueOf(lastMessageTime));
+            stmt.setTimestamp(7, Timestamp.valueOf(now));
+            stmt.setTimestamp(8, Timestamp.valueOf(now));
+            stmt.setLong(9, receiverId);
+            stmt.setLong(10, receiverId);
+
+            // MySQL对ON DUPLICATE KEY UPDATE返回1表示插入新行，2表示更新了已有行
+            return stmt.executeUpdate() == 1;
+        }
+    }
+
     /**
      * 逻辑删除会话
      */
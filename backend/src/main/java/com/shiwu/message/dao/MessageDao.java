@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -26,19 +27,86 @@ import java.util.List;
 public class MessageDao {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageDao.class);
+
+    private final ConversationDao conversationDao = new ConversationDao();
     
     /**
      * 插入新消息
      */
     public Long insertMessage(Message message) {
+        try (Connection conn = DBUtil.getConnection()) {
+            return insertMessage(conn, message, LocalDateTime.now());
+        } catch (SQLException e) {
+            throw new RuntimeException("插入消息时发生数据库错误", e);
+        }
+    }
+
+    /**
+     * 事务性发送消息
+     *
+     * 在同一连接、同一事务中写入消息并更新会话（最后消息、接收者未读数原子加1），
+     * 会话不存在时一并创建，避免并发发送时会话元数据与消息不一致。
+     *
+     * @param message 待写入的消息，成功后回填ID
+     * @param knownConversation 调用方确认会话已存在时为true，此时先尝试直接UPDATE
+     * @return 会话是否为本次新建
+     */
+    public boolean insertMessageWithConversation(Message message, boolean knownConversation) {
+        LocalDateTime now = message.getCreateTime() != null ? message.getCreateTime() : LocalDateTime.now();
+        Connection conn = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            conn.setAutoCommit(false); // 开启事务
+
+            boolean created = false;
+            int touched = 0;
+            if (knownConversation) {
+                touched = conversationDao.touchOnNewMessage(conn, message.getConversationId(),
+                        message.getReceiverId(), message.getContent(), now);
+            }
+            if (touched == 0) {
+                created = conversationDao.upsertOnNewMessage(conn, message.getConversationId(),
+                        message.getSenderId(), message.getReceiverId(), message.getProductId(),
+                        message.getContent(), now);
+            }
+
+            message.setId(insertMessage(conn, message, now));
+
+            conn.commit(); // 提交事务
+            return created;
+
+        } catch (SQLException e) {
+            logger.error("事务性发送消息失败: conversationId={}, error={}", message.getConversationId(), e.getMessage(), e);
+            try {
+                if (conn != null) {
+                    conn.rollback(); // 回滚事务
+                }
+            } catch (SQLException rollbackEx) {
+                logger.error("回滚事务失败: {}", rollbackEx.getMessage(), rollbackEx);
+            }
+            throw new RuntimeException("发送消息时发生数据库错误", e);
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true); // 恢复自动提交
+                }
+            } catch (SQLException e) {
+                logger.error("恢复自动提交失败: {}", e.getMessage(), e);
+            }
+            DBUtil.closeConnection(conn);
+        }
+    }
+
+    /**
+     * 在给定连接上插入消息并返回生成的ID
+     */
+    private Long insertMessage(Connection conn, Message message, LocalDateTime now) throws SQLException {
         String sql = "INSERT INTO message (conversation_id, sender_id, receiver_id, product_id, " +
                     "content, message_type, is_read, create_time, update_time, is_deleted) " +
                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            LocalDateTime now = LocalDateTime.now();
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, message.getConversationId());
             stmt.setLong(2, message.getSenderId());
@@ -67,9 +135,6 @@ public class MessageDao {
                     throw new SQLException("插入消息失败，无法获取生成的ID");
                 }
             }
-            
-        } catch (SQLException e) {
-            throw new RuntimeException("插入消息时发生数据库错误", e);
         }
     }
     
@@ -351,4 +416,175 @@ public class MessageDao {
 
         return null;
     }
+
+    /**
+     * 统计会话中未删除的消息数量
+     */
+    public int countMessagesByConversationId(String conversationId) {
+        String sql = "SELECT COUNT(*) FROM message WHERE conversation_id = ? AND is_deleted = 0";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, conversationId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("统计会话消息数量时发生数据库错误: conversationId={}", conversationId, e);
+            throw new RuntimeException("统计会话消息数量时发生数据库错误", e);
+        }
+
+        return 0;
+    }
+
+    /**
+     * 获取会话最新的若干条消息（按时间升序返回，用于填充消息尾部缓存）
+     */
+    public List<Message> findLatestMessagesByConversationId(String conversationId, int limit) {
+        return findMessagesBeforeId(conversationId, null, limit);
+    }
+
+    /**
+     * 游标分页：获取会话中ID小于beforeMessageId的最近若干条消息（按时间升序返回）
+     *
+     * @param beforeMessageId 游标消息ID，为null时从最新消息开始
+     */
+    public List<Message> findMessagesBeforeId(String conversationId, Long beforeMessageId, int limit) {
+        String sql = "SELECT id, conversation_id, sender_id, receiver_id, product_id, " +
+                    "content, message_type, is_read, create_time, update_time, is_deleted " +
+                    "FROM message " +
+                    "WHERE conversation_id = ? AND is_deleted = 0" +
+                    (beforeMessageId != null ? " AND id < ?" : "") + " " +
+                    "ORDER BY id DESC " +
+                    "LIMIT ?";
+
+        List<Message> messages = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            stmt.setString(index++, conversationId);
+            if (beforeMessageId != null) {
+                stmt.setLong(index++, beforeMessageId);
+            }
+            stmt.setInt(index, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapResultSetToMessage(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("游标查询会话消息时发生数据库错误: conversationId={}, beforeMessageId={}",
+                        conversationId, beforeMessageId, e);
+            throw new RuntimeException("游标查询会话消息时发生数据库错误", e);
+        }
+
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    /**
+     * 按消息ID游标获取用户的新消息（用于轮询）
+     *
+     * 通过 (receiver_id, is_deleted, id) 索引定位游标之后的记录，不受时钟和秒级精度影响；
+     * 晚提交的较小ID由调用方的游标安全窗口兜底
+     *
+     * @param lastMessageId 客户端已收到的最后一条消息ID
+     * @param unreadOnly 是否只返回未读消息
+     * @param limit 最多返回的数量
+     */
+    public List<Message> findNewMessagesAfterId(Long userId, long lastMessageId, boolean unreadOnly, int limit) {
+        String sql = "SELECT id, conversation_id, sender_id, receiver_id, product_id, " +
+                    "content, message_type, is_read, create_time, update_time, is_deleted " +
+                    "FROM message " +
+                    "WHERE receiver_id = ? AND id > ? AND is_deleted = 0" +
+                    (unreadOnly ? " AND is_read = 0" : "") + " " +
+                    "ORDER BY id ASC " +
+                    "LIMIT ?";
+
+        List<Message> messages = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, userId);
+            stmt.setLong(2, lastMessageId);
+            stmt.setInt(3, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapResultSetToMessage(rs));
+                }
+            }
+
+            logger.debug("按游标查询新消息成功: userId={}, lastMessageId={}, count={}",
+                        userId, lastMessageId, messages.size());
+
+        } catch (SQLException e) {
+            logger.error("按游标查询新消息时发生数据库错误: userId={}, lastMessageId={}", userId, lastMessageId, e);
+            throw new RuntimeException("查询新消息时发生数据库错误", e);
+        }
+
+        return messages;
+    }
+
+    /**
+     * 判断游标之后是否有发给用户的新消息（由 (receiver_id, is_deleted, id) 索引覆盖）
+     */
+    public boolean existsNewMessageAfterId(Long userId, long lastMessageId) {
+        String sql = "SELECT 1 FROM message WHERE receiver_id = ? AND id > ? AND is_deleted = 0 LIMIT 1";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, userId);
+            stmt.setLong(2, lastMessageId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+
+        } catch (SQLException e) {
+            logger.error("检查新消息时发生数据库错误: userId={}, lastMessageId={}", userId, lastMessageId, e);
+            throw new RuntimeException("检查新消息时发生数据库错误", e);
+        }
+    }
+
+    /**
+     * 获取发给用户的、创建时间不晚于指定时间的最大消息ID（用于初始化轮询游标）
+     * 消息ID单调递增，沿 idx_receiver_deleted_id 从最新一条往回找第一条已稳定的消息，
+     * 只读取安全窗口内的少量行，不扫描用户的全部消息
+     * @param settledBefore 游标安全窗口起点，更晚创建的消息留给下次轮询
+     */
+    public long findMaxMessageIdByReceiverId(Long userId, LocalDateTime settledBefore) {
+        String sql = "SELECT id FROM message WHERE receiver_id = ? AND is_deleted = 0 AND create_time <= ? " +
+                    "ORDER BY id DESC LIMIT 1";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, userId);
+            stmt.setTimestamp(2, Timestamp.valueOf(settledBefore));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("查询最大消息ID时发生数据库错误: userId={}", userId, e);
+            throw new RuntimeException("查询最大消息ID时发生数据库错误", e);
+        }
+
+        return 0L;
+    }
 }
@@ -12,9 +12,20 @@ public class MessagePollDTO {
     
     /**
      * 上次获取消息的时间戳（毫秒）
+     * 已被lastMessageId游标取代，仅在未提供游标时兼容使用
      */
     private Long lastMessageTime;
     
+    /**
+     * 上次轮询返回的游标，只返回ID更大的消息
+     */
+    private Long lastMessageId;
+    
+    /**
+     * 客户端已收到的最大消息ID，长轮询只在有更大ID的消息时提前返回
+     */
+    private Long deliveredMessageId;
+    
     /**
      * 是否只获取未读消息
      */
@@ -38,6 +49,22 @@ public class MessagePollDTO {
         this.lastMessageTime = lastMessageTime;
     }
     
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+    
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+    
+    public Long getDeliveredMessageId() {
+        return deliveredMessageId;
+    }
+    
+    public void setDeliveredMessageId(Long deliveredMessageId) {
+        this.deliveredMessageId = deliveredMessageId;
+    }
+    
     public Boolean getUnreadOnly() {
         return unreadOnly;
     }
@@ -58,6 +85,8 @@ public class MessagePollDTO {
     public String toString() {
         return "MessagePollDTO{" +
                 "lastMessageTime=" + lastMessageTime +
+                ", lastMessageId=" + lastMessageId +
+                ", deliveredMessageId=" + deliveredMessageId +
                 ", unreadOnly=" + unreadOnly +
                 ", limit=" + limit +
                 '}';
@@ -48,6 +48,17 @@ public interface MessageService {
      * @return 消息列表
      */
     Result<List<MessageVO>> getMessageHistory(Long userId, String conversationId, int page, int size);
+
+    /**
+     * 游标分页获取会话的消息历史
+     *
+     * @param userId 用户ID（用于权限验证）
+     * @param conversationId 会话ID
+     * @param beforeMessageId 游标消息ID，返回该消息之前的消息；为null时返回最新消息
+     * @param size 每页大小
+     * @return 消息列表（按时间升序）
+     */
+    Result<List<MessageVO>> getMessagesBefore(Long userId, String conversationId, Long beforeMessageId, int size);
     
     /**
      * 标记消息为已读
@@ -57,6 +68,15 @@ public interface MessageService {
      * @return 操作结果
      */
     Result<Void> markMessagesAsRead(Long userId, String conversationId);
+
+    /**
+     * 删除消息（仅发送者可删除）
+     *
+     * @param userId 用户ID
+     * @param messageId 消息ID
+     * @return 操作结果
+     */
+    Result<Void> deleteMessage(Long userId, Long messageId);
     
     /**
      * 获取用户的新消息（用于轮询）
@@ -53,6 +53,15 @@ public interface RealtimeMessageService {
      */
     Result<Boolean> hasNewMessages(Long userId, Long lastCheckTime);
 
+    /**
+     * 按消息ID游标检查用户是否有新消息
+     *
+     * @param userId 用户ID
+     * @param lastMessageId 客户端已收到的最后一条消息ID
+     * @return 是否有新消息
+     */
+    Result<Boolean> hasNewMessagesAfter(Long userId, Long lastMessageId);
+
     /**
      * 通知用户有新消息（用于消息发送后的实时推送）
      *
@@ -1,6 +1,9 @@
 package com.shiwu.message.service.impl;
 
 import com.shiwu.common.result.Result;
+import com.shiwu.message.cache.KnownConversationCache;
+import com.shiwu.message.cache.MessageTailCache;
+import com.shiwu.message.cache.PresenceTracker;
 import com.shiwu.message.dao.ConversationDao;
 import com.shiwu.message.dao.MessageDao;
 import com.shiwu.message.dto.MessageSendDTO;
@@ -19,6 +22,7 @@ import org.slf4j.LoggerFactory;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 消息服务实现类
@@ -39,21 +43,43 @@ public class MessageServiceImpl implements MessageService {
     private final ConversationDao conversationDao;
     private final NotificationService notificationService;
     private final UserDao userDao;
+    private final MessageTailCache messageTailCache;
+    private final KnownConversationCache knownConversationCache;
+    private final PresenceTracker presenceTracker = PresenceTracker.getInstance();
 
     public MessageServiceImpl() {
         this.messageDao = new MessageDao();
         this.conversationDao = new ConversationDao();
         this.notificationService = new NotificationServiceImpl();
         this.userDao = new UserDao();
+        this.messageTailCache = MessageTailCache.getInstance();
+        this.knownConversationCache = KnownConversationCache.getInstance();
     }
 
     // 用于测试的构造函数
     public MessageServiceImpl(MessageDao messageDao, ConversationDao conversationDao,
                             NotificationService notificationService, UserDao userDao) {
+        this(messageDao, conversationDao, notificationService, userDao, MessageTailCache.getInstance());
+    }
+
+    // 用于测试的构造函数（可注入独立的消息尾部缓存）
+    public MessageServiceImpl(MessageDao messageDao, ConversationDao conversationDao,
+                            NotificationService notificationService, UserDao userDao,
+                            MessageTailCache messageTailCache) {
+        this(messageDao, conversationDao, notificationService, userDao, messageTailCache,
+                KnownConversationCache.getInstance());
+    }
+
+    // 用于测试的构造函数（可注入独立的消息尾部缓存和已知会话缓存）
+    public MessageServiceImpl(MessageDao messageDao, ConversationDao conversationDao,
+                            NotificationService notificationService, UserDao userDao,
+                            MessageTailCache messageTailCache, KnownConversationCache knownConversationCache) {
         this.messageDao = messageDao;
         this.conversationDao = conversationDao;
         this.notificationService = notificationService;
         this.userDao = userDao;
+        this.messageTailCache = messageTailCache;
+        this.knownConversationCache = knownConversationCache;
     }
     
     @Override
@@ -75,20 +101,7 @@ public class MessageServiceImpl implements MessageService {
                 return Result.error("不能给自己发送消息");
             }
             
-            // 创建或获取会话
             String conversationId = generateConversationId(senderId, dto.getReceiverId(), dto.getProductId());
-            Conversation conversation = conversationDao.findConversationById(conversationId);
-
-            if (conversation == null) {
-                // 创建新会话
-                conversation = new Conversation(conversationId, senderId, dto.getReceiverId(), dto.getProductId());
-                Long newConversationId = conversationDao.insertConversation(conversation);
-                if (newConversationId == null) {
-                    logger.error("创建会话失败: conversationId={}", conversationId);
-                    return Result.error("创建会话失败");
-                }
-                conversation.setId(newConversationId);
-            }
             
             // 创建消息
             Message message = new Message();
@@ -101,16 +114,20 @@ public class MessageServiceImpl implements MessageService {
             message.setIsRead(false);
             message.setCreateTime(LocalDateTime.now());
             
-            // 保存消息
-            Long messageId = messageDao.insertMessage(message);
+            // 在同一事务中保存消息、创建或更新会话并递增接收者未读数
+            boolean knownConversation = knownConversationCache.contains(conversationId);
+            boolean conversationCreated = messageDao.insertMessageWithConversation(message, knownConversation);
+            Long messageId = message.getId();
             if (messageId == null) {
                 logger.error("保存消息失败: senderId={}, receiverId={}", senderId, dto.getReceiverId());
                 return Result.error("保存消息失败");
             }
-            message.setId(messageId);
-            
-            // 更新会话信息
-            updateConversationAfterMessage(conversation, message, senderId);
+            knownConversationCache.add(conversationId);
+            if (conversationCreated) {
+                // 新会话没有历史消息，直接放入缓存
+                messageTailCache.initEmpty(conversationId);
+            }
+            messageTailCache.append(message);
 
             // Task4_3_1_2: 创建消息通知
             createMessageNotification(message);
@@ -145,9 +162,17 @@ public class MessageServiceImpl implements MessageService {
             List<Conversation> conversations = conversationDao.findConversationsByUserId(userId, null, null, offset, size);
             
             List<ConversationVO> conversationVOs = new ArrayList<>();
+            List<Long> otherPartyIds = new ArrayList<>(conversations.size());
             for (Conversation conversation : conversations) {
                 ConversationVO vo = convertToConversationVO(conversation, userId);
                 conversationVOs.add(vo);
+                otherPartyIds.add(otherParty(conversation, userId));
+            }
+            
+            // 批量查询对方用户的在线状态
+            Set<Long> online = presenceTracker.onlineAmong(otherPartyIds);
+            for (int i = 0; i < conversationVOs.size(); i++) {
+                conversationVOs.get(i).setOtherPartyOnline(online.contains(otherPartyIds.get(i)));
             }
             
             logger.info("获取会话列表成功: userId={}, count={}", userId, conversationVOs.size());
@@ -177,7 +202,13 @@ public class MessageServiceImpl implements MessageService {
             if (size < 1 || size > 100) size = 50;
             
             int offset = (page - 1) * size;
-            List<Message> messages = messageDao.findMessagesByConversationId(conversationId, offset, size);
+            List<Message> messages = messageTailCache.getPage(conversationId, offset, size);
+            if (messages == null && seedMessageTail(conversationId)) {
+                messages = messageTailCache.getPage(conversationId, offset, size);
+            }
+            if (messages == null) {
+                messages = messageDao.findMessagesByConversationId(conversationId, offset, size);
+            }
             
             List<MessageVO> messageVOs = new ArrayList<>();
             for (Message message : messages) {
@@ -196,6 +227,47 @@ public class MessageServiceImpl implements MessageService {
         }
     }
     
+    @Override
+    public Result<List<MessageVO>> getMessagesBefore(Long userId, String conversationId, Long beforeMessageId, int size) {
+        try {
+            if (userId == null || conversationId == null || conversationId.trim().isEmpty()) {
+                logger.warn("游标获取消息历史失败: 参数为空");
+                return Result.error("参数不能为空");
+            }
+
+            // 检查权限
+            if (!hasConversationPermission(userId, conversationId)) {
+                logger.warn("游标获取消息历史失败: 用户{}无权限访问会话{}", userId, conversationId);
+                return Result.error("无权限访问该会话");
+            }
+
+            if (size < 1 || size > 100) size = 50;
+            if (beforeMessageId != null && beforeMessageId <= 0) beforeMessageId = null;
+
+            List<Message> messages = messageTailCache.getBefore(conversationId, beforeMessageId, size);
+            if (messages == null && seedMessageTail(conversationId)) {
+                messages = messageTailCache.getBefore(conversationId, beforeMessageId, size);
+            }
+            if (messages == null) {
+                messages = messageDao.findMessagesBeforeId(conversationId, beforeMessageId, size);
+            }
+
+            List<MessageVO> messageVOs = new ArrayList<>();
+            for (Message message : messages) {
+                messageVOs.add(convertToMessageVO(message));
+            }
+
+            logger.info("游标获取消息历史成功: userId={}, conversationId={}, beforeMessageId={}, count={}",
+                       userId, conversationId, beforeMessageId, messageVOs.size());
+
+            return Result.success(messageVOs);
+
+        } catch (Exception e) {
+            logger.error("游标获取消息历史时发生异常: userId={}, conversationId={}", userId, conversationId, e);
+            return Result.error("获取消息历史失败");
+        }
+    }
+
     @Override
     public Result<Void> markMessagesAsRead(Long userId, String conversationId) {
         try {
@@ -216,6 +288,7 @@ public class MessageServiceImpl implements MessageService {
                 logger.warn("标记消息已读失败: conversationId={}, userId={}", conversationId, userId);
                 return Result.error("标记消息已读失败");
             }
+            messageTailCache.markRead(conversationId, userId);
             
             // 更新会话的未读数量
             conversationDao.updateUnreadCount(conversationId, userId, 0);
@@ -229,6 +302,41 @@ public class MessageServiceImpl implements MessageService {
         }
     }
     
+    @Override
+    public Result<Void> deleteMessage(Long userId, Long messageId) {
+        try {
+            if (userId == null || messageId == null) {
+                logger.warn("删除消息失败: 参数为空");
+                return Result.error("参数不能为空");
+            }
+
+            Message message = messageDao.findMessageById(messageId);
+            if (message == null) {
+                logger.warn("删除消息失败: 消息不存在, messageId={}", messageId);
+                return Result.error("消息不存在");
+            }
+
+            if (!userId.equals(message.getSenderId())) {
+                logger.warn("删除消息失败: 用户{}不是消息{}的发送者", userId, messageId);
+                return Result.error("只能删除自己发送的消息");
+            }
+
+            boolean success = messageDao.deleteMessage(messageId);
+            if (!success) {
+                logger.warn("删除消息失败: messageId={}", messageId);
+                return Result.error("删除消息失败");
+            }
+            messageTailCache.remove(message.getConversationId(), messageId);
+
+            logger.info("删除消息成功: userId={}, messageId={}", userId, messageId);
+            return Result.success(null);
+
+        } catch (Exception e) {
+            logger.error("删除消息时发生异常: userId={}, messageId={}", userId, messageId, e);
+            return Result.error("删除消息失败");
+        }
+    }
+
     @Override
     public Result<List<MessageVO>> getNewMessages(Long userId, Long lastMessageTime) {
         try {
@@ -305,6 +413,7 @@ public class MessageServiceImpl implements MessageService {
                 conversation.setId(newConversationId);
                 logger.info("创建新会话成功: conversationId={}", conversationId);
             }
+            knownConversationCache.add(conversationId);
             
             ConversationVO conversationVO = convertToConversationVO(conversation, participant1Id);
             return Result.success(conversationVO);
@@ -322,11 +431,17 @@ public class MessageServiceImpl implements MessageService {
             return false;
         }
         
+        // 会话ID中包含双方用户ID，已知存在的会话无需再查询数据库
+        if (knownConversationCache.contains(conversationId)) {
+            return isParticipantOf(userId, conversationId);
+        }
+        
         try {
             Conversation conversation = conversationDao.findConversationById(conversationId);
             if (conversation == null) {
                 return false;
             }
+            knownConversationCache.add(conversationId);
             
             return userId.equals(conversation.getParticipant1Id()) || 
                    userId.equals(conversation.getParticipant2Id());
@@ -390,9 +505,15 @@ public class MessageServiceImpl implements MessageService {
             
             boolean success = conversationDao.updateStatus(conversationId, status);
             if (!success) {
+                // 会话不存在或已删除，不能再按已知会话处理
+                knownConversationCache.remove(conversationId);
                 logger.warn("更新会话状态失败: conversationId={}, status={}", conversationId, status);
                 return Result.error("更新会话状态失败");
             }
+            if (!"ACTIVE".equals(status)) {
+                // 归档或屏蔽的会话移出已知会话缓存，之后的访问重新查询数据库
+                knownConversationCache.remove(conversationId);
+            }
             
             logger.info("更新会话状态成功: userId={}, conversationId={}, status={}", 
                        userId, conversationId, status);
@@ -421,33 +542,34 @@ public class MessageServiceImpl implements MessageService {
     }
     
     /**
-     * 更新会话信息（在发送消息后）
+     * 从数据库加载会话最新的消息填充尾部缓存
+     * @return 是否加载成功
      */
-    private void updateConversationAfterMessage(Conversation conversation, Message message, Long senderId) {
+    private boolean seedMessageTail(String conversationId) {
         try {
-            // 更新最后消息信息
-            conversationDao.updateLastMessage(conversation.getConversationId(),
-                                            message.getContent(),
-                                            message.getCreateTime());
-
-            // 更新未读数量
-            Long receiverId = senderId.equals(conversation.getParticipant1Id()) ?
-                             conversation.getParticipant2Id() : conversation.getParticipant1Id();
-
-            // 获取当前未读数量并加1
-            int currentUnreadCount = 0;
-            if (receiverId.equals(conversation.getParticipant1Id())) {
-                currentUnreadCount = conversation.getUnreadCount1() + 1;
-            } else {
-                currentUnreadCount = conversation.getUnreadCount2() + 1;
-            }
-
-            conversationDao.updateUnreadCount(conversation.getConversationId(), receiverId, currentUnreadCount);
-
+            long stamp = messageTailCache.stamp(conversationId);
+            int totalCount = messageDao.countMessagesByConversationId(conversationId);
+            List<Message> latest = messageDao.findLatestMessagesByConversationId(conversationId,
+                    messageTailCache.getTailCapacity());
+            messageTailCache.seed(conversationId, stamp, latest, totalCount);
+            return messageTailCache.isCached(conversationId);
         } catch (Exception e) {
-            logger.error("更新会话信息失败: conversationId={}", conversation.getConversationId(), e);
+            logger.warn("加载会话消息缓存失败: conversationId={}, error={}", conversationId, e.getMessage());
+            return false;
         }
     }
+
+    /**
+     * 根据会话ID判断用户是否为会话参与者（会话ID格式: smallerId_largerId[_productId]）
+     */
+    private boolean isParticipantOf(Long userId, String conversationId) {
+        String[] parts = conversationId.split("_");
+        if (parts.length < 2) {
+            return false;
+        }
+        String userIdStr = String.valueOf(userId);
+        return userIdStr.equals(parts[0]) || userIdStr.equals(parts[1]);
+    }
     
     /**
      * 转换Message为MessageVO
@@ -489,6 +611,14 @@ public class MessageServiceImpl implements MessageService {
         return vo;
     }
     
+    /**
+     * 会话中除当前用户外的另一方
+     */
+    private Long otherParty(Conversation conversation, Long currentUserId) {
+        return currentUserId.equals(conversation.getParticipant1Id())
+                ? conversation.getParticipant2Id() : conversation.getParticipant1Id();
+    }
+    
     /**
      * 验证状态值是否有效
      */
@@ -1,6 +1,7 @@
 package com.shiwu.message.service.impl;
 
 import com.shiwu.common.result.Result;
+import com.shiwu.message.cache.PresenceTracker;
 import com.shiwu.message.dao.ConversationDao;
 import com.shiwu.message.dao.MessageDao;
 import com.shiwu.message.dto.MessagePollDTO;
@@ -15,9 +16,8 @@ import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 实时消息服务实现类
@@ -37,24 +37,24 @@ public class RealtimeMessageServiceImpl implements RealtimeMessageService {
     
     // 轮询间隔（毫秒）
     private static final long POLL_INTERVAL_MS = 1000;
-
-    // 用户活跃超时时间（毫秒）- 5分钟
-    private static final long ACTIVE_TIMEOUT = 5 * 60 * 1000;
-    
-    // 在线用户计数器
-    private static final AtomicInteger onlineUserCount = new AtomicInteger(0);
     
-    // 用户最后活跃时间记录
-    private static final ConcurrentHashMap<Long, Long> userLastActiveTime = new ConcurrentHashMap<>();
+    // 单次轮询默认/最大返回的消息数量
+    private static final int DEFAULT_POLL_LIMIT = 50;
+    private static final int MAX_POLL_LIMIT = 100;
     
+    // 游标安全窗口（毫秒），需大于发送消息事务的最长耗时
+    private static final long CURSOR_SAFETY_LAG_MILLIS = 5000;
+
     private final MessageDao messageDao;
     private final ConversationDao conversationDao;
     private final MessageService messageService;
+    private final PresenceTracker presenceTracker;
     
     public RealtimeMessageServiceImpl() {
         this.messageDao = new MessageDao();
         this.conversationDao = new ConversationDao();
         this.messageService = new MessageServiceImpl();
+        this.presenceTracker = PresenceTracker.getInstance();
     }
     
     // 用于测试的构造函数
@@ -62,6 +62,7 @@ public class RealtimeMessageServiceImpl implements RealtimeMessageService {
         this.messageDao = messageDao;
         this.conversationDao = conversationDao;
         this.messageService = messageService;
+        this.presenceTracker = PresenceTracker.getInstance();
     }
     
     @Override
@@ -80,14 +81,39 @@ public class RealtimeMessageServiceImpl implements RealtimeMessageService {
                 pollDTO = new MessagePollDTO();
             }
             
-            Long lastMessageTime = pollDTO.getLastMessageTime();
-            if (lastMessageTime == null || lastMessageTime <= 0) {
-                lastMessageTime = System.currentTimeMillis() - 60000; // 默认获取最近1分钟的消息
-            }
+            int limit = normalizePollLimit(pollDTO.getLimit());
+            boolean unreadOnly = Boolean.TRUE.equals(pollDTO.getUnreadOnly());
+            Long lastMessageId = pollDTO.getLastMessageId();
             
             // 获取新消息
-            LocalDateTime lastTime = LocalDateTime.now().minusSeconds((System.currentTimeMillis() - lastMessageTime) / 1000);
-            List<Message> newMessages = messageDao.findNewMessagesByUserId(userId, lastTime);
+            LocalDateTime settledBefore = LocalDateTime.now().minusNanos(CURSOR_SAFETY_LAG_MILLIS * 1_000_000L);
+            List<Message> newMessages;
+            long nextMessageId;
+            if (lastMessageId != null && lastMessageId >= 0) {
+                // 按消息ID游标增量获取
+                newMessages = messageDao.findNewMessagesAfterId(userId, lastMessageId, unreadOnly, limit);
+                nextMessageId = settledCursor(lastMessageId, newMessages, settledBefore);
+            } else {
+                // 兼容未携带游标的客户端：按时间窗口获取，并下发游标供后续轮询使用
+                Long lastMessageTime = pollDTO.getLastMessageTime();
+                if (lastMessageTime == null || lastMessageTime <= 0) {
+                    lastMessageTime = System.currentTimeMillis() - 60000; // 默认获取最近1分钟的消息
+                }
+                LocalDateTime lastTime = LocalDateTime.now().minusSeconds((System.currentTimeMillis() - lastMessageTime) / 1000);
+                newMessages = new ArrayList<>(messageDao.findNewMessagesByUserId(userId, lastTime));
+                // 按ID排序后截断，被截掉的消息ID都大于游标，下次轮询可以取到
+                newMessages.sort(Comparator.comparing(Message::getId));
+                if (newMessages.size() > limit) {
+                    newMessages = newMessages.subList(0, limit);
+                }
+                nextMessageId = newMessages.isEmpty()
+                        ? messageDao.findMaxMessageIdByReceiverId(userId, settledBefore)
+                        : settledCursor(newMessages.get(0).getId() - 1, newMessages, settledBefore);
+            }
+            long deliveredMessageId = pollDTO.getDeliveredMessageId() != null ? pollDTO.getDeliveredMessageId() : 0L;
+            for (Message message : newMessages) {
+                deliveredMessageId = Math.max(deliveredMessageId, message.getId());
+            }
             
             // 转换为VO
             List<MessageVO> messageVOs = new ArrayList<>();
@@ -104,9 +130,12 @@ public class RealtimeMessageServiceImpl implements RealtimeMessageService {
             pollVO.setNewMessages(messageVOs);
             pollVO.setTotalUnreadCount(totalUnreadCount);
             pollVO.setCurrentTime(System.currentTimeMillis());
+            pollVO.setLastMessageId(nextMessageId);
+            pollVO.setDeliveredMessageId(deliveredMessageId);
+            pollVO.setHasMore(newMessages.size() >= limit);
             
-            logger.debug("轮询新消息成功: userId={}, newCount={}, totalUnread={}", 
-                        userId, messageVOs.size(), totalUnreadCount);
+            logger.debug("轮询新消息成功: userId={}, newCount={}, totalUnread={}, lastMessageId={}", 
+                        userId, messageVOs.size(), totalUnreadCount, nextMessageId);
             
             return Result.success(pollVO);
             
@@ -134,11 +163,15 @@ public class RealtimeMessageServiceImpl implements RealtimeMessageService {
             long startTime = System.currentTimeMillis();
             long timeoutMs = timeoutSeconds * 1000L;
             
+            // 安全窗口内的消息会随游标重复返回，只有客户端尚未收到的消息才提前结束长轮询
+            Long delivered = pollDTO != null ? pollDTO.getDeliveredMessageId() : null;
+            
             // 长轮询循环
             while (System.currentTimeMillis() - startTime < timeoutMs) {
                 // 检查是否有新消息
                 Result<MessagePollVO> result = pollNewMessages(userId, pollDTO);
-                if (result.isSuccess() && result.getData().getHasNewMessages()) {
+                if (result.isSuccess() && result.getData().getHasNewMessages()
+                        && (delivered == null || result.getData().getDeliveredMessageId() > delivered)) {
                     logger.debug("长轮询找到新消息: userId={}, elapsed={}ms", 
                                userId, System.currentTimeMillis() - startTime);
                     return result;
@@ -228,6 +261,34 @@ public class RealtimeMessageServiceImpl implements RealtimeMessageService {
         }
     }
     
+    @Override
+    public Result<Boolean> hasNewMessagesAfter(Long userId, Long lastMessageId) {
+        try {
+            if (userId == null) {
+                logger.warn("检查新消息失败: 用户ID为空");
+                return Result.error("用户ID不能为空");
+            }
+            
+            if (lastMessageId == null || lastMessageId < 0) {
+                lastMessageId = 0L;
+            }
+            
+            // 更新用户活跃时间
+            updateUserActiveTime(userId);
+            
+            boolean hasNew = messageDao.existsNewMessageAfterId(userId, lastMessageId);
+            
+            logger.debug("按游标检查新消息完成: userId={}, lastMessageId={}, hasNew={}", 
+                        userId, lastMessageId, hasNew);
+            
+            return Result.success(hasNew);
+            
+        } catch (Exception e) {
+            logger.error("检查新消息时发生异常: userId={}", userId, e);
+            return Result.error("检查新消息失败");
+        }
+    }
+    
     @Override
     public void notifyNewMessage(Long userId, Long messageId) {
         try {
@@ -264,13 +325,7 @@ public class RealtimeMessageServiceImpl implements RealtimeMessageService {
      * @return 是否在线
      */
     private boolean isUserOnline(Long userId) {
-        Long lastActiveTime = userLastActiveTime.get(userId);
-        if (lastActiveTime == null) {
-            return false;
-        }
-
-        long currentTime = System.currentTimeMillis();
-        return (currentTime - lastActiveTime) <= ACTIVE_TIMEOUT;
+        return presenceTracker.isOnline(userId);
     }
 
     /**
@@ -286,40 +341,45 @@ public class RealtimeMessageServiceImpl implements RealtimeMessageService {
     
     @Override
     public int getOnlineUserCount() {
-        // 清理过期的用户活跃记录
-        cleanupInactiveUsers();
-        return onlineUserCount.get();
+        return presenceTracker.onlineCount();
     }
     
     /**
      * 更新用户活跃时间
      */
     private void updateUserActiveTime(Long userId) {
-        Long currentTime = System.currentTimeMillis();
-        Long lastTime = userLastActiveTime.put(userId, currentTime);
-        
-        // 如果是新用户或者用户离线超过5分钟，增加在线用户数
-        if (lastTime == null || currentTime - lastTime > 300000) {
-            onlineUserCount.incrementAndGet();
-            logger.debug("用户上线: userId={}, onlineCount={}", userId, onlineUserCount.get());
-        }
+        presenceTracker.touch(userId);
     }
     
     /**
-     * 清理不活跃的用户
+     * 计算下次轮询的游标：只越过创建时间早于安全窗口的消息
+     *
+     * 自增ID在分配时确定、提交时才可见，ID较小的消息可能晚于ID较大的消息提交。
+     * 游标停在第一条仍在安全窗口内的消息之前，窗口内晚提交的消息在下次轮询时仍能取到；
+     * 窗口内的消息因此可能被重复返回，客户端按消息ID去重。
+     *
+     * @param cursor 本次轮询使用的游标
+     * @param messages 本次返回的消息（按ID升序）
+     * @param settledBefore 安全窗口起点，创建时间早于该时间的消息视为已稳定
      */
-    private void cleanupInactiveUsers() {
-        long currentTime = System.currentTimeMillis();
-        long inactiveThreshold = 300000; // 5分钟不活跃视为离线
-        
-        userLastActiveTime.entrySet().removeIf(entry -> {
-            if (currentTime - entry.getValue() > inactiveThreshold) {
-                onlineUserCount.decrementAndGet();
-                logger.debug("用户离线: userId={}, onlineCount={}", entry.getKey(), onlineUserCount.get());
-                return true;
+    static long settledCursor(long cursor, List<Message> messages, LocalDateTime settledBefore) {
+        for (Message message : messages) {
+            if (message.getCreateTime() == null || message.getCreateTime().isAfter(settledBefore)) {
+                break;
             }
-            return false;
-        });
+            cursor = message.getId();
+        }
+        return cursor;
+    }
+    
+    /**
+     * 规范化单次轮询返回的消息数量
+     */
+    private int normalizePollLimit(Integer limit) {
+        if (limit == null || limit < 1) {
+            return DEFAULT_POLL_LIMIT;
+        }
+        return Math.min(limit, MAX_POLL_LIMIT);
     }
     
     /**
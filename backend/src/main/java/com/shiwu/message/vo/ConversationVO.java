@@ -77,6 +77,11 @@ public class ConversationVO {
      */
     private Integer unreadCount;
     
+    /**
+     * 对方用户是否在线
+     */
+    private Boolean otherPartyOnline;
+    
     /**
      * 会话状态
      */
@@ -210,6 +215,14 @@ public class ConversationVO {
         this.unreadCount = unreadCount;
     }
     
+    public Boolean getOtherPartyOnline() {
+        return otherPartyOnline;
+    }
+    
+    public void setOtherPartyOnline(Boolean otherPartyOnline) {
+        this.otherPartyOnline = otherPartyOnline;
+    }
+    
     public String getStatus() {
         return status;
     }
@@ -238,6 +251,7 @@ public class ConversationVO {
                 ", lastMessage='" + lastMessage + '\'' +
                 ", lastMessageTime=" + lastMessageTime +
                 ", unreadCount=" + unreadCount +
+                ", otherPartyOnline=" + otherPartyOnline +
                 ", status='" + status + '\'' +
                 ", createTime=" + createTime +
                 '}';
@@ -32,10 +32,27 @@ public class MessagePollVO {
      */
     private Boolean hasNewMessages;
     
+    /**
+     * 下次轮询使用的游标：本次返回的、创建时间早于安全窗口的最后一条消息ID，
+     * 窗口内的消息会在下次轮询时再次返回，客户端按消息ID去重
+     */
+    private Long lastMessageId;
+    
+    /**
+     * 客户端已收到的最大消息ID（含本次返回的消息），长轮询时回传
+     */
+    private Long deliveredMessageId;
+    
+    /**
+     * 是否还有未返回的新消息（本次返回数量达到limit上限）
+     */
+    private Boolean hasMore;
+    
     public MessagePollVO() {
         this.currentTime = System.currentTimeMillis();
         this.hasNewMessages = false;
         this.totalUnreadCount = 0;
+        this.hasMore = false;
     }
     
     public List<MessageVO> getNewMessages() {
@@ -71,6 +88,30 @@ public class MessagePollVO {
         this.hasNewMessages = hasNewMessages;
     }
     
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+    
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+    
+    public Long getDeliveredMessageId() {
+        return deliveredMessageId;
+    }
+    
+    public void setDeliveredMessageId(Long deliveredMessageId) {
+        this.deliveredMessageId = deliveredMessageId;
+    }
+    
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(Boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+    
     @Override
     public String toString() {
         return "MessagePollVO{" +
@@ -78,6 +119,9 @@ public class MessagePollVO {
                 ", currentTime=" + currentTime +
                 ", totalUnreadCount=" + totalUnreadCount +
                 ", hasNewMessages=" + hasNewMessages +
+                ", lastMessageId=" + lastMessageId +
+                ", deliveredMessageId=" + deliveredMessageId +
+                ", hasMore=" + hasMore +
                 '}';
     }
 }
@@ -8,7 +8,9 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 //import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 通知数据访问对象
@@ -201,6 +203,59 @@ public class NotificationDao {
         }
     }
     
+    /**
+     * 在指定接收者中找出已收到同一来源通知的用户（走 idx_source_type_id 索引）
+     * 用于通知扩散重试时去重
+     * 
+     * @param notificationType 通知类型
+     * @param sourceType 来源类型
+     * @param sourceId 来源实体ID
+     * @param recipientIds 候选接收者ID
+     * @return 已存在通知的接收者ID
+     */
+    public Set<Long> findExistingRecipientIds(String notificationType, String sourceType, Long sourceId, List<Long> recipientIds) {
+        Set<Long> existing = new HashSet<>();
+        if (recipientIds == null || recipientIds.isEmpty() || sourceId == null) {
+            return existing;
+        }
+        
+        StringBuilder sql = new StringBuilder("SELECT recipient_id FROM notification " +
+                "WHERE source_type = ? AND source_id = ? AND notification_type = ? AND recipient_id IN (");
+        for (int i = 0; i < recipientIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            pstmt = conn.prepareStatement(sql.toString());
+            pstmt.setString(1, sourceType);
+            pstmt.setLong(2, sourceId);
+            pstmt.setString(3, notificationType);
+            for (int i = 0; i < recipientIds.size(); i++) {
+                pstmt.setLong(i + 4, recipientIds.get(i));
+            }
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                existing.add(rs.getLong(1));
+            }
+            return existing;
+            
+        } catch (SQLException e) {
+            logger.error("查询已存在通知的接收者失败: sourceType={}, sourceId={}, error={}", sourceType, sourceId, e.getMessage(), e);
+            throw new RuntimeException("查询已存在通知的接收者时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+    
     /**
      * 根据用户ID获取通知列表
      * 
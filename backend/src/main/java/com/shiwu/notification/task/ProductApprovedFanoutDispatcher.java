@@ -0,0 +1,340 @@
+package com.shiwu.notification.task;
+
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.notification.dao.NotificationDao;
+import com.shiwu.notification.model.Notification;
+import com.shiwu.user.dao.UserDao;
+import com.shiwu.user.dao.UserFollowDao;
+import com.shiwu.user.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品审核通过粉丝通知分发器
+ *
+ * 管理员审核通过商品时在同一事务中写入本地任务，由任务执行器调用 execute 按粉丝ID分段读取卖家的粉丝、
+ * 分批写入通知，审核接口的响应时间不再随卖家粉丝数量增长。每段写入前先排除已收到该商品通知的粉丝，
+ * 失败的分段按指数退避重试，仍未完成的任务由任务执行器稍后重试，重试或重复执行都不会产生重复通知。
+ */
+public class ProductApprovedFanoutDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ProductApprovedFanoutDispatcher.class);
+
+    /**
+     * 每段读取的粉丝数量（同时是每批写入的通知上限）
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * 每段最多尝试次数
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * 首次重试前的等待时间（毫秒），之后每次翻倍
+     */
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 1000;
+
+    /**
+     * 保留进度的已结束任务数量
+     */
+    private static final int MAX_FINISHED_TASKS = 100;
+
+    /**
+     * 通知过期时间（小时）
+     */
+    private static final int EXPIRE_AFTER_HOURS = 168;
+
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * 单个商品的扩散进度
+     */
+    static final class Progress {
+        final Long productId;
+        final Long sellerId;
+        final String productTitle;
+        final LocalDateTime submitTime = LocalDateTime.now();
+        volatile Status status = Status.QUEUED;
+        volatile long lastFollowerId;
+        volatile long scannedCount;
+        volatile long createdCount;
+        volatile long skippedCount;
+        volatile int retryCount;
+        volatile String error;
+        volatile LocalDateTime finishTime;
+
+        Progress(Long productId, Long sellerId, String productTitle) {
+            this.productId = productId;
+            this.sellerId = sellerId;
+            this.productTitle = productTitle;
+        }
+
+        boolean isActive() {
+            return status == Status.QUEUED || status == Status.RUNNING;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("productId", productId);
+            map.put("sellerId", sellerId);
+            map.put("status", status.name());
+            map.put("scannedCount", scannedCount);
+            map.put("createdCount", createdCount);
+            map.put("skippedCount", skippedCount);
+            map.put("lastFollowerId", lastFollowerId);
+            map.put("retryCount", retryCount);
+            map.put("error", error);
+            map.put("submitTime", submitTime);
+            map.put("finishTime", finishTime);
+            return map;
+        }
+    }
+
+    private static volatile ProductApprovedFanoutDispatcher instance;
+
+    private final UserFollowDao userFollowDao;
+    private final NotificationDao notificationDao;
+    private final UserDao userDao;
+    private final int chunkSize;
+    private final long retryBackoffMillis;
+
+    private final Map<Long, Progress> tasks = new ConcurrentHashMap<>();
+    private final Deque<Long> finishedProductIds = new ConcurrentLinkedDeque<>();
+    private final AtomicLong submittedTasks = new AtomicLong();
+    private final AtomicLong duplicateSubmits = new AtomicLong();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+    private final AtomicLong createdNotifications = new AtomicLong();
+    private final AtomicLong skippedNotifications = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    ProductApprovedFanoutDispatcher(UserFollowDao userFollowDao, NotificationDao notificationDao, UserDao userDao,
+                                    int chunkSize, long retryBackoffMillis) {
+        this.userFollowDao = userFollowDao;
+        this.notificationDao = notificationDao;
+        this.userDao = userDao;
+        this.chunkSize = chunkSize;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static ProductApprovedFanoutDispatcher getInstance() {
+        if (instance == null) {
+            synchronized (ProductApprovedFanoutDispatcher.class) {
+                if (instance == null) {
+                    ProductApprovedFanoutDispatcher dispatcher = new ProductApprovedFanoutDispatcher(
+                            new UserFollowDao(), new NotificationDao(), new UserDao(),
+                            DEFAULT_CHUNK_SIZE, DEFAULT_RETRY_BACKOFF_MILLIS);
+                    MetricsRegistry.register("productApprovedFanout", dispatcher::getStats);
+                    instance = dispatcher;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 在当前线程执行商品审核通过的粉丝通知扩散任务，供持久化任务队列调用
+     *
+     * @param productId 商品ID
+     * @param sellerId 卖家ID
+     * @param productTitle 商品标题
+     * @return 是否执行完成；参数无效、同一商品已有进行中的任务或执行失败时返回false
+     */
+    public boolean execute(Long productId, Long sellerId, String productTitle) {
+        if (productId == null || sellerId == null || productTitle == null || productTitle.trim().isEmpty()) {
+            logger.warn("执行通知扩散任务失败: 参数无效 productId={}, sellerId={}", productId, sellerId);
+            return false;
+        }
+
+        Progress progress = new Progress(productId, sellerId, productTitle);
+        Progress current = tasks.compute(productId, (id, old) -> old != null && old.isActive() ? old : progress);
+        if (current != progress) {
+            duplicateSubmits.incrementAndGet();
+            logger.info("商品已有进行中的通知扩散任务，稍后重试: productId={}", productId);
+            return false;
+        }
+        submittedTasks.incrementAndGet();
+        run(progress);
+        return progress.status == Status.COMPLETED;
+    }
+
+    /**
+     * 获取商品最近一次扩散任务的进度
+     * @param productId 商品ID
+     * @return 进度信息，没有任务记录时返回null
+     */
+    public Map<String, Object> getProgress(Long productId) {
+        Progress progress = productId != null ? tasks.get(productId) : null;
+        return progress != null ? progress.toMap() : null;
+    }
+
+    /**
+     * 获取分发器指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("submittedTasks", submittedTasks.get());
+        stats.put("duplicateSubmits", duplicateSubmits.get());
+        stats.put("completedTasks", completedTasks.get());
+        stats.put("failedTasks", failedTasks.get());
+        stats.put("createdNotifications", createdNotifications.get());
+        stats.put("skippedNotifications", skippedNotifications.get());
+        stats.put("retries", retries.get());
+        List<Map<String, Object>> active = new ArrayList<>();
+        for (Progress progress : tasks.values()) {
+            if (progress.isActive()) {
+                active.add(progress.toMap());
+            }
+        }
+        stats.put("activeTasks", active);
+        return stats;
+    }
+
+    /**
+     * 执行一个扩散任务：逐段读取粉丝并写入通知，进度记录在 Progress 中
+     */
+    void run(Progress progress) {
+        progress.status = Status.RUNNING;
+        long start = System.currentTimeMillis();
+        try {
+            User seller = userDao.findPublicInfoById(progress.sellerId);
+            if (seller == null) {
+                progress.error = "卖家不存在";
+                logger.warn("通知扩散任务失败: 卖家不存在 productId={}, sellerId={}", progress.productId, progress.sellerId);
+                finish(progress, Status.FAILED);
+                return;
+            }
+
+            // 同一任务的所有通知共享标题、内容和过期时间
+            String sellerName = seller.getUsername();
+            Notification template = new Notification();
+            template.setTitle("您关注的 " + sellerName + " 发布了新商品");
+            template.setContent("您关注的卖家 " + sellerName + " 刚刚发布了新商品《" + progress.productTitle + "》，快来看看吧！");
+            template.setRelatedUserName(sellerName);
+            template.setExpireAfterHours(EXPIRE_AFTER_HOURS);
+
+            while (processNextChunk(progress, template)) {
+                // 继续处理下一段
+            }
+
+            finish(progress, Status.COMPLETED);
+            logger.info("商品审核通过通知扩散完成: productId={}, sellerId={}, scanned={}, created={}, skipped={}, 耗时{}ms",
+                    progress.productId, progress.sellerId, progress.scannedCount, progress.createdCount,
+                    progress.skippedCount, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            progress.error = e.getMessage();
+            logger.error("商品审核通过通知扩散失败: productId={}, lastFollowerId={}, error={}",
+                    progress.productId, progress.lastFollowerId, e.getMessage(), e);
+            finish(progress, Status.FAILED);
+        }
+    }
+
+    /**
+     * 处理下一段粉丝，失败时按退避重试
+     * @return 是否还有后续分段
+     */
+    private boolean processNextChunk(Progress progress, Notification template) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return deliverChunk(progress, template);
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                progress.retryCount++;
+                retries.incrementAndGet();
+                long backoff = retryBackoffMillis << (attempt - 1);
+                logger.warn("通知扩散分段失败，{}ms后重试: productId={}, lastFollowerId={}, attempt={}, error={}",
+                        backoff, progress.productId, progress.lastFollowerId, attempt, e.getMessage());
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    private boolean deliverChunk(Progress progress, Notification template) {
+        List<Long> followerIds = userFollowDao.findFollowerIdsAfter(progress.sellerId, progress.lastFollowerId, chunkSize);
+        if (followerIds.isEmpty()) {
+            return false;
+        }
+
+        // 排除已收到该商品通知的粉丝（上一次尝试已提交但未确认，或同一商品被重复审核通过）
+        Set<Long> existing = notificationDao.findExistingRecipientIds(
+                Notification.TYPE_PRODUCT_APPROVED, Notification.SOURCE_PRODUCT, progress.productId, followerIds);
+
+        List<Notification> notifications = new ArrayList<>(followerIds.size() - existing.size());
+        for (Long followerId : followerIds) {
+            if (!existing.contains(followerId)) {
+                notifications.add(newNotification(progress, template, followerId));
+            }
+        }
+
+        if (!notifications.isEmpty()) {
+            int created = notificationDao.batchCreateNotifications(notifications);
+            if (created != notifications.size()) {
+                throw new IllegalStateException("批量写入通知失败: expected=" + notifications.size() + ", created=" + created);
+            }
+        }
+
+        progress.lastFollowerId = followerIds.get(followerIds.size() - 1);
+        progress.scannedCount += followerIds.size();
+        progress.createdCount += notifications.size();
+        progress.skippedCount += existing.size();
+        createdNotifications.addAndGet(notifications.size());
+        skippedNotifications.addAndGet(existing.size());
+        return followerIds.size() >= chunkSize;
+    }
+
+    private Notification newNotification(Progress progress, Notification template, Long followerId) {
+        Notification notification = new Notification();
+        notification.setRecipientId(followerId);
+        notification.setTitle(template.getTitle());
+        notification.setContent(template.getContent());
+        notification.setNotificationType(Notification.TYPE_PRODUCT_APPROVED);
+        notification.setSourceType(Notification.SOURCE_PRODUCT);
+        notification.setSourceId(progress.productId);
+        notification.setRelatedUserId(progress.sellerId);
+        notification.setRelatedUserName(template.getRelatedUserName());
+        notification.setActionUrl("/product/" + progress.productId);
+        notification.setPriority(Notification.PRIORITY_NORMAL);
+        notification.setExpireTime(template.getExpireTime());
+        return notification;
+    }
+
+    private void finish(Progress progress, Status status) {
+        progress.status = status;
+        progress.finishTime = LocalDateTime.now();
+        if (status == Status.COMPLETED) {
+            completedTasks.incrementAndGet();
+        } else {
+            failedTasks.incrementAndGet();
+        }
+
+        // 只保留最近若干个已结束任务的进度
+        finishedProductIds.addLast(progress.productId);
+        while (finishedProductIds.size() > MAX_FINISHED_TASKS) {
+            Long oldest = finishedProductIds.pollFirst();
+            if (oldest != null) {
+                tasks.computeIfPresent(oldest, (id, p) -> p.isActive() ? p : null);
+            }
+        }
+    }
+}
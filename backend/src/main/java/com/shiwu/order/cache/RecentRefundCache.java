@@ -0,0 +1,98 @@
+package com.shiwu.order.cache;
+
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.order.model.RefundTransaction;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 最近退款缓存
+ *
+ * 退款完成后买家和卖家通常会马上查看退款结果，这里按退款ID和订单ID保存最近的退款，
+ * 数量有上限（按访问顺序淘汰），历史退款从退款流水表中查询。
+ * 只缓存已经提交的退款：工作单元中的退款在提交后才放入缓存
+ */
+public class RecentRefundCache {
+
+    /**
+     * 最多缓存的退款数量
+     */
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private static volatile RecentRefundCache instance;
+
+    private final Map<String, RefundTransaction> byRefundId;
+    private final Map<Long, RefundTransaction> byOrderId;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    RecentRefundCache(final int maxEntries) {
+        this.byRefundId = new LinkedHashMap<String, RefundTransaction>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RefundTransaction> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.byOrderId = new LinkedHashMap<Long, RefundTransaction>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RefundTransaction> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static RecentRefundCache getInstance() {
+        if (instance == null) {
+            synchronized (RecentRefundCache.class) {
+                if (instance == null) {
+                    RecentRefundCache cache = new RecentRefundCache(DEFAULT_MAX_ENTRIES);
+                    MetricsRegistry.register("recentRefundCache", cache::getStats);
+                    instance = cache;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 放入已提交的退款，同一订单的新退款覆盖旧退款
+     */
+    public synchronized void put(RefundTransaction refund) {
+        byRefundId.put(refund.getRefundId(), refund);
+        byOrderId.put(refund.getOrderId(), refund);
+    }
+
+    public synchronized RefundTransaction getByRefundId(String refundId) {
+        return count(byRefundId.get(refundId));
+    }
+
+    public synchronized RefundTransaction getByOrderId(Long orderId) {
+        return count(byOrderId.get(orderId));
+    }
+
+    /**
+     * 获取缓存指标
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("refunds", byRefundId.size());
+        stats.put("orders", byOrderId.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private RefundTransaction count(RefundTransaction refund) {
+        if (refund != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return refund;
+    }
+}
@@ -134,6 +134,7 @@ public class OrderController extends HttpServlet {
 
     /**
      * 处理获取订单列表请求（通用）
+     * 支持 type=buyer|seller、status、cursor、size 查询参数
      */
     private void handleGetOrders(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         // 检查用户是否登录
@@ -145,13 +146,24 @@ public class OrderController extends HttpServlet {
 
         try {
             String type = req.getParameter("type");
+            Integer status;
+            Long cursor;
+            Integer size;
+            try {
+                status = parseIntegerParam(req, "status");
+                cursor = parseLongParam(req, "cursor");
+                size = parseIntegerParam(req, "size");
+            } catch (NumberFormatException e) {
+                sendErrorResponse(resp, OrderErrorCode.INVALID_QUERY_PARAMS, OrderErrorCode.MSG_INVALID_QUERY_PARAMS);
+                return;
+            }
             OrderOperationResult result;
             
             if ("seller".equals(type)) {
-                result = orderService.getSellerOrders(userId);
+                result = orderService.getSellerOrders(userId, status, cursor, size);
             } else {
                 // 默认获取买家订单
-                result = orderService.getBuyerOrders(userId);
+                result = orderService.getBuyerOrders(userId, status, cursor, size);
             }
             
             if (result.isSuccess()) {
@@ -165,6 +177,24 @@ public class OrderController extends HttpServlet {
         }
     }
 
+    /**
+     * 解析可选的整数查询参数
+     * @throws NumberFormatException 参数格式错误
+     */
+    private Integer parseIntegerParam(HttpServletRequest req, String name) {
+        String value = req.getParameter(name);
+        return value == null || value.trim().isEmpty() ? null : Integer.valueOf(value.trim());
+    }
+
+    /**
+     * 解析可选的长整数查询参数
+     * @throws NumberFormatException 参数格式错误
+     */
+    private Long parseLongParam(HttpServletRequest req, String name) {
+        String value = req.getParameter(name);
+        return value == null || value.trim().isEmpty() ? null : Long.valueOf(value.trim());
+    }
+
     /**
      * 处理获取买家订单列表请求
      */
@@ -177,7 +207,14 @@ public class OrderController extends HttpServlet {
         }
 
         try {
-            OrderOperationResult result = orderService.getBuyerOrders(userId);
+            OrderOperationResult result;
+            try {
+                result = orderService.getBuyerOrders(userId, parseIntegerParam(req, "status"),
+                        parseLongParam(req, "cursor"), parseIntegerParam(req, "size"));
+            } catch (NumberFormatException e) {
+                sendErrorResponse(resp, OrderErrorCode.INVALID_QUERY_PARAMS, OrderErrorCode.MSG_INVALID_QUERY_PARAMS);
+                return;
+            }
             if (result.isSuccess()) {
                 sendSuccessResponse(resp, result.getData());
             } else {
@@ -201,7 +238,14 @@ public class OrderController extends HttpServlet {
         }
 
         try {
-            OrderOperationResult result = orderService.getSellerOrders(userId);
+            OrderOperationResult result;
+            try {
+                result = orderService.getSellerOrders(userId, parseIntegerParam(req, "status"),
+                        parseLongParam(req, "cursor"), parseIntegerParam(req, "size"));
+            } catch (NumberFormatException e) {
+                sendErrorResponse(resp, OrderErrorCode.INVALID_QUERY_PARAMS, OrderErrorCode.MSG_INVALID_QUERY_PARAMS);
+                return;
+            }
             if (result.isSuccess()) {
                 sendSuccessResponse(resp, result.getData());
             } else {
@@ -1,7 +1,8 @@
 package com.shiwu.order.dao;
 
+import com.shiwu.common.outbox.OutboxDao;
+import com.shiwu.common.outbox.OutboxJob;
 import com.shiwu.common.util.DBUtil;
-import com.shiwu.common.util.JsonUtil;
 import com.shiwu.order.model.Order;
 import com.shiwu.order.model.OrderVO;
 import com.shiwu.user.model.UserVO;
@@ -11,6 +12,8 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * 订单数据访问对象
@@ -18,12 +21,43 @@ import java.util.List;
 public class OrderDao {
     private static final Logger logger = LoggerFactory.getLogger(OrderDao.class);
 
+    /**
+     * order_status_count.role：买家
+     */
+    private static final int ROLE_BUYER = 0;
+
+    /**
+     * order_status_count.role：卖家
+     */
+    private static final int ROLE_SELLER = 1;
+
+    private static final String ORDER_VO_COLUMNS = "SELECT o.id, o.buyer_id, o.seller_id, o.product_id, o.price_at_purchase, " +
+            "o.product_title_snapshot, o.product_description_snapshot, o.product_image_urls_snapshot, " +
+            "o.status, o.create_time, o.update_time, " +
+            "buyer.username as buyer_username, buyer.nickname as buyer_nickname, buyer.avatar_url as buyer_avatar, " +
+            "seller.username as seller_username, seller.nickname as seller_nickname, seller.avatar_url as seller_avatar " +
+            "FROM trade_order o " +
+            "LEFT JOIN system_user buyer ON o.buyer_id = buyer.id " +
+            "LEFT JOIN system_user seller ON o.seller_id = seller.id ";
+
+    private final OutboxDao outboxDao = new OutboxDao();
+
     /**
      * 创建订单
      * @param order 订单对象
      * @return 创建的订单ID，失败返回null
      */
     public Long createOrder(Order order) {
+        return createOrder(order, null);
+    }
+
+    /**
+     * 创建订单，并在同一事务中写入下单后的本地任务
+     * @param order 订单对象
+     * @param sideEffect 本地任务，可以为null；幂等键为空时使用 任务类型:order:订单ID
+     * @return 创建的订单ID，失败返回null
+     */
+    public Long createOrder(Order order, OutboxJob sideEffect) {
         // 参数验证
         if (order == null) {
             logger.warn("创建订单失败: 订单对象为空");
@@ -52,6 +86,7 @@ public class OrderDao {
 
         try {
             conn = DBUtil.getConnection();
+            conn.setAutoCommit(false);
             pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             pstmt.setLong(1, order.getBuyerId());
             pstmt.setLong(2, order.getSellerId());
@@ -68,13 +103,32 @@ public class OrderDao {
                 rs = pstmt.getGeneratedKeys();
                 if (rs.next()) {
                     orderId = rs.getLong(1);
-                    logger.info("创建订单成功: orderId={}, buyerId={}, sellerId={}, productId={}", 
-                               orderId, order.getBuyerId(), order.getSellerId(), order.getProductId());
                 }
             }
+
+            if (orderId != null) {
+                List<long[]> deltas = new ArrayList<>();
+                deltas.add(new long[]{order.getBuyerId(), ROLE_BUYER, order.getStatus(), 1});
+                deltas.add(new long[]{order.getSellerId(), ROLE_SELLER, order.getStatus(), 1});
+                applyStatusCountDeltas(conn, deltas);
+                if (sideEffect != null) {
+                    if (sideEffect.getIdempotencyKey() == null) {
+                        sideEffect.setIdempotencyKey(sideEffect.getJobType() + ":order:" + orderId);
+                    }
+                    outboxDao.enqueue(conn, sideEffect);
+                }
+                conn.commit();
+                logger.info("创建订单成功: orderId={}, buyerId={}, sellerId={}, productId={}", 
+                           orderId, order.getBuyerId(), order.getSellerId(), order.getProductId());
+            } else {
+                conn.rollback();
+            }
         } catch (SQLException e) {
             logger.error("创建订单失败: {}", e.getMessage(), e);
+            orderId = null;
+            rollbackQuietly(conn);
         } finally {
+            restoreAutoCommit(conn);
             closeResources(conn, pstmt, rs);
         }
         
@@ -144,6 +198,17 @@ public class OrderDao {
      * @return 是否更新成功
      */
     public boolean updateOrderStatus(Long orderId, Integer status) {
+        return updateOrderStatus(orderId, status, null);
+    }
+
+    /**
+     * 更新订单状态，并在同一事务中写入状态变更后的本地任务
+     * @param orderId 订单ID
+     * @param status 新状态
+     * @param sideEffect 本地任务，可以为null；订单不存在时不写入
+     * @return 是否更新成功
+     */
+    public boolean updateOrderStatus(Long orderId, Integer status, OutboxJob sideEffect) {
         // 参数验证
         if (orderId == null) {
             logger.warn("更新订单状态失败: 订单ID为空");
@@ -158,26 +223,60 @@ public class OrderDao {
             return false;
         }
 
+        // 锁定订单行读取原状态，状态与按状态计数在同一事务中更新
+        String lockSql = "SELECT buyer_id, seller_id, status FROM trade_order WHERE id = ? AND is_deleted = 0 FOR UPDATE";
         String sql = "UPDATE trade_order SET status = ?, update_time = NOW() WHERE id = ? AND is_deleted = 0";
 
         Connection conn = null;
         PreparedStatement pstmt = null;
+        ResultSet rs = null;
 
         try {
             conn = DBUtil.getConnection();
+            conn.setAutoCommit(false);
+
+            pstmt = conn.prepareStatement(lockSql);
+            pstmt.setLong(1, orderId);
+            rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                conn.rollback();
+                return false;
+            }
+            long buyerId = rs.getLong("buyer_id");
+            long sellerId = rs.getLong("seller_id");
+            int oldStatus = rs.getInt("status");
+            rs.close();
+            rs = null;
+            pstmt.close();
+
             pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, status);
             pstmt.setLong(2, orderId);
-
             int result = pstmt.executeUpdate();
+
+            if (result > 0 && oldStatus != status) {
+                List<long[]> deltas = new ArrayList<>();
+                deltas.add(new long[]{buyerId, ROLE_BUYER, oldStatus, -1});
+                deltas.add(new long[]{buyerId, ROLE_BUYER, status, 1});
+                deltas.add(new long[]{sellerId, ROLE_SELLER, oldStatus, -1});
+                deltas.add(new long[]{sellerId, ROLE_SELLER, status, 1});
+                applyStatusCountDeltas(conn, deltas);
+            }
+            if (result > 0 && sideEffect != null) {
+                outboxDao.enqueue(conn, sideEffect);
+            }
+            conn.commit();
+
             if (result > 0) {
                 logger.info("更新订单状态成功: orderId={}, status={}", orderId, status);
                 return true;
             }
         } catch (SQLException e) {
             logger.error("更新订单状态失败: orderId={}, status={}, error={}", orderId, status, e.getMessage(), e);
+            rollbackQuietly(conn);
         } finally {
-            closeResources(conn, pstmt, null);
+            restoreAutoCommit(conn);
+            closeResources(conn, pstmt, rs);
         }
         
         return false;
@@ -189,14 +288,7 @@ public class OrderDao {
      * @return 订单列表
      */
     public List<OrderVO> findOrdersByBuyerId(Long buyerId) {
-        String sql = "SELECT o.id, o.buyer_id, o.seller_id, o.product_id, o.price_at_purchase, " +
-                    "o.product_title_snapshot, o.product_description_snapshot, o.product_image_urls_snapshot, " +
-                    "o.status, o.create_time, o.update_time, " +
-                    "buyer.username as buyer_username, buyer.nickname as buyer_nickname, buyer.avatar_url as buyer_avatar, " +
-                    "seller.username as seller_username, seller.nickname as seller_nickname, seller.avatar_url as seller_avatar " +
-                    "FROM trade_order o " +
-                    "LEFT JOIN system_user buyer ON o.buyer_id = buyer.id " +
-                    "LEFT JOIN system_user seller ON o.seller_id = seller.id " +
+        String sql = ORDER_VO_COLUMNS +
                     "WHERE o.buyer_id = ? AND o.is_deleted = 0 " +
                     "ORDER BY o.create_time DESC";
         
@@ -209,14 +301,7 @@ public class OrderDao {
      * @return 订单列表
      */
     public List<OrderVO> findOrdersBySellerId(Long sellerId) {
-        String sql = "SELECT o.id, o.buyer_id, o.seller_id, o.product_id, o.price_at_purchase, " +
-                    "o.product_title_snapshot, o.product_description_snapshot, o.product_image_urls_snapshot, " +
-                    "o.status, o.create_time, o.update_time, " +
-                    "buyer.username as buyer_username, buyer.nickname as buyer_nickname, buyer.avatar_url as buyer_avatar, " +
-                    "seller.username as seller_username, seller.nickname as seller_nickname, seller.avatar_url as seller_avatar " +
-                    "FROM trade_order o " +
-                    "LEFT JOIN system_user buyer ON o.buyer_id = buyer.id " +
-                    "LEFT JOIN system_user seller ON o.seller_id = seller.id " +
+        String sql = ORDER_VO_COLUMNS +
                     "WHERE o.seller_id = ? AND o.is_deleted = 0 " +
                     "ORDER BY o.create_time DESC";
         
@@ -252,48 +337,7 @@ public class OrderDao {
             rs = pstmt.executeQuery();
 
             while (rs.next()) {
-                OrderVO orderVO = new OrderVO();
-                orderVO.setId(rs.getLong("id"));
-                orderVO.setProductId(rs.getLong("product_id"));
-                orderVO.setPriceAtPurchase(rs.getBigDecimal("price_at_purchase"));
-                orderVO.setProductTitleSnapshot(rs.getString("product_title_snapshot"));
-                orderVO.setProductDescriptionSnapshot(rs.getString("product_description_snapshot"));
-                orderVO.setStatus(rs.getInt("status"));
-                orderVO.setCreateTime(rs.getTimestamp("create_time").toLocalDateTime());
-                orderVO.setUpdateTime(rs.getTimestamp("update_time").toLocalDateTime());
-
-                // 解析商品图片URL快照
-                String imageUrlsJson = rs.getString("product_image_urls_snapshot");
-                if (imageUrlsJson != null && !imageUrlsJson.trim().isEmpty()) {
-                    try {
-                        @SuppressWarnings("unchecked")
-                        List<String> imageUrls = JsonUtil.fromJson(imageUrlsJson, List.class);
-                        orderVO.setProductImageUrlsSnapshot(imageUrls);
-                    } catch (Exception e) {
-                        logger.warn("解析商品图片快照失败: orderId={}, error={}", orderVO.getId(), e.getMessage());
-                        orderVO.setProductImageUrlsSnapshot(new ArrayList<>());
-                    }
-                } else {
-                    orderVO.setProductImageUrlsSnapshot(new ArrayList<>());
-                }
-
-                // 设置买家信息
-                UserVO buyer = new UserVO();
-                buyer.setId(rs.getLong("buyer_id"));
-                buyer.setUsername(rs.getString("buyer_username"));
-                buyer.setNickname(rs.getString("buyer_nickname"));
-                buyer.setAvatarUrl(rs.getString("buyer_avatar"));
-                orderVO.setBuyer(buyer);
-
-                // 设置卖家信息
-                UserVO seller = new UserVO();
-                seller.setId(rs.getLong("seller_id"));
-                seller.setUsername(rs.getString("seller_username"));
-                seller.setNickname(rs.getString("seller_nickname"));
-                seller.setAvatarUrl(rs.getString("seller_avatar"));
-                orderVO.setSeller(seller);
-
-                orders.add(orderVO);
+                orders.add(mapOrderVO(rs));
             }
         } catch (SQLException e) {
             logger.error("查询订单列表失败: userId={}, error={}", userId, e.getMessage(), e);
@@ -304,6 +348,199 @@ public class OrderDao {
         return orders;
     }
 
+    /**
+     * 按游标分页查询用户的订单（作为买家）
+     * 按订单ID倒序，使用 idx_buyer_id_status / idx_buyer_id_id 索引
+     * @param buyerId 买家ID
+     * @param status 订单状态，为null时不过滤
+     * @param beforeId 游标，只返回ID小于该值的订单，为null时从最新订单开始
+     * @param limit 返回数量
+     * @return 订单列表
+     */
+    public List<OrderVO> findOrdersByBuyerIdPage(Long buyerId, Integer status, Long beforeId, int limit) {
+        return findOrderPage("buyer_id", buyerId, status, beforeId, limit);
+    }
+
+    /**
+     * 按游标分页查询用户的订单（作为卖家）
+     * 按订单ID倒序，使用 idx_seller_id_status / idx_seller_id_id 索引
+     * @param sellerId 卖家ID
+     * @param status 订单状态，为null时不过滤
+     * @param beforeId 游标，只返回ID小于该值的订单，为null时从最新订单开始
+     * @param limit 返回数量
+     * @return 订单列表
+     */
+    public List<OrderVO> findOrdersBySellerIdPage(Long sellerId, Integer status, Long beforeId, int limit) {
+        return findOrderPage("seller_id", sellerId, status, beforeId, limit);
+    }
+
+    /**
+     * 查询用户各状态的订单数量（读取 order_status_count 维护的计数）
+     * @param userId 用户ID
+     * @param asSeller true-作为卖家，false-作为买家
+     * @return 状态 -> 订单数量，没有订单的状态不包含在结果中
+     */
+    public Map<Integer, Long> countOrdersByStatus(Long userId, boolean asSeller) {
+        Map<Integer, Long> counts = new TreeMap<>();
+        if (userId == null || userId <= 0) {
+            return counts;
+        }
+
+        String sql = "SELECT status, order_count FROM order_status_count WHERE user_id = ? AND role = ? AND order_count > 0";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setLong(1, userId);
+            pstmt.setInt(2, asSeller ? ROLE_SELLER : ROLE_BUYER);
+            rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                counts.put(rs.getInt("status"), rs.getLong("order_count"));
+            }
+        } catch (SQLException e) {
+            logger.error("查询订单状态计数失败: userId={}, asSeller={}, error={}", userId, asSeller, e.getMessage(), e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+
+        return counts;
+    }
+
+    private List<OrderVO> findOrderPage(String userColumn, Long userId, Integer status, Long beforeId, int limit) {
+        List<OrderVO> orders = new ArrayList<>();
+        if (userId == null || userId <= 0 || limit <= 0) {
+            logger.warn("分页查询订单失败: 参数无效 userId={}, limit={}", userId, limit);
+            return orders;
+        }
+
+        StringBuilder sql = new StringBuilder(ORDER_VO_COLUMNS)
+                .append("WHERE o.").append(userColumn).append(" = ? AND o.is_deleted = 0 ");
+        if (status != null) {
+            sql.append("AND o.status = ? ");
+        }
+        if (beforeId != null) {
+            sql.append("AND o.id < ? ");
+        }
+        sql.append("ORDER BY o.id DESC LIMIT ?");
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            pstmt = conn.prepareStatement(sql.toString());
+            int index = 1;
+            pstmt.setLong(index++, userId);
+            if (status != null) {
+                pstmt.setInt(index++, status);
+            }
+            if (beforeId != null) {
+                pstmt.setLong(index++, beforeId);
+            }
+            pstmt.setInt(index, limit);
+            rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                orders.add(mapOrderVO(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("分页查询订单失败: {}={}, status={}, beforeId={}, error={}",
+                        userColumn, userId, status, beforeId, e.getMessage(), e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+
+        return orders;
+    }
+
+    /**
+     * 映射订单VO，图片快照保留原始JSON，读取时才解析
+     */
+    private OrderVO mapOrderVO(ResultSet rs) throws SQLException {
+        OrderVO orderVO = new OrderVO();
+        orderVO.setId(rs.getLong("id"));
+        orderVO.setProductId(rs.getLong("product_id"));
+        orderVO.setPriceAtPurchase(rs.getBigDecimal("price_at_purchase"));
+        orderVO.setProductTitleSnapshot(rs.getString("product_title_snapshot"));
+        orderVO.setProductDescriptionSnapshot(rs.getString("product_description_snapshot"));
+        orderVO.setProductImageUrlsSnapshotJson(rs.getString("product_image_urls_snapshot"));
+        orderVO.setStatus(rs.getInt("status"));
+        orderVO.setCreateTime(rs.getTimestamp("create_time").toLocalDateTime());
+        orderVO.setUpdateTime(rs.getTimestamp("update_time").toLocalDateTime());
+
+        // 设置买家信息
+        UserVO buyer = new UserVO();
+        buyer.setId(rs.getLong("buyer_id"));
+        buyer.setUsername(rs.getString("buyer_username"));
+        buyer.setNickname(rs.getString("buyer_nickname"));
+        buyer.setAvatarUrl(rs.getString("buyer_avatar"));
+        orderVO.setBuyer(buyer);
+
+        // 设置卖家信息
+        UserVO seller = new UserVO();
+        seller.setId(rs.getLong("seller_id"));
+        seller.setUsername(rs.getString("seller_username"));
+        seller.setNickname(rs.getString("seller_nickname"));
+        seller.setAvatarUrl(rs.getString("seller_avatar"));
+        orderVO.setSeller(seller);
+
+        return orderVO;
+    }
+
+    /**
+     * 在当前事务中调整按状态计数
+     * 按 (用户ID, 角色, 状态) 排序后依次更新，避免并发事务以不同顺序加锁造成死锁
+     * @param deltas 每项为 {用户ID, 角色, 状态, 增量}
+     */
+    private void applyStatusCountDeltas(Connection conn, List<long[]> deltas) throws SQLException {
+        deltas.sort((a, b) -> {
+            for (int i = 0; i < 3; i++) {
+                int c = Long.compare(a[i], b[i]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        });
+        String sql = "INSERT INTO order_status_count (user_id, role, status, order_count) VALUES (?, ?, ?, GREATEST(?, 0)) " +
+                    "ON DUPLICATE KEY UPDATE order_count = GREATEST(CAST(order_count AS SIGNED) + ?, 0)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (long[] delta : deltas) {
+                stmt.setLong(1, delta[0]);
+                stmt.setInt(2, (int) delta[1]);
+                stmt.setInt(3, (int) delta[2]);
+                stmt.setLong(4, delta[3]);
+                stmt.setLong(5, delta[3]);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                logger.error("回滚事务失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("恢复自动提交失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * 关闭数据库资源
      */
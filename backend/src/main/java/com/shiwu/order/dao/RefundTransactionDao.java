@@ -0,0 +1,187 @@
+package com.shiwu.order.dao;
+
+import com.shiwu.common.util.DBUtil;
+import com.shiwu.order.model.RefundTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 退款流水数据访问对象
+ *
+ * 退款流水只追加、不修改；按退款ID（唯一索引）和订单ID（普通索引）查询。
+ * 在工作单元中调用时与订单状态更新在同一事务中提交
+ */
+public class RefundTransactionDao {
+    private static final Logger logger = LoggerFactory.getLogger(RefundTransactionDao.class);
+
+    private static final String COLUMNS = "refund_id, order_id, buyer_id, seller_id, refund_amount, status, reason, create_time";
+
+    private static final String SELECT_COLUMNS = "id, " + COLUMNS;
+
+    /**
+     * 追加一条退款流水
+     * @param refund 退款交易
+     * @return 是否写入成功
+     */
+    public boolean insert(RefundTransaction refund) {
+        String sql = "INSERT INTO refund_transaction (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("保存退款流水失败: 无法获取数据库连接, refundId={}", refund.getRefundId());
+                return false;
+            }
+
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, refund.getRefundId());
+            pstmt.setLong(2, refund.getOrderId());
+            pstmt.setObject(3, refund.getBuyerId());
+            pstmt.setObject(4, refund.getSellerId());
+            pstmt.setBigDecimal(5, refund.getRefundAmount());
+            pstmt.setString(6, refund.getStatus());
+            pstmt.setString(7, refund.getReason());
+            LocalDateTime createTime = refund.getCreateTime() != null ? refund.getCreateTime() : LocalDateTime.now();
+            pstmt.setTimestamp(8, Timestamp.valueOf(createTime));
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            logger.error("保存退款流水失败: refundId={}, error={}", refund.getRefundId(), e.getMessage(), e);
+            return false;
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
+    /**
+     * 根据退款ID查询
+     */
+    public RefundTransaction findByRefundId(String refundId) {
+        return findOne("SELECT " + SELECT_COLUMNS + " FROM refund_transaction WHERE refund_id = ?", refundId);
+    }
+
+    /**
+     * 查询订单最近一次退款
+     */
+    public RefundTransaction findLatestByOrderId(Long orderId) {
+        return findOne("SELECT " + SELECT_COLUMNS + " FROM refund_transaction WHERE order_id = ? ORDER BY id DESC LIMIT 1", orderId);
+    }
+
+    /**
+     * 按写入顺序倒序分页查询退款流水（键集分页）
+     * @param beforeId 上一页最后一条流水的ID，为null时从最新一条开始
+     * @param limit 条数
+     * @return 退款流水，ID小于 beforeId 的最多 limit 条
+     */
+    public List<RefundTransaction> findPageBefore(Long beforeId, int limit) {
+        String sql = "SELECT " + SELECT_COLUMNS + " FROM refund_transaction"
+                + (beforeId != null ? " WHERE id < ?" : "") + " ORDER BY id DESC LIMIT ?";
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        List<RefundTransaction> refunds = new ArrayList<>();
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("分页查询退款流水失败: 无法获取数据库连接");
+                return refunds;
+            }
+
+            pstmt = conn.prepareStatement(sql);
+            int index = 1;
+            if (beforeId != null) {
+                pstmt.setLong(index++, beforeId);
+            }
+            pstmt.setInt(index, limit);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                refunds.add(mapRow(rs));
+            }
+            return refunds;
+        } catch (SQLException e) {
+            logger.error("分页查询退款流水失败: beforeId={}, error={}", beforeId, e.getMessage(), e);
+            return refunds;
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    private RefundTransaction findOne(String sql, Object key) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("查询退款流水失败: 无法获取数据库连接");
+                return null;
+            }
+
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setObject(1, key);
+            rs = pstmt.executeQuery();
+            return rs.next() ? mapRow(rs) : null;
+        } catch (SQLException e) {
+            logger.error("查询退款流水失败: key={}, error={}", key, e.getMessage(), e);
+            return null;
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    private RefundTransaction mapRow(ResultSet rs) throws SQLException {
+        RefundTransaction refund = new RefundTransaction();
+        refund.setId(rs.getLong("id"));
+        refund.setRefundId(rs.getString("refund_id"));
+        refund.setOrderId(rs.getLong("order_id"));
+        refund.setBuyerId(rs.getObject("buyer_id", Long.class));
+        refund.setSellerId(rs.getObject("seller_id", Long.class));
+        refund.setRefundAmount(rs.getBigDecimal("refund_amount"));
+        refund.setStatus(rs.getString("status"));
+        refund.setReason(rs.getString("reason"));
+        Timestamp createTime = rs.getTimestamp("create_time");
+        refund.setCreateTime(createTime != null ? createTime.toLocalDateTime() : null);
+        return refund;
+    }
+
+    /**
+     * 关闭数据库资源
+     */
+    private void closeResources(Connection conn, PreparedStatement pstmt, ResultSet rs) {
+        if (rs != null) {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                logger.error("关闭ResultSet失败: {}", e.getMessage());
+            }
+        }
+        if (pstmt != null) {
+            try {
+                pstmt.close();
+            } catch (SQLException e) {
+                logger.error("关闭PreparedStatement失败: {}", e.getMessage());
+            }
+        }
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                logger.error("关闭Connection失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@ public class OrderErrorCode {
     // 参数错误
     public static final String INVALID_PARAMS = "ORDER_001";
     public static final String EMPTY_PRODUCT_LIST = "ORDER_002";
+    public static final String INVALID_QUERY_PARAMS = "ORDER_003";
     
     // 商品相关错误
     public static final String PRODUCT_NOT_FOUND = "ORDER_101";
@@ -38,6 +39,7 @@ public class OrderErrorCode {
     // 错误信息
     public static final String MSG_INVALID_PARAMS = "请求参数不能为空";
     public static final String MSG_EMPTY_PRODUCT_LIST = "商品列表不能为空";
+    public static final String MSG_INVALID_QUERY_PARAMS = "订单查询参数无效";
     public static final String MSG_PRODUCT_NOT_FOUND = "商品不存在或已被删除";
     public static final String MSG_PRODUCT_NOT_AVAILABLE = "商品当前不可购买（已下架、已售出等）";
     public static final String MSG_CANT_BUY_OWN_PRODUCT = "不能购买自己发布的商品";
@@ -1,8 +1,13 @@
 package com.shiwu.order.model;
 
+import com.shiwu.common.util.JsonUtil;
 import com.shiwu.user.model.UserVO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -10,6 +15,7 @@ import java.util.List;
  * 用于返回给前端的订单信息
  */
 public class OrderVO {
+    private static final Logger logger = LoggerFactory.getLogger(OrderVO.class);
     
     /**
      * 订单ID
@@ -51,6 +57,11 @@ public class OrderVO {
      */
     private List<String> productImageUrlsSnapshot;
     
+    /**
+     * 商品图片URL列表快照的原始JSON，首次读取列表时才解析
+     */
+    private String productImageUrlsSnapshotJson;
+    
     /**
      * 订单状态
      */
@@ -131,12 +142,34 @@ public class OrderVO {
         this.productDescriptionSnapshot = productDescriptionSnapshot;
     }
     
+    @SuppressWarnings("unchecked")
     public List<String> getProductImageUrlsSnapshot() {
+        if (productImageUrlsSnapshot == null && productImageUrlsSnapshotJson != null) {
+            List<String> imageUrls = new ArrayList<>();
+            if (!productImageUrlsSnapshotJson.trim().isEmpty()) {
+                try {
+                    imageUrls = JsonUtil.fromJson(productImageUrlsSnapshotJson, List.class);
+                } catch (Exception e) {
+                    logger.warn("解析商品图片快照失败: orderId={}, error={}", id, e.getMessage());
+                }
+            }
+            productImageUrlsSnapshot = imageUrls;
+            productImageUrlsSnapshotJson = null;
+        }
         return productImageUrlsSnapshot;
     }
     
     public void setProductImageUrlsSnapshot(List<String> productImageUrlsSnapshot) {
         this.productImageUrlsSnapshot = productImageUrlsSnapshot;
+        this.productImageUrlsSnapshotJson = null;
+    }
+    
+    /**
+     * 设置商品图片URL列表快照的原始JSON，延迟到 getProductImageUrlsSnapshot 时解析
+     */
+    public void setProductImageUrlsSnapshotJson(String productImageUrlsSnapshotJson) {
+        this.productImageUrlsSnapshot = null;
+        this.productImageUrlsSnapshotJson = productImageUrlsSnapshotJson != null ? productImageUrlsSnapshotJson : "";
     }
     
     public Integer getStatus() {
@@ -181,7 +214,7 @@ public class OrderVO {
                 ", priceAtPurchase=" + priceAtPurchase +
                 ", productTitleSnapshot='" + productTitleSnapshot + '\'' +
                 ", productDescriptionSnapshot='" + productDescriptionSnapshot + '\'' +
-                ", productImageUrlsSnapshot=" + productImageUrlsSnapshot +
+                ", productImageUrlsSnapshot=" + getProductImageUrlsSnapshot() +
                 ", status=" + status +
                 ", statusText='" + statusText + '\'' +
                 ", createTime=" + createTime +
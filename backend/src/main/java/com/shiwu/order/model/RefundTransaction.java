@@ -16,6 +16,11 @@ import java.time.LocalDateTime;
  */
 public class RefundTransaction {
     
+    /**
+     * 流水主键，按写入顺序递增，用作分页游标
+     */
+    private Long id;
+    
     /**
      * 退款交易ID
      */
@@ -77,6 +82,14 @@ public class RefundTransaction {
     }
     
     // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
     public String getRefundId() {
         return refundId;
     }
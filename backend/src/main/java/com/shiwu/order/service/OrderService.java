@@ -33,6 +33,26 @@ public interface OrderService {
      */
     OrderOperationResult getSellerOrders(Long sellerId);
     
+    /**
+     * 按游标分页获取用户的购买订单列表
+     * @param buyerId 买家ID
+     * @param status 订单状态过滤，为null时返回全部状态
+     * @param cursor 上一页返回的nextCursor，为null时从最新订单开始
+     * @param size 每页数量，为null时使用默认值
+     * @return 订单操作结果，包含 orders、statusCounts、total、nextCursor、hasMore
+     */
+    OrderOperationResult getBuyerOrders(Long buyerId, Integer status, Long cursor, Integer size);
+    
+    /**
+     * 按游标分页获取用户的销售订单列表
+     * @param sellerId 卖家ID
+     * @param status 订单状态过滤，为null时返回全部状态
+     * @param cursor 上一页返回的nextCursor，为null时从最新订单开始
+     * @param size 每页数量，为null时使用默认值
+     * @return 订单操作结果，包含 orders、statusCounts、total、nextCursor、hasMore
+     */
+    OrderOperationResult getSellerOrders(Long sellerId, Integer status, Long cursor, Integer size);
+    
     /**
      * 根据订单ID获取订单详情
      * @param orderId 订单ID
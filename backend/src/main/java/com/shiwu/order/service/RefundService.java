@@ -3,6 +3,8 @@ package com.shiwu.order.service;
 import com.shiwu.order.model.Order;
 import com.shiwu.order.model.RefundTransaction;
 
+import java.util.List;
+
 /**
  * 退款服务接口
  * 
@@ -34,4 +36,13 @@ public interface RefundService {
      * @return 退款交易记录
      */
     RefundTransaction getRefundByOrderId(Long orderId);
+    
+    /**
+     * 按创建顺序倒序分页查询退款交易记录
+     * 使用上一页最后一条记录的ID作为游标，翻页开销不随页码增长
+     * @param beforeId 上一页最后一条记录的ID，查询第一页时为null
+     * @param pageSize 每页条数
+     * @return 退款交易记录列表
+     */
+    List<RefundTransaction> listRefundTransactions(Long beforeId, int pageSize);
 }
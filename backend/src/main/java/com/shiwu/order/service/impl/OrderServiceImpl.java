@@ -1,8 +1,9 @@
 package com.shiwu.order.service.impl;
 
-import com.shiwu.cart.dao.CartDao;
+import com.shiwu.common.outbox.OutboxJob;
 import com.shiwu.common.result.Result;
 import com.shiwu.common.util.JsonUtil;
+import com.shiwu.common.util.UnitOfWork;
 import com.shiwu.notification.model.Notification;
 import com.shiwu.notification.service.NotificationService;
 import com.shiwu.notification.service.impl.NotificationServiceImpl;
@@ -10,9 +11,11 @@ import com.shiwu.order.dao.OrderDao;
 import com.shiwu.order.model.*;
 import com.shiwu.order.service.OrderService;
 import com.shiwu.order.service.RefundService;
+import com.shiwu.payment.dao.PaymentDao;
 import com.shiwu.product.dao.ProductDao;
 import com.shiwu.product.model.Product;
 import com.shiwu.review.dao.ReviewDao;
+import com.shiwu.user.cache.LeaderboardCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +25,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 订单服务实现类
@@ -31,20 +35,32 @@ import java.util.Map;
 public class OrderServiceImpl implements OrderService {
     private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
 
+    /**
+     * 订单列表默认每页数量
+     */
+    private static final int DEFAULT_ORDER_PAGE_SIZE = 20;
+
+    /**
+     * 订单列表每页最大数量
+     */
+    private static final int MAX_ORDER_PAGE_SIZE = 100;
+
     private final OrderDao orderDao;
     private final ProductDao productDao;
-    private final CartDao cartDao;
     private final ReviewDao reviewDao;
     private final RefundService refundService;
     private final NotificationService notificationService;
+    private final LeaderboardCache leaderboardCache;
+    private final PaymentDao paymentDao;
 
     public OrderServiceImpl() {
         this.orderDao = new OrderDao();
         this.productDao = new ProductDao();
-        this.cartDao = new CartDao();
         this.reviewDao = new ReviewDao();
         this.refundService = new com.shiwu.order.service.impl.RefundServiceImpl();
         this.notificationService = new NotificationServiceImpl();
+        this.leaderboardCache = LeaderboardCache.getInstance();
+        this.paymentDao = new PaymentDao();
     }
     
     @Override
@@ -111,7 +127,11 @@ public class OrderServiceImpl implements OrderService {
                     imageUrlsSnapshot
                 );
                 
-                Long orderId = orderDao.createOrder(order);
+                // 5. 从购物车中移除该商品：任务与订单在同一事务中提交，由后台任务执行
+                Map<String, Object> cartPayload = new HashMap<>();
+                cartPayload.put("userId", buyerId);
+                cartPayload.put("productId", productId);
+                Long orderId = orderDao.createOrder(order, OutboxJob.of(OutboxJob.TYPE_CART_ITEM_REMOVE, null, cartPayload));
                 if (orderId == null) {
                     logger.error("创建订单失败: 数据库操作失败, productId={}", productId);
                     rollbackOrders(createdOrderIds, lockedProductIds);
@@ -120,9 +140,6 @@ public class OrderServiceImpl implements OrderService {
                 
                 createdOrderIds.add(orderId);
                 
-                // 5. 从购物车中移除该商品
-                cartDao.removeFromCart(buyerId, productId);
-                
                 logger.info("创建订单成功: orderId={}, buyerId={}, sellerId={}, productId={}", 
                            orderId, buyerId, product.getSellerId(), productId);
             }
@@ -146,72 +163,84 @@ public class OrderServiceImpl implements OrderService {
     
     @Override
     public OrderOperationResult getBuyerOrders(Long buyerId) {
+        return getBuyerOrders(buyerId, null, null, null);
+    }
+    
+    @Override
+    public OrderOperationResult getSellerOrders(Long sellerId) {
+        return getSellerOrders(sellerId, null, null, null);
+    }
+    
+    @Override
+    public OrderOperationResult getBuyerOrders(Long buyerId, Integer status, Long cursor, Integer size) {
         if (buyerId == null) {
             logger.warn("获取买家订单列表失败: 买家ID不能为空");
             return OrderOperationResult.failure(OrderErrorCode.INVALID_PARAMS, OrderErrorCode.MSG_INVALID_PARAMS);
         }
-        
-        try {
-            List<OrderVO> orders = orderDao.findOrdersByBuyerId(buyerId);
-            
-            // 设置订单状态描述
-            for (OrderVO order : orders) {
-                order.setStatusText(getOrderStatusText(order.getStatus()));
-                
-                // 解析图片URL快照
-                if (order.getProductImageUrlsSnapshot() != null && !order.getProductImageUrlsSnapshot().isEmpty()) {
-                    // 如果productImageUrlsSnapshot已经是List类型，说明已经在DAO层解析过了
-                    // 这里不需要再次解析
-                } else {
-                    order.setProductImageUrlsSnapshot(new ArrayList<>());
-                }
-            }
-            
-            Map<String, Object> data = new HashMap<>();
-            data.put("orders", orders);
-            data.put("total", orders.size());
-            
-            logger.info("获取买家订单列表成功: buyerId={}, orderCount={}", buyerId, orders.size());
-            return OrderOperationResult.success(data);
-            
-        } catch (Exception e) {
-            logger.error("获取买家订单列表失败: buyerId={}, error={}", buyerId, e.getMessage(), e);
-            return OrderOperationResult.failure(OrderErrorCode.SYSTEM_ERROR, OrderErrorCode.MSG_SYSTEM_ERROR);
-        }
+        return listOrders(buyerId, false, status, cursor, size);
     }
     
     @Override
-    public OrderOperationResult getSellerOrders(Long sellerId) {
+    public OrderOperationResult getSellerOrders(Long sellerId, Integer status, Long cursor, Integer size) {
         if (sellerId == null) {
             logger.warn("获取卖家订单列表失败: 卖家ID不能为空");
             return OrderOperationResult.failure(OrderErrorCode.INVALID_PARAMS, OrderErrorCode.MSG_INVALID_PARAMS);
         }
+        return listOrders(sellerId, true, status, cursor, size);
+    }
+    
+    /**
+     * 按游标分页查询订单列表
+     * 多查询一条用于判断是否还有下一页；各状态数量读取维护的计数，不再统计全部订单
+     */
+    private OrderOperationResult listOrders(Long userId, boolean asSeller, Integer status, Long cursor, Integer size) {
+        String role = asSeller ? "卖家" : "买家";
+        int pageSize = size != null ? size : DEFAULT_ORDER_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_ORDER_PAGE_SIZE
+                || (status != null && (status < Order.STATUS_AWAITING_PAYMENT || status > Order.STATUS_RETURNED))
+                || (cursor != null && cursor <= 0)) {
+            logger.warn("获取{}订单列表失败: 查询参数无效, userId={}, status={}, cursor={}, size={}",
+                       role, userId, status, cursor, size);
+            return OrderOperationResult.failure(OrderErrorCode.INVALID_QUERY_PARAMS, OrderErrorCode.MSG_INVALID_QUERY_PARAMS);
+        }
         
         try {
-            List<OrderVO> orders = orderDao.findOrdersBySellerId(sellerId);
+            List<OrderVO> orders = asSeller
+                    ? orderDao.findOrdersBySellerIdPage(userId, status, cursor, pageSize + 1)
+                    : orderDao.findOrdersByBuyerIdPage(userId, status, cursor, pageSize + 1);
+            boolean hasMore = orders.size() > pageSize;
+            if (hasMore) {
+                orders = new ArrayList<>(orders.subList(0, pageSize));
+            }
             
             // 设置订单状态描述
             for (OrderVO order : orders) {
                 order.setStatusText(getOrderStatusText(order.getStatus()));
-                
-                // 解析图片URL快照
-                if (order.getProductImageUrlsSnapshot() != null && !order.getProductImageUrlsSnapshot().isEmpty()) {
-                    // 如果productImageUrlsSnapshot已经是List类型，说明已经在DAO层解析过了
-                    // 这里不需要再次解析
-                } else {
-                    order.setProductImageUrlsSnapshot(new ArrayList<>());
+            }
+            
+            Map<Integer, Long> statusCounts = orderDao.countOrdersByStatus(userId, asSeller);
+            long total = 0;
+            if (status != null) {
+                total = statusCounts.getOrDefault(status, 0L);
+            } else {
+                for (Long count : statusCounts.values()) {
+                    total += count;
                 }
             }
             
             Map<String, Object> data = new HashMap<>();
             data.put("orders", orders);
-            data.put("total", orders.size());
+            data.put("total", total);
+            data.put("statusCounts", statusCounts);
+            data.put("hasMore", hasMore);
+            data.put("nextCursor", hasMore ? orders.get(orders.size() - 1).getId() : null);
             
-            logger.info("获取卖家订单列表成功: sellerId={}, orderCount={}", sellerId, orders.size());
+            logger.info("获取{}订单列表成功: userId={}, status={}, cursor={}, orderCount={}",
+                       role, userId, status, cursor, orders.size());
             return OrderOperationResult.success(data);
             
         } catch (Exception e) {
-            logger.error("获取卖家订单列表失败: sellerId={}, error={}", sellerId, e.getMessage(), e);
+            logger.error("获取{}订单列表失败: userId={}, error={}", role, userId, e.getMessage(), e);
             return OrderOperationResult.failure(OrderErrorCode.SYSTEM_ERROR, OrderErrorCode.MSG_SYSTEM_ERROR);
         }
     }
@@ -360,7 +389,16 @@ public class OrderServiceImpl implements OrderService {
             int successCount = 0;
             int failureCount = 0;
 
+            // 支付-订单映射中登记的订单，映射为空时视为尚未回填的历史支付，不做校验
+            List<Long> paymentOrderIds = paymentDao.findOrderIdsByPaymentId(paymentId);
+
             for (Long orderId : orderIds) {
+                if (!paymentOrderIds.isEmpty() && !paymentOrderIds.contains(orderId)) {
+                    logger.warn("订单不属于该支付: orderId={}, paymentId={}", orderId, paymentId);
+                    failureCount++;
+                    continue;
+                }
+
                 // 验证订单状态
                 Order order = orderDao.findById(orderId);
                 if (order == null) {
@@ -426,8 +464,18 @@ public class OrderServiceImpl implements OrderService {
         try {
             int successCount = 0;
             int failureCount = 0;
+            int skippedCount = 0;
+
+            // 调用方已先将失败的支付置为终态，仍有待支付记录的订单属于另一笔支付，不能取消
+            Set<Long> pendingOrderIds = paymentDao.findOrderIdsWithPendingPayment(orderIds);
 
             for (Long orderId : orderIds) {
+                if (pendingOrderIds.contains(orderId)) {
+                    logger.info("订单仍有待支付记录，跳过取消: orderId={}, reason={}", orderId, reason);
+                    skippedCount++;
+                    continue;
+                }
+
                 // 验证订单状态
                 Order order = orderDao.findById(orderId);
                 if (order == null) {
@@ -443,21 +491,17 @@ public class OrderServiceImpl implements OrderService {
                     continue;
                 }
 
-                // 取消订单
-                boolean orderUpdateSuccess = orderDao.updateOrderStatus(orderId, Order.STATUS_CANCELLED);
+                // 取消订单，解锁商品的任务与订单状态在同一事务中提交，由后台任务执行
+                Map<String, Object> unlockPayload = new HashMap<>();
+                unlockPayload.put("productId", order.getProductId());
+                unlockPayload.put("orderId", orderId);
+                OutboxJob unlockJob = OutboxJob.of(OutboxJob.TYPE_PRODUCT_UNLOCK,
+                        OutboxJob.TYPE_PRODUCT_UNLOCK + ":order:" + orderId, unlockPayload);
+                boolean orderUpdateSuccess = orderDao.updateOrderStatus(orderId, Order.STATUS_CANCELLED, unlockJob);
                 if (orderUpdateSuccess) {
-                    // 解锁商品
-                    boolean productUnlockSuccess = productDao.updateProductStatusBySystem(order.getProductId(), Product.STATUS_ONSALE);
-                    if (productUnlockSuccess) {
-                        successCount++;
-                        logger.info("支付失败后取消订单并解锁商品成功: orderId={}, productId={}, reason={}",
-                                   orderId, order.getProductId(), reason);
-                    } else {
-                        logger.error("解锁商品失败: orderId={}, productId={}, reason={}",
-                                    orderId, order.getProductId(), reason);
-                        // 即使解锁商品失败，订单取消仍然算成功
-                        successCount++;
-                    }
+                    successCount++;
+                    logger.info("支付失败后取消订单成功，已登记解锁商品任务: orderId={}, productId={}, reason={}",
+                               orderId, order.getProductId(), reason);
                 } else {
                     failureCount++;
                     logger.error("支付失败后取消订单失败: orderId={}, reason={}", orderId, reason);
@@ -469,6 +513,7 @@ public class OrderServiceImpl implements OrderService {
             data.put("totalOrders", orderIds.size());
             data.put("successCount", successCount);
             data.put("failureCount", failureCount);
+            data.put("skippedCount", skippedCount);
             data.put("reason", reason);
 
             if (failureCount > 0) {
@@ -570,20 +615,26 @@ public class OrderServiceImpl implements OrderService {
                 return OrderOperationResult.failure(OrderErrorCode.ORDER_STATUS_NOT_SHIPPED, OrderErrorCode.MSG_ORDER_STATUS_NOT_SHIPPED);
             }
 
-            // 更新订单状态为已完成
-            boolean orderUpdateSuccess = orderDao.updateOrderStatus(orderId, Order.STATUS_COMPLETED);
-            if (!orderUpdateSuccess) {
-                logger.error("确认收货失败: 更新订单状态失败, orderId={}", orderId);
-                return OrderOperationResult.failure(OrderErrorCode.CONFIRM_RECEIPT_FAILED, OrderErrorCode.MSG_CONFIRM_RECEIPT_FAILED);
-            }
+            // 订单状态和商品状态在同一个工作单元中更新，任一步失败整体回滚
+            OrderOperationResult writeResult = UnitOfWork.execute(() -> {
+                // 更新订单状态为已完成
+                boolean orderUpdateSuccess = orderDao.updateOrderStatus(orderId, Order.STATUS_COMPLETED);
+                if (!orderUpdateSuccess) {
+                    logger.error("确认收货失败: 更新订单状态失败, orderId={}", orderId);
+                    return OrderOperationResult.failure(OrderErrorCode.CONFIRM_RECEIPT_FAILED, OrderErrorCode.MSG_CONFIRM_RECEIPT_FAILED);
+                }
 
-            // 更新商品状态为已售出
-            boolean productUpdateSuccess = productDao.updateProductStatusBySystem(order.getProductId(), Product.STATUS_SOLD);
-            if (!productUpdateSuccess) {
-                logger.error("确认收货失败: 更新商品状态为已售失败, orderId={}, productId={}", orderId, order.getProductId());
-                // 这里可以考虑回滚订单状态，但为了简化，我们只记录错误
-                // 在实际生产环境中，应该使用事务来保证数据一致性
-                return OrderOperationResult.failure(OrderErrorCode.UPDATE_PRODUCT_TO_SOLD_FAILED, OrderErrorCode.MSG_UPDATE_PRODUCT_TO_SOLD_FAILED);
+                // 更新商品状态为已售出
+                boolean productUpdateSuccess = productDao.updateProductStatusBySystem(order.getProductId(), Product.STATUS_SOLD);
+                if (!productUpdateSuccess) {
+                    logger.error("确认收货失败: 更新商品状态为已售失败, orderId={}, productId={}", orderId, order.getProductId());
+                    return OrderOperationResult.failure(OrderErrorCode.UPDATE_PRODUCT_TO_SOLD_FAILED, OrderErrorCode.MSG_UPDATE_PRODUCT_TO_SOLD_FAILED);
+                }
+                UnitOfWork.afterCommit(() -> leaderboardCache.onCompletedSalesChanged(order.getSellerId(), 1));
+                return OrderOperationResult.success(null);
+            }, OrderOperationResult::isSuccess);
+            if (!writeResult.isSuccess()) {
+                return writeResult;
             }
 
             // 构造返回数据
@@ -737,6 +788,7 @@ public class OrderServiceImpl implements OrderService {
                 logger.error("申请退货失败: 更新订单状态失败, orderId={}", orderId);
                 return OrderOperationResult.failure(OrderErrorCode.APPLY_RETURN_FAILED, OrderErrorCode.MSG_APPLY_RETURN_FAILED);
             }
+            leaderboardCache.onCompletedSalesChanged(order.getSellerId(), -1);
 
             // 构造返回数据
             Map<String, Object> result = new HashMap<>();
@@ -802,14 +854,16 @@ public class OrderServiceImpl implements OrderService {
                 return OrderOperationResult.failure(OrderErrorCode.PROCESS_RETURN_ORDER_NOT_RETURN_REQUESTED, OrderErrorCode.MSG_PROCESS_RETURN_ORDER_NOT_RETURN_REQUESTED);
             }
 
-            // 根据处理决定执行不同的逻辑
-            if (processReturnRequestDTO.isApproved()) {
-                // 同意退货：RETURN_REQUESTED → RETURNED
-                return processApproveReturn(order, processReturnRequestDTO);
-            } else {
-                // 拒绝退货：RETURN_REQUESTED → COMPLETED
-                return processRejectReturn(order, processReturnRequestDTO);
-            }
+            // 根据处理决定执行不同的逻辑，退款和订单状态在同一个工作单元中提交
+            return UnitOfWork.execute(() -> {
+                if (processReturnRequestDTO.isApproved()) {
+                    // 同意退货：RETURN_REQUESTED → RETURNED
+                    return processApproveReturn(order, processReturnRequestDTO);
+                } else {
+                    // 拒绝退货：RETURN_REQUESTED → COMPLETED
+                    return processRejectReturn(order, processReturnRequestDTO);
+                }
+            }, OrderOperationResult::isSuccess);
 
         } catch (Exception e) {
             logger.error("处理退货申请时发生异常: orderId={}, sellerId={}, error={}", orderId, sellerId, e.getMessage(), e);
@@ -869,6 +923,7 @@ public class OrderServiceImpl implements OrderService {
                 logger.error("拒绝退货失败: 更新订单状态失败, orderId={}", order.getId());
                 return OrderOperationResult.failure(OrderErrorCode.PROCESS_RETURN_FAILED, OrderErrorCode.MSG_PROCESS_RETURN_FAILED);
             }
+            UnitOfWork.afterCommit(() -> leaderboardCache.onCompletedSalesChanged(order.getSellerId(), 1));
 
             // 构造返回数据
             Map<String, Object> result = new HashMap<>();
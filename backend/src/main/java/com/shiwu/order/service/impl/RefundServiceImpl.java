@@ -1,14 +1,16 @@
 package com.shiwu.order.service.impl;
 
+import com.shiwu.common.util.UnitOfWork;
+import com.shiwu.order.cache.RecentRefundCache;
+import com.shiwu.order.dao.RefundTransactionDao;
 import com.shiwu.order.model.Order;
 import com.shiwu.order.model.RefundTransaction;
 import com.shiwu.order.service.RefundService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 退款服务实现类
@@ -18,6 +20,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * 或者简单地记录一笔退款交易。"
  * 
  * 这里采用简单记录退款交易的方式，在实际项目中可以扩展为真实的退款操作。
+ * 退款交易追加写入 refund_transaction 表，按退款ID和订单ID走索引查询；
+ * 最近的退款保存在有上限的缓存中，内存占用不随退款数量增长，重启后历史记录仍可查询。
  * 
  * @author Shiwu Team
  * @version 1.0
@@ -26,9 +30,23 @@ public class RefundServiceImpl implements RefundService {
     
     private static final Logger logger = LoggerFactory.getLogger(RefundServiceImpl.class);
     
-    // 使用内存存储退款记录（在实际项目中应该使用数据库）
-    private final Map<String, RefundTransaction> refundTransactions = new ConcurrentHashMap<>();
-    private final Map<Long, RefundTransaction> orderRefundMap = new ConcurrentHashMap<>();
+    /**
+     * 分页查询的最大每页条数
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    private final RefundTransactionDao refundTransactionDao;
+    private final RecentRefundCache recentRefundCache;
+    
+    public RefundServiceImpl() {
+        this(new RefundTransactionDao(), RecentRefundCache.getInstance());
+    }
+    
+    // 用于测试的构造函数，支持依赖注入
+    public RefundServiceImpl(RefundTransactionDao refundTransactionDao, RecentRefundCache recentRefundCache) {
+        this.refundTransactionDao = refundTransactionDao;
+        this.recentRefundCache = recentRefundCache;
+    }
     
     @Override
     public RefundTransaction processRefund(Order order, String reason) {
@@ -63,9 +81,17 @@ public class RefundServiceImpl implements RefundService {
                 logger.error("模拟退款失败: refundId={}, orderId={}", refundId, order.getId());
             }
             
-            // 保存退款记录
-            refundTransactions.put(refundId, refundTransaction);
-            orderRefundMap.put(order.getId(), refundTransaction);
+            // 追加退款流水；在工作单元中时与订单状态一起提交，提交后才进入缓存
+            if (!refundTransactionDao.insert(refundTransaction)) {
+                refundTransaction.markAsFailed();
+                logger.error("退款流水保存失败: refundId={}, orderId={}", refundId, order.getId());
+                return refundTransaction;
+            }
+            if (UnitOfWork.isActive()) {
+                UnitOfWork.afterCommit(() -> recentRefundCache.put(refundTransaction));
+            } else {
+                recentRefundCache.put(refundTransaction);
+            }
             
             return refundTransaction;
             
@@ -77,10 +103,11 @@ public class RefundServiceImpl implements RefundService {
     
     @Override
     public RefundTransaction getRefundTransaction(String refundId) {
-        if (refundId == null) {
+        if (refundId == null || refundId.trim().isEmpty()) {
             return null;
         }
-        return refundTransactions.get(refundId);
+        RefundTransaction cached = recentRefundCache.getByRefundId(refundId);
+        return cached != null ? cached : refundTransactionDao.findByRefundId(refundId);
     }
     
     @Override
@@ -88,7 +115,15 @@ public class RefundServiceImpl implements RefundService {
         if (orderId == null) {
             return null;
         }
-        return orderRefundMap.get(orderId);
+        RefundTransaction cached = recentRefundCache.getByOrderId(orderId);
+        return cached != null ? cached : refundTransactionDao.findLatestByOrderId(orderId);
+    }
+    
+    @Override
+    public List<RefundTransaction> listRefundTransactions(Long beforeId, int pageSize) {
+        int safeSize = Math.min(Math.max(pageSize, 1), MAX_PAGE_SIZE);
+        Long cursor = beforeId != null && beforeId > 0 ? beforeId : null;
+        return refundTransactionDao.findPageBefore(cursor, safeSize);
     }
     
     /**
@@ -141,21 +176,4 @@ public class RefundServiceImpl implements RefundService {
             return false;
         }
     }
-    
-    /**
-     * 获取所有退款记录（用于测试和调试）
-     * @return 退款记录映射
-     */
-    public Map<String, RefundTransaction> getAllRefundTransactions() {
-        return new ConcurrentHashMap<>(refundTransactions);
-    }
-    
-    /**
-     * 清空所有退款记录（用于测试）
-     */
-    public void clearAllRefundTransactions() {
-        refundTransactions.clear();
-        orderRefundMap.clear();
-        logger.info("已清空所有退款记录");
-    }
 }
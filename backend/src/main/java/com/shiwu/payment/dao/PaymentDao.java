@@ -1,13 +1,17 @@
 package com.shiwu.payment.dao;
 
 import com.shiwu.common.util.DBUtil;
+import com.shiwu.common.util.JsonUtil;
 import com.shiwu.payment.model.Payment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 支付数据访问对象
@@ -17,10 +21,20 @@ public class PaymentDao {
 
     /**
      * 创建支付记录
-     * @param payment 支付对象
+     * @param payment 支付对象（订单ID列表从 order_ids JSON 中解析）
      * @return 创建的支付记录ID，失败返回null
      */
     public Long createPayment(Payment payment) {
+        return createPayment(payment, payment != null ? parseOrderIds(payment.getOrderIds()) : null);
+    }
+
+    /**
+     * 创建支付记录，并在同一事务中写入支付-订单映射
+     * @param payment 支付对象
+     * @param orderIds 支付包含的订单ID列表
+     * @return 创建的支付记录ID，失败返回null
+     */
+    public Long createPayment(Payment payment, List<Long> orderIds) {
         // 参数验证
         if (payment == null) {
             logger.warn("创建支付记录失败: payment为null");
@@ -50,6 +64,12 @@ public class PaymentDao {
 
         try {
             conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("创建支付记录失败: 无法获取数据库连接");
+                return null;
+            }
+            conn.setAutoCommit(false);
+
             pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             pstmt.setString(1, payment.getPaymentId());
             pstmt.setLong(2, payment.getUserId());
@@ -60,24 +80,171 @@ public class PaymentDao {
             pstmt.setTimestamp(7, payment.getExpireTime() != null ? Timestamp.valueOf(payment.getExpireTime()) : null);
 
             int affectedRows = pstmt.executeUpdate();
-            
             if (affectedRows > 0) {
                 rs = pstmt.getGeneratedKeys();
                 if (rs.next()) {
                     paymentRecordId = rs.getLong(1);
-                    logger.info("创建支付记录成功: paymentId={}, userId={}, amount={}", 
-                               payment.getPaymentId(), payment.getUserId(), payment.getPaymentAmount());
                 }
             }
+            if (paymentRecordId == null) {
+                conn.rollback();
+                return null;
+            }
+
+            insertPaymentOrders(conn, payment.getPaymentId(), payment.getUserId(), orderIds);
+            conn.commit();
+            logger.info("创建支付记录成功: paymentId={}, userId={}, amount={}, orderCount={}",
+                       payment.getPaymentId(), payment.getUserId(), payment.getPaymentAmount(),
+                       orderIds != null ? orderIds.size() : 0);
         } catch (SQLException e) {
             logger.error("创建支付记录失败: {}", e.getMessage(), e);
+            rollbackQuietly(conn);
+            paymentRecordId = null;
         } finally {
+            restoreAutoCommit(conn);
             closeResources(conn, pstmt, rs);
         }
-        
+
         return paymentRecordId;
     }
 
+    /**
+     * 查询支付包含的订单ID（走 payment_order 主键）
+     * @param paymentId 支付流水号
+     * @return 订单ID列表，没有映射记录时返回空列表
+     */
+    public List<Long> findOrderIdsByPaymentId(String paymentId) {
+        List<Long> orderIds = new ArrayList<>();
+        if (paymentId == null || paymentId.trim().isEmpty()) {
+            return orderIds;
+        }
+
+        String sql = "SELECT order_id FROM payment_order WHERE payment_id = ? ORDER BY order_id";
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("查询支付订单映射失败: 无法获取数据库连接, paymentId={}", paymentId);
+                return orderIds;
+            }
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, paymentId);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                orderIds.add(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            logger.error("查询支付订单映射失败: paymentId={}, error={}", paymentId, e.getMessage(), e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+
+        return orderIds;
+    }
+
+    /**
+     * 查询用户包含全部指定订单的最近一笔支付记录（走 payment_order.idx_order_id 索引）
+     * @param userId 用户ID
+     * @param orderIds 订单ID列表
+     * @return 支付记录，不存在返回null
+     */
+    public Payment findLatestPaymentByOrderIds(Long userId, List<Long> orderIds) {
+        if (userId == null || orderIds == null || orderIds.isEmpty()) {
+            return null;
+        }
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(orderIds));
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT p.id, p.payment_id, p.user_id, p.order_ids, p.payment_amount, p.payment_method, " +
+                "p.payment_status, p.third_party_transaction_id, p.failure_reason, p.payment_time, " +
+                "p.expire_time, p.is_deleted, p.create_time, p.update_time " +
+                "FROM payment p JOIN (" +
+                "SELECT payment_id FROM payment_order WHERE order_id IN (");
+        appendPlaceholders(sql, distinctIds.size());
+        sql.append(") GROUP BY payment_id HAVING COUNT(*) = ?) po ON po.payment_id = p.payment_id " +
+                "WHERE p.user_id = ? AND p.is_deleted = 0 ORDER BY p.create_time DESC, p.id DESC LIMIT 1");
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        Payment payment = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("根据订单查询支付记录失败: 无法获取数据库连接, orderIds={}", orderIds);
+                return null;
+            }
+            pstmt = conn.prepareStatement(sql.toString());
+            int index = 1;
+            for (Long orderId : distinctIds) {
+                pstmt.setLong(index++, orderId);
+            }
+            pstmt.setInt(index++, distinctIds.size());
+            pstmt.setLong(index, userId);
+            rs = pstmt.executeQuery();
+            if (rs.next()) {
+                payment = mapPayment(rs);
+            }
+        } catch (SQLException e) {
+            logger.error("根据订单查询支付记录失败: userId={}, orderIds={}, error={}", userId, orderIds, e.getMessage(), e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+
+        return payment;
+    }
+
+    /**
+     * 在指定订单中找出仍有待支付记录的订单
+     * @param orderIds 订单ID列表
+     * @return 仍被某笔待支付记录占用的订单ID
+     */
+    public Set<Long> findOrderIdsWithPendingPayment(List<Long> orderIds) {
+        Set<Long> pending = new HashSet<>();
+        if (orderIds == null || orderIds.isEmpty()) {
+            return pending;
+        }
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT DISTINCT po.order_id FROM payment_order po " +
+                "JOIN payment p ON p.payment_id = po.payment_id " +
+                "WHERE p.payment_status = ? AND p.is_deleted = 0 AND po.order_id IN (");
+        appendPlaceholders(sql, orderIds.size());
+        sql.append(")");
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("查询待支付订单失败: 无法获取数据库连接, orderIds={}", orderIds);
+                return pending;
+            }
+            pstmt = conn.prepareStatement(sql.toString());
+            pstmt.setInt(1, Payment.STATUS_PENDING);
+            for (int i = 0; i < orderIds.size(); i++) {
+                pstmt.setLong(i + 2, orderIds.get(i));
+            }
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                pending.add(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            logger.error("查询待支付订单失败: orderIds={}, error={}", orderIds, e.getMessage(), e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+
+        return pending;
+    }
+
     /**
      * 根据支付流水号查询支付记录
      * @param paymentId 支付流水号
@@ -303,6 +470,95 @@ public class PaymentDao {
         return payments;
     }
 
+    /**
+     * 写入支付-订单映射（重复执行不会产生重复记录）
+     */
+    private void insertPaymentOrders(Connection conn, String paymentId, Long userId, List<Long> orderIds) throws SQLException {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT IGNORE INTO payment_order (payment_id, order_id, user_id) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Long orderId : new LinkedHashSet<>(orderIds)) {
+                stmt.setString(1, paymentId);
+                stmt.setLong(2, orderId);
+                stmt.setLong(3, userId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * 解析 order_ids JSON，数字统一转换为Long
+     */
+    @SuppressWarnings("unchecked")
+    private List<Long> parseOrderIds(String orderIdsJson) {
+        List<Long> orderIds = new ArrayList<>();
+        if (orderIdsJson == null || orderIdsJson.trim().isEmpty()) {
+            return orderIds;
+        }
+        List<Object> values = JsonUtil.fromJson(orderIdsJson, List.class);
+        if (values != null) {
+            for (Object value : values) {
+                if (value instanceof Number) {
+                    orderIds.add(((Number) value).longValue());
+                }
+            }
+        }
+        return orderIds;
+    }
+
+    private Payment mapPayment(ResultSet rs) throws SQLException {
+        Payment payment = new Payment();
+        payment.setId(rs.getLong("id"));
+        payment.setPaymentId(rs.getString("payment_id"));
+        payment.setUserId(rs.getLong("user_id"));
+        payment.setOrderIds(rs.getString("order_ids"));
+        payment.setPaymentAmount(rs.getBigDecimal("payment_amount"));
+        payment.setPaymentMethod(rs.getInt("payment_method"));
+        payment.setPaymentStatus(rs.getInt("payment_status"));
+        payment.setThirdPartyTransactionId(rs.getString("third_party_transaction_id"));
+        payment.setFailureReason(rs.getString("failure_reason"));
+
+        Timestamp paymentTime = rs.getTimestamp("payment_time");
+        if (paymentTime != null) {
+            payment.setPaymentTime(paymentTime.toLocalDateTime());
+        }
+
+        payment.setExpireTime(rs.getTimestamp("expire_time").toLocalDateTime());
+        payment.setDeleted(rs.getBoolean("is_deleted"));
+        payment.setCreateTime(rs.getTimestamp("create_time").toLocalDateTime());
+        payment.setUpdateTime(rs.getTimestamp("update_time").toLocalDateTime());
+        return payment;
+    }
+
+    private void appendPlaceholders(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                logger.error("回滚事务失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("恢复自动提交失败: {}", e.getMessage());
+            }
+        }
+    }
+
     /**
      * 关闭数据库资源
      */
@@ -1,6 +1,7 @@
 package com.shiwu.payment.service.impl;
 
 import com.shiwu.common.util.JsonUtil;
+import com.shiwu.common.util.UnitOfWork;
 import com.shiwu.order.dao.OrderDao;
 import com.shiwu.order.model.Order;
 import com.shiwu.order.model.OrderOperationResult;
@@ -102,7 +103,7 @@ public class PaymentServiceImpl implements PaymentService {
             Payment payment = new Payment(paymentId, userId, orderIdsJson, dto.getTotalAmount(), 
                                         dto.getPaymentMethod(), expireTime);
             
-            Long paymentRecordId = paymentDao.createPayment(payment);
+            Long paymentRecordId = paymentDao.createPayment(payment, dto.getOrderIds());
             if (paymentRecordId == null) {
                 logger.error("创建支付失败: 数据库操作失败, userId={}", userId);
                 return PaymentOperationResult.failure(PaymentErrorCode.SYSTEM_ERROR, PaymentErrorCode.MSG_SYSTEM_ERROR);
@@ -185,21 +186,27 @@ public class PaymentServiceImpl implements PaymentService {
             String transactionId = generateTransactionId();
             LocalDateTime paymentTime = LocalDateTime.now();
 
-            // 更新支付状态为成功
-            boolean updateSuccess = paymentDao.updatePaymentStatus(paymentId, Payment.STATUS_SUCCESS, transactionId, null);
-            if (!updateSuccess) {
-                logger.error("处理支付失败: 更新支付状态失败, paymentId={}", paymentId);
-                return PaymentOperationResult.failure(PaymentErrorCode.SYSTEM_ERROR, PaymentErrorCode.MSG_SYSTEM_ERROR);
-            }
+            // 支付状态和订单状态在同一个工作单元中更新，订单更新失败时支付状态一并回滚
+            List<Long> orderIds = resolveOrderIds(payment);
+            PaymentOperationResult writeResult = UnitOfWork.execute(() -> {
+                // 更新支付状态为成功
+                boolean updateSuccess = paymentDao.updatePaymentStatus(paymentId, Payment.STATUS_SUCCESS, transactionId, null);
+                if (!updateSuccess) {
+                    logger.error("处理支付失败: 更新支付状态失败, paymentId={}", paymentId);
+                    return PaymentOperationResult.failure(PaymentErrorCode.SYSTEM_ERROR, PaymentErrorCode.MSG_SYSTEM_ERROR);
+                }
 
-            // 更新订单状态为待发货
-            @SuppressWarnings("unchecked")
-            List<Long> orderIds = JsonUtil.fromJson(payment.getOrderIds(), List.class);
-            OrderOperationResult orderUpdateResult = orderService.updateOrderStatusAfterPayment(orderIds, paymentId);
-            if (!orderUpdateResult.isSuccess()) {
-                logger.error("支付成功后更新订单状态失败: paymentId={}, error={}",
-                            paymentId, orderUpdateResult.getErrorMessage());
-                // 这里可以考虑回滚支付状态，但为了简化，我们只记录错误
+                // 更新订单状态为待发货
+                OrderOperationResult orderUpdateResult = orderService.updateOrderStatusAfterPayment(orderIds, paymentId);
+                if (!orderUpdateResult.isSuccess()) {
+                    logger.error("支付成功后更新订单状态失败，回滚支付: paymentId={}, error={}",
+                                paymentId, orderUpdateResult.getErrorMessage());
+                    return PaymentOperationResult.failure(PaymentErrorCode.SYSTEM_ERROR, PaymentErrorCode.MSG_SYSTEM_ERROR);
+                }
+                return PaymentOperationResult.success(null);
+            }, PaymentOperationResult::isSuccess);
+            if (!writeResult.isSuccess()) {
+                return writeResult;
             }
 
             // 构造返回数据
@@ -227,6 +234,27 @@ public class PaymentServiceImpl implements PaymentService {
     
 
     
+    /**
+     * 获取支付包含的订单ID，优先读取支付-订单映射，
+     * 映射尚未回填的历史支付记录再解析 order_ids JSON
+     */
+    private List<Long> resolveOrderIds(Payment payment) {
+        List<Long> orderIds = paymentDao.findOrderIdsByPaymentId(payment.getPaymentId());
+        if (!orderIds.isEmpty()) {
+            return orderIds;
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> values = JsonUtil.fromJson(payment.getOrderIds(), List.class);
+        if (values != null) {
+            for (Object value : values) {
+                if (value instanceof Number) {
+                    orderIds.add(((Number) value).longValue());
+                }
+            }
+        }
+        return orderIds;
+    }
+
     /**
      * 生成支付流水号
      */
@@ -300,9 +328,7 @@ public class PaymentServiceImpl implements PaymentService {
             // 构造返回数据
             PaymentVO paymentVO = new PaymentVO();
             paymentVO.setPaymentId(payment.getPaymentId());
-            @SuppressWarnings("unchecked")
-            List<Long> orderIds = JsonUtil.fromJson(payment.getOrderIds(), List.class);
-            paymentVO.setOrderIds(orderIds);
+            paymentVO.setOrderIds(resolveOrderIds(payment));
             paymentVO.setPaymentStatus(payment.getPaymentStatus());
             paymentVO.setPaymentStatusText(getPaymentStatusText(payment.getPaymentStatus()));
             paymentVO.setPaymentAmount(payment.getPaymentAmount());
@@ -358,8 +384,7 @@ public class PaymentServiceImpl implements PaymentService {
             }
 
             // 取消订单并解锁商品
-            @SuppressWarnings("unchecked")
-            List<Long> orderIds = JsonUtil.fromJson(payment.getOrderIds(), List.class);
+            List<Long> orderIds = resolveOrderIds(payment);
             OrderOperationResult cancelResult = orderService.cancelOrdersAfterPaymentFailure(orderIds, "用户主动取消");
             if (!cancelResult.isSuccess()) {
                 logger.error("取消支付后取消订单失败: paymentId={}, error={}", paymentId, cancelResult.getErrorMessage());
@@ -404,8 +429,7 @@ public class PaymentServiceImpl implements PaymentService {
             }
 
             // 取消订单并解锁商品
-            @SuppressWarnings("unchecked")
-            List<Long> orderIds = JsonUtil.fromJson(payment.getOrderIds(), List.class);
+            List<Long> orderIds = resolveOrderIds(payment);
             OrderOperationResult cancelResult = orderService.cancelOrdersAfterPaymentFailure(orderIds, "支付超时");
             if (!cancelResult.isSuccess()) {
                 logger.error("支付超时后取消订单失败: paymentId={}, error={}", paymentId, cancelResult.getErrorMessage());
@@ -473,32 +497,24 @@ public class PaymentServiceImpl implements PaymentService {
         }
 
         try {
-            // 查询用户的所有支付记录
-            List<Payment> payments = paymentDao.findPaymentsByUserId(userId);
+            // 通过支付-订单映射定位包含全部指定订单的最近一笔支付记录
+            Payment payment = paymentDao.findLatestPaymentByOrderIds(userId, orderIds);
+            if (payment != null) {
+                PaymentVO paymentVO = new PaymentVO();
+                paymentVO.setPaymentId(payment.getPaymentId());
+                paymentVO.setOrderIds(resolveOrderIds(payment));
+                paymentVO.setPaymentStatus(payment.getPaymentStatus());
+                paymentVO.setPaymentStatusText(getPaymentStatusText(payment.getPaymentStatus()));
+                paymentVO.setPaymentAmount(payment.getPaymentAmount());
+                paymentVO.setPaymentMethod(payment.getPaymentMethod());
+                paymentVO.setPaymentMethodText(getPaymentMethodText(payment.getPaymentMethod()));
+                paymentVO.setPaymentTime(payment.getPaymentTime());
+                paymentVO.setThirdPartyTransactionId(payment.getThirdPartyTransactionId());
+                paymentVO.setFailureReason(payment.getFailureReason());
+                paymentVO.setExpireTime(payment.getExpireTime());
 
-            // 查找包含指定订单的支付记录
-            for (Payment payment : payments) {
-                @SuppressWarnings("unchecked")
-                List<Long> paymentOrderIds = JsonUtil.fromJson(payment.getOrderIds(), List.class);
-
-                // 检查是否包含所有指定的订单ID
-                if (paymentOrderIds.containsAll(orderIds)) {
-                    PaymentVO paymentVO = new PaymentVO();
-                    paymentVO.setPaymentId(payment.getPaymentId());
-                    paymentVO.setOrderIds(paymentOrderIds);
-                    paymentVO.setPaymentStatus(payment.getPaymentStatus());
-                    paymentVO.setPaymentStatusText(getPaymentStatusText(payment.getPaymentStatus()));
-                    paymentVO.setPaymentAmount(payment.getPaymentAmount());
-                    paymentVO.setPaymentMethod(payment.getPaymentMethod());
-                    paymentVO.setPaymentMethodText(getPaymentMethodText(payment.getPaymentMethod()));
-                    paymentVO.setPaymentTime(payment.getPaymentTime());
-                    paymentVO.setThirdPartyTransactionId(payment.getThirdPartyTransactionId());
-                    paymentVO.setFailureReason(payment.getFailureReason());
-                    paymentVO.setExpireTime(payment.getExpireTime());
-
-                    logger.info("根据订单ID获取支付信息成功: orderIds={}, paymentId={}", orderIds, payment.getPaymentId());
-                    return PaymentOperationResult.success(paymentVO);
-                }
+                logger.info("根据订单ID获取支付信息成功: orderIds={}, paymentId={}", orderIds, payment.getPaymentId());
+                return PaymentOperationResult.success(paymentVO);
             }
 
             logger.warn("根据订单ID获取支付信息失败: 未找到对应的支付记录, orderIds={}, userId={}", orderIds, userId);
@@ -0,0 +1,214 @@
+package com.shiwu.product.cache;
+
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.common.util.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 商品列表响应微缓存
+ *
+ * 商品列表和分类接口的大部分流量是相同的查询（首页、默认排序、热门分类），
+ * 每次都要执行一次 COUNT 和分页查询并重新序列化JSON。这里按规范化后的查询参数
+ * 缓存已经序列化好的响应体，有效期只有几秒，流量高峰时同一个查询每个周期只查一次数据库。
+ *
+ * 1. 同一个键同时未命中时只有一个线程加载，其余线程等待它的结果（single-flight）
+ * 2. 商品上架、下架、锁定、售出、修改、删除时递增全局代数，旧代数的缓存项立即失效；
+ *    在工作单元中的修改在提交后再递增一次，避免提交前读到旧数据的加载结果被当作新代数缓存
+ * 3. 有效期可以通过系统属性 shiwu.productListingCache.ttlMillis 配置，小于等于0时关闭缓存
+ *
+ * 注意：缓存只感知本进程内的写入，多实例部署时其他实例的修改要等缓存过期后才可见
+ */
+public class ProductListingCache {
+    private static final Logger logger = LoggerFactory.getLogger(ProductListingCache.class);
+
+    /**
+     * 默认有效期（毫秒）
+     */
+    private static final long DEFAULT_TTL_MILLIS = 2000;
+
+    /**
+     * 最多缓存的响应数量
+     */
+    private static final int MAX_ENTRIES = 1024;
+
+    /**
+     * 等待其他线程加载的最长时间（毫秒），超时后自行加载
+     */
+    private static final long LOAD_WAIT_MILLIS = 5000;
+
+    private static volatile ProductListingCache instance;
+
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<String>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    ProductListingCache(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMillis));
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static ProductListingCache getInstance() {
+        if (instance == null) {
+            synchronized (ProductListingCache.class) {
+                if (instance == null) {
+                    ProductListingCache cache = new ProductListingCache(
+                            Long.getLong("shiwu.productListingCache.ttlMillis", DEFAULT_TTL_MILLIS));
+                    MetricsRegistry.register("productListingCache", cache::getStats);
+                    instance = cache;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 生成商品列表查询的缓存键，参数应为控制器校验、规范化之后的值
+     */
+    public static String listingKey(String keyword, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                    String sortBy, String sortDirection, int pageNum, int pageSize) {
+        StringBuilder sb = new StringBuilder("products");
+        sb.append('|').append(keyword != null ? keyword.trim() : "");
+        sb.append('|').append(categoryId != null ? categoryId : "");
+        sb.append('|').append(minPrice != null ? minPrice.stripTrailingZeros().toPlainString() : "");
+        sb.append('|').append(maxPrice != null ? maxPrice.stripTrailingZeros().toPlainString() : "");
+        sb.append('|').append(sortBy != null ? sortBy.trim().toLowerCase() : "");
+        sb.append('|').append(sortDirection != null ? sortDirection.trim().toLowerCase() : "");
+        sb.append('|').append(pageNum).append('|').append(pageSize);
+        return sb.toString();
+    }
+
+    /**
+     * 获取缓存的响应体，未命中时调用 loader 生成
+     * @param key 缓存键
+     * @param loader 生成序列化后的响应体，返回null表示结果不应缓存
+     * @return 响应体
+     */
+    public String get(String key, Supplier<String> loader) {
+        if (ttlNanos == 0) {
+            return loader.get();
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isValid(generation.get())) {
+            hits.incrementAndGet();
+            return entry.body;
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.get(LOAD_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return loader.get();
+            } catch (ExecutionException | TimeoutException e) {
+                // 加载失败或太慢时不共享结果，由当前线程自行加载
+                return loader.get();
+            }
+        }
+
+        misses.incrementAndGet();
+        try {
+            long loadGeneration = generation.get();
+            String body = loader.get();
+            if (body != null) {
+                store(key, new Entry(body, loadGeneration, System.nanoTime() + ttlNanos));
+            }
+            future.complete(body);
+            return body;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 使所有缓存项失效，商品数据变化后调用
+     */
+    public void invalidate() {
+        bumpGeneration();
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCommit(this::bumpGeneration);
+        }
+    }
+
+    /**
+     * 获取缓存指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits.get() + misses.get() + coalesced.get();
+        stats.put("ttlMillis", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        stats.put("entries", entries.size());
+        stats.put("generation", generation.get());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("hitRate", lookups > 0 ? (double) (hits.get() + coalesced.get()) / lookups : 0.0);
+        return stats;
+    }
+
+    private void bumpGeneration() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    private void store(String key, Entry entry) {
+        if (entries.size() >= MAX_ENTRIES && !entries.containsKey(key)) {
+            long current = generation.get();
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (!it.next().isValid(current)) {
+                    it.remove();
+                }
+            }
+            if (entries.size() >= MAX_ENTRIES) {
+                logger.debug("商品列表缓存已满，跳过缓存: key={}", key);
+                return;
+            }
+        }
+        entries.put(key, entry);
+    }
+
+    private static final class Entry {
+        final String body;
+        final long generation;
+        final long expiresAtNanos;
+
+        Entry(String body, long generation, long expiresAtNanos) {
+            this.body = body;
+            this.generation = generation;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isValid(long currentGeneration) {
+            return generation == currentGeneration && System.nanoTime() - expiresAtNanos < 0;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.shiwu.product.cache;
+
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.product.dao.ProductDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品浏览计数
+ *
+ * 商品详情每被浏览一次只在内存中给该商品的 LongAdder 加一（无锁、分段累加，热门商品的并发浏览不会争用），
+ * 由后台任务定期把各商品未写回的增量合并成批量 UPDATE 写入 product.view_count，
+ * 数据库写入次数与被浏览的商品数量成正比，与浏览次数无关。
+ * 读取时返回 product.view_count + 未写回的增量。
+ *
+ * 一个写回周期内没有新浏览且已全部写回的计数会被淘汰；淘汰的计数再保留一个周期，
+ * 期间仍落到旧对象上的增量在下一轮写回。计数数量达到上限时，新商品的浏览不再计数，只记入指标。
+ */
+public class ProductViewCounter {
+    private static final Logger logger = LoggerFactory.getLogger(ProductViewCounter.class);
+
+    /**
+     * 同时计数的商品数量上限
+     */
+    private static final int DEFAULT_MAX_ENTRIES = 100000;
+
+    /**
+     * 写回间隔（秒）
+     */
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+
+    private static volatile ProductViewCounter instance;
+
+    private final ProductDao productDao;
+    private final int maxEntries;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 上一轮淘汰的计数，仅在 flush 中访问
+     */
+    private List<Map.Entry<Long, Counter>> retired = new ArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder views = new LongAdder();
+    private final LongAdder droppedViews = new LongAdder();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong flushedProducts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * 单个商品的计数
+     */
+    private static final class Counter {
+        // 累计浏览次数，只增不清零，避免 sumThenReset 丢失并发更新
+        final LongAdder views = new LongAdder();
+
+        // 已写回数据库的次数和上一轮写回时的累计次数，仅在 flush 中修改
+        volatile long flushed;
+        long sumAtLastFlush;
+
+        long pending() {
+            return views.sum() - flushed;
+        }
+    }
+
+    ProductViewCounter(ProductDao productDao, int maxEntries) {
+        this.productDao = productDao;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static ProductViewCounter getInstance() {
+        if (instance == null) {
+            synchronized (ProductViewCounter.class) {
+                if (instance == null) {
+                    ProductViewCounter counter = new ProductViewCounter(new ProductDao(), DEFAULT_MAX_ENTRIES);
+                    MetricsRegistry.register("productViewCounter", counter::getStats);
+                    instance = counter;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 启动定期写回任务
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        logger.info("启动商品浏览计数写回任务: 间隔{}秒", FLUSH_INTERVAL_SECONDS);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "product-view-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly,
+                FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 停止后台任务并写回剩余增量
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        logger.info("停止商品浏览计数写回任务");
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+        flushQuietly();
+    }
+
+    /**
+     * 记录一次商品浏览
+     */
+    public void recordView(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        Counter counter = counters.get(productId);
+        if (counter == null) {
+            if (counters.size() >= maxEntries) {
+                droppedViews.increment();
+                return;
+            }
+            counter = counters.computeIfAbsent(productId, key -> new Counter());
+        }
+        counter.views.increment();
+        views.increment();
+    }
+
+    /**
+     * 获取商品尚未写回数据库的浏览次数
+     */
+    public long getPendingViews(Long productId) {
+        if (productId == null) {
+            return 0;
+        }
+        Counter counter = counters.get(productId);
+        return counter != null ? Math.max(0, counter.pending()) : 0;
+    }
+
+    /**
+     * 把未写回的增量批量写入 product.view_count
+     * @return 本次写回的商品数量，失败返回-1
+     */
+    public synchronized int flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        Map<Counter, Long> snapshot = new HashMap<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            collect(entry.getKey(), entry.getValue(), deltas, snapshot);
+        }
+        for (Map.Entry<Long, Counter> entry : retired) {
+            collect(entry.getKey(), entry.getValue(), deltas, snapshot);
+        }
+
+        if (!deltas.isEmpty()) {
+            flushes.incrementAndGet();
+            if (!productDao.applyViewCountDeltas(deltas)) {
+                flushFailures.incrementAndGet();
+                logger.warn("写回商品浏览计数失败，将在下一轮重试: products={}", deltas.size());
+                return -1;
+            }
+            for (Map.Entry<Counter, Long> entry : snapshot.entrySet()) {
+                entry.getKey().flushed += entry.getValue();
+            }
+            flushedProducts.addAndGet(deltas.size());
+        }
+
+        retired = evictIdle();
+        return deltas.size();
+    }
+
+    /**
+     * 获取浏览计数指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int pendingProducts = 0;
+        for (Counter counter : counters.values()) {
+            if (counter.pending() != 0) {
+                pendingProducts++;
+            }
+        }
+        stats.put("size", counters.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("pendingProducts", pendingProducts);
+        stats.put("views", views.sum());
+        stats.put("droppedViews", droppedViews.sum());
+        stats.put("flushes", flushes.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("flushedProducts", flushedProducts.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private static void collect(Long productId, Counter counter, Map<Long, Long> deltas, Map<Counter, Long> snapshot) {
+        long pending = counter.pending();
+        if (pending > 0) {
+            deltas.merge(productId, pending, Long::sum);
+            snapshot.put(counter, pending);
+        }
+    }
+
+    /**
+     * 淘汰上一轮写回后没有新浏览的计数
+     */
+    private List<Map.Entry<Long, Counter>> evictIdle() {
+        List<Map.Entry<Long, Counter>> evicted = new ArrayList<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long sum = counter.views.sum();
+            if (sum == counter.flushed && sum == counter.sumAtLastFlush
+                    && counters.remove(entry.getKey(), counter)) {
+                evicted.add(entry);
+                evictions.incrementAndGet();
+            }
+            counter.sumAtLastFlush = sum;
+        }
+        return evicted;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("写回商品浏览计数发生异常: {}", e.getMessage(), e);
+        }
+    }
+}
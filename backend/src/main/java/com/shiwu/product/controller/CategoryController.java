@@ -1,7 +1,10 @@
 package com.shiwu.product.controller;
 
 import com.shiwu.common.result.Result;
+import com.shiwu.common.util.ConditionalGet;
+import com.shiwu.common.util.EntityVersions;
 import com.shiwu.common.util.JsonUtil;
+import com.shiwu.product.cache.ProductListingCache;
 import com.shiwu.product.model.CategoryVO;
 import com.shiwu.product.service.ProductService;
 import com.shiwu.product.service.impl.ProductServiceImpl;
@@ -23,10 +26,13 @@ import java.util.List;
 @WebServlet("/api/categories/*")
 public class CategoryController extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(CategoryController.class);
+    private static final String CATEGORIES_CACHE_KEY = "categories";
     private final ProductService productService;
+    private final ProductListingCache listingCache;
     
     public CategoryController() {
         this.productService = new ProductServiceImpl();
+        this.listingCache = ProductListingCache.getInstance();
     }
     
     @Override
@@ -46,11 +52,21 @@ public class CategoryController extends HttpServlet {
      */
     private void handleGetAllCategories(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         try {
-            // 获取所有分类
-            List<CategoryVO> categories = productService.getAllCategories();
+            // 分类没有变化时直接返回304
+            String etag = ConditionalGet.etag(EntityVersions.typeVersion(EntityVersions.CATEGORY));
+            if (ConditionalGet.checkNotModified(req, resp, etag, ConditionalGet.CACHE_PUBLIC)) {
+                return;
+            }
+            
+            // 获取所有分类，缓存有效期内直接返回已序列化的响应
+            String json = listingCache.get(CATEGORIES_CACHE_KEY, () -> {
+                List<CategoryVO> categories = productService.getAllCategories();
+                return JsonUtil.toJson(Result.success(categories));
+            });
             
             // 返回结果
-            sendSuccessResponse(resp, categories);
+            ConditionalGet.applyValidators(resp, etag, ConditionalGet.CACHE_PUBLIC);
+            sendJsonResponse(resp, json);
         } catch (Exception e) {
             logger.error("处理获取商品分类请求失败: {}", e.getMessage(), e);
             sendErrorResponse(resp, "500", "系统错误，请稍后再试");
@@ -58,17 +74,14 @@ public class CategoryController extends HttpServlet {
     }
     
     /**
-     * 发送成功响应
+     * 发送已序列化的JSON响应
      */
-    private void sendSuccessResponse(HttpServletResponse resp, Object data) throws IOException {
+    private void sendJsonResponse(HttpServletResponse resp, String json) throws IOException {
         resp.setContentType("application/json");
         resp.setCharacterEncoding("UTF-8");
         
-        Result<Object> result = Result.success(data);
-        String jsonResponse = JsonUtil.toJson(result);
-        
         PrintWriter out = resp.getWriter();
-        out.print(jsonResponse);
+        out.print(json);
         out.flush();
     }
     
@@ -1,8 +1,12 @@
 package com.shiwu.product.controller;
 
 import com.shiwu.common.result.Result;
+import com.shiwu.common.util.ConditionalGet;
+import com.shiwu.common.util.EntityVersions;
 import com.shiwu.common.util.JsonUtil;
 import com.shiwu.common.util.RequestUtil;
+import com.shiwu.product.cache.ProductListingCache;
+import com.shiwu.product.cache.ProductViewCounter;
 //import com.shiwu.product.model.CategoryVO;
 import com.shiwu.product.model.Product;
 import com.shiwu.product.model.ProductCardVO;
@@ -30,6 +34,7 @@ import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 商品控制器
@@ -43,9 +48,13 @@ import java.util.Map;
 public class ProductController extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
     private final ProductService productService;
+    private final ProductListingCache listingCache;
+    private final ProductViewCounter viewCounter;
     
     public ProductController() {
         this.productService = new ProductServiceImpl();
+        this.listingCache = ProductListingCache.getInstance();
+        this.viewCounter = ProductViewCounter.getInstance();
     }
     
     @Override
@@ -180,6 +189,14 @@ public class ProductController extends HttpServlet {
             // 获取当前用户ID
             Long currentUserId = RequestUtil.getCurrentUserId(req);
             
+            // 商品和卖家信息都没有变化时直接返回304（浏览次数不参与验证器，304响应中的浏览次数可能略旧）
+            String etag = ConditionalGet.etag(EntityVersions.version(EntityVersions.PRODUCT, productId),
+                EntityVersions.typeVersion(EntityVersions.USER), currentUserId);
+            if (ConditionalGet.checkNotModified(req, resp, etag, ConditionalGet.CACHE_PRIVATE)) {
+                viewCounter.recordView(productId);
+                return;
+            }
+            
             // 查询商品详情
             ProductDetailVO productDetail = productService.getProductDetailById(productId, currentUserId);
             if (productDetail == null) {
@@ -188,6 +205,8 @@ public class ProductController extends HttpServlet {
             }
             
             // 返回商品详情
+            viewCounter.recordView(productId);
+            ConditionalGet.applyValidators(resp, etag, ConditionalGet.CACHE_PRIVATE);
             sendSuccessResponse(resp, productDetail);
         } catch (Exception e) {
             logger.error("处理获取商品详情请求失败: {}", e.getMessage(), e);
@@ -590,17 +609,32 @@ public class ProductController extends HttpServlet {
                 }
             }
             
-            // 查询商品列表
-            Map<String, Object> result = productService.findProducts(
+            // 查询商品列表，相同查询在缓存有效期内直接返回已序列化的响应
+            String cacheKey = ProductListingCache.listingKey(
                 keyword, categoryId, minPrice, maxPrice, sortBy, sortDirection, pageNum, pageSize);
+            String json = listingCache.get(cacheKey, productsLoader(
+                keyword, categoryId, minPrice, maxPrice, sortBy, sortDirection, pageNum, pageSize));
             
-            sendSuccessResponse(resp, result);
+            sendJsonResponse(resp, json);
         } catch (Exception e) {
             logger.error("处理查询商品列表请求失败: {}", e.getMessage(), e);
             sendErrorResponse(resp, "500", "系统错误，请稍后再试");
         }
     }
     
+    /**
+     * 商品列表缓存未命中时的加载逻辑，返回序列化后的成功响应
+     */
+    private Supplier<String> productsLoader(String keyword, Integer categoryId, BigDecimal minPrice,
+                                            BigDecimal maxPrice, String sortBy, String sortDirection,
+                                            int pageNum, int pageSize) {
+        return () -> {
+            Map<String, Object> result = productService.findProducts(
+                keyword, categoryId, minPrice, maxPrice, sortBy, sortDirection, pageNum, pageSize);
+            return JsonUtil.toJson(Result.success(result));
+        };
+    }
+    
     /**
      * 从Part中获取提交的文件名
      */
@@ -630,6 +664,18 @@ public class ProductController extends HttpServlet {
         out.flush();
     }
     
+    /**
+     * 发送已序列化的JSON响应
+     */
+    private void sendJsonResponse(HttpServletResponse resp, String json) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        
+        PrintWriter out = resp.getWriter();
+        out.print(json);
+        out.flush();
+    }
+    
     /**
      * 发送错误响应
      */
@@ -1,7 +1,12 @@
 package com.shiwu.product.dao;
 
 import com.shiwu.admin.model.AdminProductQueryDTO;
+import com.shiwu.common.outbox.OutboxDao;
+import com.shiwu.common.outbox.OutboxJob;
 import com.shiwu.common.util.DBUtil;
+import com.shiwu.common.util.EntityVersions;
+import com.shiwu.product.cache.ProductListingCache;
+import com.shiwu.product.model.Product;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,8 +14,11 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * 管理员商品数据访问对象
@@ -18,6 +26,9 @@ import java.util.Map;
 public class AdminProductDao {
     private static final Logger logger = LoggerFactory.getLogger(AdminProductDao.class);
 
+    private final OutboxDao outboxDao = new OutboxDao();
+    private final ProductListingCache listingCache = ProductListingCache.getInstance();
+
     /**
      * 查询商品列表（管理员视角）
      */
@@ -175,6 +186,15 @@ public class AdminProductDao {
      * 更新商品状态（管理员操作）
      */
     public boolean updateProductStatus(Long productId, Integer status, Long adminId) {
+        return updateProductStatus(productId, status, adminId, null);
+    }
+
+    /**
+     * 更新商品状态（管理员操作），并在同一事务中写入状态变更后的本地任务
+     * 与批量操作一致：被其他管理员领取且租约未到期的商品不修改，修改成功时清除领取标记
+     * @param sideEffect 本地任务，可以为null；商品不存在或被其他管理员领取时不写入
+     */
+    public boolean updateProductStatus(Long productId, Integer status, Long adminId, OutboxJob sideEffect) {
         // 参数验证
         if (productId == null) {
             logger.warn("更新商品状态失败: 商品ID为空");
@@ -189,35 +209,154 @@ public class AdminProductDao {
             return false;
         }
 
-        String sql = "UPDATE product SET status = ?, update_time = ? WHERE id = ? AND is_deleted = 0";
+        String sql = "UPDATE product SET status = ?, review_claimed_by = NULL, review_lease_until = NULL, update_time = ? " +
+                "WHERE id = ? AND is_deleted = 0 " +
+                "AND (review_claimed_by IS NULL OR review_claimed_by = ? OR review_lease_until <= NOW())";
         Connection conn = null;
         PreparedStatement pstmt = null;
 
         try {
             conn = DBUtil.getConnection();
+            conn.setAutoCommit(false);
             pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, status);
             pstmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
             pstmt.setLong(3, productId);
+            pstmt.setObject(4, adminId);
 
             int affectedRows = pstmt.executeUpdate();
             boolean success = affectedRows > 0;
+            if (success && sideEffect != null) {
+                outboxDao.enqueue(conn, sideEffect);
+            }
+            conn.commit();
 
             if (success) {
+                listingCache.invalidate();
+                EntityVersions.bump(EntityVersions.PRODUCT, productId);
                 logger.info("管理员 {} 更新商品 {} 状态为 {} 成功", adminId, productId, status);
             } else {
-                logger.warn("管理员 {} 更新商品 {} 状态失败: 商品不存在或已删除", adminId, productId);
+                logger.warn("管理员 {} 更新商品 {} 状态失败: 商品不存在、已删除或已被其他管理员领取审核", adminId, productId);
             }
 
             return success;
         } catch (SQLException e) {
             logger.error("更新商品状态失败: {}", e.getMessage(), e);
+            rollbackQuietly(conn);
             return false;
         } finally {
+            restoreAutoCommit(conn);
             closeResources(conn, pstmt, null);
         }
     }
 
+    /**
+     * 批量更新商品状态（管理员操作）
+     * 在一个事务中锁定这一批商品，只把当前状态在 fromStatuses 中、且没有被其他管理员领取审核的商品
+     * 用一条 UPDATE 改为目标状态并清除领取标记；状态变更后的本地任务在同一事务中写入
+     * @param productIds 商品ID（一块，调用方负责控制数量）
+     * @param fromStatuses 允许修改的当前状态
+     * @param status 目标状态
+     * @param adminId 管理员ID
+     * @param sideEffect 根据商品生成状态变更后的本地任务，返回null表示没有任务；可以为null
+     * @return 找到的商品，包含 id、sellerId、title、修改前的 status、claimedByOther 和是否已修改 updated；
+     *         不存在或已删除的商品不在结果中
+     */
+    public List<Map<String, Object>> bulkUpdateProductStatus(List<Long> productIds, Set<Integer> fromStatuses, Integer status,
+                                                             Long adminId, Function<Product, OutboxJob> sideEffect) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (productIds == null || productIds.isEmpty()) {
+            return rows;
+        }
+        StringBuilder lockSql = new StringBuilder("SELECT id, seller_id, title, status, update_time, " +
+                "(review_claimed_by IS NOT NULL AND review_claimed_by <> ? AND review_lease_until > NOW()) AS claimed_by_other " +
+                "FROM product WHERE is_deleted = 0 AND id IN (");
+        appendPlaceholders(lockSql, productIds.size());
+        lockSql.append(") ORDER BY id FOR UPDATE");
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            conn.setAutoCommit(false);
+
+            pstmt = conn.prepareStatement(lockSql.toString());
+            pstmt.setLong(1, adminId);
+            for (int i = 0; i < productIds.size(); i++) {
+                pstmt.setLong(i + 2, productIds.get(i));
+            }
+            rs = pstmt.executeQuery();
+            List<Product> eligible = new ArrayList<>();
+            while (rs.next()) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("id", rs.getLong("id"));
+                row.put("sellerId", rs.getLong("seller_id"));
+                row.put("title", rs.getString("title"));
+                row.put("status", rs.getInt("status"));
+                boolean claimedByOther = rs.getBoolean("claimed_by_other");
+                row.put("claimedByOther", claimedByOther);
+                boolean updated = fromStatuses.contains(rs.getInt("status")) && !claimedByOther;
+                row.put("updated", updated);
+                if (updated) {
+                    Product product = new Product();
+                    product.setId(rs.getLong("id"));
+                    product.setSellerId(rs.getLong("seller_id"));
+                    product.setTitle(rs.getString("title"));
+                    product.setUpdateTime(rs.getObject("update_time", LocalDateTime.class));
+                    product.setStatus(status);
+                    eligible.add(product);
+                }
+                rows.add(row);
+            }
+            rs.close();
+            rs = null;
+            pstmt.close();
+            pstmt = null;
+
+            if (!eligible.isEmpty()) {
+                StringBuilder updateSql = new StringBuilder("UPDATE product SET status = ?, review_claimed_by = NULL, " +
+                        "review_lease_until = NULL, update_time = ? WHERE id IN (");
+                appendPlaceholders(updateSql, eligible.size());
+                pstmt = conn.prepareStatement(updateSql.append(')').toString());
+                pstmt.setInt(1, status);
+                pstmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                for (int i = 0; i < eligible.size(); i++) {
+                    pstmt.setLong(i + 3, eligible.get(i).getId());
+                }
+                pstmt.executeUpdate();
+                if (sideEffect != null) {
+                    for (Product product : eligible) {
+                        OutboxJob job = sideEffect.apply(product);
+                        if (job != null) {
+                            outboxDao.enqueue(conn, job);
+                        }
+                    }
+                }
+            }
+            conn.commit();
+
+            if (!eligible.isEmpty()) {
+                listingCache.invalidate();
+                for (Product product : eligible) {
+                    EntityVersions.bump(EntityVersions.PRODUCT, product.getId());
+                }
+            }
+            logger.info("管理员 {} 批量更新商品状态为 {}: 提交{}件, 更新{}件", adminId, status, productIds.size(), eligible.size());
+            return rows;
+        } catch (SQLException e) {
+            logger.error("批量更新商品状态失败: {}", e.getMessage(), e);
+            rollbackQuietly(conn);
+            throw new RuntimeException("批量更新商品状态时发生数据库错误", e);
+        } finally {
+            restoreAutoCommit(conn);
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
     /**
      * 删除商品（软删除）
      */
@@ -246,6 +385,8 @@ public class AdminProductDao {
             boolean success = affectedRows > 0;
 
             if (success) {
+                listingCache.invalidate();
+                EntityVersions.bump(EntityVersions.PRODUCT, productId);
                 logger.info("管理员 {} 删除商品 {} 成功", adminId, productId);
             } else {
                 logger.warn("管理员 {} 删除商品 {} 失败: 商品不存在或已删除", adminId, productId);
@@ -260,6 +401,258 @@ public class AdminProductDao {
         }
     }
 
+    /**
+     * 领取一批待审核商品：先续期自己尚未到期的领取，再用 SKIP LOCKED 领取无人领取或租约已过期的商品补足数量，
+     * 多个管理员同时领取时互不等待、不会拿到同一件商品
+     * @param adminId 管理员ID
+     * @param limit 最多持有的商品数量
+     * @param leaseSeconds 租约时长（秒）
+     * @return 领取到的商品（含自己之前领取且未到期的），按商品ID排序
+     */
+    public List<Map<String, Object>> claimPendingReview(Long adminId, int limit, int leaseSeconds) {
+        String ownSql = "SELECT id FROM product WHERE status = ? AND is_deleted = 0 " +
+                "AND review_claimed_by = ? AND review_lease_until > NOW() ORDER BY id LIMIT ? FOR UPDATE";
+        String freeSql = "SELECT id FROM product WHERE status = ? AND is_deleted = 0 " +
+                "AND (review_lease_until IS NULL OR review_lease_until <= NOW()) ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+        List<Long> ids = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            conn.setAutoCommit(false);
+
+            pstmt = conn.prepareStatement(ownSql);
+            pstmt.setInt(1, Product.STATUS_PENDING_REVIEW);
+            pstmt.setLong(2, adminId);
+            pstmt.setInt(3, limit);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+            rs.close();
+            rs = null;
+            pstmt.close();
+            pstmt = null;
+
+            if (ids.size() < limit) {
+                pstmt = conn.prepareStatement(freeSql);
+                pstmt.setInt(1, Product.STATUS_PENDING_REVIEW);
+                pstmt.setInt(2, limit - ids.size());
+                rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+                rs.close();
+                rs = null;
+                pstmt.close();
+                pstmt = null;
+            }
+
+            List<Map<String, Object>> products = new ArrayList<>();
+            if (!ids.isEmpty()) {
+                // 领取不是商品内容的变化，保持 update_time 不变
+                StringBuilder updateSql = new StringBuilder("UPDATE product SET review_claimed_by = ?, " +
+                        "review_lease_until = DATE_ADD(NOW(), INTERVAL ? SECOND), update_time = update_time WHERE id IN (");
+                appendPlaceholders(updateSql, ids.size());
+                pstmt = conn.prepareStatement(updateSql.append(')').toString());
+                pstmt.setLong(1, adminId);
+                pstmt.setInt(2, leaseSeconds);
+                for (int i = 0; i < ids.size(); i++) {
+                    pstmt.setLong(i + 3, ids.get(i));
+                }
+                pstmt.executeUpdate();
+                pstmt.close();
+                pstmt = null;
+
+                StringBuilder selectSql = new StringBuilder();
+                selectSql.append("SELECT p.id, p.title, p.price, p.status, p.create_time, p.update_time, ");
+                selectSql.append("p.seller_id, u.username as seller_name, p.category_id, p.review_lease_until ");
+                selectSql.append("FROM product p LEFT JOIN system_user u ON p.seller_id = u.id WHERE p.id IN (");
+                appendPlaceholders(selectSql, ids.size());
+                selectSql.append(") ORDER BY p.id");
+                pstmt = conn.prepareStatement(selectSql.toString());
+                for (int i = 0; i < ids.size(); i++) {
+                    pstmt.setLong(i + 1, ids.get(i));
+                }
+                rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Map<String, Object> product = new HashMap<>();
+                    product.put("id", rs.getLong("id"));
+                    product.put("title", rs.getString("title"));
+                    product.put("price", rs.getBigDecimal("price"));
+                    product.put("status", rs.getInt("status"));
+                    product.put("statusText", getStatusText(rs.getInt("status")));
+                    product.put("createTime", rs.getTimestamp("create_time").toLocalDateTime());
+                    product.put("updateTime", rs.getTimestamp("update_time").toLocalDateTime());
+                    product.put("sellerId", rs.getLong("seller_id"));
+                    product.put("sellerName", rs.getString("seller_name"));
+                    product.put("categoryId", rs.getInt("category_id"));
+                    product.put("leaseUntil", rs.getTimestamp("review_lease_until").toLocalDateTime());
+                    products.add(product);
+                }
+            }
+            conn.commit();
+            logger.info("管理员 {} 领取待审核商品 {} 件", adminId, products.size());
+            return products;
+        } catch (SQLException e) {
+            logger.error("领取待审核商品失败: adminId={}, error={}", adminId, e.getMessage(), e);
+            rollbackQuietly(conn);
+            throw new RuntimeException("领取待审核商品时发生数据库错误", e);
+        } finally {
+            restoreAutoCommit(conn);
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * 在一个事务中提交一批审核结果。只处理仍由该管理员持有且租约未到期的待审核商品，
+     * 其余商品（已被他人处理、租约过期被重新领取等）跳过
+     * @param adminId 管理员ID
+     * @param decisions 商品ID -> 审核后的状态
+     * @param sideEffect 根据商品生成状态变更后的本地任务，返回null表示没有任务；可以为null
+     * @return 实际处理的商品（id、sellerId、title 和审核后的 status）
+     */
+    public List<Product> applyReviewDecisions(Long adminId, Map<Long, Integer> decisions,
+                                              Function<Product, OutboxJob> sideEffect) {
+        List<Product> decided = new ArrayList<>();
+        if (decisions == null || decisions.isEmpty()) {
+            return decided;
+        }
+        List<Long> ids = new ArrayList<>(decisions.keySet());
+        StringBuilder lockSql = new StringBuilder("SELECT id, seller_id, title, update_time FROM product WHERE status = ? AND is_deleted = 0 " +
+                "AND review_claimed_by = ? AND review_lease_until > NOW() AND id IN (");
+        appendPlaceholders(lockSql, ids.size());
+        lockSql.append(") ORDER BY id FOR UPDATE");
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            conn.setAutoCommit(false);
+
+            pstmt = conn.prepareStatement(lockSql.toString());
+            pstmt.setInt(1, Product.STATUS_PENDING_REVIEW);
+            pstmt.setLong(2, adminId);
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setLong(i + 3, ids.get(i));
+            }
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                Product product = new Product();
+                product.setId(rs.getLong("id"));
+                product.setSellerId(rs.getLong("seller_id"));
+                product.setTitle(rs.getString("title"));
+                product.setUpdateTime(rs.getObject("update_time", LocalDateTime.class));
+                product.setStatus(decisions.get(product.getId()));
+                decided.add(product);
+            }
+            rs.close();
+            rs = null;
+            pstmt.close();
+            pstmt = null;
+
+            // 按目标状态分组，每组一条 UPDATE
+            Map<Integer, List<Long>> byStatus = new LinkedHashMap<>();
+            for (Product product : decided) {
+                byStatus.computeIfAbsent(product.getStatus(), k -> new ArrayList<>()).add(product.getId());
+            }
+            for (Map.Entry<Integer, List<Long>> entry : byStatus.entrySet()) {
+                StringBuilder updateSql = new StringBuilder("UPDATE product SET status = ?, review_claimed_by = NULL, " +
+                        "review_lease_until = NULL, update_time = ? WHERE id IN (");
+                appendPlaceholders(updateSql, entry.getValue().size());
+                pstmt = conn.prepareStatement(updateSql.append(')').toString());
+                pstmt.setInt(1, entry.getKey());
+                pstmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                for (int i = 0; i < entry.getValue().size(); i++) {
+                    pstmt.setLong(i + 3, entry.getValue().get(i));
+                }
+                pstmt.executeUpdate();
+                pstmt.close();
+                pstmt = null;
+            }
+            if (sideEffect != null) {
+                for (Product product : decided) {
+                    OutboxJob job = sideEffect.apply(product);
+                    if (job != null) {
+                        outboxDao.enqueue(conn, job);
+                    }
+                }
+            }
+            conn.commit();
+
+            if (!decided.isEmpty()) {
+                listingCache.invalidate();
+                for (Product product : decided) {
+                    EntityVersions.bump(EntityVersions.PRODUCT, product.getId());
+                }
+            }
+            logger.info("管理员 {} 提交审核结果: 提交{}件, 处理{}件", adminId, ids.size(), decided.size());
+            return decided;
+        } catch (SQLException e) {
+            logger.error("提交审核结果失败: adminId={}, error={}", adminId, e.getMessage(), e);
+            rollbackQuietly(conn);
+            throw new RuntimeException("提交审核结果时发生数据库错误", e);
+        } finally {
+            restoreAutoCommit(conn);
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * 释放管理员持有的待审核商品，其他管理员可以立即领取
+     * @param adminId 管理员ID
+     * @param productIds 要释放的商品ID，为空时释放全部
+     * @return 释放的商品数量
+     */
+    public int releaseReviewClaims(Long adminId, List<Long> productIds) {
+        StringBuilder sql = new StringBuilder("UPDATE product SET review_claimed_by = NULL, review_lease_until = NULL, " +
+                "update_time = update_time WHERE review_claimed_by = ? AND status = ?");
+        boolean hasIds = productIds != null && !productIds.isEmpty();
+        if (hasIds) {
+            sql.append(" AND id IN (");
+            appendPlaceholders(sql, productIds.size());
+            sql.append(')');
+        }
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            pstmt = conn.prepareStatement(sql.toString());
+            pstmt.setLong(1, adminId);
+            pstmt.setInt(2, Product.STATUS_PENDING_REVIEW);
+            if (hasIds) {
+                for (int i = 0; i < productIds.size(); i++) {
+                    pstmt.setLong(i + 3, productIds.get(i));
+                }
+            }
+            int released = pstmt.executeUpdate();
+            logger.info("管理员 {} 释放待审核商品 {} 件", adminId, released);
+            return released;
+        } catch (SQLException e) {
+            logger.error("释放待审核商品失败: adminId={}, error={}", adminId, e.getMessage(), e);
+            throw new RuntimeException("释放待审核商品时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
+    private static void appendPlaceholders(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+    }
+
     /**
      * 获取状态文本
      */
@@ -274,6 +667,26 @@ public class AdminProductDao {
         }
     }
 
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                logger.error("回滚事务失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("恢复自动提交失败: {}", e.getMessage());
+            }
+        }
+    }
+
     /**
      * 关闭资源
      */
@@ -1,6 +1,8 @@
 package com.shiwu.product.dao;
 
 import com.shiwu.common.util.DBUtil;
+import com.shiwu.common.util.EntityVersions;
+import com.shiwu.product.cache.ProductListingCache;
 import com.shiwu.product.model.Product;
 import com.shiwu.product.model.ProductCardVO;
 import com.shiwu.product.model.ProductDetailVO;
@@ -21,7 +23,21 @@ import java.util.Map;
  */
 public class ProductDao {
     private static final Logger logger = LoggerFactory.getLogger(ProductDao.class);
+
+    /**
+     * 商品详情查询（含分类名称和卖家信息，不含图片）
+     */
+    private static final String PRODUCT_DETAIL_SQL = "SELECT p.id, p.title, p.description, p.price, p.status, p.create_time, p.view_count, " +
+            "p.category_id, c.name AS category_name, " +
+            "p.seller_id, u.nickname AS seller_name, u.avatar_url AS seller_avatar " +
+            "FROM product p " +
+            "LEFT JOIN category c ON p.category_id = c.id " +
+            "LEFT JOIN system_user u ON p.seller_id = u.id " +
+            "WHERE p.id = ? AND p.is_deleted = 0";
     private static final Integer PRODUCT_STATUS_ONSALE = 1; // 在售状态
+    private static final int VIEW_COUNT_BATCH_SIZE = 500; // 浏览次数每条UPDATE的商品数
+
+    private final ProductListingCache listingCache = ProductListingCache.getInstance();
 
     /**
      * 查询商品列表，支持复合条件
@@ -90,6 +106,10 @@ public class ProductDao {
             String safeField = getSafeOrderField(sortBy);
             String safeDirection = sortDirection != null && "asc".equalsIgnoreCase(sortDirection) ? "ASC" : "DESC";
             sqlBuilder.append("ORDER BY p.").append(safeField).append(" ").append(safeDirection);
+            if ("view_count".equals(safeField)) {
+                // 浏览次数大量相同，按ID兜底保证分页稳定
+                sqlBuilder.append(", p.id DESC");
+            }
         } else {
             // 默认按创建时间倒序
             sqlBuilder.append("ORDER BY p.create_time DESC");
@@ -177,6 +197,8 @@ public class ProductDao {
             return "price";
         } else if ("create_time".equalsIgnoreCase(field)) {
             return "create_time";
+        } else if ("view_count".equalsIgnoreCase(field) || "views".equalsIgnoreCase(field)) {
+            return "view_count";
         } else {
             return "create_time";  // 默认按创建时间
         }
@@ -336,6 +358,10 @@ public class ProductDao {
             pstmt.setLong(5, product.getId());
             
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                listingCache.invalidate();
+                EntityVersions.bump(EntityVersions.PRODUCT, product.getId());
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             logger.error("更新商品信息失败: {}", e.getMessage(), e);
@@ -365,6 +391,10 @@ public class ProductDao {
             pstmt.setLong(3, sellerId);
 
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                listingCache.invalidate();
+                EntityVersions.bump(EntityVersions.PRODUCT, productId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             logger.error("更新商品状态失败: {}", e.getMessage(), e);
@@ -393,6 +423,8 @@ public class ProductDao {
 
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
+                listingCache.invalidate();
+                EntityVersions.bump(EntityVersions.PRODUCT, productId);
                 logger.info("系统更新商品状态成功: productId={}, status={}", productId, status);
                 return true;
             }
@@ -404,6 +436,42 @@ public class ProductDao {
 
         return false;
     }
+
+    /**
+     * 解锁没有进行中订单的已锁定商品，重复执行不会产生副作用
+     * @param productId 商品ID
+     * @return 是否解锁了商品；商品未锁定或仍有待付款/待发货/已发货订单时返回false
+     * @throws RuntimeException 数据库错误
+     */
+    public boolean unlockProductIfIdle(Long productId) {
+        String sql = "UPDATE product p SET p.status = ?, p.update_time = NOW() " +
+                "WHERE p.id = ? AND p.status = ? AND p.is_deleted = 0 " +
+                "AND NOT EXISTS (SELECT 1 FROM trade_order o WHERE o.product_id = p.id AND o.status IN (0, 1, 2) AND o.is_deleted = 0)";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setInt(1, Product.STATUS_ONSALE);
+            pstmt.setLong(2, productId);
+            pstmt.setInt(3, Product.STATUS_LOCKED);
+            boolean unlocked = pstmt.executeUpdate() > 0;
+            if (unlocked) {
+                listingCache.invalidate();
+                EntityVersions.bump(EntityVersions.PRODUCT, productId);
+                logger.info("解锁商品成功: productId={}", productId);
+            }
+            return unlocked;
+        } catch (SQLException e) {
+            throw new RuntimeException("解锁商品时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
     
     /**
      * 删除商品（逻辑删除）
@@ -423,6 +491,10 @@ public class ProductDao {
             pstmt.setLong(2, sellerId);
             
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                listingCache.invalidate();
+                EntityVersions.bump(EntityVersions.PRODUCT, productId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             logger.error("删除商品失败: {}", e.getMessage(), e);
@@ -450,6 +522,10 @@ public class ProductDao {
             pstmt.setBoolean(3, productImage.getIsMain());
             
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                listingCache.invalidate();
+                EntityVersions.bump(EntityVersions.PRODUCT, productImage.getProductId());
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             logger.error("添加商品图片失败: {}", e.getMessage(), e);
@@ -537,81 +613,118 @@ public class ProductDao {
     }
 
     /**
-     * 获取商品详情，包括商品基本信息、卖家信息、分类信息和图片列表
+     * 获取商品详情的基本信息、卖家信息和分类信息，不查询图片
+     * 图片通过 findImagesByProductId 单独查询，两者可以并发执行
      * @param productId 商品ID
-     * @return 商品详情视图对象，如果商品不存在则返回null
+     * @return 商品详情视图对象（imageUrls 为空），如果商品不存在则返回null
      */
-    public ProductDetailVO findProductDetailById(Long productId) {
-        // 构建SQL查询
-        String sql = "SELECT p.id, p.title, p.description, p.price, p.status, p.create_time, " +
-                "p.category_id, c.name AS category_name, " +
-                "p.seller_id, u.nickname AS seller_name, u.avatar_url AS seller_avatar " +
-                "FROM product p " +
-                "LEFT JOIN category c ON p.category_id = c.id " +
-                "LEFT JOIN system_user u ON p.seller_id = u.id " +
-                "WHERE p.id = ? AND p.is_deleted = 0";
-                
+    public ProductDetailVO findProductDetailBaseById(Long productId) {
         Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
-        ProductDetailVO productDetail = null;
-        
+
         try {
             conn = DBUtil.getConnection();
-            pstmt = conn.prepareStatement(sql);
+            pstmt = conn.prepareStatement(PRODUCT_DETAIL_SQL);
             pstmt.setLong(1, productId);
             rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                productDetail = new ProductDetailVO();
-                productDetail.setId(rs.getLong("id"));
-                productDetail.setTitle(rs.getString("title"));
-                productDetail.setDescription(rs.getString("description"));
-                productDetail.setPrice(rs.getBigDecimal("price"));
-                productDetail.setStatus(rs.getInt("status"));
-                productDetail.setCreateTime(rs.getObject("create_time", LocalDateTime.class));
-                productDetail.setCategoryId(rs.getInt("category_id"));
-                productDetail.setCategoryName(rs.getString("category_name"));
-                productDetail.setSellerId(rs.getLong("seller_id"));
-                productDetail.setSellerName(rs.getString("seller_name"));
-                productDetail.setSellerAvatar(rs.getString("seller_avatar"));
-                
-                // 查询商品图片
-                List<String> imageUrls = new ArrayList<>();
-                String mainImageUrl = null;
-                
-                // 关闭当前结果集和语句
-                rs.close();
-                pstmt.close();
-                
-                // 查询商品图片
-                String imageSql = "SELECT image_url, is_main FROM product_image WHERE product_id = ? ORDER BY is_main DESC, id ASC";
-                pstmt = conn.prepareStatement(imageSql);
-                pstmt.setLong(1, productId);
-                rs = pstmt.executeQuery();
-                
-                while (rs.next()) {
-                    String imageUrl = rs.getString("image_url");
-                    boolean isMain = rs.getBoolean("is_main");
-                    
-                    imageUrls.add(imageUrl);
-                    if (isMain && mainImageUrl == null) {
-                        mainImageUrl = imageUrl;
-                    }
-                }
-                
-                productDetail.setImageUrls(imageUrls);
-                productDetail.setMainImageUrl(mainImageUrl);
-            }
+            return rs.next() ? mapProductDetail(rs) : null;
         } catch (SQLException e) {
             logger.error("查询商品详情失败: {}", e.getMessage(), e);
+            return null;
         } finally {
             closeResources(conn, pstmt, rs);
         }
-        
+    }
+
+    private ProductDetailVO mapProductDetail(ResultSet rs) throws SQLException {
+        ProductDetailVO productDetail = new ProductDetailVO();
+        productDetail.setId(rs.getLong("id"));
+        productDetail.setTitle(rs.getString("title"));
+        productDetail.setDescription(rs.getString("description"));
+        productDetail.setPrice(rs.getBigDecimal("price"));
+        productDetail.setStatus(rs.getInt("status"));
+        productDetail.setCreateTime(rs.getObject("create_time", LocalDateTime.class));
+        productDetail.setViewCount(rs.getLong("view_count"));
+        productDetail.setCategoryId(rs.getInt("category_id"));
+        productDetail.setCategoryName(rs.getString("category_name"));
+        productDetail.setSellerId(rs.getLong("seller_id"));
+        productDetail.setSellerName(rs.getString("seller_name"));
+        productDetail.setSellerAvatar(rs.getString("seller_avatar"));
         return productDetail;
     }
 
+    /**
+     * 批量累加商品浏览次数
+     * 每批用一条 CASE 语句更新，全部批次在同一事务中提交；不修改 update_time
+     * @param deltas 商品ID -> 浏览次数增量
+     * @return 是否成功
+     */
+    public boolean applyViewCountDeltas(Map<Long, Long> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return true;
+        }
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(deltas.entrySet());
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("数据库连接为空");
+                return false;
+            }
+            conn.setAutoCommit(false);
+
+            for (int from = 0; from < entries.size(); from += VIEW_COUNT_BATCH_SIZE) {
+                List<Map.Entry<Long, Long>> batch =
+                        entries.subList(from, Math.min(from + VIEW_COUNT_BATCH_SIZE, entries.size()));
+                StringBuilder sql = new StringBuilder("UPDATE product SET view_count = view_count + CASE id");
+                for (int i = 0; i < batch.size(); i++) {
+                    sql.append(" WHEN ? THEN ?");
+                }
+                sql.append(" END, update_time = update_time WHERE id IN (");
+                for (int i = 0; i < batch.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(")");
+
+                pstmt = conn.prepareStatement(sql.toString());
+                int index = 1;
+                for (Map.Entry<Long, Long> entry : batch) {
+                    pstmt.setLong(index++, entry.getKey());
+                    pstmt.setLong(index++, entry.getValue());
+                }
+                for (Map.Entry<Long, Long> entry : batch) {
+                    pstmt.setLong(index++, entry.getKey());
+                }
+                pstmt.executeUpdate();
+                pstmt.close();
+                pstmt = null;
+            }
+
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            logger.error("批量更新商品浏览次数失败: {}", e.getMessage(), e);
+            rollbackQuietly(conn);
+            return false;
+        } catch (Exception e) {
+            logger.error("批量更新商品浏览次数时发生未知异常: {}", e.getMessage(), e);
+            rollbackQuietly(conn);
+            return false;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    logger.error("恢复自动提交失败: {}", e.getMessage(), e);
+                }
+            }
+            closeResources(conn, pstmt, null);
+        }
+    }
+
     // ====================================================================
     // 统计查询方法（用于管理员仪表盘）
     // ====================================================================
@@ -790,6 +903,16 @@ public class ProductDao {
         return count;
     }
 
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                logger.error("回滚事务失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * 关闭数据库资源
      */
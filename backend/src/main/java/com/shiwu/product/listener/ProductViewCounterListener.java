@@ -0,0 +1,42 @@
+package com.shiwu.product.listener;
+
+import com.shiwu.product.cache.ProductViewCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * 商品浏览计数监听器
+ * 在应用启动时启动浏览计数写回任务，在应用关闭时写回剩余增量
+ */
+@WebListener
+public class ProductViewCounterListener implements ServletContextListener {
+    private static final Logger logger = LoggerFactory.getLogger(ProductViewCounterListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        logger.info("应用启动，开始初始化商品浏览计数写回任务");
+
+        try {
+            ProductViewCounter.getInstance().start();
+            logger.info("商品浏览计数写回任务启动成功");
+        } catch (Exception e) {
+            logger.error("启动商品浏览计数写回任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        logger.info("应用关闭，开始停止商品浏览计数写回任务");
+
+        try {
+            ProductViewCounter.getInstance().stop();
+            logger.info("商品浏览计数写回任务停止成功");
+        } catch (Exception e) {
+            logger.error("停止商品浏览计数写回任务失败: {}", e.getMessage(), e);
+        }
+    }
+}
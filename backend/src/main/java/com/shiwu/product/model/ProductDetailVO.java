@@ -14,6 +14,7 @@ public class ProductDetailVO {
     private BigDecimal price;
     private Integer status;
     private LocalDateTime createTime;
+    private Long viewCount;
     private Integer categoryId;
     private String categoryName;
     private Long sellerId;
@@ -70,6 +71,14 @@ public class ProductDetailVO {
         this.createTime = createTime;
     }
     
+    public Long getViewCount() {
+        return viewCount;
+    }
+    
+    public void setViewCount(Long viewCount) {
+        this.viewCount = viewCount;
+    }
+    
     public Integer getCategoryId() {
         return categoryId;
     }
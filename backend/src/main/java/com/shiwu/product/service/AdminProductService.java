@@ -1,7 +1,12 @@
 package com.shiwu.product.service;
 
+import com.shiwu.admin.bulk.BulkResultWriter;
+import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.model.AdminProductQueryDTO;
+import com.shiwu.admin.model.AdminReviewDecisionDTO;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -66,4 +71,49 @@ public interface AdminProductService {
      * @return 操作是否成功
      */
     boolean deleteProduct(Long productId, Long adminId, String ipAddress, String userAgent);
+
+    /**
+     * 领取一批待审核商品，多个管理员同时领取不会拿到同一件商品；
+     * 再次领取时先续期自己尚未处理的商品
+     * @param adminId 管理员ID
+     * @param size 最多持有的商品数量
+     * @return 领取结果，包含 products 和 leaseSeconds
+     */
+    Map<String, Object> claimReviewBatch(Long adminId, int size);
+
+    /**
+     * 批量提交审核结果，在一个事务中提交；只处理仍由该管理员持有且租约未到期的商品
+     * @param adminId 管理员ID
+     * @param decisions 审核结果
+     * @param ipAddress IP地址
+     * @param userAgent 用户代理
+     * @return 处理结果，包含 approved、rejected、skipped 三个商品ID列表
+     */
+    Map<String, Object> submitReviewDecisions(Long adminId, List<AdminReviewDecisionDTO> decisions,
+                                              String ipAddress, String userAgent);
+
+    /**
+     * 释放领取的待审核商品
+     * @param adminId 管理员ID
+     * @param productIds 商品ID，为空时释放全部
+     * @return 释放的数量
+     */
+    int releaseReviewClaims(Long adminId, List<Long> productIds);
+
+    /**
+     * 批量修改商品状态（审核通过、审核拒绝、下架）
+     * 按块执行，每块一条加锁查询、一条条件 UPDATE 和一条审计日志 INSERT；审核通过的粉丝通知
+     * 在同一事务中写入后台任务。传入 writer 时每块提交后立即写出块内每件商品的处理结果
+     * @param action 操作类型：PRODUCT_APPROVE、PRODUCT_REJECT 或 PRODUCT_TAKEDOWN
+     * @param productIds 商品ID列表
+     * @param adminId 管理员ID
+     * @param reason 操作原因，审核拒绝时必填
+     * @param ipAddress IP地址
+     * @param userAgent 用户代理
+     * @param writer 逐块写出结果的写入器，为null时失败明细放在返回结果的 failures 中
+     * @return 操作结果统计，参数无效时返回null
+     * @throws IOException 写出结果失败
+     */
+    Map<String, Object> batchUpdateProductStatus(AuditActionEnum action, List<Long> productIds, Long adminId, String reason,
+                                                 String ipAddress, String userAgent, BulkResultWriter writer) throws IOException;
 }
@@ -104,7 +104,7 @@ public interface ProductService {
      * @param categoryId 分类ID
      * @param minPrice 最低价格
      * @param maxPrice 最高价格
-     * @param sortBy 排序字段
+     * @param sortBy 排序字段：price、create_time、view_count（浏览次数）
      * @param sortDirection 排序方向
      * @param pageNum 页码
      * @param pageSize 每页大小
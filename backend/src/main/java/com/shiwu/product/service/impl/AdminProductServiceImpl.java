@@ -1,23 +1,33 @@
 package com.shiwu.product.service.impl;
 
+import com.shiwu.admin.bulk.BulkResultWriter;
+import com.shiwu.admin.bulk.BulkStatusUpdater;
+import com.shiwu.admin.bulk.BulkStatusUpdater.StatusRule;
 import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.enums.AuditTargetTypeEnum;
 import com.shiwu.admin.model.AdminProductQueryDTO;
+import com.shiwu.admin.model.AdminReviewDecisionDTO;
 import com.shiwu.admin.service.AuditLogService;
 import com.shiwu.admin.service.impl.AuditLogServiceImpl;
 import com.shiwu.product.dao.AdminProductDao;
 import com.shiwu.product.dao.ProductDao;
 import com.shiwu.product.model.Product;
 import com.shiwu.product.service.AdminProductService;
-import com.shiwu.notification.service.NotificationService;
-import com.shiwu.notification.service.impl.NotificationServiceImpl;
-import com.shiwu.common.result.Result;
+import com.shiwu.common.outbox.OutboxJob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * 管理员商品服务实现类
@@ -25,26 +35,49 @@ import java.util.Map;
  */
 public class AdminProductServiceImpl implements AdminProductService {
     private static final Logger logger = LoggerFactory.getLogger(AdminProductServiceImpl.class);
+
+    /**
+     * 通知任务幂等键中审核前更新时间的格式，与update_time列精度一致
+     */
+    private static final DateTimeFormatter TRANSITION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    /**
+     * 审核领取租约（秒），到期未处理的商品可被其他管理员重新领取
+     */
+    private static final int REVIEW_LEASE_SECONDS = 600;
+
+    /**
+     * 单个管理员最多同时持有的待审核商品数量
+     */
+    private static final int MAX_REVIEW_BATCH = 50;
+
+    private static final Map<AuditActionEnum, StatusRule> STATUS_RULES = new EnumMap<>(AuditActionEnum.class);
+
+    static {
+        STATUS_RULES.put(AuditActionEnum.PRODUCT_APPROVE, new StatusRule(AuditActionEnum.PRODUCT_BATCH_APPROVE,
+                "审核通过商品", rejection("商品状态不是待审核"), Product.STATUS_ONSALE, Product.STATUS_PENDING_REVIEW));
+        STATUS_RULES.put(AuditActionEnum.PRODUCT_REJECT, new StatusRule(AuditActionEnum.PRODUCT_BATCH_REJECT,
+                "审核拒绝商品", rejection("商品状态不是待审核"), Product.STATUS_DRAFT, Product.STATUS_PENDING_REVIEW));
+        STATUS_RULES.put(AuditActionEnum.PRODUCT_TAKEDOWN, new StatusRule(AuditActionEnum.PRODUCT_BATCH_TAKEDOWN,
+                "下架商品", rejection("商品状态不是在售"), Product.STATUS_DELISTED, Product.STATUS_ONSALE));
+    }
     
     private final AdminProductDao adminProductDao;
     private final ProductDao productDao;
     private final AuditLogService auditLogService;
-    private final NotificationService notificationService;
 
     public AdminProductServiceImpl() {
         this.adminProductDao = new AdminProductDao();
         this.productDao = new ProductDao();
         this.auditLogService = new AuditLogServiceImpl();
-        this.notificationService = new NotificationServiceImpl();
     }
 
     // 用于测试的构造函数
     public AdminProductServiceImpl(AdminProductDao adminProductDao, ProductDao productDao,
-                                 AuditLogService auditLogService, NotificationService notificationService) {
+                                 AuditLogService auditLogService) {
         this.adminProductDao = adminProductDao;
         this.productDao = productDao;
         this.auditLogService = auditLogService;
-        this.notificationService = notificationService;
     }
 
     @Override
@@ -134,7 +167,10 @@ public class AdminProductServiceImpl implements AdminProductService {
             }
 
             // 更新商品状态为上架
-            boolean success = adminProductDao.updateProductStatus(productId, Product.STATUS_ONSALE, adminId);
+            // Task4_2_1_2: 为卖家的所有粉丝生成动态通知，通知任务与状态变更在同一事务中提交，
+            // 由后台任务执行器分段写入，审核响应不随粉丝数量变慢，写入失败会自动重试
+            OutboxJob notificationJob = approvedNotificationJob(product);
+            boolean success = adminProductDao.updateProductStatus(productId, Product.STATUS_ONSALE, adminId, notificationJob);
             
             // 记录审计日志
             String details = "审核通过商品: " + product.getTitle() + " (ID: " + productId + ")" + 
@@ -144,26 +180,6 @@ public class AdminProductServiceImpl implements AdminProductService {
             
             if (success) {
                 logger.info("管理员 {} 审核通过商品 {} 成功", adminId, productId);
-
-                // Task4_2_1_2: 商品首次审核通过时，为卖家的所有粉丝生成动态通知
-                try {
-                    Result<Integer> notificationResult = notificationService.createProductApprovedNotifications(
-                        productId, product.getSellerId(), product.getTitle());
-
-                    if (notificationResult.isSuccess()) {
-                        int notificationCount = notificationResult.getData();
-                        logger.info("为商品审核通过创建粉丝通知成功: productId={}, sellerId={}, notificationCount={}",
-                                   productId, product.getSellerId(), notificationCount);
-                    } else {
-                        logger.warn("为商品审核通过创建粉丝通知失败: productId={}, error={}",
-                                   productId, notificationResult.getMessage());
-                    }
-                } catch (Exception notificationEx) {
-                    // 通知创建失败不影响审核通过的主流程
-                    logger.error("创建商品审核通过通知时发生异常: productId={}, error={}",
-                               productId, notificationEx.getMessage(), notificationEx);
-                }
-
                 return true;
             } else {
                 logger.warn("审核通过商品失败: 更新状态失败, productId={}", productId);
@@ -334,4 +350,158 @@ public class AdminProductServiceImpl implements AdminProductService {
             return false;
         }
     }
+
+    @Override
+    public Map<String, Object> claimReviewBatch(Long adminId, int size) {
+        if (adminId == null) {
+            logger.warn("领取待审核商品失败: 管理员ID为空");
+            return null;
+        }
+        int limit = size <= 0 ? 10 : Math.min(size, MAX_REVIEW_BATCH);
+
+        try {
+            List<Map<String, Object>> products = adminProductDao.claimPendingReview(adminId, limit, REVIEW_LEASE_SECONDS);
+            Map<String, Object> result = new HashMap<>();
+            result.put("products", products);
+            result.put("leaseSeconds", REVIEW_LEASE_SECONDS);
+            return result;
+        } catch (Exception e) {
+            logger.error("领取待审核商品失败: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public Map<String, Object> submitReviewDecisions(Long adminId, List<AdminReviewDecisionDTO> decisions,
+                                                     String ipAddress, String userAgent) {
+        if (adminId == null || decisions == null) {
+            logger.warn("提交审核结果失败: 参数为空");
+            return null;
+        }
+
+        // 校验并整理审核结果，同一商品只取第一条
+        Map<Long, Integer> targets = new LinkedHashMap<>();
+        Map<Long, String> reasons = new HashMap<>();
+        List<Long> skipped = new ArrayList<>();
+        for (AdminReviewDecisionDTO decision : decisions) {
+            Long productId = decision != null ? decision.getProductId() : null;
+            if (productId == null || targets.containsKey(productId)) {
+                continue;
+            }
+            String reason = decision.getReason();
+            if (AdminReviewDecisionDTO.ACTION_APPROVE.equalsIgnoreCase(decision.getAction())) {
+                targets.put(productId, Product.STATUS_ONSALE);
+            } else if (AdminReviewDecisionDTO.ACTION_REJECT.equalsIgnoreCase(decision.getAction())
+                    && reason != null && !reason.trim().isEmpty()) {
+                targets.put(productId, Product.STATUS_DRAFT);
+            } else {
+                logger.warn("审核结果无效: productId={}, action={}", productId, decision.getAction());
+                skipped.add(productId);
+                continue;
+            }
+            reasons.put(productId, reason);
+        }
+
+        try {
+            List<Product> decided = adminProductDao.applyReviewDecisions(adminId, targets,
+                    product -> Product.STATUS_ONSALE.equals(product.getStatus()) ? approvedNotificationJob(product) : null);
+
+            List<Long> approved = new ArrayList<>();
+            List<Long> rejected = new ArrayList<>();
+            Set<Long> decidedIds = new HashSet<>();
+            for (Product product : decided) {
+                decidedIds.add(product.getId());
+                String reason = reasons.get(product.getId());
+                if (Product.STATUS_ONSALE.equals(product.getStatus())) {
+                    approved.add(product.getId());
+                    auditLogService.logAction(adminId, AuditActionEnum.PRODUCT_APPROVE, AuditTargetTypeEnum.PRODUCT,
+                            product.getId(), "审核通过商品: " + product.getTitle() + " (ID: " + product.getId() + ")" +
+                                    (reason != null ? ", 备注: " + reason : ""), ipAddress, userAgent, true);
+                } else {
+                    rejected.add(product.getId());
+                    auditLogService.logAction(adminId, AuditActionEnum.PRODUCT_REJECT, AuditTargetTypeEnum.PRODUCT,
+                            product.getId(), "审核拒绝商品: " + product.getTitle() + " (ID: " + product.getId() + "), 原因: " + reason,
+                            ipAddress, userAgent, true);
+                }
+            }
+            for (Map.Entry<Long, Integer> target : targets.entrySet()) {
+                if (!decidedIds.contains(target.getKey())) {
+                    skipped.add(target.getKey());
+                    AuditActionEnum action = Product.STATUS_ONSALE.equals(target.getValue())
+                            ? AuditActionEnum.PRODUCT_APPROVE : AuditActionEnum.PRODUCT_REJECT;
+                    auditLogService.logAction(adminId, action, AuditTargetTypeEnum.PRODUCT, target.getKey(),
+                            "批量审核跳过: 商品未由当前管理员领取、租约已过期或已不是待审核状态", ipAddress, userAgent, false);
+                }
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("approved", approved);
+            result.put("rejected", rejected);
+            result.put("skipped", skipped);
+            logger.info("管理员 {} 批量审核: 通过{}件, 拒绝{}件, 跳过{}件", adminId, approved.size(), rejected.size(), skipped.size());
+            return result;
+        } catch (Exception e) {
+            logger.error("提交审核结果失败: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public int releaseReviewClaims(Long adminId, List<Long> productIds) {
+        if (adminId == null) {
+            logger.warn("释放待审核商品失败: 管理员ID为空");
+            return 0;
+        }
+        try {
+            return adminProductDao.releaseReviewClaims(adminId, productIds);
+        } catch (Exception e) {
+            logger.error("释放待审核商品失败: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    @Override
+    public Map<String, Object> batchUpdateProductStatus(AuditActionEnum action, List<Long> productIds, Long adminId,
+                                                        String reason, String ipAddress, String userAgent,
+                                                        BulkResultWriter writer) throws IOException {
+        StatusRule rule = action != null ? STATUS_RULES.get(action) : null;
+        if (rule == null || productIds == null || productIds.isEmpty() || adminId == null) {
+            logger.warn("批量修改商品状态失败: 参数无效, action={}", action);
+            return null;
+        }
+        if (action == AuditActionEnum.PRODUCT_REJECT && (reason == null || reason.trim().isEmpty())) {
+            logger.warn("批量审核拒绝商品失败: 拒绝原因不能为空");
+            return null;
+        }
+
+        Function<Product, OutboxJob> sideEffect = action == AuditActionEnum.PRODUCT_APPROVE
+                ? this::approvedNotificationJob : null;
+        return new BulkStatusUpdater(auditLogService, AuditTargetTypeEnum.PRODUCT, "商品不存在", "title")
+                .run(action, rule, productIds, adminId, reason, ipAddress, userAgent, writer,
+                        chunk -> adminProductDao.bulkUpdateProductStatus(chunk, rule.getFromStatuses(),
+                                rule.getToStatus(), adminId, sideEffect));
+    }
+
+    /**
+     * 生成商品审核通过的粉丝通知任务
+     * 幂等键带上审核前的更新时间：同一次审核重复提交只入队一次，商品重新提交后再次通过会生成新的通知
+     */
+    private OutboxJob approvedNotificationJob(Product product) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("productId", product.getId());
+        payload.put("sellerId", product.getSellerId());
+        payload.put("productTitle", product.getTitle());
+        String idempotencyKey = OutboxJob.TYPE_PRODUCT_APPROVED_NOTIFICATION + ":" + product.getId();
+        if (product.getUpdateTime() != null) {
+            idempotencyKey += ":" + product.getUpdateTime().format(TRANSITION_FORMAT);
+        }
+        return OutboxJob.of(OutboxJob.TYPE_PRODUCT_APPROVED_NOTIFICATION, idempotencyKey, payload);
+    }
+
+    /**
+     * 批量修改商品状态时未修改的原因：被其他管理员领取审核优先，否则是状态不符
+     */
+    private static Function<Map<String, Object>, String> rejection(String statusMismatch) {
+        return row -> Boolean.TRUE.equals(row.get("claimedByOther")) ? "商品已被其他管理员领取审核" : statusMismatch;
+    }
 }
@@ -1,5 +1,7 @@
 package com.shiwu.product.service.impl;
 
+import com.shiwu.common.concurrent.FanoutExecutor;
+import com.shiwu.product.cache.ProductViewCounter;
 import com.shiwu.product.dao.CategoryDao;
 import com.shiwu.product.dao.ProductDao;
 import com.shiwu.product.model.*;
@@ -15,7 +17,7 @@ import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-//import java.util.ArrayList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -31,12 +33,18 @@ public class ProductServiceImpl implements ProductService {
     // 文件上传配置
     private static final String UPLOAD_DIR = "uploads/products";
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
+
+    /**
+     * 商品详情子查询的截止时间（毫秒）
+     */
+    private static final long DETAIL_FANOUT_TIMEOUT_MILLIS = 2000;
     private static final List<String> ALLOWED_CONTENT_TYPES = Arrays.asList(
             "image/jpeg", "image/png", "image/webp"
     );
     
     private final CategoryDao categoryDao;
     private final ProductDao productDao;
+    private final ProductViewCounter viewCounter = ProductViewCounter.getInstance();
     
     public ProductServiceImpl() {
         this.categoryDao = new CategoryDao();
@@ -344,12 +352,19 @@ public class ProductServiceImpl implements ProductService {
             return null;
         }
         
+        // 商品图片与商品信息并发查询。卖家和分类依赖商品行中的 seller_id/category_id，
+        // 已在商品详情查询中通过联表一次取回，不再单独查询；详情不包含收藏状态
+        FanoutExecutor.Branch<List<ProductImage>> images = FanoutExecutor.getInstance()
+                .begin(DETAIL_FANOUT_TIMEOUT_MILLIS)
+                .fork("productImages", () -> productDao.findImagesByProductId(productId));
+
         // 查询商品详情
-        ProductDetailVO productDetail = productDao.findProductDetailById(productId);
+        ProductDetailVO productDetail = productDao.findProductDetailBaseById(productId);
         
         // 商品不存在
         if (productDetail == null) {
             logger.warn("查询商品详情失败: 商品不存在, productId={}", productId);
+            images.cancel();
             return null;
         }
         
@@ -358,8 +373,24 @@ public class ProductServiceImpl implements ProductService {
             (currentUserId == null || !productDetail.getSellerId().equals(currentUserId))) {
             logger.warn("查询商品详情失败: 无权查看非在售商品, productId={}, currentUserId={}, sellerId={}, status={}",
                      productId, currentUserId, productDetail.getSellerId(), productDetail.getStatus());
+            images.cancel();
             return null;
         }
+
+        // 图片查询失败或超时时返回没有图片的详情
+        List<String> imageUrls = new ArrayList<>();
+        String mainImageUrl = null;
+        for (ProductImage image : images.join(Collections.<ProductImage>emptyList())) {
+            imageUrls.add(image.getImageUrl());
+            if (Boolean.TRUE.equals(image.getIsMain()) && mainImageUrl == null) {
+                mainImageUrl = image.getImageUrl();
+            }
+        }
+        productDetail.setImageUrls(imageUrls);
+        productDetail.setMainImageUrl(mainImageUrl);
+        // 加上尚未写回数据库的浏览次数
+        long storedViews = productDetail.getViewCount() != null ? productDetail.getViewCount() : 0L;
+        productDetail.setViewCount(storedViews + viewCounter.getPendingViews(productId));
         
         return productDetail;
     }
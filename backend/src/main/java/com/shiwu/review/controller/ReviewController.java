@@ -1,6 +1,8 @@
 package com.shiwu.review.controller;
 
 import com.shiwu.common.result.Result;
+import com.shiwu.common.util.ConditionalGet;
+import com.shiwu.common.util.EntityVersions;
 import com.shiwu.common.util.JsonUtil;
 import com.shiwu.review.model.ReviewCreateDTO;
 import com.shiwu.review.model.ReviewErrorCode;
@@ -138,7 +140,12 @@ public class ReviewController extends HttpServlet {
      */
     private void handleGetProductReviews(HttpServletRequest req, HttpServletResponse resp, Long productId) throws IOException {
         try {
+            String etag = reviewListEtag();
+            if (ConditionalGet.checkNotModified(req, resp, etag, ConditionalGet.CACHE_PUBLIC)) {
+                return;
+            }
             List<ReviewVO> reviews = reviewService.getReviewsByProductId(productId);
+            ConditionalGet.applyValidators(resp, etag, ConditionalGet.CACHE_PUBLIC);
             sendSuccessResponse(resp, reviews);
         } catch (Exception e) {
             logger.error("获取商品评价列表失败", e);
@@ -151,7 +158,12 @@ public class ReviewController extends HttpServlet {
      */
     private void handleGetUserReviews(HttpServletRequest req, HttpServletResponse resp, Long userId) throws IOException {
         try {
+            String etag = reviewListEtag();
+            if (ConditionalGet.checkNotModified(req, resp, etag, ConditionalGet.CACHE_PUBLIC)) {
+                return;
+            }
             List<ReviewVO> reviews = reviewService.getReviewsByUserId(userId);
+            ConditionalGet.applyValidators(resp, etag, ConditionalGet.CACHE_PUBLIC);
             sendSuccessResponse(resp, reviews);
         } catch (Exception e) {
             logger.error("获取用户评价列表失败", e);
@@ -159,6 +171,14 @@ public class ReviewController extends HttpServlet {
         }
     }
 
+    /**
+     * 评价列表的验证器，任意评价或评价人信息变化时失效
+     */
+    private String reviewListEtag() {
+        return ConditionalGet.etag(EntityVersions.typeVersion(EntityVersions.REVIEW),
+                EntityVersions.typeVersion(EntityVersions.USER));
+    }
+
     /**
      * 处理检查订单是否可评价请求
      */
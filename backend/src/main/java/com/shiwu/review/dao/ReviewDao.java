@@ -1,8 +1,10 @@
 package com.shiwu.review.dao;
 
 import com.shiwu.common.util.DBUtil;
+import com.shiwu.common.util.EntityVersions;
 import com.shiwu.review.model.Review;
 import com.shiwu.review.model.ReviewVO;
+import com.shiwu.user.cache.UserSearchIndex;
 import com.shiwu.user.model.UserVO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +31,7 @@ public class ReviewDao {
     private static final Logger logger = LoggerFactory.getLogger(ReviewDao.class);
 
     /**
-     * 创建评价
+     * 创建评价，并在同一事务中累加卖家和平台的评分总和/数量
      * @param review 评价对象
      * @return 创建的评价ID，失败返回null
      */
@@ -59,6 +61,12 @@ public class ReviewDao {
 
         try {
             conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("创建评价失败: 无法获取数据库连接");
+                return null;
+            }
+            conn.setAutoCommit(false);
+
             pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             pstmt.setLong(1, review.getOrderId());
             pstmt.setLong(2, review.getProductId());
@@ -67,21 +75,32 @@ public class ReviewDao {
             pstmt.setString(5, review.getComment());
 
             int affectedRows = pstmt.executeUpdate();
-            
             if (affectedRows > 0) {
                 rs = pstmt.getGeneratedKeys();
                 if (rs.next()) {
                     reviewId = rs.getLong(1);
-                    logger.info("创建评价成功: reviewId={}, orderId={}, userId={}, rating={}", 
-                               reviewId, review.getOrderId(), review.getUserId(), review.getRating());
                 }
             }
+            if (reviewId == null) {
+                conn.rollback();
+                return null;
+            }
+
+            Long sellerId = applyRatingDelta(conn, review.getOrderId(), review.getRating());
+            conn.commit();
+            EntityVersions.touch(EntityVersions.REVIEW);
+            UserSearchIndex.getInstance().onUserChanged(sellerId);
+            logger.info("创建评价成功: reviewId={}, orderId={}, userId={}, rating={}",
+                       reviewId, review.getOrderId(), review.getUserId(), review.getRating());
         } catch (SQLException e) {
             logger.error("创建评价失败: {}", e.getMessage(), e);
+            rollbackQuietly(conn);
+            reviewId = null;
         } finally {
+            restoreAutoCommit(conn);
             closeResources(conn, pstmt, rs);
         }
-        
+
         return reviewId;
     }
 
@@ -285,6 +304,63 @@ public class ReviewDao {
         return reviewVO;
     }
 
+    /**
+     * 按订单的卖家累加评分聚合，并同步平台评分聚合
+     * average_rating 在同一条语句中由更新后的总和/数量算出（单表UPDATE按从左到右使用新值）
+     * @return 卖家ID，订单不存在返回null
+     */
+    private Long applyRatingDelta(Connection conn, long orderId, int rating) throws SQLException {
+        Long sellerId = null;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT seller_id FROM trade_order WHERE id = ?")) {
+            stmt.setLong(1, orderId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    sellerId = rs.getLong(1);
+                }
+            }
+        }
+        if (sellerId == null) {
+            logger.warn("更新评分聚合跳过: 订单不存在, orderId={}", orderId);
+            return null;
+        }
+
+        String userSql = "UPDATE system_user SET rating_sum = rating_sum + ?, rating_count = rating_count + 1, " +
+                "average_rating = ROUND(rating_sum / rating_count, 2) WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(userSql)) {
+            stmt.setInt(1, rating);
+            stmt.setLong(2, sellerId);
+            stmt.executeUpdate();
+        }
+
+        String platformSql = "INSERT INTO platform_rating (id, rating_sum, rating_count) VALUES (1, ?, 1) " +
+                "ON DUPLICATE KEY UPDATE rating_sum = rating_sum + VALUES(rating_sum), rating_count = rating_count + 1";
+        try (PreparedStatement stmt = conn.prepareStatement(platformSql)) {
+            stmt.setInt(1, rating);
+            stmt.executeUpdate();
+        }
+        return sellerId;
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                logger.error("回滚事务失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("恢复自动提交失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * 关闭数据库资源
      */
@@ -0,0 +1,414 @@
+package com.shiwu.user.cache;
+
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.user.dao.UserFollowDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 关注计数缓存
+ *
+ * 粉丝数量和关注数量以 system_user.follower_count / following_count 为持久化基准，
+ * 关注/取关成功后只在内存中累加增量（LongAdder），由后台任务定期批量写回数据库，
+ * 另有对账任务按 user_follow 的实际记录修正偏差。
+ * 读取时返回 基准值 + 未写回的增量，不再对 user_follow 执行 COUNT(*)。
+ */
+public class FollowCounterCache {
+    private static final Logger logger = LoggerFactory.getLogger(FollowCounterCache.class);
+
+    /**
+     * 超过该数量后，写回时淘汰长时间未访问且没有待写回增量的计数
+     */
+    private static final int DEFAULT_MAX_ENTRIES = 100000;
+
+    /**
+     * 写回间隔（秒）
+     */
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+
+    /**
+     * 对账间隔（分钟）
+     */
+    private static final long RECONCILE_INTERVAL_MINUTES = 60;
+
+    /**
+     * 对账时每批扫描的用户数量
+     */
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    /**
+     * 淘汰前的最短空闲时间（毫秒）
+     */
+    private static final long EVICT_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static volatile FollowCounterCache instance;
+
+    private final UserFollowDao userFollowDao;
+    private final int maxEntries;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 写回/对账持有写锁，加载基准值持有读锁，保证基准值与已写回增量一致
+     */
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong flushedUsers = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong reconciledUsers = new AtomicLong();
+    private volatile LocalDateTime lastReconcileTime;
+
+    /**
+     * 单个用户的计数
+     */
+    private static final class Counter {
+        // 关注/取关累计的净增量，只增不清零，避免 sumThenReset 丢失并发更新
+        final LongAdder followerDelta = new LongAdder();
+        final LongAdder followingDelta = new LongAdder();
+
+        // 已写回数据库的增量，仅在持有写锁时修改
+        volatile long followerFlushed;
+        volatile long followingFlushed;
+
+        // 基准值及加载基准值时已写回的增量，仅在持有读锁并同步本对象时修改
+        volatile boolean loaded;
+        volatile long followerBase;
+        volatile long followingBase;
+        volatile long followerFlushedAtBase;
+        volatile long followingFlushedAtBase;
+
+        volatile long lastAccess = System.currentTimeMillis();
+
+        long pendingFollower() {
+            return followerDelta.sum() - followerFlushed;
+        }
+
+        long pendingFollowing() {
+            return followingDelta.sum() - followingFlushed;
+        }
+
+        long followerCount() {
+            return Math.max(0, followerBase + followerDelta.sum() - followerFlushedAtBase);
+        }
+
+        long followingCount() {
+            return Math.max(0, followingBase + followingDelta.sum() - followingFlushedAtBase);
+        }
+
+        void rebase(long follower, long following) {
+            followerBase = follower;
+            followingBase = following;
+            followerFlushedAtBase = followerFlushed;
+            followingFlushedAtBase = followingFlushed;
+            loaded = true;
+        }
+    }
+
+    FollowCounterCache(UserFollowDao userFollowDao, int maxEntries) {
+        this.userFollowDao = userFollowDao;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static FollowCounterCache getInstance() {
+        if (instance == null) {
+            synchronized (FollowCounterCache.class) {
+                if (instance == null) {
+                    FollowCounterCache cache = new FollowCounterCache(new UserFollowDao(), DEFAULT_MAX_ENTRIES);
+                    MetricsRegistry.register("followCounterCache", cache::getStats);
+                    instance = cache;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 启动定期写回和对账任务
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        logger.info("启动关注计数写回任务: 间隔{}秒, 对账间隔{}分钟", FLUSH_INTERVAL_SECONDS, RECONCILE_INTERVAL_MINUTES);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "follow-counter-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly,
+                FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly,
+                RECONCILE_INTERVAL_MINUTES, RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 停止后台任务并写回剩余增量
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        logger.info("停止关注计数写回任务");
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+        flushQuietly();
+    }
+
+    /**
+     * 记录一次关注（关注记录已成功写入后调用）
+     */
+    public void recordFollow(Long followerId, Long followedId) {
+        counter(followedId).followerDelta.increment();
+        counter(followerId).followingDelta.increment();
+    }
+
+    /**
+     * 记录一次取关（关注记录已成功删除后调用）
+     */
+    public void recordUnfollow(Long followerId, Long followedId) {
+        counter(followedId).followerDelta.decrement();
+        counter(followerId).followingDelta.decrement();
+    }
+
+    /**
+     * 获取用户的粉丝数量
+     */
+    public int getFollowerCount(Long userId) {
+        if (userId == null) {
+            return 0;
+        }
+        return (int) loadedCounter(userId).followerCount();
+    }
+
+    /**
+     * 获取用户关注的人数
+     */
+    public int getFollowingCount(Long userId) {
+        if (userId == null) {
+            return 0;
+        }
+        return (int) loadedCounter(userId).followingCount();
+    }
+
+    /**
+     * 把未写回的增量批量写入 system_user
+     * @return 本次写回的用户数量，失败返回-1
+     */
+    public int flush() {
+        flushLock.writeLock().lock();
+        try {
+            return flushLocked();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按 user_follow 的实际记录修正 system_user 中的计数
+     * 有待写回增量的用户留到下一轮对账
+     * @return 修正的用户数量
+     */
+    public int reconcile() {
+        int corrected = 0;
+        long afterId = 0;
+        while (true) {
+            flushLock.writeLock().lock();
+            try {
+                flushLocked();
+                List<long[]> rows = userFollowDao.scanFollowCounts(afterId, RECONCILE_BATCH_SIZE);
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                Map<Long, long[]> corrections = new HashMap<>();
+                for (long[] row : rows) {
+                    long userId = row[0];
+                    if (row[1] == row[3] && row[2] == row[4]) {
+                        continue;
+                    }
+                    Counter counter = counters.get(userId);
+                    if (counter != null && (counter.pendingFollower() != 0 || counter.pendingFollowing() != 0)) {
+                        continue;
+                    }
+                    corrections.put(userId, new long[]{row[3], row[4]});
+                }
+
+                if (!corrections.isEmpty() && userFollowDao.updateFollowCounts(corrections)) {
+                    for (Map.Entry<Long, long[]> entry : corrections.entrySet()) {
+                        Counter counter = counters.get(entry.getKey());
+                        if (counter != null) {
+                            synchronized (counter) {
+                                counter.rebase(entry.getValue()[0], entry.getValue()[1]);
+                            }
+                        }
+                        logger.info("修正关注计数: userId={}, followerCount={}, followingCount={}",
+                                entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+                    }
+                    corrected += corrections.size();
+                }
+
+                afterId = rows.get(rows.size() - 1)[0];
+                if (rows.size() < RECONCILE_BATCH_SIZE) {
+                    break;
+                }
+            } finally {
+                flushLock.writeLock().unlock();
+            }
+        }
+        reconciledUsers.addAndGet(corrected);
+        lastReconcileTime = LocalDateTime.now();
+        return corrected;
+    }
+
+    /**
+     * 获取计数缓存指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int pendingUsers = 0;
+        for (Counter counter : counters.values()) {
+            if (counter.pendingFollower() != 0 || counter.pendingFollowing() != 0) {
+                pendingUsers++;
+            }
+        }
+        stats.put("size", counters.size());
+        stats.put("pendingUsers", pendingUsers);
+        stats.put("flushes", flushes.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("flushedUsers", flushedUsers.get());
+        stats.put("evictions", evictions.get());
+        stats.put("reconciledUsers", reconciledUsers.get());
+        stats.put("lastReconcileTime", lastReconcileTime);
+        return stats;
+    }
+
+    private Counter counter(Long userId) {
+        // 在桶锁内刷新访问时间，淘汰只移除长时间未访问的计数，避免增量写进已被移除的对象
+        return counters.compute(userId, (key, existing) -> {
+            Counter counter = existing != null ? existing : new Counter();
+            counter.lastAccess = System.currentTimeMillis();
+            return counter;
+        });
+    }
+
+    private Counter loadedCounter(Long userId) {
+        Counter counter = counter(userId);
+        if (counter.loaded) {
+            return counter;
+        }
+
+        flushLock.readLock().lock();
+        try {
+            synchronized (counter) {
+                if (!counter.loaded) {
+                    long[] stored = userFollowDao.getStoredFollowCounts(userId);
+                    if (stored != null) {
+                        counter.rebase(stored[0], stored[1]);
+                    }
+                }
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        return counter;
+    }
+
+    private int flushLocked() {
+        Map<Long, long[]> deltas = new HashMap<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            long follower = entry.getValue().pendingFollower();
+            long following = entry.getValue().pendingFollowing();
+            if (follower != 0 || following != 0) {
+                deltas.put(entry.getKey(), new long[]{follower, following});
+            }
+        }
+
+        if (!deltas.isEmpty()) {
+            flushes.incrementAndGet();
+            if (!userFollowDao.applyFollowCountDeltas(deltas)) {
+                flushFailures.incrementAndGet();
+                logger.warn("写回关注计数失败，将在下一轮重试: users={}", deltas.size());
+                return -1;
+            }
+            for (Map.Entry<Long, long[]> entry : deltas.entrySet()) {
+                Counter counter = counters.get(entry.getKey());
+                counter.followerFlushed += entry.getValue()[0];
+                counter.followingFlushed += entry.getValue()[1];
+            }
+            flushedUsers.addAndGet(deltas.size());
+        }
+
+        evictIdle();
+        return deltas.size();
+    }
+
+    private void evictIdle() {
+        int excess = counters.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        long idleBefore = System.currentTimeMillis() - EVICT_IDLE_MILLIS;
+        for (Long userId : counters.keySet()) {
+            if (excess <= 0) {
+                break;
+            }
+            boolean[] removed = new boolean[1];
+            counters.computeIfPresent(userId, (key, counter) -> {
+                if (counter.lastAccess < idleBefore
+                        && counter.pendingFollower() == 0 && counter.pendingFollowing() == 0) {
+                    removed[0] = true;
+                    return null;
+                }
+                return counter;
+            });
+            if (removed[0]) {
+                excess--;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("写回关注计数发生异常: {}", e.getMessage(), e);
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            int corrected = reconcile();
+            logger.info("关注计数对账完成: corrected={}", corrected);
+        } catch (Exception e) {
+            logger.error("关注计数对账发生异常: {}", e.getMessage(), e);
+        }
+    }
+}
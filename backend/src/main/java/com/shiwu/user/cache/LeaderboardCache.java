@@ -0,0 +1,266 @@
+package com.shiwu.user.cache;
+
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.user.dao.LeaderboardDao;
+import com.shiwu.user.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * 用户排行榜缓存
+ *
+ * 维护三个排行榜：粉丝最多的用户、平均评分最高的卖家、已完成订单最多的卖家。
+ * 启动时从数据库加载，之后由关注/取关、提交评价、确认收货/退货等业务事件增量更新，
+ * 每小时重新加载一次以修正加载期间并发事件造成的偏差。
+ * 每个排行榜只保留分数最高的若干名（见 {@link RankingBoard}），加载时也只读取这些行。
+ */
+public class LeaderboardCache {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardCache.class);
+
+    /**
+     * 单次最多返回的名次
+     */
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * 重新加载间隔（分钟）
+     */
+    private static final long RELOAD_INTERVAL_MINUTES = 60;
+
+    /**
+     * 已完成订单状态（与 Order.STATUS_COMPLETED 一致）
+     */
+    private static final int ORDER_STATUS_COMPLETED = 3;
+
+    /**
+     * 被封禁用户状态
+     */
+    private static final int USER_STATUS_BANNED = 1;
+
+    /**
+     * 排行榜类型
+     */
+    public enum Type {
+        FOLLOWERS("followers", "followerCount"),
+        RATING("rating", "averageRating"),
+        SALES("sales", "completedSales");
+
+        private final String code;
+        private final String scoreField;
+
+        Type(String code, String scoreField) {
+            this.code = code;
+            this.scoreField = scoreField;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        /**
+         * 根据代码获取排行榜类型
+         * @param code 类型代码
+         * @return 排行榜类型，代码无效返回null
+         */
+        public static Type fromCode(String code) {
+            for (Type type : values()) {
+                if (type.code.equalsIgnoreCase(code)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static volatile LeaderboardCache instance;
+
+    private final LeaderboardDao leaderboardDao;
+    private final IntSupplier followCounterFlush;
+    private final Map<Type, RankingBoard> boards = new EnumMap<>(Type.class);
+    private ScheduledExecutorService scheduler;
+    private volatile LocalDateTime lastLoadTime;
+
+    /**
+     * @param leaderboardDao 排行榜数据访问对象
+     * @param followCounterFlush 重新加载粉丝榜前把关注计数缓存中未写回的增量写入 system_user，失败返回-1
+     */
+    LeaderboardCache(LeaderboardDao leaderboardDao, IntSupplier followCounterFlush) {
+        this.leaderboardDao = leaderboardDao;
+        this.followCounterFlush = followCounterFlush;
+        for (Type type : Type.values()) {
+            boards.put(type, new RankingBoard());
+        }
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static LeaderboardCache getInstance() {
+        if (instance == null) {
+            synchronized (LeaderboardCache.class) {
+                if (instance == null) {
+                    LeaderboardCache cache = new LeaderboardCache(new LeaderboardDao(),
+                            FollowCounterCache.getInstance()::flush);
+                    MetricsRegistry.register("leaderboardCache", cache::getStats);
+                    instance = cache;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 启动加载和定期重新加载任务
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        logger.info("启动排行榜加载任务: 重新加载间隔{}分钟", RELOAD_INTERVAL_MINUTES);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "leaderboard-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reloadQuietly, 0, RELOAD_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 停止重新加载任务
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        logger.info("停止排行榜加载任务");
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * 从数据库重新加载全部排行榜
+     */
+    public void reload() {
+        long start = System.currentTimeMillis();
+        // system_user.follower_count 由关注计数缓存延迟写回，先写回再加载，避免旧值覆盖榜上较新的计数
+        RankingBoard followers = boards.get(Type.FOLLOWERS);
+        if (followCounterFlush.getAsInt() >= 0) {
+            followers.replaceAll(leaderboardDao.loadFollowerCounts(followers.capacity()));
+        } else {
+            logger.warn("关注计数写回失败，本次不重新加载粉丝榜");
+        }
+        RankingBoard rating = boards.get(Type.RATING);
+        rating.replaceAll(leaderboardDao.loadAverageRatings(rating.capacity()));
+        RankingBoard sales = boards.get(Type.SALES);
+        sales.replaceAll(leaderboardDao.loadCompletedSales(ORDER_STATUS_COMPLETED, sales.capacity()));
+        lastLoadTime = LocalDateTime.now();
+        logger.info("排行榜加载完成: followers={}, rating={}, sales={}, 耗时{}ms",
+                boards.get(Type.FOLLOWERS).size(), boards.get(Type.RATING).size(),
+                boards.get(Type.SALES).size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 用户粉丝数量变化
+     */
+    public void onFollowerCountChanged(Long userId, int followerCount) {
+        if (userId != null) {
+            boards.get(Type.FOLLOWERS).set(userId, followerCount);
+        }
+    }
+
+    /**
+     * 卖家平均评分变化
+     */
+    public void onRatingChanged(Long sellerId, BigDecimal averageRating) {
+        if (sellerId != null) {
+            boards.get(Type.RATING).set(sellerId, averageRating != null ? averageRating.doubleValue() : 0);
+        }
+    }
+
+    /**
+     * 卖家已完成订单数量变化（确认收货为+1，完成的订单申请退货为-1，驳回退货为+1）
+     */
+    public void onCompletedSalesChanged(Long sellerId, int delta) {
+        if (sellerId != null) {
+            boards.get(Type.SALES).add(sellerId, delta);
+        }
+    }
+
+    /**
+     * 获取排行榜前若干名，已封禁或已删除的用户不出现在结果中
+     * @param type 排行榜类型
+     * @param limit 返回数量，范围1~MAX_LIMIT
+     * @return 名次列表，每项包含 rank、userId、username、nickname、avatarUrl 及对应的分数字段
+     */
+    public List<Map<String, Object>> getTop(Type type, int limit) {
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+        // 多取一些候选，弥补被过滤掉的封禁用户
+        List<RankingBoard.Entry> candidates = boards.get(type).top(k + Math.max(5, k / 5));
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = new ArrayList<>(candidates.size());
+        for (RankingBoard.Entry entry : candidates) {
+            ids.add(entry.userId);
+        }
+        Map<Long, User> users = leaderboardDao.findPublicInfoByIds(ids);
+
+        List<Map<String, Object>> result = new ArrayList<>(k);
+        for (RankingBoard.Entry entry : candidates) {
+            User user = users.get(entry.userId);
+            if (user == null || Integer.valueOf(USER_STATUS_BANNED).equals(user.getStatus())) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("rank", result.size() + 1);
+            item.put("userId", user.getId());
+            item.put("username", user.getUsername());
+            item.put("nickname", user.getNickname());
+            item.put("avatarUrl", user.getAvatarUrl());
+            if (type == Type.RATING) {
+                item.put(type.scoreField, BigDecimal.valueOf(entry.score).setScale(2, RoundingMode.HALF_UP));
+            } else {
+                item.put(type.scoreField, (long) entry.score);
+            }
+            result.add(item);
+            if (result.size() >= k) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取排行榜指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Type type : Type.values()) {
+            stats.put(type.code + "Size", boards.get(type).size());
+        }
+        stats.put("lastLoadTime", lastLoadTime);
+        return stats;
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("加载排行榜发生异常: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.shiwu.user.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 单个排行榜
+ *
+ * 只保存分数最高的 capacity 个成员，按 分数降序、用户ID升序 排列，内存不随用户数量增长；
+ * 更新为 O(log capacity)，取前K名只读索引头部。分数不大于0的成员不进入排行榜。
+ *
+ * 榜满后新分数低于榜尾（门槛）的成员不进入排行榜。被挤出或从未进入的成员当前分数未知，
+ * 对它们的增量更新会被忽略；榜内成员分数下降时也无法得知榜外是否有人已超过它。
+ * capacity 远大于单次查询的名次，这些偏差只影响榜尾，由定期重新加载修正。
+ */
+class RankingBoard {
+
+    /**
+     * 默认容量：单次最多查询 MAX_LIMIT 名加上过滤封禁用户的余量，再留出足够的榜尾缓冲
+     */
+    static final int DEFAULT_CAPACITY = 512;
+
+    /**
+     * 排行榜条目
+     */
+    static final class Entry {
+        final long userId;
+        final double score;
+
+        Entry(long userId, double score) {
+            this.userId = userId;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int byScore = Double.compare(b.score, a.score);
+        return byScore != 0 ? byScore : Long.compare(a.userId, b.userId);
+    };
+
+    private final int capacity;
+    private final Map<Long, Double> scores = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(ORDER);
+
+    /**
+     * 是否可能有分数大于0的成员不在榜内
+     */
+    private boolean truncated;
+
+    RankingBoard() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    RankingBoard(int capacity) {
+        this.capacity = capacity;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 设置成员分数
+     */
+    synchronized void set(long userId, double score) {
+        Double old = scores.remove(userId);
+        if (old != null) {
+            ranking.remove(new Entry(userId, old));
+        }
+        if (score > 0) {
+            offer(new Entry(userId, score));
+        }
+    }
+
+    /**
+     * 累加成员分数；榜已截断时不在榜内的成员基准分数未知，忽略其增量
+     */
+    synchronized void add(long userId, double delta) {
+        Double old = scores.get(userId);
+        if (old == null && truncated) {
+            return;
+        }
+        set(userId, (old != null ? old : 0) + delta);
+    }
+
+    /**
+     * 用新数据整体替换排行榜
+     * @param newScores 分数最高的若干成员；数量达到容量时视为可能还有榜外成员
+     */
+    synchronized void replaceAll(Map<Long, Double> newScores) {
+        scores.clear();
+        ranking.clear();
+        truncated = false;
+        for (Map.Entry<Long, Double> entry : newScores.entrySet()) {
+            if (entry.getValue() > 0) {
+                offer(new Entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (newScores.size() >= capacity) {
+            truncated = true;
+        }
+    }
+
+    /**
+     * 放入一个不在榜内的成员，榜满时与榜尾比较，淘汰较低的一个
+     */
+    private void offer(Entry entry) {
+        if (ranking.size() >= capacity) {
+            truncated = true;
+            Entry last = ranking.last();
+            if (ORDER.compare(entry, last) > 0) {
+                return;
+            }
+            ranking.pollLast();
+            scores.remove(last.userId);
+        }
+        ranking.add(entry);
+        scores.put(entry.userId, entry.score);
+    }
+
+    /**
+     * 获取前K名
+     */
+    synchronized List<Entry> top(int k) {
+        List<Entry> result = new ArrayList<>(Math.min(k, ranking.size()));
+        Iterator<Entry> iterator = ranking.iterator();
+        while (iterator.hasNext() && result.size() < k) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * 获取成员分数，不在排行榜中返回0
+     */
+    synchronized double score(long userId) {
+        Double score = scores.get(userId);
+        return score != null ? score : 0;
+    }
+
+    synchronized int size() {
+        return scores.size();
+    }
+}
@@ -0,0 +1,222 @@
+package com.shiwu.user.cache;
+
+import com.shiwu.common.util.BloomFilter;
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.user.dao.UserDao;
+import com.shiwu.user.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户名/邮箱/手机号存在性过滤器
+ *
+ * 注册和可用性检查需要判断用户名、邮箱、手机号是否已被使用。每个字段一个布隆过滤器：
+ * 过滤器判定一定不存在时不需要查询数据库，可能存在时再用一条查询确认。
+ * 过滤器只会多报不会漏报，所以新用户在写入数据库时就加入，即使事务回滚也只是多一次查询。
+ *
+ * 启动时从数据库加载，之后每天按当前用户数量重建一次（布隆过滤器不支持删除和扩容）；
+ * 重建期间新加入的值同时写入新旧过滤器。加载完成前所有值都视为可能存在，调用方照常查询数据库。
+ * 值在比较前去掉首尾空格并转为小写，与数据库不区分大小写的比较规则一致。
+ */
+public class UserIdentityFilter {
+    private static final Logger logger = LoggerFactory.getLogger(UserIdentityFilter.class);
+
+    /**
+     * 重建间隔（小时）
+     */
+    private static final long REBUILD_INTERVAL_HOURS = 24;
+
+    /**
+     * 期望误判率
+     */
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * 过滤器的最小容量
+     */
+    private static final long MIN_CAPACITY = 1 << 16;
+
+    /**
+     * 过滤的字段
+     */
+    public enum Field {
+        USERNAME, EMAIL, PHONE
+    }
+
+    private static volatile UserIdentityFilter instance;
+
+    private final UserDao userDao;
+    private volatile Map<Field, BloomFilter> filters;
+    private volatile Map<Field, BloomFilter> building;
+    private ScheduledExecutorService scheduler;
+    private volatile LocalDateTime lastLoadTime;
+    private volatile int loadedUsers;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong definiteMisses = new AtomicLong();
+
+    UserIdentityFilter(UserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static UserIdentityFilter getInstance() {
+        if (instance == null) {
+            synchronized (UserIdentityFilter.class) {
+                if (instance == null) {
+                    UserIdentityFilter filter = new UserIdentityFilter(new UserDao());
+                    MetricsRegistry.register("userIdentityFilter", filter::getStats);
+                    instance = filter;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 启动加载和定期重建任务
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        logger.info("启动用户存在性过滤器加载任务: 重建间隔{}小时", REBUILD_INTERVAL_HOURS);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-identity-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly, 0, REBUILD_INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * 停止重建任务
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        logger.info("停止用户存在性过滤器加载任务");
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * 从数据库重建全部过滤器，完成后整体替换
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        // 容量只影响误判率不影响正确性，按当前用户数量的两倍预留增长空间
+        Long total = userDao.getTotalUserCount();
+        long capacity = Math.max(MIN_CAPACITY, (total != null ? total : 0) * 2);
+        Map<Field, BloomFilter> next = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            next.put(field, new BloomFilter(capacity, FALSE_POSITIVE_RATE));
+        }
+        // 先公开正在构建的过滤器，加载期间注册的用户同时写入，替换后不会漏报
+        building = next;
+        try {
+            List<User> users = userDao.findAllIdentities();
+            for (User user : users) {
+                putAll(next, user.getUsername(), user.getEmail(), user.getPhone());
+            }
+            filters = next;
+            loadedUsers = users.size();
+            lastLoadTime = LocalDateTime.now();
+        } finally {
+            building = null;
+        }
+        logger.info("用户存在性过滤器加载完成: users={}, capacity={}, 耗时{}ms",
+                loadedUsers, capacity, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 新用户写入数据库时加入过滤器
+     */
+    public void add(String username, String email, String phone) {
+        // 先读正在构建的过滤器：重建先替换 filters 再清空 building，这个顺序下不会两个都错过
+        Map<Field, BloomFilter> next = building;
+        if (next != null) {
+            putAll(next, username, email, phone);
+        }
+        Map<Field, BloomFilter> current = filters;
+        if (current != null && current != next) {
+            putAll(current, username, email, phone);
+        }
+    }
+
+    /**
+     * 值是否可能已被使用；返回false时一定未被使用，不需要查询数据库
+     * @param field 字段
+     * @param value 值，空值视为未被使用
+     */
+    public boolean mightExist(Field field, String value) {
+        String key = normalize(value);
+        if (key == null) {
+            return false;
+        }
+        checks.incrementAndGet();
+        Map<Field, BloomFilter> current = filters;
+        if (current == null || current.get(field).mightContain(key)) {
+            return true;
+        }
+        definiteMisses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 获取过滤器指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<Field, BloomFilter> current = filters;
+        stats.put("loaded", current != null);
+        stats.put("users", loadedUsers);
+        stats.put("bitsPerFilter", current != null ? current.get(Field.USERNAME).bitSize() : 0);
+        stats.put("checks", checks.get());
+        stats.put("definiteMisses", definiteMisses.get());
+        stats.put("lastLoadTime", lastLoadTime);
+        return stats;
+    }
+
+    private static void putAll(Map<Field, BloomFilter> target, String username, String email, String phone) {
+        put(target.get(Field.USERNAME), username);
+        put(target.get(Field.EMAIL), email);
+        put(target.get(Field.PHONE), phone);
+    }
+
+    private static void put(BloomFilter filter, String value) {
+        String key = normalize(value);
+        if (key != null) {
+            filter.put(key);
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("加载用户存在性过滤器发生异常: {}", e.getMessage(), e);
+        }
+    }
+}
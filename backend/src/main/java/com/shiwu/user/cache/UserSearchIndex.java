@@ -0,0 +1,473 @@
+package com.shiwu.user.cache;
+
+import com.shiwu.admin.model.AdminUserQueryDTO;
+import com.shiwu.common.util.MetricsRegistry;
+import com.shiwu.common.util.UnitOfWork;
+import com.shiwu.user.dao.UserSearchDao;
+import com.shiwu.user.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 管理员用户搜索索引
+ *
+ * 管理后台用户列表按关键词（用户名、昵称、邮箱、手机号的子串）、状态筛选，
+ * 按注册时间或评分排序。索引在内存中保存这几个字段：
+ * 1. 每个字段按相邻两个字符（bigram）建立倒排表，关键词取各 bigram 中最短的倒排表作为候选再逐个校验，
+ *    单个字符的关键词退化为扫描
+ * 2. 按状态维护用户集合，只筛选状态时不需要扫描全部用户
+ * 3. 排序只保留到当前页为止的前若干条（堆），总数即匹配数量，不需要再执行 COUNT
+ *
+ * 索引只负责算出当前页的用户ID和总数，页面展示的其余字段仍按主键从数据库读取。
+ * 启动时从数据库加载，之后由注册、状态变更、评分变化等写入在提交后按用户ID刷新，
+ * 定期全量重新加载以修正其他进程的写入；加载完成前返回null，由调用方回退到数据库查询。
+ */
+public class UserSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    /**
+     * 全量重新加载间隔（分钟）
+     */
+    private static final long RELOAD_INTERVAL_MINUTES = 30;
+
+    private static volatile UserSearchIndex instance;
+
+    private final UserSearchDao userSearchDao;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Doc> docs = new HashMap<>();
+    private Map<String, Set<Long>> grams = new HashMap<>();
+    private Map<Integer, Set<Long>> byStatus = new HashMap<>();
+    private volatile boolean loaded;
+    private volatile LocalDateTime lastLoadTime;
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    UserSearchIndex(UserSearchDao userSearchDao) {
+        this.userSearchDao = userSearchDao;
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static UserSearchIndex getInstance() {
+        if (instance == null) {
+            synchronized (UserSearchIndex.class) {
+                if (instance == null) {
+                    UserSearchIndex index = new UserSearchIndex(new UserSearchDao());
+                    MetricsRegistry.register("userSearchIndex", index::getStats);
+                    instance = index;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 启动加载和定期重新加载任务
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        logger.info("启动用户搜索索引加载任务: 重新加载间隔{}分钟", RELOAD_INTERVAL_MINUTES);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reloadQuietly, 0, RELOAD_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 停止加载任务
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        logger.info("停止用户搜索索引加载任务");
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * 从数据库全量加载，构建完成后整体替换
+     */
+    public void reload() {
+        long start = System.currentTimeMillis();
+        List<User> users = userSearchDao.loadAll();
+        Map<Long, Doc> newDocs = new HashMap<>(users.size() * 2);
+        Map<String, Set<Long>> newGrams = new HashMap<>();
+        Map<Integer, Set<Long>> newByStatus = new HashMap<>();
+        for (User user : users) {
+            Doc doc = Doc.of(user);
+            newDocs.put(doc.id, doc);
+            addPostings(newGrams, newByStatus, doc);
+        }
+        lock.writeLock().lock();
+        try {
+            docs = newDocs;
+            grams = newGrams;
+            byStatus = newByStatus;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loaded = true;
+        lastLoadTime = LocalDateTime.now();
+        logger.info("用户搜索索引加载完成: users={}, grams={}, 耗时{}ms",
+                newDocs.size(), newGrams.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 用户数据变化（注册、状态变更、评分变化等），提交后在加载线程中按主键重新读取该用户；
+     * 与全量加载在同一线程中执行，不会被并发的加载覆盖
+     * @param userId 用户ID
+     */
+    public void onUserChanged(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        UnitOfWork.afterCommit(() -> {
+            ScheduledExecutorService current = scheduler;
+            if (current == null || !loaded) {
+                return;
+            }
+            try {
+                current.execute(() -> refreshQuietly(userId));
+            } catch (Exception e) {
+                logger.warn("提交用户搜索索引刷新任务失败: userId={}, error={}", userId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 一批用户的数据发生变化（批量封禁等），提交后在后台线程用一次查询刷新这批用户
+     * @param userIds 用户ID
+     */
+    public void onUsersChanged(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(userIds);
+        UnitOfWork.afterCommit(() -> {
+            ScheduledExecutorService current = scheduler;
+            if (current == null || !loaded) {
+                return;
+            }
+            try {
+                current.execute(() -> refreshQuietly(ids));
+            } catch (Exception e) {
+                logger.warn("提交用户搜索索引批量刷新任务失败: count={}, error={}", ids.size(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 用最新的用户数据替换索引中的记录
+     * @param userId 用户ID
+     * @param user 用户数据，null 表示用户已删除
+     */
+    void apply(long userId, User user) {
+        lock.writeLock().lock();
+        try {
+            Doc old = docs.remove(userId);
+            if (old != null) {
+                removePostings(old);
+            }
+            if (user != null) {
+                Doc doc = Doc.of(user);
+                docs.put(doc.id, doc);
+                addPostings(grams, byStatus, doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        refreshes.incrementAndGet();
+    }
+
+    /**
+     * 查询一页用户ID和匹配总数
+     * @param queryDTO 查询条件
+     * @return 查询结果；索引尚未加载或排序字段不受支持时返回null，调用方应回退到数据库查询
+     */
+    public Page search(AdminUserQueryDTO queryDTO) {
+        if (!loaded || queryDTO == null) {
+            return null;
+        }
+        Comparator<Doc> order = comparator(queryDTO.getSortBy(), queryDTO.getSortDirection());
+        if (order == null) {
+            return null;
+        }
+
+        int pageSize = queryDTO.getPageSize();
+        int pageNum = queryDTO.getPageNum();
+        if (pageSize <= 0 || pageSize > 1000) {
+            pageSize = 20;
+        }
+        if (pageNum <= 0) {
+            pageNum = 1;
+        }
+        long offset = (long) (pageNum - 1) * pageSize;
+        if (offset > Integer.MAX_VALUE) {
+            offset = 0;
+        }
+        String keyword = normalize(queryDTO.getKeyword());
+        Integer status = queryDTO.getStatus();
+
+        searches.incrementAndGet();
+        lock.readLock().lock();
+        try {
+            Collection<Long> candidates = candidates(keyword, status);
+            int need = (int) Math.min(offset + pageSize, Integer.MAX_VALUE);
+            // 堆顶是当前保留的最靠后的一条，只保留到当前页为止的记录
+            PriorityQueue<Doc> top = new PriorityQueue<>(Math.min(need, 1024) + 1, order.reversed());
+            int total = 0;
+            for (Long id : candidates) {
+                Doc doc = docs.get(id);
+                if (doc == null || (status != null && doc.status != status) || !doc.matches(keyword)) {
+                    continue;
+                }
+                total++;
+                top.add(doc);
+                if (top.size() > need) {
+                    top.poll();
+                }
+            }
+            List<Doc> sorted = new ArrayList<>(top);
+            sorted.sort(order);
+            List<Long> ids = new ArrayList<>(pageSize);
+            for (int i = (int) offset; i < sorted.size(); i++) {
+                ids.add(sorted.get(i).id);
+            }
+            return new Page(ids, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取索引指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("users", docs.size());
+            stats.put("grams", grams.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("loaded", loaded);
+        stats.put("searches", searches.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("lastLoadTime", lastLoadTime);
+        return stats;
+    }
+
+    private Collection<Long> candidates(String keyword, Integer status) {
+        Collection<Long> best = status != null ? byStatus.getOrDefault(status, Collections.emptySet()) : docs.keySet();
+        if (keyword == null || keyword.length() < 2) {
+            return best;
+        }
+        for (int i = 0; i + 2 <= keyword.length(); i++) {
+            Set<Long> posting = grams.get(keyword.substring(i, i + 2));
+            if (posting == null) {
+                return Collections.emptySet();
+            }
+            if (posting.size() < best.size()) {
+                best = posting;
+            }
+        }
+        return best;
+    }
+
+    private static void addPostings(Map<String, Set<Long>> grams, Map<Integer, Set<Long>> byStatus, Doc doc) {
+        for (String gram : doc.grams()) {
+            grams.computeIfAbsent(gram, k -> new HashSet<>()).add(doc.id);
+        }
+        byStatus.computeIfAbsent(doc.status, k -> new HashSet<>()).add(doc.id);
+    }
+
+    private void removePostings(Doc doc) {
+        for (String gram : doc.grams()) {
+            Set<Long> posting = grams.get(gram);
+            if (posting != null && posting.remove(doc.id) && posting.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+        Set<Long> statusSet = byStatus.get(doc.status);
+        if (statusSet != null) {
+            statusSet.remove(doc.id);
+        }
+    }
+
+    /**
+     * 支持的排序字段：create_time、average_rating、id，同值按ID排序保证分页稳定
+     */
+    static Comparator<Doc> comparator(String sortBy, String sortDirection) {
+        Comparator<Doc> order;
+        String field = sortBy != null ? sortBy.trim().toLowerCase(Locale.ROOT) : "create_time";
+        switch (field) {
+            case "create_time":
+                order = Comparator.comparingLong((Doc d) -> d.createTime).thenComparingLong(d -> d.id);
+                break;
+            case "average_rating":
+                order = Comparator.comparingDouble((Doc d) -> d.rating).thenComparingLong(d -> d.id);
+                break;
+            case "id":
+                order = Comparator.comparingLong(d -> d.id);
+                break;
+            default:
+                return null;
+        }
+        if (sortDirection == null || "DESC".equalsIgnoreCase(sortDirection.trim())) {
+            return order.reversed();
+        }
+        return "ASC".equalsIgnoreCase(sortDirection.trim()) ? order : null;
+    }
+
+    private static String normalize(String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return null;
+        }
+        return keyword.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void refreshQuietly(long userId) {
+        try {
+            apply(userId, userSearchDao.loadById(userId));
+        } catch (Exception e) {
+            logger.error("刷新用户搜索索引失败: userId={}, error={}", userId, e.getMessage(), e);
+        }
+    }
+
+    private void refreshQuietly(List<Long> userIds) {
+        try {
+            Map<Long, User> found = new HashMap<>();
+            for (User user : userSearchDao.loadByIds(userIds)) {
+                found.put(user.getId(), user);
+            }
+            for (Long userId : userIds) {
+                apply(userId, found.get(userId));
+            }
+        } catch (Exception e) {
+            logger.error("批量刷新用户搜索索引失败: count={}, error={}", userIds.size(), e.getMessage(), e);
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("加载用户搜索索引发生异常: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 一页查询结果
+     */
+    public static class Page {
+        private final List<Long> userIds;
+        private final long totalCount;
+
+        Page(List<Long> userIds, long totalCount) {
+            this.userIds = userIds;
+            this.totalCount = totalCount;
+        }
+
+        /**
+         * 当前页的用户ID，已按排序条件排列
+         */
+        public List<Long> getUserIds() {
+            return userIds;
+        }
+
+        /**
+         * 匹配的用户总数
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+    }
+
+    /**
+     * 索引中的一个用户，搜索字段已转为小写
+     */
+    static final class Doc {
+        final long id;
+        final String[] fields;
+        final int status;
+        final long createTime;
+        final double rating;
+
+        private Doc(long id, String[] fields, int status, long createTime, double rating) {
+            this.id = id;
+            this.fields = fields;
+            this.status = status;
+            this.createTime = createTime;
+            this.rating = rating;
+        }
+
+        static Doc of(User user) {
+            String[] fields = {lower(user.getUsername()), lower(user.getNickname()),
+                    lower(user.getEmail()), lower(user.getPhone())};
+            long createTime = user.getCreateTime() != null
+                    ? user.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+            BigDecimal rating = user.getAverageRating();
+            return new Doc(user.getId(), fields, user.getStatus() != null ? user.getStatus() : 0,
+                    createTime, rating != null ? rating.doubleValue() : 0);
+        }
+
+        boolean matches(String keyword) {
+            if (keyword == null) {
+                return true;
+            }
+            for (String field : fields) {
+                if (field != null && field.contains(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Set<String> grams() {
+            Set<String> result = new HashSet<>();
+            for (String field : fields) {
+                if (field == null) {
+                    continue;
+                }
+                for (int i = 0; i + 2 <= field.length(); i++) {
+                    result.add(field.substring(i, i + 2));
+                }
+            }
+            return result;
+        }
+
+        private static String lower(String value) {
+            return value != null ? value.toLowerCase(Locale.ROOT) : null;
+        }
+    }
+}
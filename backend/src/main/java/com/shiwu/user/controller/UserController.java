@@ -1,8 +1,11 @@
 package com.shiwu.user.controller;
 
 import com.shiwu.common.result.Result;
+import com.shiwu.common.util.ConditionalGet;
+import com.shiwu.common.util.EntityVersions;
 import com.shiwu.common.util.JsonUtil;
 import com.shiwu.common.util.JwtUtil;
+import com.shiwu.user.cache.LeaderboardCache;
 import com.shiwu.user.model.*;
 import com.shiwu.user.service.UserService;
 import com.shiwu.user.service.impl.UserServiceImpl;
@@ -53,6 +56,14 @@ public class UserController extends HttpServlet {
         // 处理 /api/user/follow/feed 格式的请求 (Task4_2_1_3)
         else if ("/follow/feed".equals(pathInfo)) {
             handleGetFollowingFeed(req, resp);
+        }
+        // 处理 /api/user/leaderboard 格式的请求
+        else if ("/leaderboard".equals(pathInfo)) {
+            handleGetLeaderboard(req, resp);
+        }
+        // 处理 /api/user/check-availability 格式的请求
+        else if ("/check-availability".equals(pathInfo)) {
+            handleCheckAvailability(req, resp);
         } else {
             sendErrorResponse(resp, "404", "请求路径不存在");
         }
@@ -158,6 +169,15 @@ public class UserController extends HttpServlet {
             // 获取当前登录用户ID（从JWT token中解析）
             Long currentUserId = getCurrentUserIdFromToken(req);
 
+            // 用户信息、在售商品、评分和关注状态都没有变化时直接返回304
+            String etag = ConditionalGet.etag(EntityVersions.version(EntityVersions.USER, userId),
+                    EntityVersions.version(EntityVersions.FOLLOW, userId),
+                    EntityVersions.typeVersion(EntityVersions.PRODUCT),
+                    EntityVersions.typeVersion(EntityVersions.REVIEW), currentUserId);
+            if (ConditionalGet.checkNotModified(req, resp, etag, ConditionalGet.CACHE_PRIVATE)) {
+                return;
+            }
+
             // 调用服务获取用户公开信息
             UserProfileVO userProfile = userService.getUserProfile(userId, currentUserId);
 
@@ -167,6 +187,7 @@ public class UserController extends HttpServlet {
             }
 
             // 返回成功结果
+            ConditionalGet.applyValidators(resp, etag, ConditionalGet.CACHE_PRIVATE);
             sendSuccessResponse(resp, userProfile);
 
         } catch (Exception e) {
@@ -455,6 +476,63 @@ public class UserController extends HttpServlet {
         }
     }
 
+    /**
+     * 处理获取排行榜请求
+     * API: GET /api/user/leaderboard?type=followers|rating|sales&limit=10
+     */
+    private void handleGetLeaderboard(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        try {
+            LeaderboardCache.Type type = LeaderboardCache.Type.fromCode(req.getParameter("type"));
+            if (type == null) {
+                sendErrorResponse(resp, "A0202", "排行榜类型无效");
+                return;
+            }
+
+            int limit = 10;
+            String limitStr = req.getParameter("limit");
+            try {
+                if (limitStr != null && !limitStr.trim().isEmpty()) {
+                    limit = Integer.parseInt(limitStr);
+                }
+            } catch (NumberFormatException e) {
+                sendErrorResponse(resp, "A0202", "limit参数格式错误");
+                return;
+            }
+
+            sendSuccessResponse(resp, LeaderboardCache.getInstance().getTop(type, limit));
+
+        } catch (Exception e) {
+            logger.error("处理获取排行榜请求失败: {}", e.getMessage(), e);
+            sendErrorResponse(resp, "B0001", "系统执行错误");
+        }
+    }
+
+    /**
+     * 处理用户名/邮箱/手机号可用性检查请求，供注册表单实时校验
+     * API: GET /api/user/check-availability?username=xxx&email=xxx&phone=xxx
+     */
+    private void handleCheckAvailability(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        try {
+            String username = req.getParameter("username");
+            String email = req.getParameter("email");
+            String phone = req.getParameter("phone");
+            if (isBlank(username) && isBlank(email) && isBlank(phone)) {
+                sendErrorResponse(resp, "A0202", "请至少提供用户名、邮箱或手机号之一");
+                return;
+            }
+
+            sendSuccessResponse(resp, userService.checkAvailability(username, email, phone));
+
+        } catch (Exception e) {
+            logger.error("处理可用性检查请求失败: {}", e.getMessage(), e);
+            sendErrorResponse(resp, "B0001", "系统执行错误");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
     /**
      * 发送错误响应
      */
@@ -2,6 +2,8 @@ package com.shiwu.user.dao;
 
 import com.shiwu.admin.model.AdminUserQueryDTO;
 import com.shiwu.common.util.DBUtil;
+import com.shiwu.common.util.EntityVersions;
+import com.shiwu.user.cache.UserSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,6 +16,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 管理员用户数据访问对象
@@ -21,6 +24,9 @@ import java.util.Map;
 public class AdminUserDao {
     private static final Logger logger = LoggerFactory.getLogger(AdminUserDao.class);
 
+    private static final String USER_COLUMNS = "id, username, email, phone, nickname, status, avatar_url, "
+            + "gender, bio, follower_count, average_rating, last_login_time, create_time, update_time";
+
     /**
      * 查询用户列表（管理员视角）
      */
@@ -35,9 +41,7 @@ public class AdminUserDao {
             
             // 构建查询SQL
             StringBuilder sql = new StringBuilder();
-            sql.append("SELECT id, username, email, phone, nickname, status, avatar_url, ");
-            sql.append("gender, bio, follower_count, average_rating, last_login_time, ");
-            sql.append("create_time, update_time ");
+            sql.append("SELECT ").append(USER_COLUMNS).append(" ");
             sql.append("FROM system_user WHERE is_deleted = 0 ");
             
             List<Object> params = new ArrayList<>();
@@ -49,11 +53,12 @@ public class AdminUserDao {
 
             // 添加搜索条件
             if (queryDTO.getKeyword() != null && !queryDTO.getKeyword().trim().isEmpty()) {
-                sql.append("AND (username LIKE ? OR nickname LIKE ? OR email LIKE ?) ");
+                sql.append("AND (username LIKE ? OR nickname LIKE ? OR email LIKE ? OR phone LIKE ?) ");
                 String keyword = "%" + queryDTO.getKeyword().trim() + "%";
                 params.add(keyword);
                 params.add(keyword);
                 params.add(keyword);
+                params.add(keyword);
             }
             
             // 添加状态筛选
@@ -97,25 +102,7 @@ public class AdminUserDao {
             rs = pstmt.executeQuery();
             
             while (rs.next()) {
-                Map<String, Object> user = new HashMap<>();
-                user.put("id", rs.getLong("id"));
-                user.put("username", rs.getString("username"));
-                user.put("email", rs.getString("email"));
-                user.put("phone", rs.getString("phone"));
-                user.put("nickname", rs.getString("nickname"));
-                user.put("status", rs.getInt("status"));
-                user.put("statusText", getStatusText(rs.getInt("status")));
-                user.put("avatarUrl", rs.getString("avatar_url"));
-                user.put("gender", rs.getInt("gender"));
-                user.put("bio", rs.getString("bio"));
-                user.put("followerCount", rs.getInt("follower_count"));
-                user.put("averageRating", rs.getBigDecimal("average_rating"));
-                user.put("lastLoginTime", rs.getTimestamp("last_login_time") != null ? 
-                         rs.getTimestamp("last_login_time").toLocalDateTime() : null);
-                user.put("createTime", rs.getTimestamp("create_time").toLocalDateTime());
-                user.put("updateTime", rs.getTimestamp("update_time").toLocalDateTime());
-                
-                users.add(user);
+                users.add(mapUserRow(rs));
             }
             
         } catch (SQLException e) {
@@ -127,6 +114,59 @@ public class AdminUserDao {
         return users;
     }
 
+    /**
+     * 按ID批量查询用户（管理员视角），结果按传入的ID顺序排列；
+     * 配合用户搜索索引使用，索引算出当前页的ID后只按主键读取这一页
+     * @param userIds 用户ID列表
+     * @return 用户列表，已删除的用户不出现在结果中
+     */
+    public List<Map<String, Object>> findUsersByIds(List<Long> userIds) {
+        List<Map<String, Object>> users = new ArrayList<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return users;
+        }
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtil.getConnection();
+
+            StringBuilder sql = new StringBuilder();
+            sql.append("SELECT ").append(USER_COLUMNS).append(" ");
+            sql.append("FROM system_user WHERE is_deleted = 0 AND id IN (");
+            for (int i = 0; i < userIds.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+
+            pstmt = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < userIds.size(); i++) {
+                pstmt.setLong(i + 1, userIds.get(i));
+            }
+
+            rs = pstmt.executeQuery();
+            Map<Long, Map<String, Object>> byId = new HashMap<>();
+            while (rs.next()) {
+                Map<String, Object> user = mapUserRow(rs);
+                byId.put((Long) user.get("id"), user);
+            }
+            for (Long userId : userIds) {
+                Map<String, Object> user = byId.get(userId);
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("按ID查询用户列表失败: {}", e.getMessage(), e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+
+        return users;
+    }
+
     /**
      * 统计用户数量
      */
@@ -152,11 +192,12 @@ public class AdminUserDao {
 
             // 添加搜索条件
             if (queryDTO.getKeyword() != null && !queryDTO.getKeyword().trim().isEmpty()) {
-                sql.append("AND (username LIKE ? OR nickname LIKE ? OR email LIKE ?) ");
+                sql.append("AND (username LIKE ? OR nickname LIKE ? OR email LIKE ? OR phone LIKE ?) ");
                 String keyword = "%" + queryDTO.getKeyword().trim() + "%";
                 params.add(keyword);
                 params.add(keyword);
                 params.add(keyword);
+                params.add(keyword);
             }
             
             // 添加状态筛选
@@ -219,6 +260,8 @@ public class AdminUserDao {
             success = rows > 0;
             
             if (success) {
+                EntityVersions.bump(EntityVersions.USER, userId);
+                UserSearchIndex.getInstance().onUserChanged(userId);
                 logger.info("管理员 {} 更新用户 {} 状态为 {} 成功", adminId, userId, status);
             } else {
                 logger.warn("管理员 {} 更新用户 {} 状态失败: 用户不存在或已删除", adminId, userId);
@@ -233,6 +276,114 @@ public class AdminUserDao {
         return success;
     }
 
+    /**
+     * 批量更新用户状态
+     * 在一个事务中锁定这一批用户，只把当前状态属于 fromStatuses 的用户用一条 UPDATE 改为目标状态；
+     * 提交后在后台刷新这批用户的搜索索引
+     * @param userIds 用户ID（一块，调用方负责控制数量）
+     * @param fromStatuses 允许修改的当前状态
+     * @param status 目标状态
+     * @param adminId 管理员ID
+     * @return 找到的用户，包含 id、username、修改前的 status 和是否已修改 updated；不存在或已删除的用户不在结果中
+     */
+    public List<Map<String, Object>> bulkUpdateUserStatus(List<Long> userIds, Set<Integer> fromStatuses,
+                                                          Integer status, Long adminId) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return rows;
+        }
+
+        StringBuilder lockSql = new StringBuilder("SELECT id, username, status FROM system_user " +
+                "WHERE is_deleted = 0 AND id IN (");
+        appendPlaceholders(lockSql, userIds.size());
+        lockSql.append(") FOR UPDATE");
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            conn.setAutoCommit(false);
+
+            pstmt = conn.prepareStatement(lockSql.toString());
+            for (int i = 0; i < userIds.size(); i++) {
+                pstmt.setLong(i + 1, userIds.get(i));
+            }
+            rs = pstmt.executeQuery();
+            List<Long> eligible = new ArrayList<>();
+            while (rs.next()) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("id", rs.getLong("id"));
+                row.put("username", rs.getString("username"));
+                row.put("status", rs.getInt("status"));
+                boolean updated = fromStatuses.contains(rs.getInt("status"));
+                row.put("updated", updated);
+                if (updated) {
+                    eligible.add(rs.getLong("id"));
+                }
+                rows.add(row);
+            }
+            rs.close();
+            rs = null;
+            pstmt.close();
+            pstmt = null;
+
+            if (!eligible.isEmpty()) {
+                StringBuilder updateSql = new StringBuilder("UPDATE system_user SET status = ?, update_time = ? " +
+                        "WHERE is_deleted = 0 AND id IN (");
+                appendPlaceholders(updateSql, eligible.size());
+                pstmt = conn.prepareStatement(updateSql.append(')').toString());
+                pstmt.setInt(1, status);
+                pstmt.setObject(2, LocalDateTime.now());
+                for (int i = 0; i < eligible.size(); i++) {
+                    pstmt.setLong(i + 3, eligible.get(i));
+                }
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+
+            if (!eligible.isEmpty()) {
+                for (Long userId : eligible) {
+                    EntityVersions.bump(EntityVersions.USER, userId);
+                }
+                UserSearchIndex.getInstance().onUsersChanged(eligible);
+            }
+            logger.info("管理员 {} 批量更新用户状态为 {}: 提交{}个, 更新{}个", adminId, status, userIds.size(), eligible.size());
+            return rows;
+        } catch (SQLException e) {
+            logger.error("批量更新用户状态失败: {}", e.getMessage(), e);
+            rollbackQuietly(conn);
+            throw new RuntimeException("批量更新用户状态时发生数据库错误", e);
+        } finally {
+            restoreAutoCommit(conn);
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    private Map<String, Object> mapUserRow(ResultSet rs) throws SQLException {
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", rs.getLong("id"));
+        user.put("username", rs.getString("username"));
+        user.put("email", rs.getString("email"));
+        user.put("phone", rs.getString("phone"));
+        user.put("nickname", rs.getString("nickname"));
+        user.put("status", rs.getInt("status"));
+        user.put("statusText", getStatusText(rs.getInt("status")));
+        user.put("avatarUrl", rs.getString("avatar_url"));
+        user.put("gender", rs.getInt("gender"));
+        user.put("bio", rs.getString("bio"));
+        user.put("followerCount", rs.getInt("follower_count"));
+        user.put("averageRating", rs.getBigDecimal("average_rating"));
+        user.put("lastLoginTime", rs.getTimestamp("last_login_time") != null ?
+                 rs.getTimestamp("last_login_time").toLocalDateTime() : null);
+        user.put("createTime", rs.getTimestamp("create_time").toLocalDateTime());
+        user.put("updateTime", rs.getTimestamp("update_time").toLocalDateTime());
+        return user;
+    }
+
     /**
      * 获取状态文本
      */
@@ -248,6 +399,32 @@ public class AdminUserDao {
         }
     }
 
+    private static void appendPlaceholders(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                logger.error("回滚事务失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("恢复自动提交失败: {}", e.getMessage());
+            }
+        }
+    }
+
     /**
      * 关闭资源
      */
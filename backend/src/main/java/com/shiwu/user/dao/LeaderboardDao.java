@@ -0,0 +1,116 @@
+package com.shiwu.user.dao;
+
+import com.shiwu.common.util.DBUtil;
+import com.shiwu.user.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 排行榜数据访问对象
+ * 仅在排行榜加载/重新加载时使用，日常更新由业务事件增量完成
+ */
+public class LeaderboardDao {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardDao.class);
+
+    /**
+     * 加载粉丝数量最多的用户
+     * @param limit 最多加载的用户数量
+     * @return 用户ID -> 粉丝数量
+     */
+    public Map<Long, Double> loadFollowerCounts(int limit) {
+        String sql = "SELECT id, follower_count FROM system_user WHERE is_deleted = 0 AND follower_count > 0 " +
+                "ORDER BY follower_count DESC, id LIMIT ?";
+        return loadScores(sql, "加载粉丝数量", limit);
+    }
+
+    /**
+     * 加载平均评分最高的卖家
+     * @param limit 最多加载的卖家数量
+     * @return 用户ID -> 平均评分
+     */
+    public Map<Long, Double> loadAverageRatings(int limit) {
+        String sql = "SELECT id, average_rating FROM system_user WHERE is_deleted = 0 AND average_rating > 0 " +
+                "ORDER BY average_rating DESC, id LIMIT ?";
+        return loadScores(sql, "加载平均评分", limit);
+    }
+
+    /**
+     * 按卖家统计已完成订单数量（走 idx_status 索引），取数量最多的卖家
+     * @param completedStatus 已完成订单状态值
+     * @param limit 最多加载的卖家数量
+     * @return 卖家ID -> 已完成订单数量
+     */
+    public Map<Long, Double> loadCompletedSales(int completedStatus, int limit) {
+        String sql = "SELECT seller_id, COUNT(*) AS sales FROM trade_order WHERE status = ? " +
+                "GROUP BY seller_id ORDER BY sales DESC, seller_id LIMIT ?";
+        return loadScores(sql, "加载已完成销量", completedStatus, limit);
+    }
+
+    /**
+     * 批量查询用户公开信息
+     * @param userIds 用户ID列表
+     * @return 用户ID -> 用户（只包含 id、username、nickname、avatar_url、status）
+     */
+    public Map<Long, User> findPublicInfoByIds(List<Long> userIds) {
+        Map<Long, User> users = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return users;
+        }
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, username, nickname, avatar_url, status FROM system_user WHERE is_deleted = 0 AND id IN (");
+        for (int i = 0; i < userIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < userIds.size(); i++) {
+                stmt.setLong(i + 1, userIds.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    User user = new User();
+                    user.setId(rs.getLong("id"));
+                    user.setUsername(rs.getString("username"));
+                    user.setNickname(rs.getString("nickname"));
+                    user.setAvatarUrl(rs.getString("avatar_url"));
+                    user.setStatus(rs.getInt("status"));
+                    users.put(user.getId(), user);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("批量查询用户公开信息失败: {}", e.getMessage(), e);
+            throw new RuntimeException("批量查询用户公开信息时发生数据库错误", e);
+        }
+        return users;
+    }
+
+    private Map<Long, Double> loadScores(String sql, String action, int... params) {
+        Map<Long, Double> scores = new HashMap<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setInt(i + 1, params[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    scores.put(rs.getLong(1), rs.getDouble(2));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("{}失败: {}", action, e.getMessage(), e);
+            throw new RuntimeException(action + "时发生数据库错误", e);
+        }
+        return scores;
+    }
+}
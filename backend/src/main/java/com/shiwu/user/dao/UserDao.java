@@ -1,12 +1,14 @@
 package com.shiwu.user.dao;
 
 import com.shiwu.common.util.DBUtil;
+import com.shiwu.common.util.EntityVersions;
+import com.shiwu.user.cache.UserIdentityFilter;
+import com.shiwu.user.cache.UserSearchIndex;
 import com.shiwu.user.model.User;
 import com.shiwu.product.model.ProductCardVO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -209,6 +211,90 @@ public class UserDao {
         return user;
     }
     
+    /**
+     * 一次查询已占用指定用户名、邮箱或手机号的用户，用于注册前的唯一性检查
+     * @param username 用户名，null表示不检查
+     * @param email 邮箱，null表示不检查
+     * @param phone 手机号，null表示不检查
+     * @return 冲突的用户（只包含 id、username、email、phone），没有冲突返回空列表
+     */
+    public List<User> findIdentityConflicts(String username, String email, String phone) {
+        List<User> users = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        List<String> params = new ArrayList<>();
+        if (username != null) {
+            conditions.add("username = ?");
+            params.add(username);
+        }
+        if (email != null) {
+            conditions.add("email = ?");
+            params.add(email);
+        }
+        if (phone != null) {
+            conditions.add("phone = ?");
+            params.add(phone);
+        }
+        if (conditions.isEmpty()) {
+            return users;
+        }
+
+        String sql = "SELECT id, username, email, phone FROM system_user WHERE is_deleted = 0 AND ("
+                + String.join(" OR ", conditions) + ") LIMIT 3";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            pstmt = conn.prepareStatement(sql);
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setString(i + 1, params.get(i));
+            }
+            rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                User user = new User();
+                user.setId(rs.getLong("id"));
+                user.setUsername(rs.getString("username"));
+                user.setEmail(rs.getString("email"));
+                user.setPhone(rs.getString("phone"));
+                users.add(user);
+            }
+        } catch (SQLException e) {
+            logger.error("查询用户唯一性冲突失败: {}", e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("查询用户唯一性冲突时发生未知异常: {}", e.getMessage(), e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+
+        return users;
+    }
+
+    /**
+     * 加载全部未删除用户的用户名、邮箱和手机号，用于构建存在性过滤器
+     * @return 用户列表（只包含 username、email、phone）
+     */
+    public List<User> findAllIdentities() {
+        String sql = "SELECT username, email, phone FROM system_user WHERE is_deleted = 0";
+        List<User> users = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                User user = new User();
+                user.setUsername(rs.getString("username"));
+                user.setEmail(rs.getString("email"));
+                user.setPhone(rs.getString("phone"));
+                users.add(user);
+            }
+        } catch (SQLException e) {
+            logger.error("加载用户名、邮箱和手机号失败: {}", e.getMessage(), e);
+            throw new RuntimeException("加载用户名、邮箱和手机号时发生数据库错误", e);
+        }
+        return users;
+    }
+
     /**
      * 创建新用户
      * @param user 用户对象
@@ -237,6 +323,8 @@ public class UserDao {
                 rs = pstmt.getGeneratedKeys();
                 if (rs.next()) {
                     userId = rs.getLong(1);
+                    UserIdentityFilter.getInstance().add(user.getUsername(), user.getEmail(), user.getPhone());
+                    UserSearchIndex.getInstance().onUserChanged(userId);
                     logger.info("创建用户成功, ID: {}", userId);
                 }
             }
@@ -465,11 +553,11 @@ public class UserDao {
     }
 
     /**
-     * 获取平台平均评分
-     * @return 平均评分
+     * 获取平台平均评分（读取评价时维护的平台评分总和/数量，单行查询）
+     * @return 平均评分，没有评价时为0
      */
     public Double getAverageRating() {
-        String sql = "SELECT AVG(average_rating) FROM system_user WHERE is_deleted = 0 AND average_rating > 0";
+        String sql = "SELECT IF(rating_count = 0, 0, rating_sum / rating_count) FROM platform_rating WHERE id = 1";
         Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
@@ -491,71 +579,6 @@ public class UserDao {
 
         return avgRating;
     }
-    /**
-     * 更新用户平均评分
-     * @param userId 用户ID
-     * @param averageRating 新的平均评分
-     * @return 是否更新成功
-     */
-    public boolean updateAverageRating(Long userId, BigDecimal averageRating) {
-        String sql = "UPDATE system_user SET average_rating = ?, update_time = NOW() WHERE id = ? AND is_deleted = 0";
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-
-        try {
-            conn = DBUtil.getConnection();
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setBigDecimal(1, averageRating);
-            pstmt.setLong(2, userId);
-
-            int result = pstmt.executeUpdate();
-            if (result > 0) {
-                logger.info("更新用户平均评分成功: userId={}, averageRating={}", userId, averageRating);
-                return true;
-            }
-        } catch (SQLException e) {
-            logger.error("更新用户平均评分失败: userId={}, averageRating={}, error={}", userId, averageRating, e.getMessage(), e);
-        } finally {
-            closeResources(conn, pstmt, null);
-        }
-
-        return false;
-    }
-
-    /**
-     * 计算用户的平均评分（基于所有评价）
-     * @param userId 用户ID
-     * @return 平均评分，如果没有评价则返回null
-     */
-    public BigDecimal calculateUserAverageRating(Long userId) {
-        String sql = "SELECT AVG(r.rating) FROM review r " +
-                    "INNER JOIN trade_order o ON r.order_id = o.id " +
-                    "WHERE o.seller_id = ? AND r.is_deleted = 0 AND o.is_deleted = 0";
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-
-        try {
-            conn = DBUtil.getConnection();
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setLong(1, userId);
-            rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                BigDecimal avgRating = rs.getBigDecimal(1);
-                if (avgRating != null) {
-                    // 保留两位小数
-                    return avgRating.setScale(2, BigDecimal.ROUND_HALF_UP);
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("计算用户平均评分失败: userId={}, error={}", userId, e.getMessage(), e);
-        } finally {
-            closeResources(conn, pstmt, rs);
-        }
-
-        return null;
-    }
 
     /**
      * 获取用户增长趋势数据（按天统计）
@@ -1,6 +1,7 @@
 package com.shiwu.user.dao;
 
 import com.shiwu.common.util.DBUtil;
+import com.shiwu.common.util.EntityVersions;
 import com.shiwu.user.model.UserFollow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +10,7 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户关注数据访问对象
@@ -95,20 +97,31 @@ public class UserFollowDao {
             return false;
         }
         
+        // 取关是软删除，再次关注时恢复原记录，否则唯一键 uk_follower_followed 会导致插入失败
+        String reactivateSql = "UPDATE user_follow SET is_deleted = 0 WHERE follower_id = ? AND followed_id = ? AND is_deleted = 1";
         String sql = "INSERT INTO user_follow (follower_id, followed_id, is_deleted) VALUES (?, ?, 0)";
         Connection conn = null;
         PreparedStatement pstmt = null;
         
         try {
             conn = DBUtil.getConnection();
-            pstmt = conn.prepareStatement(sql);
+            pstmt = conn.prepareStatement(reactivateSql);
             pstmt.setLong(1, followerId);
             pstmt.setLong(2, followedId);
-            
             int rowsAffected = pstmt.executeUpdate();
+
+            if (rowsAffected == 0) {
+                pstmt.close();
+                pstmt = conn.prepareStatement(sql);
+                pstmt.setLong(1, followerId);
+                pstmt.setLong(2, followedId);
+                rowsAffected = pstmt.executeUpdate();
+            }
             boolean success = rowsAffected > 0;
             
             if (success) {
+                EntityVersions.bump(EntityVersions.FOLLOW, followerId);
+                EntityVersions.bump(EntityVersions.FOLLOW, followedId);
                 logger.info("关注用户成功: followerId={}, followedId={}", followerId, followedId);
             } else {
                 logger.warn("关注用户失败: followerId={}, followedId={}", followerId, followedId);
@@ -179,6 +192,8 @@ public class UserFollowDao {
             boolean success = rowsAffected > 0;
             
             if (success) {
+                EntityVersions.bump(EntityVersions.FOLLOW, followerId);
+                EntityVersions.bump(EntityVersions.FOLLOW, followedId);
                 logger.info("取关用户成功: followerId={}, followedId={}", followerId, followedId);
             } else {
                 logger.warn("取关用户失败: followerId={}, followedId={}", followerId, followedId);
@@ -360,6 +375,218 @@ public class UserFollowDao {
         }
     }
 
+    /**
+     * 按粉丝ID升序分段读取粉丝ID（键集分页，走 idx_followed_id(followed_id, follower_id) 索引）
+     * 供通知扩散逐段处理，避免一次性加载全部粉丝
+     *
+     * @param userId 被关注者用户ID
+     * @param afterFollowerId 上一段最后一个粉丝ID，从头开始传0
+     * @param limit 本段最多返回数量（同时作为JDBC fetch size）
+     * @return 粉丝ID列表，已读完返回空列表
+     */
+    public List<Long> findFollowerIdsAfter(Long userId, long afterFollowerId, int limit) {
+        List<Long> followerIds = new ArrayList<>();
+        if (userId == null || limit <= 0) {
+            return followerIds;
+        }
+
+        String sql = "SELECT follower_id FROM user_follow WHERE followed_id = ? AND follower_id > ? AND is_deleted = 0 " +
+                     "ORDER BY follower_id LIMIT ?";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("无法获取数据库连接");
+            }
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setFetchSize(limit);
+            pstmt.setLong(1, userId);
+            pstmt.setLong(2, afterFollowerId);
+            pstmt.setInt(3, limit);
+
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                followerIds.add(rs.getLong(1));
+            }
+            return followerIds;
+
+        } catch (SQLException e) {
+            logger.error("分段获取粉丝ID失败: userId={}, afterFollowerId={}, error={}", userId, afterFollowerId, e.getMessage(), e);
+            throw new RuntimeException("分段获取粉丝ID时发生数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * 获取 system_user 中存储的粉丝数量和关注数量
+     * 供关注计数缓存首次加载使用
+     *
+     * @param userId 用户ID
+     * @return {粉丝数量, 关注数量}，用户不存在或查询失败时返回null
+     */
+    public long[] getStoredFollowCounts(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+
+        String sql = "SELECT follower_count, following_count FROM system_user WHERE id = ?";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("数据库连接为空");
+                return null;
+            }
+
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setLong(1, userId);
+            rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                return new long[]{rs.getLong("follower_count"), rs.getLong("following_count")};
+            }
+        } catch (SQLException e) {
+            logger.error("获取存储的关注计数失败: userId={}, error={}", userId, e.getMessage(), e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+
+        return null;
+    }
+
+    /**
+     * 批量把关注计数增量写回 system_user
+     *
+     * @param deltas 用户ID -> {粉丝数量增量, 关注数量增量}
+     * @return 全部写入成功返回true，失败时整批回滚并返回false
+     */
+    public boolean applyFollowCountDeltas(Map<Long, long[]> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return true;
+        }
+
+        String sql = "UPDATE system_user SET " +
+                "follower_count = GREATEST(CAST(follower_count AS SIGNED) + ?, 0), " +
+                "following_count = GREATEST(CAST(following_count AS SIGNED) + ?, 0) " +
+                "WHERE id = ?";
+        return executeFollowCountBatch(sql, deltas, "写回关注计数增量");
+    }
+
+    /**
+     * 批量覆盖 system_user 中的关注计数（对账修正使用）
+     *
+     * @param counts 用户ID -> {粉丝数量, 关注数量}
+     * @return 全部写入成功返回true，失败时整批回滚并返回false
+     */
+    public boolean updateFollowCounts(Map<Long, long[]> counts) {
+        if (counts == null || counts.isEmpty()) {
+            return true;
+        }
+
+        String sql = "UPDATE system_user SET follower_count = ?, following_count = ? WHERE id = ?";
+        return executeFollowCountBatch(sql, counts, "修正关注计数");
+    }
+
+    /**
+     * 按用户ID分批扫描存储的关注计数与 user_follow 中的实际计数
+     * 两个子查询分别走 idx_followed_id 和 idx_follower_id 索引
+     *
+     * @param afterId 从该用户ID之后开始扫描（不含）
+     * @param limit 本批最多扫描的用户数量
+     * @return 每个元素为 {用户ID, 存储粉丝数, 存储关注数, 实际粉丝数, 实际关注数}，按用户ID升序
+     */
+    public List<long[]> scanFollowCounts(long afterId, int limit) {
+        String sql = "SELECT u.id, u.follower_count, u.following_count, " +
+                "(SELECT COUNT(*) FROM user_follow f WHERE f.followed_id = u.id AND f.is_deleted = 0) AS actual_follower_count, " +
+                "(SELECT COUNT(*) FROM user_follow f WHERE f.follower_id = u.id AND f.is_deleted = 0) AS actual_following_count " +
+                "FROM system_user u WHERE u.id > ? ORDER BY u.id LIMIT ?";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        List<long[]> rows = new ArrayList<>();
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                throw new SQLException("数据库连接为空");
+            }
+
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setLong(1, afterId);
+            pstmt.setInt(2, limit);
+            rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                rows.add(new long[]{
+                        rs.getLong("id"),
+                        rs.getLong("follower_count"),
+                        rs.getLong("following_count"),
+                        rs.getLong("actual_follower_count"),
+                        rs.getLong("actual_following_count")
+                });
+            }
+        } catch (SQLException e) {
+            logger.error("扫描关注计数失败: afterId={}, error={}", afterId, e.getMessage(), e);
+            throw new RuntimeException("扫描关注计数时数据库错误", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+
+        return rows;
+    }
+
+    private boolean executeFollowCountBatch(String sql, Map<Long, long[]> values, String action) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            conn = DBUtil.getConnection();
+            if (conn == null) {
+                logger.error("数据库连接为空");
+                return false;
+            }
+
+            conn.setAutoCommit(false);
+            pstmt = conn.prepareStatement(sql);
+            for (Map.Entry<Long, long[]> entry : values.entrySet()) {
+                pstmt.setLong(1, entry.getValue()[0]);
+                pstmt.setLong(2, entry.getValue()[1]);
+                pstmt.setLong(3, entry.getKey());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+            logger.debug("{}成功: count={}", action, values.size());
+            return true;
+        } catch (SQLException e) {
+            logger.error("{}失败: count={}, error={}", action, values.size(), e.getMessage(), e);
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    logger.error("{}回滚失败: {}", action, rollbackEx.getMessage(), rollbackEx);
+                }
+            }
+            return false;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    logger.error("恢复自动提交失败: {}", e.getMessage(), e);
+                }
+            }
+            closeResources(conn, pstmt, null);
+        }
+    }
+
     /**
      * 关闭数据库资源
      */
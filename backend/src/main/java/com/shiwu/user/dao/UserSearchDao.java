@@ -0,0 +1,109 @@
+package com.shiwu.user.dao;
+
+import com.shiwu.common.util.DBUtil;
+import com.shiwu.user.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户搜索索引数据访问对象
+ * 仅在索引加载和按用户刷新时使用，只读取搜索、筛选和排序需要的字段
+ */
+public class UserSearchDao {
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchDao.class);
+
+    private static final String COLUMNS = "id, username, nickname, email, phone, status, average_rating, create_time";
+
+    /**
+     * 加载全部未删除的用户
+     * @return 用户列表（只包含索引字段）
+     */
+    public List<User> loadAll() {
+        String sql = "SELECT " + COLUMNS + " FROM system_user WHERE is_deleted = 0";
+        List<User> users = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                users.add(mapRow(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("加载用户搜索索引失败: {}", e.getMessage(), e);
+            throw new RuntimeException("加载用户搜索索引时发生数据库错误", e);
+        }
+        return users;
+    }
+
+    /**
+     * 按主键读取单个用户
+     * @param userId 用户ID
+     * @return 用户（只包含索引字段），不存在或已删除返回null
+     */
+    public User loadById(long userId) {
+        String sql = "SELECT " + COLUMNS + " FROM system_user WHERE id = ? AND is_deleted = 0";
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapRow(rs) : null;
+            }
+        } catch (SQLException e) {
+            logger.error("读取用户搜索索引数据失败: userId={}, error={}", userId, e.getMessage(), e);
+            throw new RuntimeException("读取用户搜索索引数据时发生数据库错误", e);
+        }
+    }
+
+    /**
+     * 按主键批量读取用户
+     * @param userIds 用户ID
+     * @return 用户（只包含索引字段），不存在或已删除的用户不出现在结果中
+     */
+    public List<User> loadByIds(List<Long> userIds) {
+        List<User> users = new ArrayList<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return users;
+        }
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM system_user WHERE is_deleted = 0 AND id IN (");
+        for (int i = 0; i < userIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < userIds.size(); i++) {
+                stmt.setLong(i + 1, userIds.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("批量读取用户搜索索引数据失败: {}", e.getMessage(), e);
+            throw new RuntimeException("批量读取用户搜索索引数据时发生数据库错误", e);
+        }
+        return users;
+    }
+
+    private User mapRow(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong("id"));
+        user.setUsername(rs.getString("username"));
+        user.setNickname(rs.getString("nickname"));
+        user.setEmail(rs.getString("email"));
+        user.setPhone(rs.getString("phone"));
+        user.setStatus(rs.getInt("status"));
+        user.setAverageRating(rs.getBigDecimal("average_rating"));
+        Timestamp createTime = rs.getTimestamp("create_time");
+        user.setCreateTime(createTime != null ? createTime.toLocalDateTime() : null);
+        return user;
+    }
+}
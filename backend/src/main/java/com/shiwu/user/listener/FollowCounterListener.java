@@ -0,0 +1,42 @@
+package com.shiwu.user.listener;
+
+import com.shiwu.user.cache.FollowCounterCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * 关注计数监听器
+ * 在应用启动时启动关注计数写回和对账任务，在应用关闭时写回剩余增量
+ */
+@WebListener
+public class FollowCounterListener implements ServletContextListener {
+    private static final Logger logger = LoggerFactory.getLogger(FollowCounterListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        logger.info("应用启动，开始初始化关注计数写回任务");
+
+        try {
+            FollowCounterCache.getInstance().start();
+            logger.info("关注计数写回任务启动成功");
+        } catch (Exception e) {
+            logger.error("启动关注计数写回任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        logger.info("应用关闭，开始停止关注计数写回任务");
+
+        try {
+            FollowCounterCache.getInstance().stop();
+            logger.info("关注计数写回任务停止成功");
+        } catch (Exception e) {
+            logger.error("停止关注计数写回任务失败: {}", e.getMessage(), e);
+        }
+    }
+}
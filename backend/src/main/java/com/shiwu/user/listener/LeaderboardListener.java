@@ -0,0 +1,42 @@
+package com.shiwu.user.listener;
+
+import com.shiwu.user.cache.LeaderboardCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * 排行榜监听器
+ * 在应用启动时从数据库加载排行榜，在应用关闭时停止定期重新加载任务
+ */
+@WebListener
+public class LeaderboardListener implements ServletContextListener {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        logger.info("应用启动，开始初始化排行榜");
+
+        try {
+            LeaderboardCache.getInstance().start();
+            logger.info("排行榜加载任务启动成功");
+        } catch (Exception e) {
+            logger.error("启动排行榜加载任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        logger.info("应用关闭，开始停止排行榜加载任务");
+
+        try {
+            LeaderboardCache.getInstance().stop();
+            logger.info("排行榜加载任务停止成功");
+        } catch (Exception e) {
+            logger.error("停止排行榜加载任务失败: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.shiwu.user.listener;
+
+import com.shiwu.user.cache.UserIdentityFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * 用户存在性过滤器监听器
+ * 在应用启动时从数据库构建用户存在性过滤器，在应用关闭时停止定期重建任务
+ */
+@WebListener
+public class UserIdentityFilterListener implements ServletContextListener {
+    private static final Logger logger = LoggerFactory.getLogger(UserIdentityFilterListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        logger.info("应用启动，开始初始化用户存在性过滤器");
+
+        try {
+            UserIdentityFilter.getInstance().start();
+            logger.info("用户存在性过滤器加载任务启动成功");
+        } catch (Exception e) {
+            logger.error("启动用户存在性过滤器加载任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        logger.info("应用关闭，开始停止用户存在性过滤器加载任务");
+
+        try {
+            UserIdentityFilter.getInstance().stop();
+            logger.info("用户存在性过滤器加载任务停止成功");
+        } catch (Exception e) {
+            logger.error("停止用户存在性过滤器加载任务失败: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.shiwu.user.listener;
+
+import com.shiwu.user.cache.UserSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * 用户搜索索引监听器
+ * 在应用启动时从数据库加载用户搜索索引，在应用关闭时停止定期重新加载任务
+ */
+@WebListener
+public class UserSearchIndexListener implements ServletContextListener {
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndexListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        logger.info("应用启动，开始初始化用户搜索索引");
+
+        try {
+            UserSearchIndex.getInstance().start();
+            logger.info("用户搜索索引加载任务启动成功");
+        } catch (Exception e) {
+            logger.error("启动用户搜索索引加载任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        logger.info("应用关闭，开始停止用户搜索索引加载任务");
+
+        try {
+            UserSearchIndex.getInstance().stop();
+            logger.info("用户搜索索引加载任务停止成功");
+        } catch (Exception e) {
+            logger.error("停止用户搜索索引加载任务失败: {}", e.getMessage(), e);
+        }
+    }
+}
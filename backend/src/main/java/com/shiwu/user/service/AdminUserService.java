@@ -1,7 +1,10 @@
 package com.shiwu.user.service;
 
+import com.shiwu.admin.bulk.BulkResultWriter;
+import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.model.AdminUserQueryDTO;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -88,4 +91,31 @@ public interface AdminUserService {
      * @return 操作结果统计
      */
     Map<String, Object> batchMuteUsers(List<Long> userIds, Long adminId, String reason, String ipAddress, String userAgent);
+
+    /**
+     * 批量解封用户
+     * @param userIds 用户ID列表
+     * @param adminId 管理员ID
+     * @param ipAddress IP地址
+     * @param userAgent 用户代理
+     * @return 操作结果统计
+     */
+    Map<String, Object> batchUnbanUsers(List<Long> userIds, Long adminId, String ipAddress, String userAgent);
+
+    /**
+     * 批量修改用户状态（封禁、禁言、解封）
+     * 按块执行，每块一条加锁查询、一条条件 UPDATE 和一条审计日志 INSERT；
+     * 传入 writer 时每块提交后立即写出块内每个用户的处理结果
+     * @param action 操作类型：USER_BAN、USER_MUTE 或 USER_UNBAN
+     * @param userIds 用户ID列表
+     * @param adminId 管理员ID
+     * @param reason 操作原因，可以为null
+     * @param ipAddress IP地址
+     * @param userAgent 用户代理
+     * @param writer 逐块写出结果的写入器，为null时失败明细放在返回结果的 failures 中
+     * @return 操作结果统计，参数无效时返回null
+     * @throws IOException 写出结果失败
+     */
+    Map<String, Object> batchUpdateUserStatus(AuditActionEnum action, List<Long> userIds, Long adminId, String reason,
+                                              String ipAddress, String userAgent, BulkResultWriter writer) throws IOException;
 }
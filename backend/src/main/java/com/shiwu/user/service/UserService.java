@@ -10,6 +10,8 @@ import com.shiwu.user.model.FollowResult;
 import com.shiwu.user.model.FollowStatusVO;
 import com.shiwu.user.vo.FeedResponseVO;
 
+import java.util.Map;
+
 /**
  * 用户服务接口
  */
@@ -30,6 +32,15 @@ public interface UserService {
      */
     RegisterResult register(RegisterRequest registerRequest);
 
+    /**
+     * 检查用户名、邮箱、手机号是否可用，用于注册表单的实时校验
+     * @param username 用户名，为空不检查
+     * @param email 邮箱，为空不检查
+     * @param phone 手机号，为空不检查
+     * @return 字段名（username、email、phone）-> 是否可用，只包含传入的字段
+     */
+    Map<String, Boolean> checkAvailability(String username, String email, String phone);
+
     /**
      * 获取用户公开信息
      * @param userId 用户ID
@@ -84,6 +95,7 @@ public interface UserService {
 
     /**
      *  更新用户平均评分
+     *  评分聚合已随评价写入/删除在数据库中增量维护，此方法将最新评分同步到排行榜
      * @param userId 用户ID
      * @return 更新是否成功 
      */
@@ -1,10 +1,14 @@
 package com.shiwu.user.service.impl;
 
+import com.shiwu.admin.bulk.BulkResultWriter;
+import com.shiwu.admin.bulk.BulkStatusUpdater;
+import com.shiwu.admin.bulk.BulkStatusUpdater.StatusRule;
 import com.shiwu.admin.enums.AuditActionEnum;
 import com.shiwu.admin.enums.AuditTargetTypeEnum;
 import com.shiwu.admin.model.AdminUserQueryDTO;
 import com.shiwu.admin.service.AuditLogService;
 import com.shiwu.admin.service.impl.AuditLogServiceImpl;
+import com.shiwu.user.cache.UserSearchIndex;
 import com.shiwu.user.dao.AdminUserDao;
 import com.shiwu.user.dao.UserDao;
 import com.shiwu.user.model.User;
@@ -12,6 +16,9 @@ import com.shiwu.user.service.AdminUserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,21 +35,41 @@ public class AdminUserServiceImpl implements AdminUserService {
     private static final Integer USER_STATUS_BANNED = 1;
     private static final Integer USER_STATUS_MUTED = 2;
     
+    private static final Map<AuditActionEnum, StatusRule> STATUS_RULES = new EnumMap<>(AuditActionEnum.class);
+
+    static {
+        STATUS_RULES.put(AuditActionEnum.USER_BAN, new StatusRule(AuditActionEnum.USER_BATCH_BAN, "封禁用户",
+                AdminUserServiceImpl::alreadyRestricted, USER_STATUS_BANNED, USER_STATUS_NORMAL, USER_STATUS_MUTED));
+        STATUS_RULES.put(AuditActionEnum.USER_MUTE, new StatusRule(AuditActionEnum.USER_BATCH_MUTE, "禁言用户",
+                AdminUserServiceImpl::alreadyRestricted, USER_STATUS_MUTED, USER_STATUS_NORMAL));
+        STATUS_RULES.put(AuditActionEnum.USER_UNBAN, new StatusRule(AuditActionEnum.USER_BATCH_UNBAN, "解封用户",
+                row -> "用户未被封禁", USER_STATUS_NORMAL, USER_STATUS_BANNED));
+    }
+    
     private final AdminUserDao adminUserDao;
     private final UserDao userDao;
     private final AuditLogService auditLogService;
+    private final UserSearchIndex userSearchIndex;
 
     public AdminUserServiceImpl() {
         this.adminUserDao = new AdminUserDao();
         this.userDao = new UserDao();
         this.auditLogService = new AuditLogServiceImpl();
+        this.userSearchIndex = UserSearchIndex.getInstance();
     }
 
-    // 用于测试的构造函数
+    // 用于测试的构造函数（不使用搜索索引，列表查询直接走数据库）
     public AdminUserServiceImpl(AdminUserDao adminUserDao, UserDao userDao, AuditLogService auditLogService) {
+        this(adminUserDao, userDao, auditLogService, null);
+    }
+
+    // 用于测试的构造函数
+    public AdminUserServiceImpl(AdminUserDao adminUserDao, UserDao userDao, AuditLogService auditLogService,
+                                UserSearchIndex userSearchIndex) {
         this.adminUserDao = adminUserDao;
         this.userDao = userDao;
         this.auditLogService = auditLogService;
+        this.userSearchIndex = userSearchIndex;
     }
 
     @Override
@@ -53,11 +80,17 @@ public class AdminUserServiceImpl implements AdminUserService {
         }
 
         try {
-            // 查询用户列表
-            List<Map<String, Object>> users = adminUserDao.findUsers(queryDTO);
-
-            // 查询总数
-            long totalCount = adminUserDao.countUsers(queryDTO);
+            // 优先用搜索索引算出当前页的ID和总数，索引不可用时回退到数据库查询
+            UserSearchIndex.Page page = userSearchIndex != null ? userSearchIndex.search(queryDTO) : null;
+            List<Map<String, Object>> users;
+            long totalCount;
+            if (page != null) {
+                users = adminUserDao.findUsersByIds(page.getUserIds());
+                totalCount = page.getTotalCount();
+            } else {
+                users = adminUserDao.findUsers(queryDTO);
+                totalCount = adminUserDao.countUsers(queryDTO);
+            }
 
             // 构建返回结果
             Map<String, Object> result = new HashMap<>();
@@ -325,99 +358,47 @@ public class AdminUserServiceImpl implements AdminUserService {
 
     @Override
     public Map<String, Object> batchBanUsers(List<Long> userIds, Long adminId, String reason, String ipAddress, String userAgent) {
-        if (userIds == null || userIds.isEmpty() || adminId == null) {
-            logger.warn("批量封禁用户失败: 参数为空");
-            return null;
-        }
-
-        try {
-            int totalCount = userIds.size();
-            int successCount = 0;
-            int failCount = 0;
-
-            for (Long userId : userIds) {
-                try {
-                    boolean success = banUser(userId, adminId, reason, ipAddress, userAgent);
-                    if (success) {
-                        successCount++;
-                    } else {
-                        failCount++;
-                    }
-                } catch (Exception e) {
-                    logger.error("批量封禁用户失败: userId={}, error={}", userId, e.getMessage());
-                    failCount++;
-                }
-            }
-
-            // 记录批量操作的审计日志
-            String details = String.format("批量封禁用户: 总数=%d, 成功=%d, 失败=%d%s",
-                                          totalCount, successCount, failCount,
-                                          reason != null ? ", 原因: " + reason : "");
-            auditLogService.logAction(adminId, AuditActionEnum.USER_BATCH_BAN, AuditTargetTypeEnum.USER,
-                                     null, details, ipAddress, userAgent, failCount == 0);
+        return batchUpdateUserStatusQuietly(AuditActionEnum.USER_BAN, userIds, adminId, reason, ipAddress, userAgent);
+    }
 
-            Map<String, Object> result = new HashMap<>();
-            result.put("totalCount", totalCount);
-            result.put("successCount", successCount);
-            result.put("failCount", failCount);
+    @Override
+    public Map<String, Object> batchMuteUsers(List<Long> userIds, Long adminId, String reason, String ipAddress, String userAgent) {
+        return batchUpdateUserStatusQuietly(AuditActionEnum.USER_MUTE, userIds, adminId, reason, ipAddress, userAgent);
+    }
 
-            logger.info("管理员 {} 批量封禁用户完成: 总数={}, 成功={}, 失败={}", adminId, totalCount, successCount, failCount);
-            return result;
-        } catch (Exception e) {
-            logger.error("批量封禁用户失败: {}", e.getMessage(), e);
-            // 记录异常的审计日志
-            auditLogService.logAction(adminId, AuditActionEnum.USER_BATCH_BAN, AuditTargetTypeEnum.USER,
-                                     null, "批量封禁用户异常: " + e.getMessage(), ipAddress, userAgent, false);
-            return null;
-        }
+    @Override
+    public Map<String, Object> batchUnbanUsers(List<Long> userIds, Long adminId, String ipAddress, String userAgent) {
+        return batchUpdateUserStatusQuietly(AuditActionEnum.USER_UNBAN, userIds, adminId, null, ipAddress, userAgent);
     }
 
     @Override
-    public Map<String, Object> batchMuteUsers(List<Long> userIds, Long adminId, String reason, String ipAddress, String userAgent) {
-        if (userIds == null || userIds.isEmpty() || adminId == null) {
-            logger.warn("批量禁言用户失败: 参数为空");
+    public Map<String, Object> batchUpdateUserStatus(AuditActionEnum action, List<Long> userIds, Long adminId, String reason,
+                                                     String ipAddress, String userAgent, BulkResultWriter writer) throws IOException {
+        StatusRule rule = action != null ? STATUS_RULES.get(action) : null;
+        if (rule == null || userIds == null || userIds.isEmpty() || adminId == null) {
+            logger.warn("批量修改用户状态失败: 参数无效, action={}", action);
             return null;
         }
 
-        try {
-            int totalCount = userIds.size();
-            int successCount = 0;
-            int failCount = 0;
-
-            for (Long userId : userIds) {
-                try {
-                    boolean success = muteUser(userId, adminId, reason, ipAddress, userAgent);
-                    if (success) {
-                        successCount++;
-                    } else {
-                        failCount++;
-                    }
-                } catch (Exception e) {
-                    logger.error("批量禁言用户失败: userId={}, error={}", userId, e.getMessage());
-                    failCount++;
-                }
-            }
-
-            // 记录批量操作的审计日志
-            String details = String.format("批量禁言用户: 总数=%d, 成功=%d, 失败=%d%s",
-                                          totalCount, successCount, failCount,
-                                          reason != null ? ", 原因: " + reason : "");
-            auditLogService.logAction(adminId, AuditActionEnum.USER_BATCH_MUTE, AuditTargetTypeEnum.USER,
-                                     null, details, ipAddress, userAgent, failCount == 0);
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("totalCount", totalCount);
-            result.put("successCount", successCount);
-            result.put("failCount", failCount);
+        return new BulkStatusUpdater(auditLogService, AuditTargetTypeEnum.USER, "用户不存在", "username")
+                .run(action, rule, userIds, adminId, reason, ipAddress, userAgent, writer,
+                        chunk -> adminUserDao.bulkUpdateUserStatus(chunk, rule.getFromStatuses(), rule.getToStatus(), adminId));
+    }
 
-            logger.info("管理员 {} 批量禁言用户完成: 总数={}, 成功={}, 失败={}", adminId, totalCount, successCount, failCount);
-            return result;
-        } catch (Exception e) {
-            logger.error("批量禁言用户失败: {}", e.getMessage(), e);
-            // 记录异常的审计日志
-            auditLogService.logAction(adminId, AuditActionEnum.USER_BATCH_MUTE, AuditTargetTypeEnum.USER,
-                                     null, "批量禁言用户异常: " + e.getMessage(), ipAddress, userAgent, false);
-            return null;
+    private Map<String, Object> batchUpdateUserStatusQuietly(AuditActionEnum action, List<Long> userIds, Long adminId,
+                                                             String reason, String ipAddress, String userAgent) {
+        try {
+            return batchUpdateUserStatus(action, userIds, adminId, reason, ipAddress, userAgent, null);
+        } catch (IOException e) {
+            // 不写出结果时不会发生
+            throw new UncheckedIOException(e);
         }
     }
+
+    /**
+     * 批量封禁或禁言时当前状态不允许修改的原因，与单个操作的提示一致
+     */
+    private static String alreadyRestricted(Map<String, Object> row) {
+        return USER_STATUS_BANNED.equals(row.get("status")) ? "用户已被封禁" : "用户已被禁言";
+    }
 }
@@ -1,8 +1,12 @@
 package com.shiwu.user.service.impl;
 
+import com.shiwu.common.concurrent.FanoutExecutor;
 import com.shiwu.common.result.Result;
 import com.shiwu.common.util.JwtUtil;
 import com.shiwu.common.util.PasswordUtil;
+import com.shiwu.user.cache.FollowCounterCache;
+import com.shiwu.user.cache.LeaderboardCache;
+import com.shiwu.user.cache.UserIdentityFilter;
 import com.shiwu.user.dao.FeedDao;
 import com.shiwu.product.model.ProductCardVO;
 import com.shiwu.product.service.ProductService;
@@ -18,7 +22,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 用户服务实现类
@@ -29,16 +38,27 @@ public class UserServiceImpl implements UserService {
     private static final Integer USER_STATUS_BANNED = 1;
     private static final Integer USER_STATUS_MUTED = 2;
 
+    /**
+     * 用户主页子查询的截止时间（毫秒）
+     */
+    private static final long PROFILE_FANOUT_TIMEOUT_MILLIS = 2000;
+
     private final UserDao userDao;
     private final UserFollowDao userFollowDao;
     private final FeedDao feedDao;
     private final ProductService productService;
+    private final FollowCounterCache followCounterCache;
+    private final LeaderboardCache leaderboardCache;
+    private final UserIdentityFilter identityFilter;
 
     public UserServiceImpl() {
         this.userDao = new UserDao();
         this.userFollowDao = new UserFollowDao();
         this.feedDao = new FeedDao();
         this.productService = new ProductServiceImpl();
+        this.followCounterCache = FollowCounterCache.getInstance();
+        this.leaderboardCache = LeaderboardCache.getInstance();
+        this.identityFilter = UserIdentityFilter.getInstance();
     }
 
     @Override
@@ -138,29 +158,20 @@ public class UserServiceImpl implements UserService {
                 return RegisterResult.fail(RegisterErrorEnum.WEAK_PASSWORD);
             }
             
-            // 检查用户名唯一性
-            User existingUser = userDao.findByUsername(registerRequest.getUsername());
-            if (existingUser != null) {
+            // 检查用户名、邮箱、手机号唯一性
+            Set<UserIdentityFilter.Field> taken = findTakenIdentities(registerRequest.getUsername(),
+                    registerRequest.getEmail(), registerRequest.getPhone());
+            if (taken.contains(UserIdentityFilter.Field.USERNAME)) {
                 logger.warn("注册失败: 用户名 {} 已存在", registerRequest.getUsername());
                 return RegisterResult.fail(RegisterErrorEnum.USERNAME_EXISTS);
             }
-            
-            // 检查邮箱唯一性
-            if (registerRequest.getEmail() != null && !registerRequest.getEmail().isEmpty()) {
-                existingUser = userDao.findByEmail(registerRequest.getEmail());
-                if (existingUser != null) {
-                    logger.warn("注册失败: 邮箱 {} 已被注册", registerRequest.getEmail());
-                    return RegisterResult.fail(RegisterErrorEnum.EMAIL_EXISTS);
-                }
+            if (taken.contains(UserIdentityFilter.Field.EMAIL)) {
+                logger.warn("注册失败: 邮箱 {} 已被注册", registerRequest.getEmail());
+                return RegisterResult.fail(RegisterErrorEnum.EMAIL_EXISTS);
             }
-            
-            // 检查手机号唯一性
-            if (registerRequest.getPhone() != null && !registerRequest.getPhone().isEmpty()) {
-                existingUser = userDao.findByPhone(registerRequest.getPhone());
-                if (existingUser != null) {
-                    logger.warn("注册失败: 手机号 {} 已被注册", registerRequest.getPhone());
-                    return RegisterResult.fail(RegisterErrorEnum.PHONE_EXISTS);
-                }
+            if (taken.contains(UserIdentityFilter.Field.PHONE)) {
+                logger.warn("注册失败: 手机号 {} 已被注册", registerRequest.getPhone());
+                return RegisterResult.fail(RegisterErrorEnum.PHONE_EXISTS);
             }
             
             // 创建新用户
@@ -206,6 +217,62 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    @Override
+    public Map<String, Boolean> checkAvailability(String username, String email, String phone) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        Set<UserIdentityFilter.Field> taken = findTakenIdentities(username, email, phone);
+        if (hasText(username)) {
+            result.put("username", !taken.contains(UserIdentityFilter.Field.USERNAME));
+        }
+        if (hasText(email)) {
+            result.put("email", !taken.contains(UserIdentityFilter.Field.EMAIL));
+        }
+        if (hasText(phone)) {
+            result.put("phone", !taken.contains(UserIdentityFilter.Field.PHONE));
+        }
+        return result;
+    }
+
+    /**
+     * 找出已被占用的用户名/邮箱/手机号：存在性过滤器判定一定未被使用的值不查询数据库，
+     * 其余的值合并为一条查询确认
+     * @return 已被占用的字段，空值不检查
+     */
+    private Set<UserIdentityFilter.Field> findTakenIdentities(String username, String email, String phone) {
+        Set<UserIdentityFilter.Field> taken = EnumSet.noneOf(UserIdentityFilter.Field.class);
+        String checkUsername = hasText(username) && identityFilter.mightExist(UserIdentityFilter.Field.USERNAME, username)
+                ? username : null;
+        String checkEmail = hasText(email) && identityFilter.mightExist(UserIdentityFilter.Field.EMAIL, email)
+                ? email : null;
+        String checkPhone = hasText(phone) && identityFilter.mightExist(UserIdentityFilter.Field.PHONE, phone)
+                ? phone : null;
+        if (checkUsername == null && checkEmail == null && checkPhone == null) {
+            return taken;
+        }
+
+        // 数据库按不区分大小写的规则匹配，这里用同样的规则判断是哪一个字段冲突
+        for (User user : userDao.findIdentityConflicts(checkUsername, checkEmail, checkPhone)) {
+            if (sameIdentity(checkUsername, user.getUsername())) {
+                taken.add(UserIdentityFilter.Field.USERNAME);
+            }
+            if (sameIdentity(checkEmail, user.getEmail())) {
+                taken.add(UserIdentityFilter.Field.EMAIL);
+            }
+            if (sameIdentity(checkPhone, user.getPhone())) {
+                taken.add(UserIdentityFilter.Field.PHONE);
+            }
+        }
+        return taken;
+    }
+
+    private static boolean sameIdentity(String requested, String existing) {
+        return requested != null && existing != null && requested.trim().equalsIgnoreCase(existing.trim());
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
     @Override
     public UserProfileVO getUserProfile(Long userId, Long currentUserId) {
         // 参数校验
@@ -240,7 +307,7 @@ public class UserServiceImpl implements UserService {
             profileVO.setUser(userVO);
 
             // 设置统计信息
-            profileVO.setFollowerCount(user.getFollowerCount());
+            profileVO.setFollowerCount(followCounterCache.getFollowerCount(userId));
             profileVO.setAverageRating(user.getAverageRating());
             profileVO.setRegistrationDate(user.getCreateTime());
 
@@ -279,22 +346,33 @@ public class UserServiceImpl implements UserService {
             return UserProfileResult.fail(UserProfileErrorEnum.INVALID_USER_ID);
         }
 
+        // 在售商品和关注状态与用户信息并发查询，用户不存在或状态异常时丢弃
+        FanoutExecutor.Fanout fanout = FanoutExecutor.getInstance().begin(PROFILE_FANOUT_TIMEOUT_MILLIS);
+        FanoutExecutor.Branch<List<ProductCardVO>> onSaleProducts =
+                fanout.fork("onSaleProducts", () -> userDao.findOnSaleProductsByUserId(userId));
+        FanoutExecutor.Branch<Boolean> following = currentUserId != null
+                ? fanout.fork("isFollowing", () -> userFollowDao.isFollowing(currentUserId, userId))
+                : null;
+
         try {
             // 获取用户公开信息
             User user = userDao.findPublicInfoById(userId);
             if (user == null) {
                 logger.warn("获取用户主页失败: 用户 {} 不存在", userId);
+                cancel(onSaleProducts, following);
                 return UserProfileResult.fail(UserProfileErrorEnum.USER_NOT_FOUND);
             }
 
             // 检查用户状态
             if (USER_STATUS_BANNED.equals(user.getStatus())) {
                 logger.warn("获取用户主页失败: 用户 {} 已被封禁", userId);
+                cancel(onSaleProducts, following);
                 return UserProfileResult.fail(UserProfileErrorEnum.USER_BANNED);
             }
 
             if (USER_STATUS_MUTED.equals(user.getStatus())) {
                 logger.warn("获取用户主页失败: 用户 {} 已被禁言", userId);
+                cancel(onSaleProducts, following);
                 return UserProfileResult.fail(UserProfileErrorEnum.USER_MUTED);
             }
 
@@ -310,29 +388,34 @@ public class UserServiceImpl implements UserService {
             profileVO.setUser(userVO);
 
             // 设置统计信息
-            profileVO.setFollowerCount(user.getFollowerCount());
+            profileVO.setFollowerCount(followCounterCache.getFollowerCount(userId));
             profileVO.setAverageRating(user.getAverageRating());
             profileVO.setRegistrationDate(user.getCreateTime());
 
-            // 获取在售商品列表
-            profileVO.setOnSaleProducts(userDao.findOnSaleProductsByUserId(userId));
+            // 获取在售商品列表，查询失败或超时时返回空列表
+            profileVO.setOnSaleProducts(onSaleProducts.join(new ArrayList<>()));
 
             // 判断当前用户是否关注了该用户
-            if (currentUserId != null) {
-                profileVO.setIsFollowing(userFollowDao.isFollowing(currentUserId, userId));
-            } else {
-                profileVO.setIsFollowing(false);
-            }
+            profileVO.setIsFollowing(following != null ? following.join(false) : false);
 
             logger.info("成功获取用户 {} 的主页信息", userId);
             return UserProfileResult.success(profileVO);
 
         } catch (Exception e) {
             logger.error("获取用户主页过程发生异常: {}", e.getMessage(), e);
+            cancel(onSaleProducts, following);
             return UserProfileResult.fail(UserProfileErrorEnum.SYSTEM_ERROR);
         }
     }
 
+    private void cancel(FanoutExecutor.Branch<?>... branches) {
+        for (FanoutExecutor.Branch<?> branch : branches) {
+            if (branch != null) {
+                branch.cancel();
+            }
+        }
+    }
+
     @Override
     public FollowResult followUser(Long currentUserId, Long targetUserId) {
         // 参数校验
@@ -384,9 +467,11 @@ public class UserServiceImpl implements UserService {
                 logger.error("关注用户失败: 数据库操作失败 currentUserId={}, targetUserId={}", currentUserId, targetUserId);
                 return FollowResult.fail(FollowErrorEnum.DATABASE_ERROR);
             }
+            followCounterCache.recordFollow(currentUserId, targetUserId);
 
             // 获取更新后的粉丝数量
-            int followerCount = userFollowDao.getFollowerCount(targetUserId);
+            int followerCount = followCounterCache.getFollowerCount(targetUserId);
+            leaderboardCache.onFollowerCountChanged(targetUserId, followerCount);
 
             logger.info("关注用户成功: currentUserId={}, targetUserId={}, followerCount={}", currentUserId, targetUserId, followerCount);
             return FollowResult.success(true, followerCount);
@@ -442,9 +527,11 @@ public class UserServiceImpl implements UserService {
                 logger.error("取关用户失败: 数据库操作失败 currentUserId={}, targetUserId={}", currentUserId, targetUserId);
                 return FollowResult.fail(FollowErrorEnum.DATABASE_ERROR);
             }
+            followCounterCache.recordUnfollow(currentUserId, targetUserId);
 
             // 获取更新后的粉丝数量
-            int followerCount = userFollowDao.getFollowerCount(targetUserId);
+            int followerCount = followCounterCache.getFollowerCount(targetUserId);
+            leaderboardCache.onFollowerCountChanged(targetUserId, followerCount);
 
             logger.info("取关用户成功: currentUserId={}, targetUserId={}, followerCount={}", currentUserId, targetUserId, followerCount);
             return FollowResult.success(false, followerCount);
@@ -484,8 +571,8 @@ public class UserServiceImpl implements UserService {
             statusVO.setNickname(targetUser.getNickname());
 
             // 获取粉丝数量和关注数量
-            statusVO.setFollowerCount(userFollowDao.getFollowerCount(targetUserId));
-            statusVO.setFollowingCount(userFollowDao.getFollowingCount(targetUserId));
+            statusVO.setFollowerCount(followCounterCache.getFollowerCount(targetUserId));
+            statusVO.setFollowingCount(followCounterCache.getFollowingCount(targetUserId));
 
             // 判断当前用户是否关注了目标用户
             if (currentUserId != null && currentUserId > 0) {
@@ -521,23 +608,11 @@ public class UserServiceImpl implements UserService {
                 return false;
             }
 
-            // 计算用户的平均评分
-            BigDecimal averageRating = userDao.calculateUserAverageRating(userId);
-
-            // 如果没有评价，设置为0
-            if (averageRating == null) {
-                averageRating = BigDecimal.ZERO;
-            }
-
-            // 更新用户的平均评分
-            boolean success = userDao.updateAverageRating(userId, averageRating);
-            if (success) {
-                logger.info("更新用户平均评分成功: userId={}, averageRating={}", userId, averageRating);
-                return true;
-            } else {
-                logger.error("更新用户平均评分失败: 数据库操作失败 userId={}", userId);
-                return false;
-            }
+            // 评价写入/删除时已在同一事务中维护评分总和/数量和 average_rating，这里只同步排行榜
+            BigDecimal averageRating = user.getAverageRating() != null ? user.getAverageRating() : BigDecimal.ZERO;
+            leaderboardCache.onRatingChanged(userId, averageRating);
+            logger.info("更新用户平均评分成功: userId={}, averageRating={}", userId, averageRating);
+            return true;
 
         } catch (Exception e) {
             logger.error("更新用户平均评分过程发生异常: userId={}, error={}", userId, e.getMessage(), e);
@@ -19,13 +19,18 @@
 --    - product_image: 商品图片表
 --    - shopping_cart: 购物车表
 --    - trade_order: 订单表
+--    - order_status_count: 订单状态计数表
 --    - payment: 支付表
+--    - payment_order: 支付订单映射表
+--    - platform_rating: 平台评分聚合表
 --    - administrator: 管理员表
 --    - audit_log: 审计日志表
 --    - conversation: 会话表
 --    - message: 消息表
 --    - notification: 通知表
 --    - notification_template: 通知模板表
+--    - outbox_job: 本地任务队列表
+--    - refund_transaction: 退款流水表
 --
 -- 4. 功能支持：
 --    - Task4_1_1_1: 消息/会话功能
@@ -47,6 +52,13 @@ USE shiwu;
 -- ====================================================================
 
 -- 创建用户表
+-- follower_count / following_count 由关注计数缓存定期写回。旧库迁移：
+--   ALTER TABLE system_user ADD COLUMN following_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '关注数量' AFTER follower_count;
+--   UPDATE system_user u SET following_count =
+--       (SELECT COUNT(*) FROM user_follow f WHERE f.follower_id = u.id AND f.is_deleted = 0);
+-- rating_sum / rating_count 与评价写入在同一事务中累加，average_rating 由二者算出。旧库迁移（之后执行文末的评分聚合回填）：
+--   ALTER TABLE system_user ADD COLUMN rating_sum INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '收到评价的评分总和（作为卖家）' AFTER average_rating,
+--       ADD COLUMN rating_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '收到评价的数量（作为卖家）' AFTER rating_sum;
 CREATE TABLE IF NOT EXISTS system_user (
     id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
     username VARCHAR(50) NOT NULL COMMENT '用户名',
@@ -59,7 +71,10 @@ CREATE TABLE IF NOT EXISTS system_user (
     gender TINYINT COMMENT '性别：0-未设置，1-男，2-女',
     bio VARCHAR(500) COMMENT '个人简介',
     follower_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '粉丝数量',
+    following_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '关注数量',
     average_rating DECIMAL(3,2) NOT NULL DEFAULT 0.00 COMMENT '平均评分（作为卖家）',
+    rating_sum INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '收到评价的评分总和（作为卖家）',
+    rating_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '收到评价的数量（作为卖家）',
     last_login_time DATETIME COMMENT '最后登录时间',
     create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -77,7 +92,7 @@ CREATE TABLE IF NOT EXISTS user_follow (
     is_deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除：0-未删除，1-已删除',
     UNIQUE KEY uk_follower_followed (follower_id, followed_id),
     KEY idx_follower_id (follower_id),
-    KEY idx_followed_id (followed_id),
+    KEY idx_followed_id (followed_id, follower_id),
     CONSTRAINT fk_follower_user FOREIGN KEY (follower_id) REFERENCES system_user(id) ON DELETE CASCADE,
     CONSTRAINT fk_followed_user FOREIGN KEY (followed_id) REFERENCES system_user(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户关注表';
@@ -98,6 +113,15 @@ CREATE TABLE IF NOT EXISTS category (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商品分类表';
 
 -- 创建商品表
+-- 待审核商品通过 review_claimed_by / review_lease_until 分配给管理员：领取时 FOR UPDATE SKIP LOCKED，
+-- 租约到期未处理的商品可被其他管理员重新领取。
+-- 旧库迁移：
+--   ALTER TABLE product ADD COLUMN review_claimed_by BIGINT UNSIGNED COMMENT '领取审核的管理员ID' AFTER status,
+--       ADD COLUMN review_lease_until DATETIME COMMENT '审核领取租约到期时间' AFTER review_claimed_by,
+--       ADD INDEX idx_review_queue (status, review_lease_until, id);
+-- view_count 由应用内的浏览计数定期批量累加，比实际浏览次数最多滞后一个写回周期：
+--   ALTER TABLE product ADD COLUMN view_count BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '浏览次数' AFTER review_lease_until,
+--       ADD INDEX idx_status_view (status, view_count);
 CREATE TABLE IF NOT EXISTS product (
     id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
     seller_id BIGINT UNSIGNED NOT NULL COMMENT '卖家ID',
@@ -106,12 +130,17 @@ CREATE TABLE IF NOT EXISTS product (
     description TEXT COMMENT '商品描述',
     price DECIMAL(10,2) NOT NULL COMMENT '商品价格',
     status TINYINT NOT NULL DEFAULT 0 COMMENT '商品状态：0-待审核，1-在售，2-已售出，3-已下架，4-草稿',
+    review_claimed_by BIGINT UNSIGNED COMMENT '领取审核的管理员ID',
+    review_lease_until DATETIME COMMENT '审核领取租约到期时间',
+    view_count BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '浏览次数',
     create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     is_deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除：0-未删除，1-已删除',
     INDEX idx_seller_id (seller_id),
     INDEX idx_category_id (category_id),
     INDEX idx_status (status),
+    INDEX idx_review_queue (status, review_lease_until, id),
+    INDEX idx_status_view (status, view_count),
     FOREIGN KEY (seller_id) REFERENCES system_user(id),
     FOREIGN KEY (category_id) REFERENCES category(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商品表';
@@ -164,6 +193,8 @@ CREATE TABLE IF NOT EXISTS trade_order (
 
     INDEX idx_buyer_id_status (buyer_id, status),
     INDEX idx_seller_id_status (seller_id, status),
+    INDEX idx_buyer_id_id (buyer_id, id),
+    INDEX idx_seller_id_id (seller_id, id),
     INDEX idx_product_id (product_id),
     INDEX idx_status (status),
     INDEX idx_create_time (create_time),
@@ -173,6 +204,16 @@ CREATE TABLE IF NOT EXISTS trade_order (
     FOREIGN KEY (product_id) REFERENCES product(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单表';
 
+-- 创建订单状态计数表（与订单状态在同一事务中维护，订单列表的各状态数量直接读取）
+CREATE TABLE IF NOT EXISTS order_status_count (
+    user_id BIGINT UNSIGNED NOT NULL COMMENT '用户ID',
+    role TINYINT NOT NULL COMMENT '角色：0-买家，1-卖家',
+    status TINYINT NOT NULL COMMENT '订单状态，取值同 trade_order.status',
+    order_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '订单数量',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (user_id, role, status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单状态计数表';
+
 -- 创建支付表
 CREATE TABLE IF NOT EXISTS payment (
     id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY COMMENT '支付记录ID',
@@ -199,6 +240,17 @@ CREATE TABLE IF NOT EXISTS payment (
     FOREIGN KEY (user_id) REFERENCES system_user(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付记录表';
 
+-- 创建支付订单映射表（由创建支付时写入，替代解析 payment.order_ids JSON）
+CREATE TABLE IF NOT EXISTS payment_order (
+    payment_id VARCHAR(64) NOT NULL COMMENT '支付流水号',
+    order_id BIGINT UNSIGNED NOT NULL COMMENT '订单ID',
+    user_id BIGINT UNSIGNED NOT NULL COMMENT '支付用户ID',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+
+    PRIMARY KEY (payment_id, order_id),
+    INDEX idx_order_id (order_id, payment_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付订单映射表';
+
 -- ====================================================================
 -- 4. 管理员相关表
 -- ====================================================================
@@ -226,8 +278,15 @@ CREATE TABLE IF NOT EXISTS administrator (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='管理员表';
 
 -- 创建审计日志表
+-- 按 create_time 以月做 RANGE 分区，带时间范围的查询只扫描重叠的分区；
+-- 月分区由 AuditLogRetentionManager 从 p_future 中提前拆分，超过保留期的分区归档到本地文件后删除。
+-- 分区表要求主键包含分区列，且不支持外键，因此主键为 (id, create_time)，不再引用 administrator 表。
+-- 旧库迁移：
+--   ALTER TABLE audit_log DROP FOREIGN KEY audit_log_ibfk_1;
+--   ALTER TABLE audit_log DROP PRIMARY KEY, ADD PRIMARY KEY (id, create_time);
+--   ALTER TABLE audit_log PARTITION BY RANGE COLUMNS(create_time) (PARTITION p_future VALUES LESS THAN (MAXVALUE));
 CREATE TABLE IF NOT EXISTS audit_log (
-    id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY COMMENT '日志ID',
+    id BIGINT UNSIGNED AUTO_INCREMENT COMMENT '日志ID',
     admin_id BIGINT UNSIGNED NOT NULL COMMENT '管理员ID',
     action VARCHAR(100) NOT NULL COMMENT '操作类型',
     target_type VARCHAR(50) COMMENT '操作目标类型（USER、PRODUCT等）',
@@ -245,8 +304,11 @@ CREATE TABLE IF NOT EXISTS audit_log (
     INDEX idx_create_time (create_time),
     INDEX idx_result (result),
 
-    FOREIGN KEY (admin_id) REFERENCES administrator(id) ON DELETE CASCADE
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='审计日志表';
+    PRIMARY KEY (id, create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='审计日志表'
+PARTITION BY RANGE COLUMNS(create_time) (
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
 
 
 -- 创建评价表
@@ -272,6 +334,14 @@ CREATE TABLE IF NOT EXISTS review (
     FOREIGN KEY (user_id) REFERENCES system_user(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='评价表';
 
+-- 创建平台评分聚合表（单行，与评价写入在同一事务中维护）
+CREATE TABLE IF NOT EXISTS platform_rating (
+    id TINYINT UNSIGNED PRIMARY KEY COMMENT '固定为1',
+    rating_sum BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '全部有效评价的评分总和',
+    rating_count BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '全部有效评价的数量',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='平台评分聚合表';
+
 
 -- ====================================================================
 -- 5. 消息/会话相关表 (Task4_1_1_1)
@@ -306,6 +376,9 @@ CREATE TABLE IF NOT EXISTS conversation (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='会话表';
 
 -- 创建消息表
+-- 轮询按 (receiver_id, is_deleted, id) 读取游标之后的消息，会话历史按 (conversation_id, id) 向前翻页。旧库迁移：
+--   ALTER TABLE message DROP INDEX idx_receiver_id, ADD INDEX idx_receiver_deleted_id (receiver_id, is_deleted, id);
+--   ALTER TABLE message ADD INDEX idx_conversation_id_id (conversation_id, id);
 CREATE TABLE IF NOT EXISTS message (
     id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
     conversation_id VARCHAR(64) NOT NULL COMMENT '会话ID，关联conversation表',
@@ -323,8 +396,9 @@ CREATE TABLE IF NOT EXISTS message (
     is_deleted TINYINT NOT NULL DEFAULT 0 COMMENT '逻辑删除标志：0-未删除，1-已删除',
 
     INDEX idx_conversation_id_create_time (conversation_id, create_time),
+    INDEX idx_conversation_id_id (conversation_id, id),
     INDEX idx_sender_id (sender_id),
-    INDEX idx_receiver_id (receiver_id),
+    INDEX idx_receiver_deleted_id (receiver_id, is_deleted, id),
     INDEX idx_product_id (product_id),
     INDEX idx_message_type (message_type),
     INDEX idx_is_read (is_read),
@@ -407,6 +481,46 @@ CREATE TABLE IF NOT EXISTS notification_template (
     INDEX idx_is_active (is_active)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='通知模板表';
 
+-- 创建本地任务队列表（业务写入与副作用任务在同一事务中提交，由后台任务执行器异步执行）
+CREATE TABLE IF NOT EXISTS outbox_job (
+    id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+
+    job_type VARCHAR(50) NOT NULL COMMENT '任务类型：PRODUCT_APPROVED_NOTIFICATION-商品审核通过通知, CART_ITEM_REMOVE-移除购物车商品, PRODUCT_UNLOCK-解锁商品',
+    idempotency_key VARCHAR(128) NOT NULL COMMENT '幂等键，同一键只入队一次',
+    payload VARCHAR(2000) NOT NULL COMMENT '任务参数（JSON）',
+
+    status TINYINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '状态：0-待执行，1-执行中，2-已完成，3-死信',
+    attempts INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '已尝试次数',
+    max_attempts INT UNSIGNED NOT NULL DEFAULT 8 COMMENT '最大尝试次数',
+    next_run_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次可执行时间',
+    locked_until DATETIME COMMENT '执行锁过期时间',
+    last_error VARCHAR(500) COMMENT '最近一次失败原因',
+
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    UNIQUE KEY uk_idempotency_key (idempotency_key),
+    INDEX idx_status_next_run (status, next_run_time),
+    INDEX idx_status_locked (status, locked_until),
+    INDEX idx_status_update_time (status, update_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='本地任务队列表';
+
+-- 创建退款流水表（只追加；同意退货时与订单状态更新在同一事务中写入）
+CREATE TABLE IF NOT EXISTS refund_transaction (
+    id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    refund_id VARCHAR(64) NOT NULL COMMENT '退款交易ID',
+    order_id BIGINT UNSIGNED NOT NULL COMMENT '订单ID',
+    buyer_id BIGINT UNSIGNED COMMENT '买家ID',
+    seller_id BIGINT UNSIGNED COMMENT '卖家ID',
+    refund_amount DECIMAL(10,2) COMMENT '退款金额',
+    status VARCHAR(20) NOT NULL COMMENT '退款状态：SUCCESS-成功，FAILED-失败，PENDING-处理中',
+    reason VARCHAR(500) COMMENT '退款原因',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+
+    UNIQUE KEY uk_refund_id (refund_id),
+    INDEX idx_order_id (order_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='退款流水表';
+
 -- ====================================================================
 -- 7. 创建视图简化查询
 -- ====================================================================
@@ -440,12 +554,12 @@ ORDER BY n.create_time DESC;
 -- ====================================================================
 
 -- 插入测试用户数据（密码为123456的BCrypt哈希值）
-INSERT INTO system_user (username, password, email, phone, status, nickname, follower_count) VALUES
-('alice', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'alice@example.com', '13800138000', 0, 'Alice Smith', 2),
-('bob', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'bob@example.com', '13800138001', 0, 'Bob Johnson', 3),
-('charlie', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'charlie@example.com', '13800138002', 0, 'Charlie Brown', 1),
-('diana', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'diana@example.com', '13800138003', 0, 'Diana Wilson', 1),
-('eve', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'eve@example.com', '13800138004', 1, 'Eve Davis', 0);
+INSERT INTO system_user (username, password, email, phone, status, nickname, follower_count, following_count) VALUES
+('alice', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'alice@example.com', '13800138000', 0, 'Alice Smith', 1, 2),
+('bob', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'bob@example.com', '13800138001', 0, 'Bob Johnson', 3, 2),
+('charlie', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'charlie@example.com', '13800138002', 0, 'Charlie Brown', 1, 1),
+('diana', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'diana@example.com', '13800138003', 0, 'Diana Wilson', 1, 1),
+('eve', '$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW', 'eve@example.com', '13800138004', 1, 'Eve Davis', 0, 0);
 
 -- 插入关注关系测试数据
 INSERT INTO user_follow (follower_id, followed_id) VALUES
@@ -599,6 +713,36 @@ INSERT INTO notification (
 (4, '您关注的 Bob Johnson 发布了新商品', '您关注的卖家 Bob Johnson 刚刚发布了新商品《iPhone 13 Pro 二手》，快来看看吧！', 'PRODUCT_APPROVED', 'PRODUCT', 1, 2, 'Bob Johnson', '/product/1', 1, 1, '2024-01-15 10:00:00'),
 (4, '您关注的 Bob Johnson 发布了新商品', '您关注的卖家 Bob Johnson 刚刚发布了新商品《MacBook Air M2》，快来看看吧！', 'PRODUCT_PUBLISHED', 'PRODUCT', 2, 2, 'Bob Johnson', '/product/2', 0, 1, '2024-01-15 11:30:00');
 
+-- 根据已有订单回填订单状态计数（升级已有数据库时同样执行）
+INSERT INTO order_status_count (user_id, role, status, order_count)
+SELECT buyer_id, 0, status, COUNT(*) FROM trade_order WHERE is_deleted = 0 GROUP BY buyer_id, status
+UNION ALL
+SELECT seller_id, 1, status, COUNT(*) FROM trade_order WHERE is_deleted = 0 GROUP BY seller_id, status
+ON DUPLICATE KEY UPDATE order_count = VALUES(order_count);
+
+-- 根据 payment.order_ids JSON 回填支付订单映射（升级已有数据库时同样执行，需要 MySQL 8.0）
+INSERT IGNORE INTO payment_order (payment_id, order_id, user_id)
+SELECT p.payment_id, jt.order_id, p.user_id
+FROM payment p,
+     JSON_TABLE(p.order_ids, '$[*]' COLUMNS (order_id BIGINT UNSIGNED PATH '$')) jt
+WHERE JSON_VALID(p.order_ids) AND jt.order_id IS NOT NULL;
+
+-- 根据已有评价回填卖家和平台评分聚合（升级已有数据库时同样执行）
+UPDATE system_user u
+LEFT JOIN (
+    SELECT o.seller_id, SUM(r.rating) AS rating_sum, COUNT(*) AS rating_count
+    FROM review r INNER JOIN trade_order o ON r.order_id = o.id
+    WHERE r.is_deleted = 0
+    GROUP BY o.seller_id
+) t ON t.seller_id = u.id
+SET u.rating_sum = COALESCE(t.rating_sum, 0),
+    u.rating_count = COALESCE(t.rating_count, 0),
+    u.average_rating = IF(t.rating_count IS NULL, 0, ROUND(t.rating_sum / t.rating_count, 2));
+
+INSERT INTO platform_rating (id, rating_sum, rating_count)
+SELECT 1, COALESCE(SUM(rating_sum), 0), COALESCE(SUM(rating_count), 0) FROM system_user
+ON DUPLICATE KEY UPDATE rating_sum = VALUES(rating_sum), rating_count = VALUES(rating_count);
+
 -- ====================================================================
 -- 9. 恢复外键检查和完成设置
 -- ====================================================================
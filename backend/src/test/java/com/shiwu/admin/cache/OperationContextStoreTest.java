@@ -0,0 +1,85 @@
+package com.shiwu.admin.cache;
+
+import com.shiwu.admin.model.OperationContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 待二次确认操作上下文存储测试
+ */
+@DisplayName("待二次确认操作上下文存储测试")
+public class OperationContextStoreTest {
+
+    @Test
+    @DisplayName("超过有效期的上下文被移除")
+    public void testExpiry() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        OperationContextStore store = new OperationContextStore(60_000, 5, 100, now::get);
+        store.put(context("op-1", 1L));
+        now.addAndGet(30_000);
+        store.put(context("op-2", 1L));
+
+        assertNotNull(store.get("op-1"));
+        now.addAndGet(30_000);
+        assertNull(store.get("op-1"));
+        assertNotNull(store.get("op-2"));
+        assertEquals(1, store.size());
+
+        now.addAndGet(30_000);
+        assertNull(store.get("op-2"));
+        assertEquals(0, store.size());
+        assertEquals(0, store.getStats().get("admins"));
+    }
+
+    @Test
+    @DisplayName("每个管理员和总数都有上限，超出时移除最早的上下文")
+    public void testLimits() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        OperationContextStore store = new OperationContextStore(60_000, 2, 3, now::get);
+        store.put(context("a-1", 1L));
+        store.put(context("a-2", 1L));
+        store.put(context("a-3", 1L));
+        assertNull(store.get("a-1"));
+        assertNotNull(store.get("a-2"));
+        assertEquals(1L, store.getStats().get("evictedPerAdmin"));
+
+        store.put(context("b-1", 2L));
+        store.put(context("b-2", 2L));
+        assertEquals(3, store.size());
+        assertNull(store.get("a-2"));
+        assertNotNull(store.get("a-3"));
+        assertNotNull(store.get("b-2"));
+
+        assertNotNull(store.remove("a-3"));
+        assertNull(store.get("a-3"));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    @DisplayName("容量淘汰移除管理员最后一个上下文后，新上下文仍计入该管理员的上限")
+    public void testCapacityEvictionKeepsAdminQueue() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        OperationContextStore store = new OperationContextStore(60_000, 2, 2, now::get);
+        store.put(context("a-1", 1L));
+        store.put(context("b-1", 2L));
+        store.put(context("a-2", 1L));
+        assertNull(store.get("a-1"));
+        assertEquals(2, store.getStats().get("admins"));
+
+        store.put(context("a-3", 1L));
+        store.put(context("a-4", 1L));
+        assertEquals(1L, store.getStats().get("evictedPerAdmin"));
+        assertNull(store.get("a-2"));
+        assertNotNull(store.get("a-3"));
+        assertNotNull(store.get("a-4"));
+    }
+
+    private static OperationContext context(String operationId, Long adminId) {
+        return new OperationContext(operationId, adminId, "BATCH_BAN_USERS", "批量封禁用户",
+                null, "127.0.0.1", "test");
+    }
+}
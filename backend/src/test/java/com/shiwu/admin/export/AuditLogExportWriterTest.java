@@ -0,0 +1,106 @@
+package com.shiwu.admin.export;
+
+import com.shiwu.admin.dao.AdminDao;
+import com.shiwu.admin.dao.AuditLogDao;
+import com.shiwu.admin.dto.AuditLogQueryDTO;
+import com.shiwu.admin.model.AuditLog;
+import com.shiwu.admin.retention.AuditLogArchive;
+import com.shiwu.admin.service.impl.AuditLogServiceImpl;
+import com.shiwu.admin.vo.AuditLogVO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 审计日志流式导出测试
+ */
+@DisplayName("审计日志流式导出测试")
+public class AuditLogExportWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("CSV单元格转义并防止公式注入")
+    public void testCsvCell() {
+        assertEquals("", AuditLogExportWriter.csvCell(null));
+        assertEquals("plain", AuditLogExportWriter.csvCell("plain"));
+        assertEquals("\"a,b\"", AuditLogExportWriter.csvCell("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", AuditLogExportWriter.csvCell("say \"hi\""));
+        assertEquals("'=SUM(A1)", AuditLogExportWriter.csvCell("=SUM(A1)"));
+        assertEquals("\"'@x,y\"", AuditLogExportWriter.csvCell("@x,y"));
+    }
+
+    @Test
+    @DisplayName("CSV带BOM和表头，NDJSON每行一条")
+    public void testFormats() throws Exception {
+        AuditLogVO vo = new AuditLogVO();
+        vo.setId(7L);
+        vo.setDetails("封禁用户\n原因: 刷单");
+
+        StringWriter csv = new StringWriter();
+        AuditLogExportWriter csvWriter = new AuditLogExportWriter(csv, AuditLogExportFormat.CSV);
+        csvWriter.writeHeader();
+        csvWriter.write(vo);
+        assertTrue(csv.toString().startsWith("\uFEFFID,"));
+        assertTrue(csv.toString().contains("\r\n7,"));
+        assertTrue(csv.toString().contains("\"封禁用户\n原因: 刷单\""));
+
+        StringWriter ndjson = new StringWriter();
+        AuditLogExportWriter jsonWriter = new AuditLogExportWriter(ndjson, AuditLogExportFormat.NDJSON);
+        jsonWriter.writeHeader();
+        jsonWriter.write(vo);
+        jsonWriter.write(vo);
+        String[] lines = ndjson.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{") && lines[0].contains("\"id\":7"));
+        assertEquals(2, jsonWriter.getCount());
+        assertEquals(AuditLogExportFormat.NDJSON, AuditLogExportFormat.fromParam(" NDJSON "));
+        assertNull(AuditLogExportFormat.fromParam("json"));
+    }
+
+    @Test
+    @DisplayName("按ID分块读取直到取完，管理员用户名只加载一次")
+    public void testStreamInChunks() throws Exception {
+        AuditLogDao auditLogDao = mock(AuditLogDao.class);
+        AdminDao adminDao = mock(AdminDao.class);
+        when(adminDao.findAllUsernames()).thenReturn(Collections.singletonMap(1L, "admin"));
+        List<AuditLog> firstChunk = logs(1000, 500);
+        when(auditLogDao.findAuditLogsAfter(any(), isNull(), eq(false), eq(500))).thenReturn(firstChunk);
+        when(auditLogDao.findAuditLogsAfter(any(), eq(501L), eq(false), eq(500))).thenReturn(logs(500, 3));
+
+        StringWriter out = new StringWriter();
+        AuditLogServiceImpl service = new AuditLogServiceImpl(auditLogDao, adminDao, new AuditLogArchive(tempDir));
+        long count = service.streamAuditLogs(new AuditLogQueryDTO(),
+                new AuditLogExportWriter(out, AuditLogExportFormat.NDJSON));
+
+        assertEquals(503, count);
+        assertTrue(out.toString().contains("\"adminUsername\":\"admin\""));
+        verify(adminDao, times(1)).findAllUsernames();
+        verify(adminDao, never()).findById(any());
+        verify(auditLogDao, times(2)).findAuditLogsAfter(any(), any(), anyBoolean(), anyInt());
+    }
+
+    private static List<AuditLog> logs(long startId, int size) {
+        List<AuditLog> logs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            AuditLog log = new AuditLog();
+            log.setId(startId - i);
+            log.setAdminId(1L);
+            log.setAction("USER_BAN");
+            log.setResult(1);
+            logs.add(log);
+        }
+        return logs;
+    }
+}
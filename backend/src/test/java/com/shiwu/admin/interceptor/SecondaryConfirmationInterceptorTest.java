@@ -0,0 +1,73 @@
+package com.shiwu.admin.interceptor;
+
+import com.shiwu.admin.service.AdminService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 二次确认拦截器测试
+ */
+@DisplayName("二次确认拦截器测试")
+public class SecondaryConfirmationInterceptorTest {
+
+    private SecondaryConfirmationInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        interceptor = new SecondaryConfirmationInterceptor();
+        interceptor.adminService = mock(AdminService.class);
+        when(interceptor.adminService.requiresSecondaryConfirmation(anyString(), eq("ADMIN"))).thenReturn(true);
+        interceptor.init(mock(FilterConfig.class));
+    }
+
+    private static HttpServletRequest request(String requestURI, String servletPath, String pathInfo) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRequestURI()).thenReturn(requestURI);
+        when(request.getServletPath()).thenReturn(servletPath);
+        when(request.getPathInfo()).thenReturn(pathInfo);
+        when(request.getAttribute("userId")).thenReturn(1L);
+        when(request.getAttribute("userRole")).thenReturn("ADMIN");
+        return request;
+    }
+
+    @Test
+    @DisplayName("带 ;参数 的高风险路径仍要求二次确认")
+    public void testPathParameterRequiresConfirmation() throws Exception {
+        HttpServletRequest request = request("/api/admin/users/batch-ban;x=y", "/api/admin/users", "/batch-ban");
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter body = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+        FilterChain chain = mock(FilterChain.class);
+
+        interceptor.doFilter(request, response, chain);
+
+        verify(response).setStatus(428);
+        verify(chain, never()).doFilter(any(), any());
+        assertTrue(body.toString().contains("BATCH_BAN_USERS"));
+    }
+
+    @Test
+    @DisplayName("按容器分派路径识别操作，批量解封和批量审核也需要确认")
+    public void testOperationCodes() {
+        assertEquals("DELETE_USER_PERMANENTLY", interceptor.getOperationCode(
+                SecondaryConfirmationInterceptor.requestPath(request("/api/admin/users/delete;x", "/api/admin/users", "/delete")),
+                "POST"));
+        assertEquals("BATCH_UNBAN_USERS", interceptor.getOperationCode("/api/admin/users/batch-unban", "POST"));
+        assertEquals("BATCH_APPROVE_PRODUCTS", interceptor.getOperationCode("/api/admin/products/batch-approve", "POST"));
+        assertEquals("BATCH_REJECT_PRODUCTS", interceptor.getOperationCode("/api/admin/products/batch-reject;x", "POST"));
+        assertNull(interceptor.getOperationCode("/api/admin/users/list", "POST"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.shiwu.admin.retention;
+
+import com.shiwu.admin.dao.AuditLogDao;
+import com.shiwu.admin.dto.AuditLogQueryDTO;
+import com.shiwu.admin.model.AuditLog;
+import com.shiwu.admin.model.AuditLogPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 审计日志分区维护和归档测试
+ */
+@DisplayName("审计日志分区维护和归档测试")
+public class AuditLogRetentionTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("从MAXVALUE分区拆分出到未来两个月的月分区")
+    public void testMissingPartitions() {
+        AuditLogRetentionManager manager = new AuditLogRetentionManager(mock(AuditLogDao.class), null, 12);
+
+        List<AuditLogPartition> fresh = manager.missingPartitions(Collections.singletonList(
+                new AuditLogPartition("p_future", null, null)), YearMonth.of(2026, 10));
+        assertEquals(Arrays.asList("p202610", "p202611", "p202612"), names(fresh));
+        assertNull(fresh.get(0).getLowerBound());
+        assertEquals(LocalDate.of(2027, 1, 1), fresh.get(2).getUpperBound());
+
+        List<AuditLogPartition> existing = Arrays.asList(
+                new AuditLogPartition("p202610", null, LocalDate.of(2026, 11, 1)),
+                new AuditLogPartition("p_future", LocalDate.of(2026, 11, 1), null));
+        assertEquals(Arrays.asList("p202611", "p202612", "p202701"),
+                names(manager.missingPartitions(existing, YearMonth.of(2026, 11))));
+        assertTrue(manager.missingPartitions(existing, YearMonth.of(2026, 8)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("只有上界早于保留期起点的分区过期")
+    public void testExpiredPartitions() {
+        AuditLogRetentionManager manager = new AuditLogRetentionManager(mock(AuditLogDao.class), null, 12);
+        List<AuditLogPartition> partitions = Arrays.asList(
+                new AuditLogPartition("p202509", null, LocalDate.of(2025, 10, 1)),
+                new AuditLogPartition("p202510", LocalDate.of(2025, 10, 1), LocalDate.of(2025, 11, 1)),
+                new AuditLogPartition("p_future", LocalDate.of(2025, 11, 1), null));
+
+        assertEquals(Collections.singletonList("p202509"),
+                names(manager.expiredPartitions(partitions, LocalDate.of(2026, 10, 19))));
+        assertTrue(new AuditLogRetentionManager(mock(AuditLogDao.class), null, 0)
+                .expiredPartitions(partitions, LocalDate.of(2030, 1, 1)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("过期分区归档后删除，归档可以按条件检索")
+    public void testArchiveAndSearch() throws Exception {
+        AuditLogDao dao = mock(AuditLogDao.class);
+        AuditLogArchive archive = new AuditLogArchive(tempDir);
+        List<AuditLogPartition> partitions = Arrays.asList(
+                new AuditLogPartition("p202509", null, LocalDate.of(2025, 10, 1)),
+                new AuditLogPartition("p202610", LocalDate.of(2025, 10, 1), LocalDate.of(2026, 11, 1)),
+                new AuditLogPartition("p202611", LocalDate.of(2026, 11, 1), LocalDate.of(2026, 12, 1)),
+                new AuditLogPartition("p202612", LocalDate.of(2026, 12, 1), LocalDate.of(2027, 1, 1)),
+                new AuditLogPartition("p_future", LocalDate.of(2027, 1, 1), null));
+        when(dao.findPartitions()).thenReturn(partitions);
+        List<AuditLog> rows = new ArrayList<>();
+        for (long id = 1; id <= AuditLogArchive.SEGMENT_SIZE + 2; id++) {
+            rows.add(log(id, id % 2 == 0 ? "USER_BAN" : "PRODUCT_APPROVE", LocalDateTime.of(2025, 9, 15, 10, 0)));
+        }
+        when(dao.findPartitionLogsAfter(eq("p202509"), isNull(), anyInt())).thenReturn(rows);
+
+        new AuditLogRetentionManager(dao, archive, 12).runOnce(LocalDate.of(2026, 10, 19));
+
+        verify(dao).dropPartition("p202509");
+        verify(dao, never()).splitMaxValuePartition(any(), any());
+        List<AuditLogArchive.ArchivedRange> ranges = archive.listRanges();
+        assertEquals(1, ranges.size());
+        assertEquals(2, ranges.get(0).getSegments().size());
+
+        AuditLogQueryDTO query = new AuditLogQueryDTO();
+        query.setAction("USER_BAN");
+        List<Long> ids = new ArrayList<>();
+        assertEquals((AuditLogArchive.SEGMENT_SIZE + 2) / 2, archive.search(query, false, l -> ids.add(l.getId())));
+        assertEquals(Long.valueOf(AuditLogArchive.SEGMENT_SIZE + 2), ids.get(0));
+        assertEquals(Long.valueOf(2), ids.get(ids.size() - 1));
+
+        query.setStartTime(LocalDateTime.of(2025, 10, 1, 0, 0));
+        assertEquals(0, archive.search(query, true, l -> fail("不应打开时间范围之外的归档")));
+    }
+
+    @Test
+    @DisplayName("归档过程中失败时不删除分区，也不留下归档文件")
+    public void testArchiveFailureKeepsPartition() throws Exception {
+        AuditLogDao dao = mock(AuditLogDao.class);
+        AuditLogArchive archive = new AuditLogArchive(tempDir);
+        when(dao.findPartitions()).thenReturn(Arrays.asList(
+                new AuditLogPartition("p202509", null, LocalDate.of(2025, 10, 1)),
+                new AuditLogPartition("p202612", LocalDate.of(2025, 10, 1), LocalDate.of(2027, 1, 1)),
+                new AuditLogPartition("p_future", LocalDate.of(2027, 1, 1), null)));
+        when(dao.findPartitionLogsAfter(anyString(), any(), anyInt()))
+                .thenThrow(new RuntimeException("读取审计日志分区时发生数据库错误"));
+
+        assertThrows(RuntimeException.class,
+                () -> new AuditLogRetentionManager(dao, archive, 12).runOnce(LocalDate.of(2026, 10, 19)));
+        verify(dao, never()).dropPartition(anyString());
+        assertTrue(archive.listRanges().isEmpty());
+    }
+
+    private static AuditLog log(long id, String action, LocalDateTime createTime) {
+        AuditLog log = new AuditLog();
+        log.setId(id);
+        log.setAdminId(1L);
+        log.setAction(action);
+        log.setDetails("detail-" + id);
+        log.setResult(1);
+        log.setCreateTime(createTime);
+        return log;
+    }
+
+    private static List<String> names(List<AuditLogPartition> partitions) {
+        List<String> names = new ArrayList<>();
+        for (AuditLogPartition partition : partitions) {
+            names.add(partition.getName());
+        }
+        return names;
+    }
+}
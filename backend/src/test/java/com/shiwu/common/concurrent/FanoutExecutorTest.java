@@ -0,0 +1,87 @@
+package com.shiwu.common.concurrent;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 组合查询并发执行器测试
+ */
+@DisplayName("组合查询并发执行器测试")
+public class FanoutExecutorTest {
+
+    @Test
+    @DisplayName("子查询并发执行")
+    public void testBranchesRunConcurrently() {
+        FanoutExecutor executor = new FanoutExecutor(4, 16);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        FanoutExecutor.Fanout fanout = executor.begin(5000);
+
+        FanoutExecutor.Branch<String> a = fanout.fork("a", () -> {
+            bothStarted.countDown();
+            return bothStarted.await(2, TimeUnit.SECONDS) ? "a" : "timeout";
+        });
+        FanoutExecutor.Branch<String> b = fanout.fork("b", () -> {
+            bothStarted.countDown();
+            return bothStarted.await(2, TimeUnit.SECONDS) ? "b" : "timeout";
+        });
+
+        assertEquals("a", a.get());
+        assertEquals("b", b.get());
+        assertEquals(2L, executor.getStats().get("succeeded"));
+    }
+
+    @Test
+    @DisplayName("子查询失败时返回降级值")
+    public void testFailureFallback() {
+        FanoutExecutor executor = new FanoutExecutor(2, 4);
+        FanoutExecutor.Branch<Integer> branch = executor.begin(1000).fork("failing", () -> {
+            throw new IllegalStateException("数据库不可用");
+        });
+
+        assertEquals(-1, branch.join(-1));
+        assertThrows(IllegalStateException.class, branch::get);
+        assertEquals(1L, executor.getStats().get("failed"));
+    }
+
+    @Test
+    @DisplayName("超过截止时间返回降级值")
+    public void testDeadlineFallback() {
+        FanoutExecutor executor = new FanoutExecutor(2, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        FanoutExecutor.Branch<String> slow = executor.begin(50).fork("slow", () -> {
+            release.await(2, TimeUnit.SECONDS);
+            return "late";
+        });
+
+        assertEquals("fallback", slow.join("fallback"));
+        assertEquals(1L, executor.getStats().get("timedOut"));
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("线程池饱和时在调用线程中执行")
+    public void testCallerRunsWhenSaturated() {
+        FanoutExecutor executor = new FanoutExecutor(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        FanoutExecutor.Fanout fanout = executor.begin(5000);
+        FanoutExecutor.Branch<String> blocking = fanout.fork("blocking", () -> {
+            release.await(2, TimeUnit.SECONDS);
+            return "blocking";
+        });
+        FanoutExecutor.Branch<String> queued = fanout.fork("queued", () -> "queued");
+
+        String caller = Thread.currentThread().getName();
+        FanoutExecutor.Branch<String> inline = fanout.fork("inline", () -> Thread.currentThread().getName());
+        assertEquals(caller, inline.get());
+        assertEquals(1L, executor.getStats().get("callerRuns"));
+
+        release.countDown();
+        assertEquals("blocking", blocking.get());
+        assertEquals("queued", queued.get());
+    }
+}
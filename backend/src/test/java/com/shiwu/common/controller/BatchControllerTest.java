@@ -0,0 +1,172 @@
+package com.shiwu.common.controller;
+
+import com.shiwu.common.batch.BatchSubRequest;
+import com.shiwu.common.concurrent.FanoutExecutor;
+import com.shiwu.common.util.JsonUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批量请求网关测试
+ * 使用桩控制器代替真实控制器，不依赖数据库
+ */
+@DisplayName("批量请求网关测试")
+public class BatchControllerTest {
+
+    private BatchController controller;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter responseWriter;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Map<String, HttpServlet> routes = new LinkedHashMap<>();
+        routes.put("/api/products", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setContentType("application/json");
+                resp.getWriter().print("{\"pathInfo\":" + JsonUtil.toJson(req.getPathInfo())
+                        + ",\"page\":" + JsonUtil.toJson(req.getParameter("page"))
+                        + ",\"userId\":" + req.getAttribute("userId") + "}");
+            }
+        });
+        routes.put("/api/cart", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                throw new IllegalStateException("购物车服务不可用");
+            }
+        });
+        controller = new BatchController(routes, FanoutExecutor.getInstance());
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        responseWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(responseWriter));
+        when(request.getAttribute("userId")).thenReturn(7L);
+    }
+
+    @Test
+    @DisplayName("子请求按提交顺序返回并携带认证身份")
+    @SuppressWarnings("unchecked")
+    public void testDispatchInOrder() throws Exception {
+        post("{\"requests\":["
+                + "{\"id\":\"list\",\"path\":\"/api/products/?page=2\"},"
+                + "{\"id\":\"detail\",\"method\":\"GET\",\"path\":\"/api/products/15\"}]}");
+
+        List<Map<String, Object>> responses = responses();
+        assertEquals(2, responses.size());
+        assertEquals("list", responses.get(0).get("id"));
+        assertEquals(200, responses.get(0).get("status"));
+        Map<String, Object> listBody = (Map<String, Object>) responses.get(0).get("body");
+        assertEquals("/", listBody.get("pathInfo"));
+        assertEquals("2", listBody.get("page"));
+        assertEquals(7, listBody.get("userId"));
+
+        Map<String, Object> detailBody = (Map<String, Object>) responses.get(1).get("body");
+        assertEquals("/15", detailBody.get("pathInfo"));
+        assertNull(detailBody.get("page"));
+    }
+
+    @Test
+    @DisplayName("单个子请求失败不影响其他子请求")
+    public void testFailureIsolated() throws Exception {
+        post("{\"requests\":[{\"id\":\"cart\",\"path\":\"/api/cart/count\"},{\"id\":\"p\",\"path\":\"/api/products\"}]}");
+
+        List<Map<String, Object>> responses = responses();
+        assertEquals(500, responses.get(0).get("status"));
+        assertNotNull(responses.get(0).get("error"));
+        assertEquals(200, responses.get(1).get("status"));
+        assertEquals(1L, controller.getStats().get("failedSubRequests"));
+    }
+
+    @Test
+    @DisplayName("未开放路径和非GET子请求被拒绝")
+    public void testUnroutableAndNonGet() throws Exception {
+        post("{\"requests\":[{\"id\":\"a\",\"path\":\"/api/admin/users\"},"
+                + "{\"id\":\"b\",\"path\":\"/api/batch\"},"
+                + "{\"id\":\"c\",\"method\":\"POST\",\"path\":\"/api/products/\"},"
+                + "{\"id\":\"d\",\"path\":\"/api/products/../admin\"}]}");
+
+        List<Map<String, Object>> responses = responses();
+        assertEquals(404, responses.get(0).get("status"));
+        assertEquals(404, responses.get(1).get("status"));
+        assertEquals(405, responses.get(2).get("status"));
+        assertEquals(404, responses.get(3).get("status"));
+    }
+
+    @Test
+    @DisplayName("超过子请求上限或格式错误时整批拒绝")
+    public void testBatchRejected() throws Exception {
+        StringBuilder body = new StringBuilder("{\"requests\":[");
+        for (int i = 0; i <= BatchController.MAX_SUB_REQUESTS; i++) {
+            body.append(i > 0 ? "," : "").append("{\"path\":\"/api/products\"}");
+        }
+        post(body.append("]}").toString());
+        assertTrue(responseWriter.toString().contains("\"success\":false"));
+
+        assertThrows(IllegalArgumentException.class, () -> controller.parseRequests("{\"requests\":[]}"));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.parseRequests("{\"requests\":[{\"id\":1,\"path\":\"/a\"},{\"id\":1,\"path\":\"/b\"}]}"));
+        assertEquals(1L, controller.getStats().get("rejectedBatches"));
+    }
+
+    @Test
+    @DisplayName("子请求创建后不再读取外层请求")
+    public void testSubRequestDetachedFromParent() {
+        HttpServletRequest parent = mock(HttpServletRequest.class);
+        when(parent.getHeaderNames()).thenReturn(Collections.enumeration(
+                Arrays.asList("Authorization", "X-User-Id", "If-None-Match")));
+        when(parent.getHeaders("Authorization")).thenReturn(Collections.enumeration(Arrays.asList("Bearer a")));
+        when(parent.getHeaders("X-User-Id")).thenReturn(Collections.enumeration(Arrays.asList("7")));
+        when(parent.getHeaders("If-None-Match")).thenReturn(Collections.enumeration(Arrays.asList("W/\"1\"")));
+        when(parent.getAttribute("userId")).thenReturn(7L);
+        when(parent.getRemoteAddr()).thenReturn("10.0.0.1");
+        when(parent.getContextPath()).thenReturn("");
+
+        BatchSubRequest sub = new BatchSubRequest(parent, "/api/users", "/profile", "tab=1");
+        // 外层请求被容器回收后分配给其他用户
+        clearInvocations(parent);
+        when(parent.getHeader(anyString())).thenReturn("Bearer other");
+
+        assertEquals("Bearer a", sub.getHeader("authorization"));
+        assertEquals("7", sub.getHeader("X-User-Id"));
+        assertNull(sub.getHeader("If-None-Match"));
+        assertEquals(7L, sub.getAttribute("userId"));
+        assertEquals("10.0.0.1", sub.getRemoteAddr());
+        assertEquals("/api/users/profile", sub.getRequestURI());
+        assertNull(sub.getSession(true));
+        sub.setCharacterEncoding("UTF-8");
+        verifyNoInteractions(parent);
+    }
+
+    private void post(String body) throws Exception {
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader(body)));
+        controller.doPost(request, response);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> responses() {
+        Map<String, Object> result = JsonUtil.fromJson(responseWriter.toString(), Map.class);
+        assertEquals(Boolean.TRUE, result.get("success"));
+        return (List<Map<String, Object>>) ((Map<String, Object>) result.get("data")).get("responses");
+    }
+}
@@ -0,0 +1,196 @@
+package com.shiwu.common.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地任务执行器测试
+ * 使用内存中的 OutboxDao 替身，不依赖数据库；工作线程未启动时任务在当前线程执行
+ */
+@DisplayName("本地任务执行器测试")
+public class OutboxJobRunnerTest {
+
+    private StubOutboxDao dao;
+    private OutboxJobRunner runner;
+    private List<Long> handled;
+
+    @BeforeEach
+    public void setUp() {
+        dao = new StubOutboxDao();
+        runner = new OutboxJobRunner(dao);
+        handled = new ArrayList<>();
+        runner.register(OutboxJob.TYPE_CART_ITEM_REMOVE, job -> handled.add(job.getPayloadLong("productId")));
+    }
+
+    @Test
+    @DisplayName("执行成功的任务批量标记完成")
+    public void testSuccessMarkedDoneInBatch() {
+        dao.enqueue(cartJob("k1", 10L));
+        dao.enqueue(cartJob("k2", 11L));
+
+        assertEquals(2, runner.pollOnce());
+        assertEquals(2, handled.size());
+        assertEquals(1, dao.markDoneCalls);
+        assertEquals(OutboxJob.STATUS_DONE, dao.jobs.get("k1").getStatus());
+        assertEquals(OutboxJob.STATUS_DONE, dao.jobs.get("k2").getStatus());
+        assertEquals(0, runner.pollOnce());
+        assertEquals(2L, runner.getStats().get("succeededJobs"));
+    }
+
+    @Test
+    @DisplayName("幂等键相同的任务只入队一次")
+    public void testIdempotencyKey() {
+        dao.enqueue(cartJob("k1", 10L));
+        dao.enqueue(cartJob("k1", 10L));
+
+        runner.pollOnce();
+        assertEquals(1, handled.size());
+    }
+
+    @Test
+    @DisplayName("执行失败按指数退避重试")
+    public void testRetryWithBackoff() {
+        int[] failures = {2};
+        runner.register(OutboxJob.TYPE_PRODUCT_UNLOCK, job -> {
+            if (failures[0]-- > 0) {
+                throw new IllegalStateException("数据库不可用");
+            }
+        });
+        OutboxJob job = OutboxJob.of(OutboxJob.TYPE_PRODUCT_UNLOCK, "unlock", new HashMap<>());
+        dao.enqueue(job);
+
+        runner.pollOnce();
+        assertEquals(OutboxJob.STATUS_PENDING, job.getStatus());
+        assertEquals(5L, dao.lastDelaySeconds);
+        assertEquals("数据库不可用", job.getLastError());
+
+        runner.pollOnce();
+        assertEquals(10L, dao.lastDelaySeconds);
+
+        runner.pollOnce();
+        assertEquals(OutboxJob.STATUS_DONE, job.getStatus());
+        assertEquals(3, job.getAttempts());
+        assertEquals(2L, runner.getStats().get("retriedJobs"));
+    }
+
+    @Test
+    @DisplayName("重试次数用尽后转入死信")
+    public void testDeadLetterAfterMaxAttempts() {
+        runner.register(OutboxJob.TYPE_PRODUCT_UNLOCK, job -> {
+            throw new IllegalStateException("商品不存在");
+        });
+        OutboxJob job = OutboxJob.of(OutboxJob.TYPE_PRODUCT_UNLOCK, "unlock", new HashMap<>());
+        job.setMaxAttempts(2);
+        dao.enqueue(job);
+
+        runner.pollOnce();
+        runner.pollOnce();
+        assertEquals(OutboxJob.STATUS_DEAD, job.getStatus());
+        assertEquals(0, runner.pollOnce());
+        assertEquals(1L, runner.getStats().get("deadJobs"));
+    }
+
+    @Test
+    @DisplayName("没有注册处理器的任务直接转入死信")
+    public void testUnknownJobType() {
+        OutboxJob job = OutboxJob.of("UNKNOWN", "unknown", new HashMap<>());
+        dao.enqueue(job);
+
+        runner.pollOnce();
+        assertEquals(OutboxJob.STATUS_DEAD, job.getStatus());
+        assertTrue(job.getLastError().contains("UNKNOWN"));
+    }
+
+    @Test
+    @DisplayName("重试延迟有上限")
+    public void testBackoffCap() {
+        assertEquals(5L, OutboxJobRunner.backoffSeconds(1));
+        assertEquals(40L, OutboxJobRunner.backoffSeconds(4));
+        assertEquals(3600L, OutboxJobRunner.backoffSeconds(30));
+    }
+
+    private OutboxJob cartJob(String key, Long productId) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", 1L);
+        payload.put("productId", productId);
+        return OutboxJob.of(OutboxJob.TYPE_CART_ITEM_REMOVE, key, payload);
+    }
+
+    /**
+     * 内存实现的 OutboxDao，重试任务立即到期
+     */
+    private static class StubOutboxDao extends OutboxDao {
+        final Map<String, OutboxJob> jobs = new LinkedHashMap<>();
+        int markDoneCalls;
+        long lastDelaySeconds;
+        private long nextId = 1;
+
+        @Override
+        public boolean enqueue(OutboxJob job) {
+            if (!jobs.containsKey(job.getIdempotencyKey())) {
+                job.setId(nextId++);
+                jobs.put(job.getIdempotencyKey(), job);
+            }
+            return true;
+        }
+
+        @Override
+        public List<OutboxJob> claimBatch(int limit, int lockSeconds) {
+            List<OutboxJob> claimed = new ArrayList<>();
+            for (OutboxJob job : jobs.values()) {
+                if (job.getStatus() == OutboxJob.STATUS_PENDING && claimed.size() < limit) {
+                    job.setStatus(OutboxJob.STATUS_PROCESSING);
+                    job.setAttempts(job.getAttempts() + 1);
+                    claimed.add(job);
+                }
+            }
+            return claimed;
+        }
+
+        @Override
+        public int markDone(List<Long> ids) {
+            markDoneCalls++;
+            for (OutboxJob job : jobs.values()) {
+                if (ids.contains(job.getId())) {
+                    job.setStatus(OutboxJob.STATUS_DONE);
+                }
+            }
+            return ids.size();
+        }
+
+        @Override
+        public boolean markRetry(Long id, long delaySeconds, String error) {
+            lastDelaySeconds = delaySeconds;
+            OutboxJob job = find(id);
+            job.setStatus(OutboxJob.STATUS_PENDING);
+            job.setLastError(error);
+            return true;
+        }
+
+        @Override
+        public boolean markDead(Long id, String error) {
+            OutboxJob job = find(id);
+            job.setStatus(OutboxJob.STATUS_DEAD);
+            job.setLastError(error);
+            return true;
+        }
+
+        private OutboxJob find(Long id) {
+            for (OutboxJob job : jobs.values()) {
+                if (job.getId().equals(id)) {
+                    return job;
+                }
+            }
+            throw new IllegalArgumentException("任务不存在: " + id);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.shiwu.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 条件请求工具类测试
+ */
+@DisplayName("条件请求工具类测试")
+public class ConditionalGetTest {
+
+    @Test
+    @DisplayName("验证器匹配时返回304")
+    public void testNotModified() {
+        String etag = ConditionalGet.etag(1L, 2L, null);
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        HttpServletResponse resp = mock(HttpServletResponse.class);
+        when(req.getHeader("If-None-Match")).thenReturn("\"other\", " + etag);
+
+        assertTrue(ConditionalGet.checkNotModified(req, resp, etag, ConditionalGet.CACHE_PRIVATE));
+        verify(resp).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(resp).setHeader("ETag", etag);
+        verify(resp).setHeader("Cache-Control", ConditionalGet.CACHE_PRIVATE);
+    }
+
+    @Test
+    @DisplayName("没有条件请求头或验证器不匹配时正常处理")
+    public void testModified() {
+        String etag = ConditionalGet.etag(1L);
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        HttpServletResponse resp = mock(HttpServletResponse.class);
+
+        assertFalse(ConditionalGet.checkNotModified(req, resp, etag, ConditionalGet.CACHE_PUBLIC));
+        when(req.getHeader("If-None-Match")).thenReturn(ConditionalGet.etag(2L));
+        assertFalse(ConditionalGet.checkNotModified(req, resp, etag, ConditionalGet.CACHE_PUBLIC));
+        verifyNoInteractions(resp);
+    }
+
+    @Test
+    @DisplayName("弱比较忽略W/前缀")
+    public void testWeakComparison() {
+        String etag = ConditionalGet.etag(3L);
+        assertTrue(ConditionalGet.matches(etag.substring(2), etag));
+        assertTrue(ConditionalGet.matches("*", etag));
+    }
+
+    @Test
+    @DisplayName("实体变化后验证器改变")
+    public void testVersionsChangeEtag() {
+        long before = EntityVersions.version(EntityVersions.PRODUCT, 42L);
+        long typeBefore = EntityVersions.typeVersion(EntityVersions.PRODUCT);
+        String etag = ConditionalGet.etag(before);
+
+        EntityVersions.bump(EntityVersions.PRODUCT, 42L);
+        assertEquals(before + 1, EntityVersions.version(EntityVersions.PRODUCT, 42L));
+        assertTrue(EntityVersions.typeVersion(EntityVersions.PRODUCT) > typeBefore);
+        assertNotEquals(etag, ConditionalGet.etag(EntityVersions.version(EntityVersions.PRODUCT, 42L)));
+
+        long reviewBefore = EntityVersions.typeVersion(EntityVersions.REVIEW);
+        EntityVersions.touch(EntityVersions.REVIEW);
+        assertEquals(reviewBefore + 1, EntityVersions.typeVersion(EntityVersions.REVIEW));
+    }
+}
@@ -0,0 +1,50 @@
+package com.shiwu.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预编译路径匹配器测试
+ */
+@DisplayName("预编译路径匹配器测试")
+public class RouteMatcherTest {
+
+    private final RouteMatcher<String> matcher = new RouteMatcher<String>()
+            .exact("DELETE", "/api/admin/products/{id}", "DELETE_PRODUCT")
+            .prefix("/api/admin/users/delete", "DELETE_USER")
+            .prefix("/api/admin/data", "DATA")
+            .prefix("/api/admin/data/export", "EXPORT");
+
+    @Test
+    @DisplayName("前缀路由匹配自身及其下的路径，取最长前缀")
+    public void testPrefix() {
+        assertEquals("DELETE_USER", matcher.match("POST", "/api/admin/users/delete"));
+        assertEquals("DELETE_USER", matcher.match("POST", "/api/admin/users/delete/12/"));
+        assertEquals("EXPORT", matcher.match("POST", "/api/admin/data/export/users"));
+        assertEquals("DATA", matcher.match("POST", "/api/admin/data/batch"));
+        assertNull(matcher.match("POST", "/api/admin/users/deleted"));
+        assertNull(matcher.match("POST", "/api/admin/users"));
+        assertNull(matcher.match("POST", null));
+    }
+
+    @Test
+    @DisplayName("精确路由要求方法相同且 {id} 段为数字")
+    public void testExact() {
+        assertEquals("DELETE_PRODUCT", matcher.match("DELETE", "/api/admin/products/42"));
+        assertNull(matcher.match("PUT", "/api/admin/products/42"));
+        assertNull(matcher.match("DELETE", "/api/admin/products/abc"));
+        assertNull(matcher.match("DELETE", "/api/admin/products/42/images"));
+    }
+
+    @Test
+    @DisplayName("去掉路径段中的 ;参数 后再匹配")
+    public void testPathParameters() {
+        assertEquals("DELETE_USER", matcher.match("POST", "/api/admin/users/delete;x=y"));
+        assertEquals("DELETE_USER", matcher.match("POST", "/api/admin/users;a/delete;b/12"));
+        assertEquals("DELETE_PRODUCT", matcher.match("DELETE", "/api/admin/products/42;jsessionid=abc"));
+        assertEquals("EXPORT", matcher.match("POST", "/api/admin/data/export;"));
+        assertNull(matcher.match("POST", "/api/admin/users/deleted;x"));
+    }
+}
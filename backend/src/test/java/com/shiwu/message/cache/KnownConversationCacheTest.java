@@ -0,0 +1,83 @@
+package com.shiwu.message.cache;
+
+import com.shiwu.common.result.Result;
+import com.shiwu.message.dao.ConversationDao;
+import com.shiwu.message.dao.MessageDao;
+import com.shiwu.message.service.MessageService;
+import com.shiwu.message.service.impl.MessageServiceImpl;
+import com.shiwu.notification.service.NotificationService;
+import com.shiwu.user.dao.UserDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 已知会话ID缓存测试
+ * 不依赖数据库
+ */
+@DisplayName("已知会话ID缓存测试")
+public class KnownConversationCacheTest {
+
+    private static final String CONVERSATION_ID = "1_2_100";
+
+    private KnownConversationCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new KnownConversationCache(2);
+    }
+
+    @Test
+    @DisplayName("记录后命中，未记录的会话未命中")
+    public void testHitAndMiss() {
+        assertFalse(cache.contains(CONVERSATION_ID));
+        cache.add(CONVERSATION_ID);
+        assertTrue(cache.contains(CONVERSATION_ID));
+        assertFalse(cache.contains(null));
+
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(2L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    @DisplayName("超过上限时淘汰最久未访问的会话，移除后不再命中")
+    public void testEviction() {
+        cache.add("1_2");
+        cache.add("1_3");
+        assertTrue(cache.contains("1_2"));
+        cache.add("1_4");
+
+        assertTrue(cache.contains("1_2"));
+        assertFalse(cache.contains("1_3"));
+        assertEquals(2, cache.getStats().get("size"));
+
+        cache.remove("1_2");
+        assertFalse(cache.contains("1_2"));
+    }
+
+    @Test
+    @DisplayName("归档会话或会话已删除时从缓存移除")
+    public void testServiceEvictsOnStatusChange() {
+        ConversationDao conversationDao = mock(ConversationDao.class);
+        MessageService service = new MessageServiceImpl(mock(MessageDao.class), conversationDao,
+                mock(NotificationService.class), mock(UserDao.class), new MessageTailCache(5, 100, 1024L * 1024), cache);
+        cache.add(CONVERSATION_ID);
+
+        when(conversationDao.updateStatus(CONVERSATION_ID, "ACTIVE")).thenReturn(true);
+        assertTrue(service.updateConversationStatus(1L, CONVERSATION_ID, "ACTIVE").isSuccess());
+        assertTrue(cache.contains(CONVERSATION_ID));
+
+        when(conversationDao.updateStatus(CONVERSATION_ID, "ARCHIVED")).thenReturn(true);
+        Result<Void> archived = service.updateConversationStatus(1L, CONVERSATION_ID, "ARCHIVED");
+        assertTrue(archived.isSuccess());
+        assertFalse(cache.contains(CONVERSATION_ID));
+
+        cache.add(CONVERSATION_ID);
+        when(conversationDao.updateStatus(CONVERSATION_ID, "BLOCKED")).thenReturn(false);
+        assertFalse(service.updateConversationStatus(1L, CONVERSATION_ID, "BLOCKED").isSuccess());
+        assertFalse(cache.contains(CONVERSATION_ID));
+    }
+}
@@ -0,0 +1,172 @@
+package com.shiwu.message.cache;
+
+import com.shiwu.message.model.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 会话消息尾部缓存测试
+ * 不依赖数据库
+ */
+@DisplayName("会话消息尾部缓存测试")
+public class MessageTailCacheTest {
+
+    private static final String CONVERSATION_ID = "1_2_100";
+
+    private MessageTailCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new MessageTailCache(5, 100, 1024L * 1024);
+    }
+
+    @Test
+    @DisplayName("未缓存的会话返回null")
+    public void testMissWhenNotCached() {
+        assertNull(cache.getPage(CONVERSATION_ID, 0, 10));
+        assertNull(cache.getBefore(CONVERSATION_ID, null, 10));
+        assertEquals(2L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    @DisplayName("新会话追加消息后可从缓存分页读取")
+    public void testAppendToNewConversation() {
+        cache.initEmpty(CONVERSATION_ID);
+        for (long id = 1; id <= 3; id++) {
+            cache.append(message(id, 1L, 2L));
+        }
+
+        List<Message> page = cache.getPage(CONVERSATION_ID, 0, 10);
+        assertNotNull(page);
+        assertEquals(3, page.size());
+        assertEquals(1L, page.get(0).getId());
+        assertEquals(3L, page.get(2).getId());
+        assertEquals(Long.valueOf(100L), page.get(0).getProductId());
+        assertEquals("content-2", page.get(1).getContent());
+    }
+
+    @Test
+    @DisplayName("超出缓存尾部的偏移量回落到数据库")
+    public void testFallthroughBeyondTail() {
+        List<Message> latest = new ArrayList<>();
+        for (long id = 16; id <= 20; id++) {
+            latest.add(message(id, 1L, 2L));
+        }
+        cache.seed(CONVERSATION_ID, cache.stamp(CONVERSATION_ID), latest, 20);
+
+        // 共20条，缓存最后5条（偏移量15~19）
+        assertNull(cache.getPage(CONVERSATION_ID, 0, 10));
+        List<Message> tailPage = cache.getPage(CONVERSATION_ID, 15, 10);
+        assertNotNull(tailPage);
+        assertEquals(5, tailPage.size());
+        assertEquals(16L, tailPage.get(0).getId());
+
+        // 游标分页：缓存中ID<18的只有2条，请求3条时需要回落
+        assertNull(cache.getBefore(CONVERSATION_ID, 18L, 3));
+        List<Message> before = cache.getBefore(CONVERSATION_ID, 18L, 2);
+        assertNotNull(before);
+        assertEquals(16L, before.get(0).getId());
+        assertEquals(17L, before.get(1).getId());
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(2L, stats.get("fallthroughs"));
+        assertEquals(2L, stats.get("hits"));
+    }
+
+    @Test
+    @DisplayName("缓冲区满时丢弃最旧消息")
+    public void testRingBufferOverwrite() {
+        cache.initEmpty(CONVERSATION_ID);
+        for (long id = 1; id <= 8; id++) {
+            cache.append(message(id, 1L, 2L));
+        }
+
+        List<Message> latest = cache.getBefore(CONVERSATION_ID, null, 5);
+        assertNotNull(latest);
+        assertEquals(5, latest.size());
+        assertEquals(4L, latest.get(0).getId());
+        assertEquals(8L, latest.get(4).getId());
+        assertNotNull(cache.getPage(CONVERSATION_ID, 3, 5));
+        assertNull(cache.getPage(CONVERSATION_ID, 2, 5));
+    }
+
+    @Test
+    @DisplayName("乱序追加保持ID升序")
+    public void testOutOfOrderAppend() {
+        cache.initEmpty(CONVERSATION_ID);
+        cache.append(message(2L, 1L, 2L));
+        cache.append(message(1L, 2L, 1L));
+        cache.append(message(3L, 1L, 2L));
+
+        List<Message> page = cache.getPage(CONVERSATION_ID, 0, 10);
+        assertEquals(1L, page.get(0).getId());
+        assertEquals(2L, page.get(1).getId());
+        assertEquals(3L, page.get(2).getId());
+    }
+
+    @Test
+    @DisplayName("标记已读和删除消息同步更新缓存")
+    public void testMarkReadAndRemove() {
+        cache.initEmpty(CONVERSATION_ID);
+        cache.append(message(1L, 1L, 2L));
+        cache.append(message(2L, 2L, 1L));
+        cache.append(message(3L, 1L, 2L));
+
+        cache.markRead(CONVERSATION_ID, 2L);
+        List<Message> page = cache.getPage(CONVERSATION_ID, 0, 10);
+        assertTrue(page.get(0).getRead());
+        assertFalse(page.get(1).getRead());
+        assertTrue(page.get(2).getRead());
+
+        cache.remove(CONVERSATION_ID, 2L);
+        page = cache.getPage(CONVERSATION_ID, 0, 10);
+        assertEquals(2, page.size());
+        assertEquals(1L, page.get(0).getId());
+        assertEquals(3L, page.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("加载期间有写入时放弃填充")
+    public void testStaleSeedDiscarded() {
+        long stamp = cache.stamp(CONVERSATION_ID);
+        cache.append(message(10L, 1L, 2L));
+
+        List<Message> latest = new ArrayList<>();
+        latest.add(message(9L, 1L, 2L));
+        cache.seed(CONVERSATION_ID, stamp, latest, 9);
+
+        assertFalse(cache.isCached(CONVERSATION_ID));
+        assertEquals(1L, cache.getStats().get("staleSeeds"));
+    }
+
+    @Test
+    @DisplayName("按内存上限淘汰最久未访问的会话")
+    public void testLruEvictionByBytes() {
+        // 每个会话固定开销约为 5 * 56 字节，上限只够容纳两个会话
+        MessageTailCache small = new MessageTailCache(5, 100, 700);
+        small.initEmpty("a");
+        small.initEmpty("b");
+        small.getPage("a", 0, 1);
+        small.initEmpty("c");
+
+        assertTrue(small.isCached("a"));
+        assertFalse(small.isCached("b"));
+        assertTrue(small.isCached("c"));
+        assertEquals(1L, small.getStats().get("evictions"));
+    }
+
+    private Message message(long id, long senderId, long receiverId) {
+        Message message = new Message(CONVERSATION_ID, senderId, receiverId, 100L, "content-" + id, "TEXT");
+        message.setId(id);
+        message.setCreateTime(LocalDateTime.now());
+        return message;
+    }
+}
@@ -0,0 +1,117 @@
+package com.shiwu.message.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用户在线状态跟踪测试
+ */
+@DisplayName("用户在线状态跟踪测试")
+public class PresenceTrackerTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long TIMEOUT = 60_000;
+    private static final long TICK = 1_000;
+
+    @Test
+    @DisplayName("超时前在线，超时后离线并从在线人数中移除")
+    public void testExpiry() {
+        AtomicLong now = new AtomicLong(START);
+        PresenceTracker tracker = new PresenceTracker(TIMEOUT, TICK, now::get);
+
+        tracker.touch(1L);
+        tracker.touch(2L);
+        assertEquals(2, tracker.onlineCount());
+
+        now.addAndGet(30_000);
+        tracker.touch(2L);
+        now.addAndGet(30_000 + 2 * TICK);
+        assertFalse(tracker.isOnline(1L));
+        assertTrue(tracker.isOnline(2L));
+        assertEquals(1, tracker.onlineCount());
+        now.addAndGet(30_000);
+        assertEquals(0, tracker.onlineCount());
+        assertEquals(2L, tracker.getStats().get("expirations"));
+        assertEquals(0L, tracker.getStats().get("wheelEntries"));
+    }
+
+    @Test
+    @DisplayName("同一刻度内重复刷新只记录一次，重复刷新不重复计数")
+    public void testRepeatedTouch() {
+        AtomicLong now = new AtomicLong(START);
+        PresenceTracker tracker = new PresenceTracker(TIMEOUT, TICK, now::get);
+
+        for (int i = 0; i < 100; i++) {
+            tracker.touch(7L);
+        }
+        assertEquals(1, tracker.onlineCount());
+        assertEquals(1L, tracker.getStats().get("wheelEntries"));
+        assertEquals(1L, tracker.getStats().get("arrivals"));
+    }
+
+    @Test
+    @DisplayName("长时间无访问后一次清理全部过期用户，再次上线重新计数")
+    public void testLongIdleAndRejoin() {
+        AtomicLong now = new AtomicLong(START);
+        PresenceTracker tracker = new PresenceTracker(TIMEOUT, TICK, now::get);
+        for (long id = 1; id <= 5000; id++) {
+            tracker.touch(id);
+        }
+        assertEquals(5000, tracker.onlineCount());
+
+        now.addAndGet(TimeUnit.HOURS.toMillis(3));
+        assertEquals(0, tracker.onlineCount());
+        tracker.touch(4242L);
+        assertEquals(1, tracker.onlineCount());
+        assertTrue(tracker.isOnline(4242L));
+        assertFalse(tracker.isOnline(4241L));
+    }
+
+    @Test
+    @DisplayName("批量查询只返回在线用户")
+    public void testOnlineAmong() {
+        AtomicLong now = new AtomicLong(START);
+        PresenceTracker tracker = new PresenceTracker(TIMEOUT, TICK, now::get);
+        tracker.touch(10L);
+        tracker.touch(30L);
+
+        assertEquals(new HashSet<>(Arrays.asList(10L, 30L)),
+                tracker.onlineAmong(Arrays.asList(10L, 20L, 30L, null, -1L)));
+        assertTrue(tracker.onlineAmong(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("并发刷新时在线人数准确")
+    public void testConcurrentTouch() throws Exception {
+        AtomicLong now = new AtomicLong(START);
+        PresenceTracker tracker = new PresenceTracker(TIMEOUT, TICK, now::get);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                pool.submit(() -> {
+                    for (long id = 1; id <= 2000; id++) {
+                        tracker.touch(id);
+                    }
+                });
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(2000, tracker.onlineCount());
+        for (long id = 1; id <= 2000; id++) {
+            assertTrue(tracker.isOnline(id));
+        }
+    }
+}
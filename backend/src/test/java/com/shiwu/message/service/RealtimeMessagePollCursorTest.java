@@ -0,0 +1,106 @@
+package com.shiwu.message.service;
+
+import com.shiwu.common.result.Result;
+import com.shiwu.message.dao.ConversationDao;
+import com.shiwu.message.dao.MessageDao;
+import com.shiwu.message.dto.MessagePollDTO;
+import com.shiwu.message.model.Message;
+import com.shiwu.message.service.impl.RealtimeMessageServiceImpl;
+import com.shiwu.message.vo.MessagePollVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 实时消息轮询游标测试
+ */
+@DisplayName("实时消息轮询游标测试")
+public class RealtimeMessagePollCursorTest {
+
+    private static final Long USER_ID = 7L;
+
+    private MessageDao messageDao;
+    private RealtimeMessageServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        messageDao = mock(MessageDao.class);
+        ConversationDao conversationDao = mock(ConversationDao.class);
+        service = new RealtimeMessageServiceImpl(messageDao, conversationDao, mock(MessageService.class));
+    }
+
+    @Test
+    @DisplayName("游标只越过安全窗口之前的消息")
+    public void testCursorStopsBeforeRecentMessages() {
+        when(messageDao.findNewMessagesAfterId(eq(USER_ID), eq(10L), eq(false), anyInt())).thenReturn(Arrays.asList(
+                message(11L, LocalDateTime.now().minusMinutes(1)),
+                message(12L, LocalDateTime.now().minusMinutes(1)),
+                message(15L, LocalDateTime.now()),
+                message(16L, LocalDateTime.now().minusMinutes(1))));
+
+        MessagePollDTO pollDTO = new MessagePollDTO();
+        pollDTO.setLastMessageId(10L);
+        MessagePollVO vo = service.pollNewMessages(USER_ID, pollDTO).getData();
+
+        assertEquals(4, vo.getNewMessages().size());
+        assertEquals(12L, vo.getLastMessageId());
+        assertEquals(16L, vo.getDeliveredMessageId());
+    }
+
+    @Test
+    @DisplayName("兼容模式截断结果时游标不越过未返回的消息")
+    public void testLegacyTruncationKeepsCursor() {
+        LocalDateTime old = LocalDateTime.now().minusSeconds(30);
+        when(messageDao.findNewMessagesByUserId(eq(USER_ID), any(LocalDateTime.class))).thenReturn(Arrays.asList(
+                message(23L, old), message(21L, old), message(22L, old)));
+
+        MessagePollDTO pollDTO = new MessagePollDTO();
+        pollDTO.setLimit(2);
+        MessagePollVO vo = service.pollNewMessages(USER_ID, pollDTO).getData();
+
+        assertEquals(21L, vo.getNewMessages().get(0).getMessageId());
+        assertEquals(22L, vo.getLastMessageId());
+        assertTrue(vo.getHasMore());
+        verify(messageDao, never()).findMaxMessageIdByReceiverId(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("长轮询只在有客户端未收到的消息时提前返回")
+    public void testLongPollIgnoresRedeliveredMessages() {
+        when(messageDao.findNewMessagesAfterId(eq(USER_ID), eq(10L), eq(false), anyInt()))
+                .thenReturn(Arrays.asList(message(11L, LocalDateTime.now())));
+
+        MessagePollDTO pollDTO = new MessagePollDTO();
+        pollDTO.setLastMessageId(10L);
+        pollDTO.setDeliveredMessageId(10L);
+        Result<MessagePollVO> result = service.longPollNewMessages(USER_ID, pollDTO, 5);
+        assertEquals(11L, result.getData().getDeliveredMessageId());
+        verify(messageDao, times(1)).findNewMessagesAfterId(eq(USER_ID), eq(10L), eq(false), anyInt());
+
+        // 客户端已收到消息11，窗口内重复返回的消息不会提前结束长轮询
+        pollDTO.setDeliveredMessageId(11L);
+        long start = System.currentTimeMillis();
+        result = service.longPollNewMessages(USER_ID, pollDTO, 1);
+        assertTrue(System.currentTimeMillis() - start >= 1000);
+        assertEquals(10L, result.getData().getLastMessageId());
+    }
+
+    private static Message message(Long id, LocalDateTime createTime) {
+        Message message = new Message();
+        message.setId(id);
+        message.setConversationId("1_2");
+        message.setSenderId(2L);
+        message.setReceiverId(USER_ID);
+        message.setContent("m" + id);
+        message.setMessageType("TEXT");
+        message.setCreateTime(createTime);
+        return message;
+    }
+}
@@ -0,0 +1,195 @@
+package com.shiwu.notification.task;
+
+import com.shiwu.notification.dao.NotificationDao;
+import com.shiwu.notification.model.Notification;
+import com.shiwu.user.dao.UserDao;
+import com.shiwu.user.dao.UserFollowDao;
+import com.shiwu.user.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 商品审核通过通知分发器测试
+ * 使用内存中的 DAO 替身，不依赖数据库；分发线程未启动时任务在当前线程执行
+ */
+@DisplayName("商品审核通过通知分发器测试")
+public class ProductApprovedFanoutDispatcherTest {
+
+    private static final long SELLER_ID = 2L;
+    private static final long PRODUCT_ID = 100L;
+
+    private StubUserFollowDao followDao;
+    private StubNotificationDao notificationDao;
+    private ProductApprovedFanoutDispatcher dispatcher;
+
+    @BeforeEach
+    public void setUp() {
+        followDao = new StubUserFollowDao();
+        for (long id = 1; id <= 25; id++) {
+            if (id != SELLER_ID) {
+                followDao.followerIds.add(id);
+            }
+        }
+        notificationDao = new StubNotificationDao();
+        dispatcher = new ProductApprovedFanoutDispatcher(followDao, notificationDao, new StubUserDao(), 10, 1);
+    }
+
+    @Test
+    @DisplayName("按分段读取粉丝并为每个粉丝写入一条通知")
+    public void testFanoutInChunks() {
+        assertTrue(dispatcher.execute(PRODUCT_ID, SELLER_ID, "二手相机"));
+
+        assertEquals(24, notificationDao.recipients.size());
+        assertEquals(3, followDao.chunkReads);
+        assertEquals(3, notificationDao.batches);
+        Notification first = notificationDao.created.get(0);
+        assertEquals("您关注的 bob 发布了新商品", first.getTitle());
+        assertTrue(first.getContent().contains("《二手相机》"));
+        assertEquals("/product/100", first.getActionUrl());
+
+        Map<String, Object> progress = dispatcher.getProgress(PRODUCT_ID);
+        assertEquals("COMPLETED", progress.get("status"));
+        assertEquals(24L, progress.get("scannedCount"));
+        assertEquals(24L, progress.get("createdCount"));
+        assertEquals(25L, progress.get("lastFollowerId"));
+    }
+
+    @Test
+    @DisplayName("已收到通知的粉丝不会重复写入")
+    public void testSkipExistingRecipients() {
+        notificationDao.recipients.add(1L);
+        notificationDao.recipients.add(3L);
+
+        dispatcher.execute(PRODUCT_ID, SELLER_ID, "二手相机");
+        assertEquals(24, notificationDao.recipients.size());
+        assertEquals(22, notificationDao.created.size());
+        assertEquals(2L, dispatcher.getProgress(PRODUCT_ID).get("skippedCount"));
+
+        // 再次审核通过同一商品不会产生新通知
+        dispatcher.execute(PRODUCT_ID, SELLER_ID, "二手相机");
+        assertEquals(22, notificationDao.created.size());
+        assertEquals(24L, dispatcher.getProgress(PRODUCT_ID).get("skippedCount"));
+    }
+
+    @Test
+    @DisplayName("分段写入失败后重试并从断点继续")
+    public void testRetryFailedChunk() {
+        notificationDao.failuresRemaining = 2;
+
+        dispatcher.execute(PRODUCT_ID, SELLER_ID, "二手相机");
+
+        Map<String, Object> progress = dispatcher.getProgress(PRODUCT_ID);
+        assertEquals("COMPLETED", progress.get("status"));
+        assertEquals(2, progress.get("retryCount"));
+        assertEquals(24, notificationDao.created.size());
+        assertEquals(2L, dispatcher.getStats().get("retries"));
+    }
+
+    @Test
+    @DisplayName("重试次数用尽后任务失败并保留进度")
+    public void testFailAfterMaxAttempts() {
+        notificationDao.failAfterBatches = 1;
+        notificationDao.failuresRemaining = Integer.MAX_VALUE;
+
+        dispatcher.execute(PRODUCT_ID, SELLER_ID, "二手相机");
+
+        Map<String, Object> progress = dispatcher.getProgress(PRODUCT_ID);
+        assertEquals("FAILED", progress.get("status"));
+        assertEquals(10L, progress.get("createdCount"));
+        assertEquals(11L, progress.get("lastFollowerId"));
+        assertNotNull(progress.get("error"));
+        assertEquals(1L, dispatcher.getStats().get("failedTasks"));
+    }
+
+    @Test
+    @DisplayName("卖家不存在或参数无效时不写入通知")
+    public void testInvalidExecute() {
+        assertFalse(dispatcher.execute(null, SELLER_ID, "二手相机"));
+        assertFalse(dispatcher.execute(PRODUCT_ID, SELLER_ID, " "));
+
+        dispatcher.execute(PRODUCT_ID, 99L, "二手相机");
+        assertEquals("FAILED", dispatcher.getProgress(PRODUCT_ID).get("status"));
+        assertTrue(notificationDao.created.isEmpty());
+    }
+
+    /**
+     * 内存实现的 UserFollowDao
+     */
+    private static class StubUserFollowDao extends UserFollowDao {
+        final List<Long> followerIds = new ArrayList<>();
+        int chunkReads;
+
+        @Override
+        public List<Long> findFollowerIdsAfter(Long userId, long afterFollowerId, int limit) {
+            chunkReads++;
+            List<Long> result = new ArrayList<>();
+            for (Long id : followerIds) {
+                if (id > afterFollowerId && result.size() < limit) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 内存实现的 NotificationDao，可以模拟写入失败
+     */
+    private static class StubNotificationDao extends NotificationDao {
+        final Set<Long> recipients = new HashSet<>();
+        final List<Notification> created = new ArrayList<>();
+        int batches;
+        int failAfterBatches;
+        int failuresRemaining;
+
+        @Override
+        public Set<Long> findExistingRecipientIds(String notificationType, String sourceType, Long sourceId, List<Long> recipientIds) {
+            Set<Long> existing = new HashSet<>();
+            for (Long id : recipientIds) {
+                if (recipients.contains(id)) {
+                    existing.add(id);
+                }
+            }
+            return existing;
+        }
+
+        @Override
+        public int batchCreateNotifications(List<Notification> notifications) {
+            if (batches >= failAfterBatches && failuresRemaining > 0) {
+                failuresRemaining--;
+                return 0;
+            }
+            batches++;
+            for (Notification notification : notifications) {
+                recipients.add(notification.getRecipientId());
+                created.add(notification);
+            }
+            return notifications.size();
+        }
+    }
+
+    /**
+     * 内存实现的 UserDao
+     */
+    private static class StubUserDao extends UserDao {
+        @Override
+        public User findPublicInfoById(Long userId) {
+            if (userId != SELLER_ID) {
+                return null;
+            }
+            User user = new User();
+            user.setId(userId);
+            user.setUsername("bob");
+            return user;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.shiwu.order.cache;
+
+import com.shiwu.order.dao.RefundTransactionDao;
+import com.shiwu.order.model.Order;
+import com.shiwu.order.model.RefundTransaction;
+import com.shiwu.order.service.impl.RefundServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 最近退款缓存测试
+ */
+@DisplayName("最近退款缓存测试")
+public class RecentRefundCacheTest {
+
+    @Test
+    @DisplayName("超过上限时淘汰最久未访问的退款")
+    public void testBounded() {
+        RecentRefundCache cache = new RecentRefundCache(2);
+        cache.put(refund("R1", 1L));
+        cache.put(refund("R2", 2L));
+        assertNotNull(cache.getByRefundId("R1"));
+        cache.put(refund("R3", 3L));
+
+        assertNotNull(cache.getByRefundId("R1"));
+        assertNull(cache.getByRefundId("R2"));
+        assertNotNull(cache.getByOrderId(3L));
+        assertEquals(2, cache.getStats().get("refunds"));
+    }
+
+    @Test
+    @DisplayName("写入流水成功后进入缓存，未命中时查询流水表")
+    public void testServiceUsesLedger() {
+        RefundTransactionDao dao = mock(RefundTransactionDao.class);
+        RecentRefundCache cache = new RecentRefundCache(16);
+        RefundServiceImpl service = new RefundServiceImpl(dao, cache);
+        when(dao.insert(any())).thenReturn(true);
+
+        Order order = new Order();
+        order.setId(7L);
+        order.setBuyerId(1L);
+        order.setSellerId(2L);
+        order.setPriceAtPurchase(new BigDecimal("9.90"));
+        RefundTransaction refund = service.processRefund(order, "卖家同意退货申请");
+
+        assertSame(refund, service.getRefundTransaction(refund.getRefundId()));
+        assertSame(refund, service.getRefundByOrderId(7L));
+        verify(dao, never()).findByRefundId(any());
+
+        RefundTransaction stored = refund("R-OLD", 8L);
+        when(dao.findLatestByOrderId(8L)).thenReturn(stored);
+        assertSame(stored, service.getRefundByOrderId(8L));
+    }
+
+    @Test
+    @DisplayName("流水写入失败时退款标记为失败且不进入缓存")
+    public void testInsertFailure() {
+        RefundTransactionDao dao = mock(RefundTransactionDao.class);
+        RecentRefundCache cache = new RecentRefundCache(16);
+        RefundServiceImpl service = new RefundServiceImpl(dao, cache);
+        when(dao.insert(any())).thenReturn(false);
+
+        Order order = new Order();
+        order.setId(9L);
+        order.setPriceAtPurchase(BigDecimal.ONE);
+        RefundTransaction refund = service.processRefund(order, "测试");
+
+        assertTrue(refund.isFailed());
+        assertNull(cache.getByOrderId(9L));
+    }
+
+    private static RefundTransaction refund(String refundId, Long orderId) {
+        return new RefundTransaction(refundId, orderId, 1L, 2L, BigDecimal.TEN, "测试");
+    }
+}
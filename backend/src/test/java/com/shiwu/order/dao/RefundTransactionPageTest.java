@@ -0,0 +1,99 @@
+package com.shiwu.order.dao;
+
+import com.shiwu.common.util.DBUtil;
+import com.shiwu.order.cache.RecentRefundCache;
+import com.shiwu.order.model.RefundTransaction;
+import com.shiwu.order.service.RefundService;
+import com.shiwu.order.service.impl.RefundServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 退款流水分页查询测试
+ */
+@DisplayName("退款流水分页查询测试")
+public class RefundTransactionPageTest {
+
+    @Test
+    @DisplayName("按上一页最后一条ID向前翻页，不使用OFFSET")
+    public void testKeysetPage() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement pstmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(conn.prepareStatement(anyString())).thenReturn(pstmt);
+        when(pstmt.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getLong("id")).thenReturn(41L, 40L);
+        when(rs.getString("refund_id")).thenReturn("R41", "R40");
+        when(rs.getLong("order_id")).thenReturn(7L);
+        when(rs.getBigDecimal("refund_amount")).thenReturn(new BigDecimal("9.90"));
+        when(rs.getString("status")).thenReturn(RefundTransaction.STATUS_SUCCESS);
+        when(rs.getTimestamp("create_time")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+
+        try (MockedStatic<DBUtil> db = mockStatic(DBUtil.class)) {
+            db.when(DBUtil::getConnection).thenReturn(conn);
+            List<RefundTransaction> page = new RefundTransactionDao().findPageBefore(42L, 2);
+
+            assertEquals(2, page.size());
+            assertEquals(Long.valueOf(41L), page.get(0).getId());
+            assertEquals("R40", page.get(1).getRefundId());
+            ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+            verify(conn).prepareStatement(sql.capture());
+            assertTrue(sql.getValue().contains("WHERE id < ? ORDER BY id DESC LIMIT ?"));
+            assertFalse(sql.getValue().contains("OFFSET"));
+            verify(pstmt).setLong(1, 42L);
+            verify(pstmt).setInt(2, 2);
+        }
+    }
+
+    @Test
+    @DisplayName("第一页不带游标条件")
+    public void testFirstPage() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement pstmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(conn.prepareStatement(anyString())).thenReturn(pstmt);
+        when(pstmt.executeQuery()).thenReturn(rs);
+
+        try (MockedStatic<DBUtil> db = mockStatic(DBUtil.class)) {
+            db.when(DBUtil::getConnection).thenReturn(conn);
+            assertTrue(new RefundTransactionDao().findPageBefore(null, 20).isEmpty());
+
+            ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+            verify(conn).prepareStatement(sql.capture());
+            assertFalse(sql.getValue().contains("WHERE"));
+            verify(pstmt).setInt(1, 20);
+            verify(pstmt, never()).setLong(anyInt(), anyLong());
+        }
+    }
+
+    @Test
+    @DisplayName("服务层限制每页条数并忽略无效游标")
+    public void testServiceClampsPage() {
+        RefundTransactionDao dao = mock(RefundTransactionDao.class);
+        when(dao.findPageBefore(any(), anyInt())).thenReturn(Collections.emptyList());
+        RefundService service = new RefundServiceImpl(dao, RecentRefundCache.getInstance());
+
+        service.listRefundTransactions(null, 1000);
+        verify(dao).findPageBefore(null, 100);
+        service.listRefundTransactions(0L, 0);
+        verify(dao).findPageBefore(null, 1);
+        service.listRefundTransactions(99L, 20);
+        verify(dao).findPageBefore(99L, 20);
+    }
+}
@@ -138,6 +138,31 @@ public class OrderServiceComprehensiveTest {
 
     @Test
     @Order(7)
+    @DisplayName("5.6.1 订单列表分页参数验证测试")
+    public void testOrderPageParamsValidation() {
+        logger.info("开始测试订单列表分页参数验证");
+        
+        // 每页数量超出范围
+        OrderOperationResult result1 = orderService.getBuyerOrders(TEST_BUYER_ID, null, null, 0);
+        assertFalse(result1.isSuccess(), "每页数量为0应该获取失败");
+        assertEquals(OrderErrorCode.INVALID_QUERY_PARAMS, result1.getErrorCode());
+        
+        OrderOperationResult result2 = orderService.getSellerOrders(TEST_SELLER_ID, null, null, 101);
+        assertFalse(result2.isSuccess(), "每页数量超过100应该获取失败");
+        
+        // 状态过滤值无效
+        OrderOperationResult result3 = orderService.getBuyerOrders(TEST_BUYER_ID, 99, null, 10);
+        assertFalse(result3.isSuccess(), "无效状态应该获取失败");
+        
+        // 游标无效
+        OrderOperationResult result4 = orderService.getSellerOrders(TEST_SELLER_ID, null, -1L, 10);
+        assertFalse(result4.isSuccess(), "无效游标应该获取失败");
+        
+        logger.info("订单列表分页参数验证测试通过");
+    }
+
+    @Test
+    @Order(8)
     @DisplayName("5.7 根据ID获取订单详情测试")
     public void testGetOrderById() {
         logger.info("开始测试根据ID获取订单详情功能");
@@ -151,7 +176,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(8)
+    @Order(9)
     @DisplayName("5.8 根据ID获取订单详情参数验证测试")
     public void testGetOrderByIdValidation() {
         logger.info("开始测试根据ID获取订单详情参数验证");
@@ -170,7 +195,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(9)
+    @Order(10)
     @DisplayName("5.9 更新订单状态测试")
     public void testUpdateOrderStatus() {
         logger.info("开始测试更新订单状态功能");
@@ -184,7 +209,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(10)
+    @Order(11)
     @DisplayName("5.10 更新订单状态参数验证测试")
     public void testUpdateOrderStatusValidation() {
         logger.info("开始测试更新订单状态参数验证");
@@ -203,7 +228,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(11)
+    @Order(12)
     @DisplayName("5.11 支付成功后批量更新订单状态测试")
     public void testUpdateOrderStatusAfterPayment() {
         logger.info("开始测试支付成功后批量更新订单状态功能");
@@ -218,7 +243,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(12)
+    @Order(13)
     @DisplayName("5.12 支付成功后批量更新订单状态参数验证测试")
     public void testUpdateOrderStatusAfterPaymentValidation() {
         logger.info("开始测试支付成功后批量更新订单状态参数验证");
@@ -237,7 +262,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(13)
+    @Order(14)
     @DisplayName("5.13 支付失败后批量取消订单测试")
     public void testCancelOrdersAfterPaymentFailure() {
         logger.info("开始测试支付失败后批量取消订单功能");
@@ -252,7 +277,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(14)
+    @Order(15)
     @DisplayName("5.14 支付失败后批量取消订单参数验证测试")
     public void testCancelOrdersAfterPaymentFailureValidation() {
         logger.info("开始测试支付失败后批量取消订单参数验证");
@@ -271,7 +296,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(15)
+    @Order(16)
     @DisplayName("5.15 卖家发货测试")
     public void testShipOrder() {
         logger.info("开始测试卖家发货功能");
@@ -285,7 +310,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(16)
+    @Order(17)
     @DisplayName("5.16 卖家发货参数验证测试")
     public void testShipOrderValidation() {
         logger.info("开始测试卖家发货参数验证");
@@ -304,7 +329,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(17)
+    @Order(18)
     @DisplayName("5.17 买家确认收货测试")
     public void testConfirmReceipt() {
         logger.info("开始测试买家确认收货功能");
@@ -318,7 +343,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(18)
+    @Order(19)
     @DisplayName("5.18 买家确认收货参数验证测试")
     public void testConfirmReceiptValidation() {
         logger.info("开始测试买家确认收货参数验证");
@@ -337,7 +362,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(19)
+    @Order(20)
     @DisplayName("5.19 买家申请退货测试")
     public void testApplyForReturn() {
         logger.info("开始测试买家申请退货功能");
@@ -355,7 +380,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(20)
+    @Order(21)
     @DisplayName("5.20 买家申请退货参数验证测试")
     public void testApplyForReturnValidation() {
         logger.info("开始测试买家申请退货参数验证");
@@ -382,7 +407,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(21)
+    @Order(22)
     @DisplayName("5.21 卖家处理退货申请测试")
     public void testProcessReturnRequest() {
         logger.info("开始测试卖家处理退货申请功能");
@@ -401,7 +426,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(22)
+    @Order(23)
     @DisplayName("5.22 卖家处理退货申请参数验证测试")
     public void testProcessReturnRequestValidation() {
         logger.info("开始测试卖家处理退货申请参数验证");
@@ -429,7 +454,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(23)
+    @Order(24)
     @DisplayName("5.23 订单状态流转测试")
     public void testOrderStatusFlow() {
         logger.info("开始测试订单状态流转");
@@ -448,7 +473,7 @@ public class OrderServiceComprehensiveTest {
     }
 
     @Test
-    @Order(24)
+    @Order(25)
     @DisplayName("5.24 订单完整业务流程测试")
     public void testCompleteOrderWorkflow() {
         logger.info("开始测试订单完整业务流程");
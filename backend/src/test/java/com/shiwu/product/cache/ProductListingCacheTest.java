@@ -0,0 +1,117 @@
+package com.shiwu.product.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 商品列表响应微缓存测试
+ */
+@DisplayName("商品列表响应微缓存测试")
+public class ProductListingCacheTest {
+
+    @Test
+    @DisplayName("有效期内重复查询只加载一次")
+    public void testHitWithinTtl() {
+        ProductListingCache cache = new ProductListingCache(60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("page-1", cache.get("k", () -> "page-" + loads.incrementAndGet()));
+        assertEquals("page-1", cache.get("k", () -> "page-" + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+        assertEquals(1L, cache.getStats().get("hits"));
+    }
+
+    @Test
+    @DisplayName("商品变化后缓存失效")
+    public void testInvalidate() {
+        ProductListingCache cache = new ProductListingCache(60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("k", () -> "v" + loads.incrementAndGet());
+        cache.invalidate();
+        assertEquals("v2", cache.get("k", () -> "v" + loads.incrementAndGet()));
+    }
+
+    @Test
+    @DisplayName("加载期间发生失效时结果不进入缓存")
+    public void testInvalidateDuringLoad() {
+        ProductListingCache cache = new ProductListingCache(60_000);
+
+        cache.get("k", () -> {
+            cache.invalidate();
+            return "stale";
+        });
+        assertEquals("fresh", cache.get("k", () -> "fresh"));
+    }
+
+    @Test
+    @DisplayName("并发未命中时只有一个线程加载")
+    public void testSingleFlight() throws Exception {
+        ProductListingCache cache = new ProductListingCache(60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = pool.submit(() -> cache.get("k", () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                try {
+                    release.await(2, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "shared";
+            }));
+            assertTrue(loaderStarted.await(2, TimeUnit.SECONDS));
+
+            Future<String> follower1 = pool.submit(() -> cache.get("k", () -> "own-" + loads.incrementAndGet()));
+            Future<String> follower2 = pool.submit(() -> cache.get("k", () -> "own-" + loads.incrementAndGet()));
+            while ((Long) cache.getStats().get("coalesced") < 2) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals("shared", leader.get(2, TimeUnit.SECONDS));
+            assertEquals("shared", follower1.get(2, TimeUnit.SECONDS));
+            assertEquals("shared", follower2.get(2, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("返回null和有效期为0时不缓存")
+    public void testNotCached() {
+        ProductListingCache cache = new ProductListingCache(60_000);
+        assertNull(cache.get("k", () -> null));
+        assertEquals("v", cache.get("k", () -> "v"));
+
+        ProductListingCache disabled = new ProductListingCache(0);
+        AtomicInteger loads = new AtomicInteger();
+        disabled.get("k", () -> String.valueOf(loads.incrementAndGet()));
+        disabled.get("k", () -> String.valueOf(loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("缓存键按规范化后的参数生成")
+    public void testListingKeyNormalized() {
+        String a = ProductListingCache.listingKey(" 手机 ", 1, new BigDecimal("10.00"), null, "Price", "DESC", 1, 10);
+        String b = ProductListingCache.listingKey("手机", 1, new BigDecimal("10"), null, "price", "desc", 1, 10);
+        String c = ProductListingCache.listingKey("手机", 1, new BigDecimal("10"), null, "price", "desc", 2, 10);
+        assertEquals(a, b);
+        assertNotEquals(b, c);
+    }
+}
@@ -0,0 +1,83 @@
+package com.shiwu.product.cache;
+
+import com.shiwu.product.dao.ProductDao;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * 商品浏览计数测试
+ */
+@DisplayName("商品浏览计数测试")
+public class ProductViewCounterTest {
+
+    @Test
+    @DisplayName("写回时按商品合并增量，写回后不重复累加")
+    public void testFlushDeltas() {
+        ProductDao productDao = mock(ProductDao.class);
+        when(productDao.applyViewCountDeltas(anyMap())).thenReturn(true);
+        ProductViewCounter counter = new ProductViewCounter(productDao, 100);
+
+        counter.recordView(1L);
+        counter.recordView(1L);
+        counter.recordView(2L);
+        assertEquals(2, counter.getPendingViews(1L));
+
+        Map<Long, Long> expected = new HashMap<>();
+        expected.put(1L, 2L);
+        expected.put(2L, 1L);
+        assertEquals(2, counter.flush());
+        verify(productDao).applyViewCountDeltas(expected);
+        assertEquals(0, counter.getPendingViews(1L));
+
+        counter.recordView(1L);
+        assertEquals(1, counter.flush());
+        verify(productDao).applyViewCountDeltas(Collections.singletonMap(1L, 1L));
+        assertEquals(0, counter.flush());
+    }
+
+    @Test
+    @DisplayName("写回失败时增量保留到下一轮")
+    public void testFlushFailureRetried() {
+        ProductDao productDao = mock(ProductDao.class);
+        when(productDao.applyViewCountDeltas(anyMap())).thenReturn(false, true);
+        ProductViewCounter counter = new ProductViewCounter(productDao, 100);
+
+        counter.recordView(7L);
+        assertEquals(-1, counter.flush());
+        assertEquals(1, counter.getPendingViews(7L));
+
+        counter.recordView(7L);
+        assertEquals(1, counter.flush());
+        verify(productDao).applyViewCountDeltas(Collections.singletonMap(7L, 2L));
+        assertEquals(1L, counter.getStats().get("flushFailures"));
+    }
+
+    @Test
+    @DisplayName("达到上限时新商品不计数，空闲计数淘汰后可重新计数")
+    public void testBoundedAndEvicted() {
+        ProductDao productDao = mock(ProductDao.class);
+        when(productDao.applyViewCountDeltas(anyMap())).thenReturn(true);
+        ProductViewCounter counter = new ProductViewCounter(productDao, 1);
+
+        counter.recordView(1L);
+        counter.recordView(2L);
+        assertEquals(0, counter.getPendingViews(2L));
+        assertEquals(1L, counter.getStats().get("droppedViews"));
+
+        // 第一轮写回，第二轮确认空闲后淘汰
+        counter.flush();
+        counter.flush();
+        assertEquals(0, counter.getStats().get("size"));
+
+        counter.recordView(2L);
+        assertEquals(1, counter.getPendingViews(2L));
+    }
+}
@@ -0,0 +1,45 @@
+package com.shiwu.product.dao;
+
+import com.shiwu.common.util.DBUtil;
+import com.shiwu.product.model.Product;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 单个商品审核状态更新测试
+ */
+@DisplayName("单个商品审核状态更新测试")
+public class AdminProductStatusUpdateTest {
+
+    @Test
+    @DisplayName("跳过被其他管理员领取的商品，成功时清除领取标记")
+    public void testRespectsReviewClaim() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement pstmt = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(pstmt);
+        when(pstmt.executeUpdate()).thenReturn(0);
+
+        try (MockedStatic<DBUtil> db = mockStatic(DBUtil.class)) {
+            db.when(DBUtil::getConnection).thenReturn(conn);
+            assertFalse(new AdminProductDao().updateProductStatus(5L, Product.STATUS_ONSALE, 9L));
+
+            ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+            verify(conn).prepareStatement(sql.capture());
+            assertTrue(sql.getValue().contains("review_claimed_by = NULL, review_lease_until = NULL"));
+            assertTrue(sql.getValue().contains(
+                    "(review_claimed_by IS NULL OR review_claimed_by = ? OR review_lease_until <= NOW())"));
+            verify(pstmt).setLong(3, 5L);
+            verify(pstmt).setObject(4, 9L);
+            verify(conn).commit();
+        }
+    }
+}
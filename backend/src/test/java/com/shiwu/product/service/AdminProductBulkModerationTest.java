@@ -0,0 +1,122 @@
+package com.shiwu.product.service;
+
+import com.shiwu.admin.bulk.BulkItemResult;
+import com.shiwu.admin.enums.AuditActionEnum;
+import com.shiwu.admin.model.AuditLog;
+import com.shiwu.admin.service.AuditLogService;
+import com.shiwu.common.outbox.OutboxJob;
+import com.shiwu.product.dao.AdminProductDao;
+import com.shiwu.product.dao.ProductDao;
+import com.shiwu.product.model.Product;
+import com.shiwu.product.service.impl.AdminProductServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批量商品管理操作测试
+ */
+@DisplayName("批量商品管理操作测试")
+public class AdminProductBulkModerationTest {
+
+    private static final Long ADMIN_ID = 1L;
+
+    private static Map<String, Object> row(long id, int status, boolean claimedByOther, boolean updated) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("sellerId", 100L);
+        row.put("title", "商品" + id);
+        row.put("status", status);
+        row.put("claimedByOther", claimedByOther);
+        row.put("updated", updated);
+        return row;
+    }
+
+    @Test
+    @DisplayName("被其他管理员领取审核的商品返回领取失败原因")
+    @SuppressWarnings("unchecked")
+    public void testClaimedByOtherRejected() throws Exception {
+        AdminProductDao dao = mock(AdminProductDao.class);
+        AuditLogService auditLogService = mock(AuditLogService.class);
+        AdminProductService service = new AdminProductServiceImpl(dao, mock(ProductDao.class), auditLogService);
+        when(dao.bulkUpdateProductStatus(anyList(), anySet(), eq(Product.STATUS_DRAFT), eq(ADMIN_ID), isNull()))
+                .thenReturn(Arrays.asList(row(1L, Product.STATUS_PENDING_REVIEW, false, true),
+                        row(2L, Product.STATUS_PENDING_REVIEW, true, false),
+                        row(3L, Product.STATUS_ONSALE, false, false)));
+
+        Map<String, Object> result = service.batchUpdateProductStatus(AuditActionEnum.PRODUCT_REJECT,
+                Arrays.asList(1L, 2L, 3L, 4L), ADMIN_ID, "图片违规", null, null, null);
+
+        assertEquals(4, result.get("totalCount"));
+        assertEquals(1, result.get("successCount"));
+        assertEquals(3, result.get("failCount"));
+        List<BulkItemResult> failures = (List<BulkItemResult>) result.get("failures");
+        assertEquals(Long.valueOf(2L), failures.get(0).getId());
+        assertEquals("商品已被其他管理员领取审核", failures.get(0).getMessage());
+        assertEquals("商品状态不是待审核", failures.get(1).getMessage());
+        assertEquals("商品不存在", failures.get(2).getMessage());
+
+        ArgumentCaptor<Set<Integer>> fromStatuses = ArgumentCaptor.forClass(Set.class);
+        verify(dao).bulkUpdateProductStatus(anyList(), fromStatuses.capture(), eq(Product.STATUS_DRAFT),
+                eq(ADMIN_ID), isNull());
+        assertEquals(1, fromStatuses.getValue().size());
+        assertTrue(fromStatuses.getValue().contains(Product.STATUS_PENDING_REVIEW));
+        ArgumentCaptor<List<AuditLog>> audits = ArgumentCaptor.forClass(List.class);
+        verify(auditLogService).logActions(audits.capture());
+        assertEquals(4, audits.getValue().size());
+        verify(auditLogService).logAction(eq(ADMIN_ID), eq(AuditActionEnum.PRODUCT_BATCH_REJECT), any(), isNull(),
+                anyString(), isNull(), isNull(), eq(false));
+    }
+
+    @Test
+    @DisplayName("批量审核通过时为每个商品生成粉丝通知任务")
+    @SuppressWarnings("unchecked")
+    public void testApproveEnqueuesNotification() throws Exception {
+        AdminProductDao dao = mock(AdminProductDao.class);
+        AdminProductService service = new AdminProductServiceImpl(dao, mock(ProductDao.class), mock(AuditLogService.class));
+        when(dao.bulkUpdateProductStatus(anyList(), anySet(), eq(Product.STATUS_ONSALE), eq(ADMIN_ID), notNull()))
+                .thenReturn(Arrays.asList(row(7L, Product.STATUS_PENDING_REVIEW, false, true)));
+
+        Map<String, Object> result = service.batchUpdateProductStatus(AuditActionEnum.PRODUCT_APPROVE,
+                Arrays.asList(7L), ADMIN_ID, null, null, null, null);
+        assertEquals(1, result.get("successCount"));
+
+        ArgumentCaptor<Function<Product, OutboxJob>> sideEffect = ArgumentCaptor.forClass(Function.class);
+        verify(dao).bulkUpdateProductStatus(anyList(), anySet(), eq(Product.STATUS_ONSALE), eq(ADMIN_ID),
+                sideEffect.capture());
+        Product product = new Product();
+        product.setId(7L);
+        product.setSellerId(100L);
+        product.setTitle("商品7");
+        product.setUpdateTime(LocalDateTime.of(2026, 10, 1, 9, 30, 15));
+        OutboxJob job = sideEffect.getValue().apply(product);
+        assertEquals(OutboxJob.TYPE_PRODUCT_APPROVED_NOTIFICATION, job.getJobType());
+        assertEquals(OutboxJob.TYPE_PRODUCT_APPROVED_NOTIFICATION + ":7:20261001093015", job.getIdempotencyKey());
+        assertEquals(Long.valueOf(7L), job.getPayloadLong("productId"));
+        assertEquals(Long.valueOf(100L), job.getPayloadLong("sellerId"));
+
+        // 同一次审核重复生成的任务幂等键相同，重新提交后再次审核通过时幂等键不同
+        assertEquals(job.getIdempotencyKey(), sideEffect.getValue().apply(product).getIdempotencyKey());
+        product.setUpdateTime(LocalDateTime.of(2026, 10, 2, 14, 0, 0));
+        assertNotEquals(job.getIdempotencyKey(), sideEffect.getValue().apply(product).getIdempotencyKey());
+
+        // 下架不生成通知任务
+        when(dao.bulkUpdateProductStatus(anyList(), anySet(), eq(Product.STATUS_DELISTED), eq(ADMIN_ID), isNull()))
+                .thenReturn(Arrays.asList(row(8L, Product.STATUS_ONSALE, false, true)));
+        Map<String, Object> takedown = service.batchUpdateProductStatus(AuditActionEnum.PRODUCT_TAKEDOWN,
+                Arrays.asList(8L), ADMIN_ID, null, null, null, null);
+        assertEquals(1, takedown.get("successCount"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.shiwu.product.service;
+
+import com.shiwu.admin.model.AdminReviewDecisionDTO;
+import com.shiwu.admin.service.AuditLogService;
+import com.shiwu.common.outbox.OutboxJob;
+import com.shiwu.product.dao.AdminProductDao;
+import com.shiwu.product.dao.ProductDao;
+import com.shiwu.product.model.Product;
+import com.shiwu.product.service.impl.AdminProductServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 商品审核领取队列测试
+ */
+@DisplayName("商品审核领取队列测试")
+public class AdminProductReviewQueueTest {
+
+    private static final Long ADMIN_ID = 1L;
+
+    private static AdminReviewDecisionDTO decision(Long productId, String action, String reason) {
+        AdminReviewDecisionDTO dto = new AdminReviewDecisionDTO();
+        dto.setProductId(productId);
+        dto.setAction(action);
+        dto.setReason(reason);
+        return dto;
+    }
+
+    private static Product product(Long id, Integer status) {
+        Product product = new Product();
+        product.setId(id);
+        product.setSellerId(100L);
+        product.setTitle("商品" + id);
+        product.setStatus(status);
+        return product;
+    }
+
+    @Test
+    @DisplayName("无效结果被跳过，有效结果在一次调用中提交")
+    @SuppressWarnings("unchecked")
+    public void testSubmitDecisions() {
+        AdminProductDao dao = mock(AdminProductDao.class);
+        AuditLogService auditLogService = mock(AuditLogService.class);
+        AdminProductService service = new AdminProductServiceImpl(dao, mock(ProductDao.class), auditLogService);
+        // 商品3在提交前租约已过期，DAO不会返回它
+        when(dao.applyReviewDecisions(eq(ADMIN_ID), anyMap(), any()))
+                .thenReturn(Arrays.asList(product(1L, Product.STATUS_ONSALE), product(2L, Product.STATUS_DRAFT)));
+
+        Map<String, Object> result = service.submitReviewDecisions(ADMIN_ID, Arrays.asList(
+                decision(1L, "APPROVE", null),
+                decision(2L, "REJECT", "图片不清晰"),
+                decision(3L, "APPROVE", null),
+                decision(4L, "REJECT", " "),
+                decision(5L, "UNKNOWN", null)), "127.0.0.1", "Test-Agent/1.0");
+
+        assertNotNull(result);
+        assertEquals(Collections.singletonList(1L), result.get("approved"));
+        assertEquals(Collections.singletonList(2L), result.get("rejected"));
+        assertEquals(Arrays.asList(4L, 5L, 3L), result.get("skipped"));
+
+        ArgumentCaptor<Map<Long, Integer>> targets = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Function<Product, OutboxJob>> sideEffect = ArgumentCaptor.forClass(Function.class);
+        verify(dao, times(1)).applyReviewDecisions(eq(ADMIN_ID), targets.capture(), sideEffect.capture());
+        assertEquals(Arrays.asList(1L, 2L, 3L), new ArrayList<>(targets.getValue().keySet()));
+        assertEquals(Product.STATUS_DRAFT, targets.getValue().get(2L));
+
+        // 只有审核通过的商品生成粉丝通知任务
+        assertNotNull(sideEffect.getValue().apply(product(1L, Product.STATUS_ONSALE)));
+        assertNull(sideEffect.getValue().apply(product(2L, Product.STATUS_DRAFT)));
+    }
+
+    @Test
+    @DisplayName("领取数量被限制在上限内，数据库异常时返回null")
+    public void testClaimBatch() {
+        AdminProductDao dao = mock(AdminProductDao.class);
+        AdminProductService service = new AdminProductServiceImpl(dao, mock(ProductDao.class), mock(AuditLogService.class));
+        List<Map<String, Object>> claimed = Collections.emptyList();
+        when(dao.claimPendingReview(eq(ADMIN_ID), anyInt(), anyInt())).thenReturn(claimed);
+
+        Map<String, Object> result = service.claimReviewBatch(ADMIN_ID, 1000);
+        assertNotNull(result);
+        assertSame(claimed, result.get("products"));
+        verify(dao).claimPendingReview(eq(ADMIN_ID), eq(50), anyInt());
+
+        when(dao.claimPendingReview(eq(ADMIN_ID), anyInt(), anyInt())).thenThrow(new RuntimeException("db"));
+        assertNull(service.claimReviewBatch(ADMIN_ID, 10));
+    }
+}
@@ -0,0 +1,184 @@
+package com.shiwu.user.cache;
+
+import com.shiwu.user.dao.UserFollowDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 关注计数缓存测试
+ * 使用内存中的 UserFollowDao 替身，不依赖数据库
+ */
+@DisplayName("关注计数缓存测试")
+public class FollowCounterCacheTest {
+
+    private StubUserFollowDao dao;
+    private FollowCounterCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        dao = new StubUserFollowDao();
+        dao.stored.put(1L, new long[]{0, 0});
+        dao.stored.put(2L, new long[]{10, 3});
+        cache = new FollowCounterCache(dao, 1000);
+    }
+
+    @Test
+    @DisplayName("首次读取从system_user加载基准值")
+    public void testLoadStoredCounts() {
+        assertEquals(10, cache.getFollowerCount(2L));
+        assertEquals(3, cache.getFollowingCount(2L));
+        cache.getFollowerCount(2L);
+        assertEquals(1, dao.loads);
+    }
+
+    @Test
+    @DisplayName("关注和取关立即反映在计数中")
+    public void testRecordFollowAndUnfollow() {
+        cache.recordFollow(1L, 2L);
+        assertEquals(11, cache.getFollowerCount(2L));
+        assertEquals(1, cache.getFollowingCount(1L));
+
+        cache.recordUnfollow(1L, 2L);
+        assertEquals(10, cache.getFollowerCount(2L));
+        assertEquals(0, cache.getFollowingCount(1L));
+    }
+
+    @Test
+    @DisplayName("写回后数据库与缓存一致且不重复计数")
+    public void testFlushWritesDeltasOnce() {
+        cache.getFollowerCount(2L);
+        cache.recordFollow(1L, 2L);
+        cache.recordFollow(1L, 2L);
+
+        assertEquals(2, cache.flush());
+        assertEquals(12, dao.stored.get(2L)[0]);
+        assertEquals(2, dao.stored.get(1L)[1]);
+        assertEquals(12, cache.getFollowerCount(2L));
+
+        // 没有新增量时不再写库
+        assertEquals(0, cache.flush());
+        assertEquals(1, dao.applyCalls);
+    }
+
+    @Test
+    @DisplayName("写回失败时保留增量等待重试")
+    public void testFlushFailureKeepsDeltas() {
+        cache.recordFollow(1L, 2L);
+        dao.failApply = true;
+        assertEquals(-1, cache.flush());
+        assertEquals(10, dao.stored.get(2L)[0]);
+
+        dao.failApply = false;
+        assertEquals(2, cache.flush());
+        assertEquals(11, dao.stored.get(2L)[0]);
+        assertEquals(11, cache.getFollowerCount(2L));
+    }
+
+    @Test
+    @DisplayName("对账按实际关注记录修正计数")
+    public void testReconcileCorrectsDrift() {
+        assertEquals(10, cache.getFollowerCount(2L));
+        dao.actual.put(1L, new long[]{0, 1});
+        dao.actual.put(2L, new long[]{1, 0});
+
+        assertEquals(2, cache.reconcile());
+        assertEquals(1, dao.stored.get(2L)[0]);
+        assertEquals(0, dao.stored.get(2L)[1]);
+        assertEquals(1, cache.getFollowerCount(2L));
+        assertEquals(1, cache.getFollowingCount(1L));
+
+        assertEquals(0, cache.reconcile());
+    }
+
+    @Test
+    @DisplayName("并发关注计数准确")
+    public void testConcurrentFollows() throws Exception {
+        int threads = 8;
+        int perThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    cache.recordFollow(1L, 2L);
+                    if (i % 100 == 0) {
+                        cache.flush();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        cache.flush();
+        assertEquals(10 + threads * perThread, dao.stored.get(2L)[0]);
+        assertEquals(10 + threads * perThread, cache.getFollowerCount(2L));
+    }
+
+    /**
+     * 内存实现的 UserFollowDao
+     */
+    private static class StubUserFollowDao extends UserFollowDao {
+        final Map<Long, long[]> stored = new TreeMap<>();
+        final Map<Long, long[]> actual = new HashMap<>();
+        boolean failApply;
+        int loads;
+        int applyCalls;
+
+        @Override
+        public synchronized long[] getStoredFollowCounts(Long userId) {
+            loads++;
+            long[] counts = stored.get(userId);
+            return counts == null ? null : counts.clone();
+        }
+
+        @Override
+        public synchronized boolean applyFollowCountDeltas(Map<Long, long[]> deltas) {
+            applyCalls++;
+            if (failApply) {
+                return false;
+            }
+            for (Map.Entry<Long, long[]> entry : deltas.entrySet()) {
+                long[] counts = stored.computeIfAbsent(entry.getKey(), k -> new long[2]);
+                counts[0] += entry.getValue()[0];
+                counts[1] += entry.getValue()[1];
+            }
+            return true;
+        }
+
+        @Override
+        public synchronized boolean updateFollowCounts(Map<Long, long[]> counts) {
+            for (Map.Entry<Long, long[]> entry : counts.entrySet()) {
+                stored.put(entry.getKey(), entry.getValue().clone());
+            }
+            return true;
+        }
+
+        @Override
+        public synchronized List<long[]> scanFollowCounts(long afterId, int limit) {
+            List<long[]> rows = new ArrayList<>();
+            for (Map.Entry<Long, long[]> entry : stored.entrySet()) {
+                if (entry.getKey() <= afterId || rows.size() >= limit) {
+                    continue;
+                }
+                long[] real = actual.getOrDefault(entry.getKey(), entry.getValue());
+                rows.add(new long[]{entry.getKey(), entry.getValue()[0], entry.getValue()[1], real[0], real[1]});
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.shiwu.user.cache;
+
+import com.shiwu.user.dao.LeaderboardDao;
+import com.shiwu.user.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用户排行榜缓存测试
+ * 使用内存中的 LeaderboardDao 替身，不依赖数据库
+ */
+@DisplayName("用户排行榜缓存测试")
+public class LeaderboardCacheTest {
+
+    private StubLeaderboardDao dao;
+    private LeaderboardCache cache;
+    private int flushResult;
+
+    @BeforeEach
+    public void setUp() {
+        dao = new StubLeaderboardDao();
+        for (long id = 1; id <= 5; id++) {
+            dao.addUser(id, 0);
+        }
+        dao.followers.put(1L, 3.0);
+        dao.followers.put(2L, 5.0);
+        dao.followers.put(3L, 1.0);
+        dao.ratings.put(2L, 4.5);
+        dao.ratings.put(4L, 4.8);
+        dao.sales.put(1L, 2.0);
+        cache = new LeaderboardCache(dao, () -> {
+            dao.flushes++;
+            return flushResult;
+        });
+        cache.reload();
+    }
+
+    @Test
+    @DisplayName("加载后按分数降序排列")
+    public void testReloadOrdering() {
+        List<Map<String, Object>> top = cache.getTop(LeaderboardCache.Type.FOLLOWERS, 10);
+        assertEquals(3, top.size());
+        assertEquals(2L, top.get(0).get("userId"));
+        assertEquals(1L, top.get(1).get("userId"));
+        assertEquals(3L, top.get(2).get("userId"));
+        assertEquals(1, top.get(0).get("rank"));
+        assertEquals(5L, top.get(0).get("followerCount"));
+    }
+
+    @Test
+    @DisplayName("关注事件增量更新排行")
+    public void testFollowerCountChanged() {
+        cache.onFollowerCountChanged(3L, 6);
+        cache.onFollowerCountChanged(2L, 0);
+
+        List<Map<String, Object>> top = cache.getTop(LeaderboardCache.Type.FOLLOWERS, 10);
+        assertEquals(2, top.size());
+        assertEquals(3L, top.get(0).get("userId"));
+        assertEquals(1L, top.get(1).get("userId"));
+    }
+
+    @Test
+    @DisplayName("评分和销量事件增量更新排行")
+    public void testRatingAndSalesChanged() {
+        cache.onRatingChanged(2L, new BigDecimal("4.90"));
+        List<Map<String, Object>> rating = cache.getTop(LeaderboardCache.Type.RATING, 1);
+        assertEquals(1, rating.size());
+        assertEquals(2L, rating.get(0).get("userId"));
+        assertEquals(new BigDecimal("4.90"), rating.get(0).get("averageRating"));
+
+        cache.onCompletedSalesChanged(5L, 1);
+        cache.onCompletedSalesChanged(5L, 1);
+        cache.onCompletedSalesChanged(5L, 1);
+        cache.onCompletedSalesChanged(1L, -1);
+        List<Map<String, Object>> sales = cache.getTop(LeaderboardCache.Type.SALES, 10);
+        assertEquals(5L, sales.get(0).get("userId"));
+        assertEquals(3L, sales.get(0).get("completedSales"));
+        assertEquals(1L, sales.get(1).get("completedSales"));
+    }
+
+    @Test
+    @DisplayName("封禁用户不出现在排行榜中")
+    public void testBannedUsersFiltered() {
+        dao.addUser(2L, 1);
+        List<Map<String, Object>> top = cache.getTop(LeaderboardCache.Type.FOLLOWERS, 2);
+        assertEquals(2, top.size());
+        assertEquals(1L, top.get(0).get("userId"));
+        assertEquals(1, top.get(0).get("rank"));
+        assertEquals(3L, top.get(1).get("userId"));
+    }
+
+    @Test
+    @DisplayName("分数相同时按用户ID升序")
+    public void testTieBreakByUserId() {
+        RankingBoard board = new RankingBoard();
+        board.set(9L, 2);
+        board.set(3L, 2);
+        board.add(7L, 2);
+        List<RankingBoard.Entry> top = board.top(3);
+        assertEquals(3L, top.get(0).userId);
+        assertEquals(7L, top.get(1).userId);
+        assertEquals(9L, top.get(2).userId);
+    }
+
+    @Test
+    @DisplayName("只保留容量内的前几名，榜外成员的增量在重新加载前被忽略")
+    public void testBoundedBoard() {
+        RankingBoard board = new RankingBoard(3);
+        board.set(1L, 5);
+        board.set(2L, 4);
+        board.set(3L, 3);
+        board.add(4L, 1);
+        assertEquals(3, board.size());
+        assertEquals(0, board.score(4L), 0.0);
+
+        board.set(5L, 6);
+        assertEquals(3, board.size());
+        assertEquals(0, board.score(3L), 0.0);
+        board.add(3L, 10);
+        assertEquals(0, board.score(3L), 0.0);
+        board.add(2L, 10);
+        assertEquals(2L, board.top(1).get(0).userId);
+
+        Map<Long, Double> loaded = new HashMap<>();
+        loaded.put(7L, 2.0);
+        board.replaceAll(loaded);
+        board.add(8L, 1);
+        assertEquals(1, board.score(8L), 0.0);
+    }
+
+    @Test
+    @DisplayName("重新加载粉丝榜前先写回关注计数，写回失败时保留榜上的计数")
+    public void testReloadFlushesFollowCounters() {
+        assertEquals(1, dao.flushes);
+        assertEquals(RankingBoard.DEFAULT_CAPACITY, dao.lastLimit);
+
+        cache.onFollowerCountChanged(3L, 9);
+        flushResult = -1;
+        cache.reload();
+        assertEquals(2, dao.flushes);
+        assertEquals(3L, cache.getTop(LeaderboardCache.Type.FOLLOWERS, 1).get(0).get("userId"));
+
+        flushResult = 0;
+        cache.reload();
+        assertEquals(2L, cache.getTop(LeaderboardCache.Type.FOLLOWERS, 1).get(0).get("userId"));
+    }
+
+    /**
+     * 内存实现的 LeaderboardDao
+     */
+    private static class StubLeaderboardDao extends LeaderboardDao {
+        final Map<Long, Double> followers = new HashMap<>();
+        final Map<Long, Double> ratings = new HashMap<>();
+        final Map<Long, Double> sales = new HashMap<>();
+        final Map<Long, User> users = new HashMap<>();
+        int flushes;
+        int lastLimit;
+
+        void addUser(long id, int status) {
+            User user = new User();
+            user.setId(id);
+            user.setUsername("user" + id);
+            user.setNickname("User " + id);
+            user.setStatus(status);
+            users.put(id, user);
+        }
+
+        @Override
+        public Map<Long, Double> loadFollowerCounts(int limit) {
+            lastLimit = limit;
+            return new HashMap<>(followers);
+        }
+
+        @Override
+        public Map<Long, Double> loadAverageRatings(int limit) {
+            return new HashMap<>(ratings);
+        }
+
+        @Override
+        public Map<Long, Double> loadCompletedSales(int completedStatus, int limit) {
+            return new HashMap<>(sales);
+        }
+
+        @Override
+        public Map<Long, User> findPublicInfoByIds(List<Long> userIds) {
+            Map<Long, User> result = new HashMap<>();
+            for (Long id : userIds) {
+                if (users.containsKey(id)) {
+                    result.put(id, users.get(id));
+                }
+            }
+            return result;
+        }
+    }
+}
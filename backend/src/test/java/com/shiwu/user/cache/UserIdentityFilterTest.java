@@ -0,0 +1,80 @@
+package com.shiwu.user.cache;
+
+import com.shiwu.common.util.BloomFilter;
+import com.shiwu.user.dao.UserDao;
+import com.shiwu.user.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 用户存在性过滤器测试
+ */
+@DisplayName("用户存在性过滤器测试")
+public class UserIdentityFilterTest {
+
+    @Test
+    @DisplayName("布隆过滤器没有漏报，误判率接近设定值")
+    public void testBloomFilter() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i));
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "误判数量: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("加载前所有值视为可能存在，加载后按小写比较")
+    public void testLoad() {
+        UserDao userDao = mock(UserDao.class);
+        when(userDao.getTotalUserCount()).thenReturn(1L);
+        when(userDao.findAllIdentities()).thenReturn(Collections.singletonList(user("Alice", "a@test.com", null)));
+        UserIdentityFilter filter = new UserIdentityFilter(userDao);
+
+        assertTrue(filter.mightExist(UserIdentityFilter.Field.USERNAME, "nobody"));
+        assertFalse(filter.mightExist(UserIdentityFilter.Field.USERNAME, " "));
+
+        filter.rebuild();
+        assertTrue(filter.mightExist(UserIdentityFilter.Field.USERNAME, "alice "));
+        assertTrue(filter.mightExist(UserIdentityFilter.Field.EMAIL, "A@Test.com"));
+        assertFalse(filter.mightExist(UserIdentityFilter.Field.USERNAME, "a@test.com"));
+
+        filter.add("bob", null, "13800000000");
+        assertTrue(filter.mightExist(UserIdentityFilter.Field.USERNAME, "bob"));
+        assertTrue(filter.mightExist(UserIdentityFilter.Field.PHONE, "13800000000"));
+    }
+
+    @Test
+    @DisplayName("重建期间加入的值在替换后仍然存在")
+    public void testAddDuringRebuild() {
+        UserDao userDao = mock(UserDao.class);
+        when(userDao.getTotalUserCount()).thenReturn(0L);
+        UserIdentityFilter filter = new UserIdentityFilter(userDao);
+        when(userDao.findAllIdentities()).thenAnswer(invocation -> {
+            filter.add("carol", null, null);
+            return Collections.emptyList();
+        });
+
+        filter.rebuild();
+        assertTrue(filter.mightExist(UserIdentityFilter.Field.USERNAME, "carol"));
+    }
+
+    private static User user(String username, String email, String phone) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPhone(phone);
+        return user;
+    }
+}
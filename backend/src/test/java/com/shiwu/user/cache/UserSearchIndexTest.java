@@ -0,0 +1,102 @@
+package com.shiwu.user.cache;
+
+import com.shiwu.admin.model.AdminUserQueryDTO;
+import com.shiwu.user.dao.UserSearchDao;
+import com.shiwu.user.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 管理员用户搜索索引测试
+ */
+@DisplayName("管理员用户搜索索引测试")
+public class UserSearchIndexTest {
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        UserSearchDao dao = mock(UserSearchDao.class);
+        when(dao.loadAll()).thenReturn(Arrays.asList(
+                user(1L, "alice", "小爱", "alice@test.com", "13800000001", 0, "4.50", 1),
+                user(2L, "bob", "阿宝", "bob@test.com", "13800000002", 1, "3.00", 2),
+                user(3L, "Alicia", "爱丽丝", "ali@test.com", "13900000003", 0, "4.90", 3),
+                user(4L, "carol", "小卡", "carol@test.com", null, 0, null, 4)));
+        index = new UserSearchIndex(dao);
+    }
+
+    @Test
+    @DisplayName("加载前返回null，由调用方回退到数据库查询")
+    public void testNotLoaded() {
+        assertNull(index.search(new AdminUserQueryDTO()));
+    }
+
+    @Test
+    @DisplayName("按子串匹配用户名、昵称、邮箱和手机号，忽略大小写")
+    public void testKeyword() {
+        index.reload();
+        assertEquals(Arrays.asList(3L, 1L), index.search(query("ALI", null)).getUserIds());
+        assertEquals(Arrays.asList(3L, 1L), index.search(query("爱", null)).getUserIds());
+        assertEquals(Arrays.asList(2L), index.search(query("00000002", null)).getUserIds());
+        assertEquals(0, index.search(query("zz", null)).getTotalCount());
+    }
+
+    @Test
+    @DisplayName("状态筛选、评分排序和分页总数")
+    public void testFilterSortPage() {
+        index.reload();
+        AdminUserQueryDTO q = query(null, 0);
+        q.setSortBy("average_rating");
+        q.setPageSize(2);
+        UserSearchIndex.Page page = index.search(q);
+        assertEquals(3, page.getTotalCount());
+        assertEquals(Arrays.asList(3L, 1L), page.getUserIds());
+
+        q.setPageNum(2);
+        assertEquals(Arrays.asList(4L), index.search(q).getUserIds());
+
+        q.setSortBy("nickname");
+        assertNull(index.search(q));
+    }
+
+    @Test
+    @DisplayName("用户变化后替换索引记录")
+    public void testApply() {
+        index.reload();
+        index.apply(2L, user(2L, "bobby", "阿宝", "bob@test.com", null, 0, "3.00", 2));
+        assertEquals(Arrays.asList(2L), index.search(query("bobby", 0)).getUserIds());
+        assertEquals(0, index.search(query(null, 1)).getTotalCount());
+
+        index.apply(1L, null);
+        assertEquals(Arrays.asList(3L), index.search(query("ali", null)).getUserIds());
+    }
+
+    private static AdminUserQueryDTO query(String keyword, Integer status) {
+        AdminUserQueryDTO q = new AdminUserQueryDTO();
+        q.setKeyword(keyword);
+        q.setStatus(status);
+        return q;
+    }
+
+    private static User user(Long id, String username, String nickname, String email, String phone,
+                             int status, String rating, int day) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setNickname(nickname);
+        user.setEmail(email);
+        user.setPhone(phone);
+        user.setStatus(status);
+        user.setAverageRating(rating != null ? new BigDecimal(rating) : null);
+        user.setCreateTime(LocalDateTime.of(2024, 1, day, 0, 0));
+        return user;
+    }
+}
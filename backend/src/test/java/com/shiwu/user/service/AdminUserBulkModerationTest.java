@@ -0,0 +1,124 @@
+package com.shiwu.user.service;
+
+import com.shiwu.admin.bulk.BulkItemResult;
+import com.shiwu.admin.bulk.BulkResultWriter;
+import com.shiwu.admin.enums.AuditActionEnum;
+import com.shiwu.admin.model.AuditLog;
+import com.shiwu.admin.service.AuditLogService;
+import com.shiwu.user.dao.AdminUserDao;
+import com.shiwu.user.dao.UserDao;
+import com.shiwu.user.service.impl.AdminUserServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批量用户管理操作测试
+ */
+@DisplayName("批量用户管理操作测试")
+public class AdminUserBulkModerationTest {
+
+    private static final Long ADMIN_ID = 1L;
+
+    private static Map<String, Object> row(long id, int status, boolean updated) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("username", "user" + id);
+        row.put("status", status);
+        row.put("updated", updated);
+        return row;
+    }
+
+    @Test
+    @DisplayName("按块执行，每块一次状态更新和一次审计写入")
+    @SuppressWarnings("unchecked")
+    public void testChunked() {
+        AdminUserDao dao = mock(AdminUserDao.class);
+        AuditLogService auditLogService = mock(AuditLogService.class);
+        AdminUserService service = new AdminUserServiceImpl(dao, mock(UserDao.class), auditLogService);
+        when(dao.bulkUpdateUserStatus(anyList(), anySet(), eq(1), eq(ADMIN_ID))).thenAnswer(invocation -> {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Long id : (List<Long>) invocation.getArgument(0)) {
+                rows.add(row(id, 0, true));
+            }
+            return rows;
+        });
+
+        List<Long> userIds = new ArrayList<>();
+        for (long id = 1; id <= 1200; id++) {
+            userIds.add(id);
+        }
+        userIds.add(1L);
+        Map<String, Object> result = service.batchBanUsers(userIds, ADMIN_ID, "广告", "127.0.0.1", "Test-Agent/1.0");
+
+        assertEquals(1200, result.get("totalCount"));
+        assertEquals(1200, result.get("successCount"));
+        assertEquals(0, result.get("failCount"));
+        verify(dao, times(3)).bulkUpdateUserStatus(anyList(), anySet(), eq(1), eq(ADMIN_ID));
+        verify(dao, never()).updateUserStatus(any(), any(), any());
+        ArgumentCaptor<List<AuditLog>> audits = ArgumentCaptor.forClass(List.class);
+        verify(auditLogService, times(3)).logActions(audits.capture());
+        assertEquals(500, audits.getAllValues().get(0).size());
+        assertEquals(200, audits.getAllValues().get(2).size());
+        verify(auditLogService).logAction(eq(ADMIN_ID), eq(AuditActionEnum.USER_BATCH_BAN), any(), isNull(),
+                anyString(), anyString(), anyString(), eq(true));
+    }
+
+    @Test
+    @DisplayName("不存在、状态不符和数据库异常的用户逐个返回失败原因")
+    @SuppressWarnings("unchecked")
+    public void testFailures() {
+        AdminUserDao dao = mock(AdminUserDao.class);
+        AdminUserService service = new AdminUserServiceImpl(dao, mock(UserDao.class), mock(AuditLogService.class));
+        when(dao.bulkUpdateUserStatus(anyList(), anySet(), eq(2), eq(ADMIN_ID)))
+                .thenReturn(Arrays.asList(row(1L, 0, true), row(2L, 1, false), row(3L, 2, false)));
+
+        Map<String, Object> result = service.batchMuteUsers(Arrays.asList(1L, 2L, 3L, 4L), ADMIN_ID, null, null, null);
+        assertEquals(1, result.get("successCount"));
+        assertEquals(3, result.get("failCount"));
+        List<BulkItemResult> failures = (List<BulkItemResult>) result.get("failures");
+        assertEquals("用户已被封禁", failures.get(0).getMessage());
+        assertEquals("用户已被禁言", failures.get(1).getMessage());
+        assertEquals("用户不存在", failures.get(2).getMessage());
+
+        when(dao.bulkUpdateUserStatus(anyList(), anySet(), eq(0), eq(ADMIN_ID)))
+                .thenThrow(new RuntimeException("db"));
+        Map<String, Object> failed = service.batchUnbanUsers(Arrays.asList(5L, 6L), ADMIN_ID, null, null);
+        assertEquals(2, failed.get("failCount"));
+
+        assertNull(service.batchBanUsers(Arrays.asList(1L), null, null, null, null));
+    }
+
+    @Test
+    @DisplayName("逐块写出每个用户的结果和汇总")
+    public void testStreamed() throws Exception {
+        AdminUserDao dao = mock(AdminUserDao.class);
+        AdminUserService service = new AdminUserServiceImpl(dao, mock(UserDao.class), mock(AuditLogService.class));
+        when(dao.bulkUpdateUserStatus(anyList(), anySet(), eq(0), eq(ADMIN_ID)))
+                .thenReturn(Arrays.asList(row(1L, 1, true), row(2L, 0, false)));
+
+        StringWriter out = new StringWriter();
+        BulkResultWriter writer = new BulkResultWriter(out);
+        Map<String, Object> summary = service.batchUpdateUserStatus(AuditActionEnum.USER_UNBAN, Arrays.asList(1L, 2L),
+                ADMIN_ID, null, null, null, writer);
+        writer.writeSummary(summary);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"id\":1") && lines[0].contains("\"success\":true"));
+        assertTrue(lines[1].contains("用户未被封禁"));
+        assertTrue(lines[2].startsWith("{\"summary\":"));
+        assertFalse(summary.containsKey("failures"));
+    }
+}